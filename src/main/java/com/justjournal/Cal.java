@@ -27,10 +27,12 @@ package com.justjournal;
 
 
 import com.justjournal.model.Entry;
+import com.justjournal.model.EntryCalendarCount;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.GregorianCalendar;
 import java.util.Iterator;
 import java.util.List;
 
@@ -66,7 +68,6 @@ public final class Cal {
     "November",
     "December"
   };
-  private final Collection<Entry> entries;
   @Setter
   private String baseUrl = null;
 
@@ -76,11 +77,44 @@ public final class Cal {
       log.error("Entries collection is empty");
       throw new IllegalArgumentException("Entry collection cannot be null or empty");
     }
-    this.entries = entries;
-    this.calculateEntryCounts();
+    this.calculateEntryCounts(entries);
   }
 
-  private void calculateEntryCounts() {
+  private Cal() {}
+
+  /**
+   * Build a calendar from per day entry counts rather than the entries themselves.
+   *
+   * @param counts day counts for a single year, ordered by month and day
+   * @return calendar
+   */
+  public static Cal fromCounts(final Collection<EntryCalendarCount> counts) {
+    if (CollectionUtils.isEmpty(counts)) {
+      throw new IllegalArgumentException("Calendar count collection cannot be null or empty");
+    }
+
+    final Cal cal = new Cal();
+    int month = 0; // 1 based
+    int[] monthPostCt = null;
+    GregorianCalendar baseDate = null;
+
+    for (final EntryCalendarCount count : counts) {
+      if (count.getMonth() != month) {
+        if (monthPostCt != null) cal.monthList.add(new CalMonth(month - 1, monthPostCt, baseDate.getTime()));
+
+        month = count.getMonth();
+        baseDate = new GregorianCalendar(count.getYear(), month - 1, 1);
+        monthPostCt = new int[baseDate.getActualMaximum(java.util.Calendar.DAY_OF_MONTH)];
+      }
+      // the same day may appear once per security level
+      monthPostCt[count.getDay() - 1] += (int) count.getCount();
+    }
+    cal.monthList.add(new CalMonth(month - 1, monthPostCt, baseDate.getTime()));
+
+    return cal;
+  }
+
+  private void calculateEntryCounts(final Collection<Entry> entries) {
     final java.util.GregorianCalendar calendarg = new java.util.GregorianCalendar();
     int month = -1; // first time through we want to fire the change code, this is 0 based.
     int day;
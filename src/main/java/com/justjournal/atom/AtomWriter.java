@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.atom;
+
+import com.justjournal.core.Settings;
+import com.justjournal.model.EntryFeedItem;
+import com.justjournal.model.FormatType;
+import com.justjournal.services.BodyRenderService;
+import com.justjournal.utility.DateConvert;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Create an atom feed.
+ *
+ * <p>Stateless: feeds are immutable {@link AtomFeed} records and are written with StAX, so one
+ * instance is shared by requests and background feed builds.
+ *
+ * <pre>
+ * &lt;feed xmlns="http://www.w3.org/2005/Atom" xml:lang="en" xml:base="http://www.example.org"&gt;
+ *   &lt;id&gt;http://www.example.org/myfeed&lt;/id&gt;
+ *   &lt;title&gt;My Simple Feed&lt;/title&gt;
+ *   &lt;updated&gt;2005-07-15T12:00:00Z&lt;/updated&gt;
+ *   &lt;link href="/blog" /&gt;
+ *   &lt;link rel="self" href="/myfeed" /&gt;
+ *   &lt;entry&gt;...&lt;/entry&gt;
+ * &lt;/feed&gt;
+ * </pre>
+ *
+ * @author Lucas Holt
+ */
+@Slf4j
+@Component
+public class AtomWriter {
+  /** Most entries written for a feed. */
+  public static final int MAX_LENGTH = 15;
+
+  private static final String ENCODING = "UTF-8";
+  private static final String ATOM_NS = "http://www.w3.org/2005/Atom";
+  private static final String XML_NS = "http://www.w3.org/XML/1998/namespace";
+  private static final String ID_PREFIX = "urn:jj:justjournal.com:atom1:";
+
+  private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+  private final BodyRenderService bodyRenderService;
+  private final Settings settings;
+
+  public AtomWriter(final BodyRenderService bodyRenderService, final Settings settings) {
+    this.bodyRenderService = bodyRenderService;
+    this.settings = settings;
+  }
+
+  /**
+   * Atom entries for blog entries.
+   *
+   * @param entries entries, newest first
+   * @return atom entries
+   */
+  public List<AtomEntry> entries(final Collection<EntryFeedItem> entries) {
+    final List<AtomEntry> items = new ArrayList<>(Math.min(entries.size(), MAX_LENGTH));
+
+    try {
+      for (final EntryFeedItem o : entries) {
+        if (items.size() == MAX_LENGTH) break;
+
+        final String content;
+        if (o.format().equals(FormatType.MARKDOWN)) content = bodyRenderService.text(o);
+        else content = o.body();
+
+        items.add(
+            new AtomEntry(
+                ID_PREFIX + o.username() + ":" + o.id(),
+                o.subject(),
+                settings.getBlogBaseUrl(o.username()) + "/entry/" + o.id(),
+                DateConvert.encode3339(o.date()),
+                DateConvert.encode3339(o.date()),
+                null,
+                content));
+      }
+    } catch (final Exception e) {
+      log.error("Could not populate atom entries", e);
+    }
+    return items;
+  }
+
+  /**
+   * @param feed feed
+   * @return the document encoded as UTF-8
+   */
+  public byte[] toBytes(final AtomFeed feed) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      write(feed, out);
+    } catch (final XMLStreamException e) {
+      throw new IllegalStateException("Unable to write Atom", e);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Write an Atom 1.0 document.
+   *
+   * @param feed feed
+   * @param out destination, left open
+   * @throws XMLStreamException if the document can't be written
+   */
+  public void write(final AtomFeed feed, final OutputStream out) throws XMLStreamException {
+    final XMLStreamWriter xml = OUTPUT_FACTORY.createXMLStreamWriter(out, ENCODING);
+
+    xml.writeStartDocument(ENCODING, "1.0");
+    xml.writeProcessingInstruction(
+        "xml-stylesheet", "type=\"text/xsl\" href=\"/static/streamburner/streamburner.xsl\"");
+    xml.writeStartElement("feed");
+    xml.writeDefaultNamespace(ATOM_NS);
+    xml.writeAttribute("xml", XML_NS, "lang", "en");
+    xml.writeAttribute("xml", XML_NS, "base", "https://www.justjournal.com");
+
+    element(xml, "id", ID_PREFIX + feed.userName());
+    element(xml, "title", feed.title());
+
+    xml.writeStartElement("author");
+    element(xml, "name", feed.authorName());
+    xml.writeEndElement();
+
+    link(xml, "alternate", "text/html", feed.alternateLink());
+    link(xml, "self", null, feed.selfLink());
+    if (feed.hub() != null) link(xml, "hub", null, feed.hub());
+
+    xml.writeStartElement("generator");
+    xml.writeAttribute("uri", "https://github.com/laffer1/justjournal");
+    xml.writeAttribute("version", "3.1.10");
+    xml.writeCharacters("JustJournal");
+    xml.writeEndElement();
+
+    element(xml, "updated", DateConvert.encode3339(new Date()));
+
+    final List<AtomEntry> entries = feed.entries();
+    for (int i = 0, n = Math.min(entries.size(), MAX_LENGTH); i < n; i++) {
+      final AtomEntry o = entries.get(i);
+
+      xml.writeStartElement("entry");
+      element(xml, "id", o.id());
+      element(xml, "title", o.title());
+      link(xml, "alternate", "text/html", o.link());
+      element(xml, "published", o.published());
+      element(xml, "updated", o.updated());
+
+      if (o.summary() != null) {
+        element(xml, "summary", o.summary());
+      }
+
+      if (o.content() != null) {
+        xml.writeStartElement("content");
+        xml.writeAttribute("type", "html");
+        xml.writeCharacters(o.content());
+        xml.writeEndElement();
+      }
+      xml.writeEndElement();
+    }
+
+    xml.writeEndElement();
+    xml.writeEndDocument();
+    xml.flush();
+    xml.close();
+  }
+
+  private static void link(
+      final XMLStreamWriter xml, final String rel, final String type, final String href)
+      throws XMLStreamException {
+    xml.writeEmptyElement("link");
+    xml.writeAttribute("rel", rel);
+    if (type != null) xml.writeAttribute("type", type);
+    xml.writeAttribute("href", href == null ? "" : href);
+  }
+
+  private static void element(final XMLStreamWriter xml, final String name, final String value)
+      throws XMLStreamException {
+    xml.writeStartElement(name);
+    if (value != null) xml.writeCharacters(value);
+    xml.writeEndElement();
+  }
+}
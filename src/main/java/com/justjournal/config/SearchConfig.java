@@ -26,6 +26,9 @@
 package com.justjournal.config;
 
 
+import com.justjournal.repository.search.BlogEntryRepository;
+import com.justjournal.search.BlogEntryStore;
+import com.justjournal.search.ElasticsearchBlogEntryStore;
 import java.util.Arrays;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -48,13 +51,18 @@ import org.springframework.data.elasticsearch.repository.config.EnableElasticsea
 public class SearchConfig {
   private final Environment environment;
 
-  @Value("search.blog-entry-index")
+  @Value("${search.blog-entry-index:blogentry}")
   private String blogEntryIndex;
 
   public SearchConfig(final Environment environment) {
     this.environment = environment;
   }
 
+  @Bean
+  public BlogEntryStore blogEntryStore(final BlogEntryRepository blogEntryRepository) {
+    return new ElasticsearchBlogEntryStore(blogEntryRepository);
+  }
+
   @Bean
   public String blogEntryIndex() {
     return String.format("%s-%s", blogEntryIndex, getEnv());
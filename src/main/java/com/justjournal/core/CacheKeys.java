@@ -27,7 +27,9 @@ package com.justjournal.core;
 
 /** @author Lucas Holt */
 public class CacheKeys {
-  public static final String RECENT_BLOGS_KEY = "recentblogs";
+  public static final String RECENT_BLOGS_KEY = "recentblogs_by_date";
+  public static final String RECENT_BLOGS_ITEMS_KEY = "recentblogs_items";
+  public static final String RECENT_BLOGS_VERSION_KEY = "recentblogs_version";
   public static final String TRACKBACK_IP_KEY = "trackbackip";
   public static final String TAG_KEY = "tag";
   public static final String TAG_LIST_KEY = "tag_list";
@@ -78,9 +78,12 @@ public class Constants {
   public static final String PARAM_TIME = "time";
   public static final String PARAM_YEAR = "year";
   public static final String PARAM_TITLE = "title";
+  public static final String PARAM_CURSOR = "cursor";
+  public static final String PARAM_COUNT = "count";
 
   public static final String PATH_USERS = "users/";
   public static final String PATH_ENTRY = "/entry/";
+  public static final String PATH_HUB = "hub";
 
   public static final String ERR_INVALID_LOGIN = "The login timed out or is invalid.";
   public static final String ERR_ADD_USER = "Could not add user";
@@ -27,30 +27,47 @@ package com.justjournal.core;
 
 
 import com.justjournal.model.RssCache;
+import com.justjournal.model.RssCacheSchedule;
 import com.justjournal.repository.RssCacheRepository;
 import com.justjournal.utility.StringUtil;
-import java.io.BufferedInputStream;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.Calendar;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
 /**
  * Update the RSS cache
  *
+ * <p>Feeds are kept in a queue ordered by when they are next due and fetched with the ETag and
+ * Last-Modified validators from the previous response, so an unchanged feed costs a 304. Each
+ * feed's interval adapts to how often it changes: it halves when new content arrives and grows
+ * when the feed is the same, and fetches back off while a feed is failing.
+ *
  * @author Lucas Holt
  */
 @Slf4j
@@ -60,106 +77,242 @@ public class RssCacheRefresh {
 
   private static final int MAX_ERROR_FETCH = 5;
 
+  static final int DEFAULT_INTERVAL_HOURS = 24;
+  static final int MIN_INTERVAL_HOURS = 1;
+  static final int MAX_INTERVAL_HOURS = 24 * 7;
+
+  /** Most feeds fetched in one run, the rest wait for the next. */
+  private static final int MAX_FETCHES_PER_RUN = 50;
+
+  private static final int TIMEOUT_MILLIS = 15000;
+
+  /**
+   * Feed waiting in the queue.
+   *
+   * @param id feed id
+   * @param at when it is due, epoch millis
+   */
+  record Due(int id, long at) {}
+
+  private final PriorityBlockingQueue<Due> queue =
+      new PriorityBlockingQueue<>(64, Comparator.comparingLong(Due::at));
+
+  /** Feeds in the queue or being fetched. */
+  private final Set<Integer> scheduled = ConcurrentHashMap.newKeySet();
+
   private final RssCacheRepository rssCacheDao;
 
+  private final CloseableHttpClient client;
+
+  private final Scheduler scheduler = Schedulers.newParallel("rsscache", 2);
+
+  @Autowired
   public RssCacheRefresh(RssCacheRepository rssCacheDao) {
+    this(
+        rssCacheDao,
+        HttpClients.custom()
+            .setDefaultRequestConfig(
+                RequestConfig.custom()
+                    .setConnectTimeout(TIMEOUT_MILLIS)
+                    .setConnectionRequestTimeout(TIMEOUT_MILLIS)
+                    .setSocketTimeout(TIMEOUT_MILLIS)
+                    .build())
+            .setUserAgent("JustJournal RSS reader")
+            .build());
+  }
+
+  RssCacheRefresh(RssCacheRepository rssCacheDao, CloseableHttpClient client) {
     this.rssCacheDao = rssCacheDao;
+    this.client = client;
   }
 
+  /** Queue active feeds that aren't queued yet, such as ones added by readers since last time. */
   @Scheduled(fixedDelay = 1000 * 60 * 30, initialDelay = 60000)
+  public void sync() {
+    try {
+      for (final RssCacheSchedule feed : rssCacheDao.findSchedule()) {
+        if (scheduled.add(feed.id())) {
+          queue.add(new Due(feed.id(), due(feed)));
+        }
+      }
+    } catch (final Exception e) {
+      log.error("RssCache: unable to read schedule", e);
+    }
+  }
+
+  /** Fetch the feeds that are due. */
+  @Scheduled(fixedDelay = 1000 * 60, initialDelay = 90000)
   public void run() {
-    log.info("RssCache: Init");
+    final List<Integer> due = takeDue(System.currentTimeMillis());
+    if (due.isEmpty()) return;
+
+    log.info("RssCache: fetching {} feeds", due.size());
+    Flux.fromIterable(due)
+        .parallel()
+        .runOn(scheduler)
+        .subscribe(this::refresh, e -> log.error(e.getMessage(), e));
+  }
+
+  /** Remove the feeds due by a time from the queue, earliest first. */
+  List<Integer> takeDue(final long now) {
+    final List<Integer> due = new ArrayList<>();
+    Due head;
+    while (due.size() < MAX_FETCHES_PER_RUN && (head = queue.peek()) != null && head.at() <= now) {
+      final Due next = queue.poll();
+      if (next != null) due.add(next.id());
+    }
+    return due;
+  }
+
+  /**
+   * Fetch one feed, store the outcome and queue it again for its next fetch.
+   *
+   * @param id feed id
+   */
+  void refresh(final int id) {
+    final RssCache cache = rssCacheDao.findById(id).orElse(null);
+    if (cache == null || cache.getActive() == null || !cache.getActive()) {
+      scheduled.remove(id);
+      return;
+    }
 
     try {
-      final Calendar yesterday = Calendar.getInstance();
-      yesterday.add(Calendar.DATE, -1);
-
-      final List<RssCache> items = rssCacheDao.findByLastUpdatedBefore(yesterday.getTime());
-
-      Flux.fromIterable(items)
-          .parallel()
-          .runOn(Schedulers.newParallel("rsscache", 2))
-          .map(
-              cache -> {
-                try {
-                  if (cache.getActive() != null && cache.getActive())
-                    return Mono.fromCallable(() -> getRssDocument(cache));
-                } catch (final Exception e) {
-                  log.error(e.getMessage(), e);
-                  cache.setErrorCount(cache.getErrorCount() + 1);
-                  if (cache.getErrorCount() > MAX_ERROR_FETCH) cache.setActive(false);
-                  rssCacheDao.saveAndFlush(cache);
-                }
-                return Mono.empty();
-              })
-          .subscribe();
+      getRssDocument(cache);
+    } catch (final Exception e) {
+      log.warn("RssCache: unable to fetch {}: {}", cache.getUri(), e.getMessage());
+      failed(cache);
+    }
 
+    try {
+      rssCacheDao.saveAndFlush(cache);
     } catch (final Exception e) {
-      log.error(e.getMessage(), e);
+      log.error("RssCache: unable to save {}", cache.getUri(), e);
     }
 
-    log.info("RssCache: Quit");
+    if (Boolean.TRUE.equals(cache.getActive())) {
+      queue.add(new Due(id, cache.getNextFetch().getTime()));
+    } else {
+      scheduled.remove(id);
+    }
   }
 
   /**
-   * Fetch the RSS feed.
+   * Fetch the RSS feed, sending the validators from the last fetch.
    *
-   * @param rss
-   * @throws IOException
+   * @param rss feed to update in place
+   * @throws IOException if the feed can't be fetched
    */
-  RssCache getRssDocument(final RssCache rss) throws IOException {
-    final StringBuilder sbx = new StringBuilder();
-
-    if (rss == null || rss.getUri() == null || rss.getUri().length() < 11) return null;
+  void getRssDocument(final RssCache rss) throws IOException {
+    if (rss.getUri() == null || rss.getUri().length() < 11) {
+      rss.setActive(false);
+      return;
+    }
 
-    final HttpClient client = HttpClientBuilder.create().build();
     final HttpGet request = new HttpGet(rss.getUri());
-    final HttpResponse response = client.execute(request);
-
-    final int code = response.getStatusLine().getStatusCode();
-    if (code == 200) {
-      final HttpEntity entity = response.getEntity();
-      final byte[] buffer = new byte[1024];
-      if (entity != null) {
-        final InputStream inputStream = entity.getContent();
-        try {
-          int bytesRead;
-          final BufferedInputStream bis = new BufferedInputStream(inputStream);
-          while ((bytesRead = bis.read(buffer)) != -1) {
-            final String chunk = new String(buffer, 0, bytesRead);
-            sbx.append(StringUtil.replace(chunk, '\'', "\\\'"));
-          }
-          bis.close();
-        } catch (final Exception e) {
-          log.error(e.getMessage(), e);
+    if (rss.getEtag() != null) request.setHeader(HttpHeaders.IF_NONE_MATCH, rss.getEtag());
+    if (rss.getLastModified() != null) {
+      request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, rss.getLastModified());
+    }
+
+    try (CloseableHttpResponse response = client.execute(request)) {
+      final int code = response.getStatusLine().getStatusCode();
+      if (code == HttpStatus.SC_NOT_MODIFIED) {
+        fetched(rss, false);
+      } else if (code == HttpStatus.SC_OK) {
+        final HttpEntity entity = response.getEntity();
+        final String content =
+            entity == null
+                ? ""
+                : cleanContent(
+                    StringUtil.replace(
+                        EntityUtils.toString(entity, StandardCharsets.UTF_8), '\'', "\\'"));
+        if (content.isEmpty()) {
+          log.warn("RssCache: {} is not a feed", rss.getUri());
+          failed(rss);
+          return;
         }
+
+        final boolean changed =
+            rss.getContent() != null
+                && !rss.getContent().isEmpty()
+                && !content.equals(rss.getContent());
+        rss.setContent(content);
+        rss.setEtag(header(response.getFirstHeader(HttpHeaders.ETAG), 255));
+        rss.setLastModified(header(response.getFirstHeader(HttpHeaders.LAST_MODIFIED), 64));
+        fetched(rss, changed);
+      } else if (code == HttpStatus.SC_NOT_FOUND || code == HttpStatus.SC_GONE) {
+        log.warn("URL {} is returning a {}. Removing from list", rss.getUri(), code);
+        rss.setLastUpdated(new Date());
+        rss.setActive(false);
+      } else {
+        log.warn("RssCache status code {} for url {}", code, rss.getUri());
+        failed(rss);
       }
+    }
+  }
 
-      rss.setLastUpdated(Calendar.getInstance().getTime());
-      rss.setContent(cleanContent(sbx.toString()));
+  /** A good response: adapt the interval to whether the feed changed. */
+  static void fetched(final RssCache rss, final boolean changed) {
+    final int interval = interval(rss.getInterval());
+    final int next =
+        changed
+            ? Math.max(MIN_INTERVAL_HOURS, interval / 2)
+            : Math.min(MAX_INTERVAL_HOURS, interval + Math.max(1, interval / 2));
 
-      return rssCacheDao.saveAndFlush(rss);
-    } else if (code == 404 || code == 410) {
-      log.warn("URL {} is returning a 404. Removing from list", rss.getUri());
+    final long now = System.currentTimeMillis();
+    rss.setInterval(next);
+    rss.setErrorCount(0);
+    rss.setLastUpdated(new Date(now));
+    rss.setNextFetch(new Date(now + TimeUnit.HOURS.toMillis(next)));
+  }
 
-      rss.setLastUpdated(Calendar.getInstance().getTime());
+  /** A failed fetch: wait twice as long after each error in a row and give up after too many. */
+  static void failed(final RssCache rss) {
+    final int errors = rss.getErrorCount() + 1;
+    rss.setErrorCount(errors);
+    if (errors > MAX_ERROR_FETCH) {
+      log.warn("RssCache: too many errors, disabling {}", rss.getUri());
       rss.setActive(false);
-      return rssCacheDao.saveAndFlush(rss);
-    } else {
-      log.warn(String.format("RssCache status code %d for url %s", code, rss.getUri()));
     }
 
-    return rss;
+    final long hours =
+        Math.min(MAX_INTERVAL_HOURS, (long) interval(rss.getInterval()) << Math.min(errors, 8));
+    rss.setNextFetch(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(hours)));
+  }
+
+  private static long due(final RssCacheSchedule feed) {
+    if (feed.nextFetch() != null) return feed.nextFetch().getTime();
+    if (feed.lastUpdated() == null) return 0;
+    return feed.lastUpdated().getTime() + TimeUnit.HOURS.toMillis(interval(feed.interval()));
+  }
+
+  private static int interval(final int hours) {
+    if (hours < MIN_INTERVAL_HOURS) return DEFAULT_INTERVAL_HOURS;
+    return Math.min(hours, MAX_INTERVAL_HOURS);
+  }
+
+  private static String header(final Header header, final int max) {
+    if (header == null || header.getValue() == null || header.getValue().length() > max) {
+      return null;
+    }
+    return header.getValue();
   }
 
   private String cleanContent(final String content) {
     if (content == null) return "";
 
-    if (content.startsWith("<rss")) return ("<?xml version=\"1.0\"?>\n" + content.trim());
+    final String trimmed = content.trim();
+    if (trimmed.startsWith("<rss")) return ("<?xml version=\"1.0\"?>\n" + trimmed);
 
-    if (content.startsWith("<html") || content.startsWith("<!DOCTYPE HTML"))
+    if (trimmed.startsWith("<html") || trimmed.startsWith("<!DOCTYPE HTML"))
       return ""; // it's an html page.. bad
 
-    return content.trim();
+    return trimmed;
+  }
+
+  @PreDestroy
+  public void shutdown() throws IOException {
+    scheduler.dispose();
+    client.close();
   }
 }
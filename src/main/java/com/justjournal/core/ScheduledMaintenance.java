@@ -26,7 +26,9 @@
 package com.justjournal.core;
 
 
+import com.justjournal.services.BodyRenderService;
 import com.justjournal.services.TagService;
+import com.justjournal.services.WebSubService;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
@@ -46,9 +48,31 @@ public class ScheduledMaintenance {
 
   private final TransactionTemplate transactionTemplate;
 
-  public ScheduledMaintenance(TagService tagService, TransactionTemplate transactionTemplate) {
+  private final BodyRenderService bodyRenderService;
+
+  private final WebSubService webSubService;
+
+  public ScheduledMaintenance(TagService tagService, TransactionTemplate transactionTemplate, BodyRenderService bodyRenderService,
+                              WebSubService webSubService) {
     this.tagService = tagService;
     this.transactionTemplate = transactionTemplate;
+    this.bodyRenderService = bodyRenderService;
+    this.webSubService = webSubService;
+  }
+
+  /**
+   * Render markdown bodies saved before rendering on save existed, missed by a failed render, or
+   * rendered by an older version of the renderer.
+   */
+  @Scheduled(fixedDelay = 1000 * 60 * 10, initialDelay = 60000)
+  public void renderStaleBodies() {
+    bodyRenderService.renderStale();
+  }
+
+  /** Remove feed subscriptions whose lease ran out without being renewed. */
+  @Scheduled(fixedDelay = 1000 * 60 * 60, initialDelay = 180000)
+  public void expireWebSubSubscriptions() {
+    webSubService.expire();
   }
 
   /** Remove old tags that are no longer connected to any entries. */
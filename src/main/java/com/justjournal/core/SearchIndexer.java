@@ -27,16 +27,19 @@ package com.justjournal.core;
 
 
 import com.justjournal.services.BlogSearchService;
-import java.util.Calendar;
+import com.justjournal.services.SearchOutboxService;
+import com.justjournal.services.SearchReindexService;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 /**
- * Manage indexing blog entries into elasticsearch
+ * Manage indexing blog entries into the search index
  *
  * @author Lucas Holt
  */
@@ -46,27 +49,54 @@ import org.springframework.stereotype.Component;
 public class SearchIndexer {
   private final BlogSearchService blogSearchService;
 
+  private final SearchOutboxService searchOutboxService;
+
+  /** Only with Elasticsearch; the local index is filled through the outbox instead. */
+  private final ObjectProvider<SearchReindexService> searchReindexService;
+
+  /** Rebuild at startup even if the index is current, set with search.reindex=true. */
+  private final boolean rebuild;
+
   @Autowired
-  public SearchIndexer(final BlogSearchService blogSearchService) {
+  public SearchIndexer(
+      final BlogSearchService blogSearchService,
+      final SearchOutboxService searchOutboxService,
+      final ObjectProvider<SearchReindexService> searchReindexService,
+      @Value("${search.reindex:false}") final boolean rebuild) {
     this.blogSearchService = blogSearchService;
+    this.searchOutboxService = searchOutboxService;
+    this.searchReindexService = searchReindexService;
+    this.rebuild = rebuild;
   }
 
-  /** Periodically load new blog entries */
-  @Scheduled(fixedDelay = 1000 * 60 * 30, initialDelay = 120000)
-  public void loadNewEntries() {
-    log.info("Search indexer - Load new entries from the last 30 minutes");
-
-    final Calendar cal = Calendar.getInstance();
-    cal.add(Calendar.MINUTE, -30);
+  /**
+   * Send entry changes from the outbox to the index. Held back while any node rebuilds so changes
+   * to ranges already copied reach the new index once the alias moves, and used to pick up a
+   * rebuild a stopped node left unfinished.
+   */
+  @Scheduled(fixedDelay = 1000 * 5, initialDelay = 120000)
+  public void relayChanges() {
+    final SearchReindexService reindex = searchReindexService.getIfAvailable();
+    if (reindex != null && reindex.isRunning()) {
+      reindex.resume();
+      return;
+    }
 
-    blogSearchService.indexPublicBlogEntriesSince(cal.getTime());
+    final int relayed = searchOutboxService.relay();
+    if (relayed > 0) log.debug("Search indexer - Relayed {} entry changes", relayed);
   }
 
-  /** Load all public blog entries at startup into elasticsearch */
+  /** Index entries changed while stopped, or rebuild the index if it can't be caught up */
   @PostConstruct
   public void initialize() {
-    log.info("Starting search indexer - Load all public entries");
+    log.info("Starting search indexer - Catch up index of public entries");
 
-    blogSearchService.indexAllPublicBlogEntries();
+    final SearchReindexService reindex = searchReindexService.getIfAvailable();
+    if (reindex != null) {
+      reindex.catchUp(rebuild);
+    } else if (!blogSearchService.isIndexCurrent()) {
+      final int queued = searchOutboxService.backfill();
+      log.info("Search indexer - Queued {} entries for a new index", queued);
+    }
   }
 }
@@ -30,6 +30,7 @@ import static com.justjournal.core.Constants.PARAM_ID;
 import static com.justjournal.core.Constants.PARAM_TITLE;
 
 import com.justjournal.services.ImageService;
+import com.justjournal.services.JournalVersionService;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.sql.ResultSet;
@@ -68,10 +69,15 @@ public class AlbumImageController {
   private static final int MIN_FILE_SIZE = 500;
   private final JdbcTemplate jdbcTemplate;
   private final ImageService imageService;
+  private final JournalVersionService journalVersionService;
 
   @Autowired
-  public AlbumImageController(final JdbcTemplate jdbcTemplate, final ImageService imageService) {
+  public AlbumImageController(
+      final JdbcTemplate jdbcTemplate,
+      final ImageService imageService,
+      final JournalVersionService journalVersionService) {
     this.jdbcTemplate = jdbcTemplate;
+    this.journalVersionService = journalVersionService;
     this.imageService = imageService;
   }
 
@@ -160,6 +166,7 @@ public class AlbumImageController {
 
       if (rowsAffected == 1) {
         log.info("Image uploaded successfully for user: {}", userId);
+        journalVersionService.changed(userId);
         return ResponseEntity.status(HttpStatus.CREATED).build();
       } else {
         log.warn("Unexpected number of rows affected during image upload: {}", rowsAffected);
@@ -199,6 +206,7 @@ public class AlbumImageController {
         // No rows were deleted, possibly because the image doesn't exist or doesn't belong to the user
         return new ResponseEntity<>(HttpStatus.NOT_FOUND);
       }
+      journalVersionService.changed(userID);
     } catch (final DataAccessException dae) {
       log.error(dae.getMessage(), dae);
       return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
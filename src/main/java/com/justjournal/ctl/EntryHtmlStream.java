@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.ctl;
+
+import com.justjournal.model.Entry;
+import com.justjournal.utility.EntryDateFormatter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+
+/**
+ * Lazily renders a list of journal entries as HTML fragments. Each entry is formatted only when
+ * the view asks for it, so the template engine can write the page out in chunks rather than
+ * holding the whole body in memory. A date heading is emitted whenever the day changes.
+ *
+ * <p>Entries are rendered after the controller has returned, so lazy associations rely on
+ * {@code spring.jpa.open-in-view} keeping the session open until the view is written.
+ *
+ * @author Lucas Holt
+ */
+@Slf4j
+final class EntryHtmlStream implements Iterable<String> {
+
+  private final Iterable<Entry> entries;
+  private final BiFunction<Entry, Date, String> renderer;
+  private String heading;
+  private String empty;
+
+  EntryHtmlStream(
+      final Iterable<Entry> entries, final BiFunction<Entry, Date, String> renderer) {
+    this.entries = entries == null ? Collections.emptyList() : entries;
+    this.renderer = renderer;
+  }
+
+  /** HTML written once before any entries. */
+  EntryHtmlStream heading(final String html) {
+    this.heading = html;
+    return this;
+  }
+
+  /** HTML written in place of entries when there are none. */
+  EntryHtmlStream whenEmpty(final String html) {
+    this.empty = html;
+    return this;
+  }
+
+  @Override
+  public Iterator<String> iterator() {
+    return new FragmentIterator();
+  }
+
+  private final class FragmentIterator implements Iterator<String> {
+    private final Iterator<Entry> itr = entries.iterator();
+    private String lastDay = "";
+    private boolean headingDone = heading == null;
+    private boolean emptyDone = false;
+    private boolean failed = false;
+    private boolean any = false;
+
+    @Override
+    public boolean hasNext() {
+      if (failed) return false;
+      if (!headingDone) return true;
+      if (itr.hasNext()) return true;
+      return !any && !emptyDone && empty != null;
+    }
+
+    @Override
+    public String next() {
+      if (!hasNext()) throw new NoSuchElementException();
+
+      if (!headingDone) {
+        headingDone = true;
+        return heading;
+      }
+
+      if (!itr.hasNext()) {
+        emptyDone = true;
+        return empty;
+      }
+
+      any = true;
+      final Entry o = itr.next();
+      try {
+        final StringBuilder sb = new StringBuilder();
+        final Date currentDate = o.getDate();
+        final String curDay = EntryDateFormatter.formatDay(currentDate);
+
+        if (!curDay.equals(lastDay)) {
+          sb.append("<h2>").append(curDay).append("</h2>\n");
+          lastDay = curDay;
+        }
+
+        sb.append(renderer.apply(o, currentDate));
+        return sb.toString();
+      } catch (final Exception e) {
+        // the response is likely committed by now, so end the list rather than fail the page
+        log.error("Unable to render entry {}: {}", o.getId(), e.getMessage(), e);
+        failed = true;
+        return "<p>Error retrieving journal entries.</p>\n";
+      }
+    }
+  }
+}
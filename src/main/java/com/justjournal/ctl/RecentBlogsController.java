@@ -30,26 +30,19 @@ import static com.justjournal.core.Constants.HEADER_EXPIRES;
 import static com.justjournal.core.Constants.HEADER_LAST_MODIFIED;
 import static com.justjournal.core.Constants.MIME_TYPE_RSS;
 
-import com.justjournal.core.Settings;
-import com.justjournal.model.Entry;
-import com.justjournal.model.Security;
-import com.justjournal.repository.EntryRepository;
-import com.justjournal.repository.cache.RecentBlogsRepository;
-import com.justjournal.rss.Rss;
-import java.time.Duration;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import com.justjournal.services.RecentBlogsService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
 
 /**
  * Display recent blog entries in RSS format.
@@ -62,83 +55,34 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/RecentBlogs")
 public class RecentBlogsController {
 
-  private final EntryRepository entryRepository;
+  private final RecentBlogsService recentBlogsService;
 
-  private final Settings set;
-
-  private final Rss rss;
-
-  private final RecentBlogsRepository recentBlogsRepository;
-
-  public RecentBlogsController(EntryRepository entryRepository, Settings set, Rss rss, RecentBlogsRepository recentBlogsRepository) {
-    this.entryRepository = entryRepository;
-    this.set = set;
-    this.rss = rss;
-    this.recentBlogsRepository = recentBlogsRepository;
+  public RecentBlogsController(final RecentBlogsService recentBlogsService) {
+    this.recentBlogsService = recentBlogsService;
   }
 
-  @GetMapping(produces = MIME_TYPE_RSS + ";charset=UTF-8")
-  public ResponseEntity<String> get() {
+  @GetMapping(produces = MIME_TYPE_RSS + ";charset=ISO-8859-1")
+  public ResponseEntity<byte[]> get(
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) final String acceptEncoding,
+      final HttpServletRequest request,
+      final HttpServletResponse response) {
     long expiresTime = System.currentTimeMillis() + 1000 * 60;
 
-    Optional<String> blogs = recentBlogsRepository.getBlogs().blockOptional(Duration.ofMinutes(1));
-    if (blogs.isPresent()) {
-      return ResponseEntity.ok()
-              .header(HEADER_CACHE_CONTROL, "max-age=60, private, proxy-revalidate")
-              .header(HEADER_EXPIRES, String.valueOf(expiresTime))
-              .body(blogs.get());
-    }
-
-    // Create an RSS object, set the required
-    // properties (title, description language, url)
-    // and write it to the sb output.
     try {
-
-      final java.util.GregorianCalendar gregorianCalendar =
-          new java.util.GregorianCalendar(java.util.TimeZone.getTimeZone("UTC"));
-      gregorianCalendar.setTime(new java.util.Date());
-
-      rss.setTitle("JJ New Posts");
-      rss.setLink(set.getBaseUri());
-      rss.setDescription("New blog posts on Just Journal");
-      rss.setLanguage("en-us");
-      rss.setCopyright(
-          "Copyright "
-              + gregorianCalendar.get(Calendar.YEAR)
-              + " JustJournal.com and its blog account owners.");
-      rss.setWebMaster(set.getSiteAdminEmail() + " (" + set.getSiteAdmin() + ")");
-      rss.setManagingEditor(set.getSiteAdminEmail() + " (" + set.getSiteAdmin() + ")");
-      rss.setSelfLink(set.getBaseUri() + "RecentBlogs");
-
-      final Pageable pageable = PageRequest.of(1, 20);
-      final Page<Entry> entries = entryRepository.findBySecurityOrderByDateDesc(Security.PUBLIC, pageable);
-
-      final Map<String, Entry> map = new HashMap<>();
-      int count = 0;
-      for (final Entry e : entries) {
-        if (count == 15) {
-          break;
-        }
-
-        if (map.containsKey(e.getUser().getUsername())) {
-          continue;
-        }
-
-        map.put(e.getUser().getUsername(), e);
-        count++;
+      ShallowEtagHeaderFilter.disableContentCaching(request);
+      final RecentBlogsService.RecentBlogs blogs = recentBlogsService.getFeed();
+      if (new ServletWebRequest(request, response).checkNotModified(blogs.payload().etag())) {
+        return null;
       }
 
-      rss.populate(map.values());
-
-      final Date d = rss.getNewestEntryDate();
-      String result = rss.toXml();
-      recentBlogsRepository.setBlogs(result).subscribe();
-
-      return ResponseEntity.ok()
+      final ResponseEntity.BodyBuilder ok =
+          ResponseEntity.ok()
               .header(HEADER_CACHE_CONTROL, "max-age=60, private, proxy-revalidate")
-              .header(HEADER_EXPIRES, String.valueOf(expiresTime))
-              .header(HEADER_LAST_MODIFIED, d != null ? String.valueOf(d.getTime()) : String.valueOf(System.currentTimeMillis()))
-              .body(result);
+              .header(HEADER_EXPIRES, String.valueOf(expiresTime));
+      if (blogs.newest() != null) {
+        ok.header(HEADER_LAST_MODIFIED, String.valueOf(blogs.newest().getTime()));
+      }
+      return blogs.payload().toResponse(ok, acceptEncoding);
     } catch (final Exception e) {
       // oops, we goofed somewhere.  It's not in the original spec
       // how to handle error conditions with rss.
@@ -146,6 +90,7 @@ public class RecentBlogsController {
       log.error("Could not generate recent blogs", e);
     }
 
-    return ResponseEntity.internalServerError().body("Could not generate recent blogs");
+    return ResponseEntity.internalServerError()
+        .body("Could not generate recent blogs".getBytes(StandardCharsets.UTF_8));
   }
 }
@@ -26,80 +26,66 @@
 package com.justjournal.ctl;
 
 
-import com.justjournal.model.*;
-import com.justjournal.core.Settings;
-import com.justjournal.repository.UserRepository;
+import com.justjournal.services.SitemapService;
+import com.justjournal.utility.EncodedPayload;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
 
 /**
  * Dynamically generate sitemap from
  * <a href="http://stackoverflow.com/questions/12289232/serving-sitemap-xml-and-robots-txt-with-spring-mvc">...</a>
  *
+ * <p>{@code /sitemap.xml} is a sitemap index pointing at numbered shards.
+ *
  * @author Lucas Holt
  */
 @RestController
 public class SitemapController {
 
-  private final Settings settings;
-
-  private final UserRepository userRepository;
+  private final SitemapService sitemapService;
 
-  public SitemapController(Settings settings, UserRepository userRepository) {
-    this.settings = settings;
-    this.userRepository = userRepository;
+  public SitemapController(final SitemapService sitemapService) {
+    this.sitemapService = sitemapService;
   }
 
-  @GetMapping(value = "/sitemap.xml", produces = "text/xml")
-  public UrlSet get() {
-
-    final String baseUri = settings.getBaseUri();
-    final UrlSet xmlUrlSet = new UrlSet();
-    create(xmlUrlSet, baseUri, Url.Priority.HIGH, Url.ChangeFreqency.MONTHLY);
-
-    create(xmlUrlSet, baseUri + "RecentBlogs", Url.Priority.LOW, Url.ChangeFreqency.DAILY);
-    create(xmlUrlSet, baseUri + "#!/sitemap", Url.Priority.LOW, Url.ChangeFreqency.YEARLY);
-    create(xmlUrlSet, baseUri + "#!/sitemap", Url.Priority.LOW, Url.ChangeFreqency.YEARLY);
-    create(xmlUrlSet, baseUri + "#!/search", Url.Priority.LOW, Url.ChangeFreqency.YEARLY);
-    create(xmlUrlSet, baseUri + "#!/privacy", Url.Priority.LOW, Url.ChangeFreqency.YEARLY);
-    create(xmlUrlSet, baseUri + "#!/members", Url.Priority.LOW, Url.ChangeFreqency.DAILY);
-    create(xmlUrlSet, baseUri + "#!/support", Url.Priority.LOW, Url.ChangeFreqency.YEARLY);
-    create(xmlUrlSet, baseUri + "#!/support/bugs", Url.Priority.LOW, Url.ChangeFreqency.YEARLY);
-    create(xmlUrlSet, baseUri + "#!/moodlist", Url.Priority.LOW, Url.ChangeFreqency.YEARLY);
-
-    for (final User user : userRepository.findAll()) {
-      for (final Journal journal : user.getJournals()) {
-        if (journal.isAllowSpider() && !journal.isOwnerViewOnly()) {
-          final String users = settings.getBlogBaseUrl(user.getUsername());
+  @GetMapping(value = "/sitemap.xml", produces = "text/xml; charset=UTF-8")
+  public ResponseEntity<byte[]> get(
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) final String acceptEncoding,
+      final HttpServletRequest request,
+      final HttpServletResponse response) {
+    return serve(sitemapService.getIndex(), acceptEncoding, request, response);
+  }
 
-          create(xmlUrlSet, users, Url.Priority.HIGH, Url.ChangeFreqency.DAILY);
-          create(xmlUrlSet, users + "/calendar", Url.Priority.MEDIUMLOW, Url.ChangeFreqency.MONTHLY);
-          create(xmlUrlSet, users + "/friends", Url.Priority.MEDIUMLOW, Url.ChangeFreqency.DAILY);
-          create(xmlUrlSet, users + "/pictures", Url.Priority.LOW, Url.ChangeFreqency.WEEKLY);
-          create(xmlUrlSet, users + "/favorites", Url.Priority.LOW, Url.ChangeFreqency.WEEKLY);
-          create(xmlUrlSet, users + "/rss", Url.Priority.MEDIUM, Url.ChangeFreqency.DAILY);
-          create(xmlUrlSet, users + "/atom", Url.Priority.MEDIUM, Url.ChangeFreqency.DAILY);
-          create(xmlUrlSet, users + "/json", Url.Priority.MEDIUM, Url.ChangeFreqency.DAILY);
-        }
-      }
+  @GetMapping(value = "/sitemap-{shard}.xml", produces = "text/xml; charset=UTF-8")
+  public ResponseEntity<byte[]> getShard(
+      @PathVariable("shard") final int shard,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) final String acceptEncoding,
+      final HttpServletRequest request,
+      final HttpServletResponse response) {
+    final EncodedPayload payload = sitemapService.getShard(shard);
+    if (payload == null) {
+      return ResponseEntity.notFound().build();
     }
-
-    return xmlUrlSet;
+    return serve(payload, acceptEncoding, request, response);
   }
 
-  /**
-   * Create Link
-   *
-   * @param xmlUrlSet link set
-   * @param link link to add to sitemap
-   * @param priority indexing priority
-   * @param changeFrequency how often link gets updated/changed
-   */
-  private void create(
-      final UrlSet xmlUrlSet,
-      final String link,
-      final Url.Priority priority,
-      final Url.ChangeFreqency changeFrequency) {
-    xmlUrlSet.addUrl(new Url(link, priority, changeFrequency));
+  private ResponseEntity<byte[]> serve(
+      final EncodedPayload payload,
+      final String acceptEncoding,
+      final HttpServletRequest request,
+      final HttpServletResponse response) {
+    ShallowEtagHeaderFilter.disableContentCaching(request);
+    if (new ServletWebRequest(request, response).checkNotModified(payload.etag())) {
+      return null;
+    }
+    return payload.toResponse(ResponseEntity.ok(), acceptEncoding);
   }
 }
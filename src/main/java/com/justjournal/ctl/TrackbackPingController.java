@@ -32,6 +32,7 @@ import com.justjournal.model.Trackback;
 import com.justjournal.model.TrackbackType;
 import com.justjournal.repository.EntryRepository;
 import com.justjournal.repository.cache.TrackBackIpRepository;
+import com.justjournal.services.EntryFragmentCache;
 import com.justjournal.services.TrackbackService;
 import com.justjournal.utility.DNSUtil;
 import com.justjournal.utility.StringUtil;
@@ -63,12 +64,16 @@ public class TrackbackPingController {
 
   final EntryRepository entryRepository;
 
+  private final EntryFragmentCache entryFragmentCache;
+
   @Autowired
   public TrackbackPingController(
-          final TrackbackService trackbackService, TrackBackIpRepository trackBackIpRepository, EntryRepository entryRepository) {
+          final TrackbackService trackbackService, TrackBackIpRepository trackBackIpRepository, EntryRepository entryRepository,
+          final EntryFragmentCache entryFragmentCache) {
     this.trackbackService = trackbackService;
     this.trackBackIpRepository = trackBackIpRepository;
     this.entryRepository = entryRepository;
+    this.entryFragmentCache = entryFragmentCache;
   }
 
   @PostMapping(
@@ -153,6 +158,7 @@ public class TrackbackPingController {
         return ResponseEntity.status(HttpStatus.ALREADY_REPORTED)
             .body(trackbackService.generateResponse(1, "TrackBack entry exists"));
       }
+      entryFragmentCache.evict(entryId);
 
       return ResponseEntity.ok(trackbackService.generateResponse(0, null));
     } catch (final Exception e) {
@@ -628,7 +628,7 @@ public class UpdateJournal extends HttpServlet {
               rp.setChangesURL(settings.getBaseUri() + PATH_USERS + pf.getUsername() + "/rss");
               rp.ping();
 
-              final Entry et2 = entryRepository.findById(et.getId()).orElse(null);
+              final Entry et2 = entryRepository.findWithTagsById(et.getId()).orElse(null);
               if (et2 != null) {
                 trackbackPing(et2.toEntryTo(), user, et2.getId());
 
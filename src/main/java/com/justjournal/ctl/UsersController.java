@@ -28,30 +28,32 @@ package com.justjournal.ctl;
 import com.justjournal.Cal;
 import com.justjournal.ErrorPage;
 import com.justjournal.Login;
-import com.justjournal.atom.AtomFeed;
+import com.justjournal.core.Constants;
 import com.justjournal.core.UserContext;
 import com.justjournal.core.UserContextService;
 import com.justjournal.exception.ForbiddenException;
 import com.justjournal.exception.NotFoundException;
 import com.justjournal.exception.ServiceException;
-import com.justjournal.jsonfeed.Author;
-import com.justjournal.jsonfeed.Feed;
-import com.justjournal.jsonfeed.Item;
 import com.justjournal.model.*;
 import com.justjournal.model.api.TrackbackTo;
 import com.justjournal.model.search.BlogEntry;
 import com.justjournal.repository.*;
 import com.justjournal.rss.CachedHeadlineBean;
-import com.justjournal.rss.Rss;
+import com.justjournal.rss.RssChannel;
+import com.justjournal.rss.RssWriter;
 import com.justjournal.services.*;
-import com.justjournal.utility.DateConvert;
+import com.justjournal.utility.EntryDateFormatter;
 import com.justjournal.utility.StringUtil;
 import com.justjournal.utility.Xml;
 import java.io.ByteArrayOutputStream;
-import java.text.ParsePosition;
-import java.text.SimpleDateFormat;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import lombok.extern.slf4j.Slf4j;
@@ -69,9 +71,12 @@ import org.springframework.ui.Model;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
 
 /**
  * Journal viewer for JustJournal.
@@ -100,11 +105,14 @@ public class UsersController {
   private static final String PATH_USERNAME = "username";
   private static final String PATH_MONTH = "month";
   private static final String MODEL_AVATAR = "avatar";
-
-  private static final String ENTRY_DATE_FORMAT = "EEE, d MMM yyyy";
-  private static final String ENTRY_DATE_TIME_FORMAT = "yyyy-MM-dd hh:mm";
-
-  private final CommentRepository commentDao;
+  private static final String MODEL_ENTRY_WINDOW = "entryWindow";
+  private static final String PARAM_CURSOR = "cursor";
+  private static final String PARAM_SINCE = "since";
+  private static final String HEADER_A_IM = "A-IM";
+  private static final String HEADER_IM = "IM";
+  private static final String IM_FEED = "feed";
+  /** Weak ETags written by {@link #feedNotModified}: feed name and journal version. */
+  private static final Pattern FEED_ETAG = Pattern.compile("\"([a-z]+)-(\\d{1,18})\"");
 
   private final EntryRepository entryDao;
 
@@ -112,8 +120,6 @@ public class UsersController {
 
   private final FavoriteRepository favoriteRepository;
 
-  private final MoodThemeDataRepository emoticonDao;
-
   private final UserRepository userRepository;
 
   private final RssSubscriptionsRepository rssSubscriptionsDAO;
@@ -124,9 +130,7 @@ public class UsersController {
 
   private final BlogSearchService blogSearchService;
 
-  private final Rss rss;
-
-  private final TrackbackService trackbackService;
+  private final RssWriter rssWriter;
 
   private final CachedHeadlineBean cachedHeadlineBean;
 
@@ -134,46 +138,57 @@ public class UsersController {
 
   private final PdfFormatService pdfFormatService;
 
-  private final AtomFeed atom;
+  private final FeedDocumentService feedDocumentService;
+
+  private final BodyRenderService bodyRenderService;
+
+  private final EntryFragmentCache entryFragmentCache;
+
+  private final EntryPrefetchService entryPrefetchService;
+
+  private final CalendarCountService calendarCountService;
 
-  private final MarkdownService markdownService;
+  private final JournalVersionService journalVersionService;
 
   private final com.justjournal.core.Settings settings;
 
   @Autowired
   public UsersController(
           final EntryService entryService,
-          final @Qualifier("commentRepository") CommentRepository commentDao,
           final @Qualifier("entryRepository") EntryRepository entryDao,
           final FavoriteRepository favoriteRepository,
-          final @Qualifier("moodThemeDataRepository") MoodThemeDataRepository emoticonDao,
           final UserRepository userRepository,
           final RssSubscriptionsRepository rssSubscriptionsDAO,
           final UserImageService userImageService,
           final AvatarService avatarService,
           final BlogSearchService blogSearchService,
-          final Rss rss,
-          final MarkdownService markdownService,
-          final AtomFeed atom, TrackbackService trackbackService, CachedHeadlineBean cachedHeadlineBean,
+          final RssWriter rssWriter,
+          final BodyRenderService bodyRenderService,
+          final FeedDocumentService feedDocumentService,
+          CachedHeadlineBean cachedHeadlineBean,
           UserContextService userContextService, PdfFormatService pdfFormatService,
+          EntryFragmentCache entryFragmentCache, EntryPrefetchService entryPrefetchService,
+          CalendarCountService calendarCountService,
+          JournalVersionService journalVersionService,
           com.justjournal.core.Settings settings) {
     this.entryService = entryService;
-    this.commentDao = commentDao;
     this.entryDao = entryDao;
     this.favoriteRepository = favoriteRepository;
-    this.emoticonDao = emoticonDao;
     this.userRepository = userRepository;
     this.rssSubscriptionsDAO = rssSubscriptionsDAO;
     this.userImageService = userImageService;
     this.avatarService = avatarService;
     this.blogSearchService = blogSearchService;
-    this.rss = rss;
-    this.markdownService = markdownService;
-    this.atom = atom;
-    this.trackbackService = trackbackService;
+    this.rssWriter = rssWriter;
+    this.bodyRenderService = bodyRenderService;
+    this.feedDocumentService = feedDocumentService;
     this.cachedHeadlineBean = cachedHeadlineBean;
     this.userContextService = userContextService;
     this.pdfFormatService = pdfFormatService;
+    this.entryFragmentCache = entryFragmentCache;
+    this.entryPrefetchService = entryPrefetchService;
+    this.calendarCountService = calendarCountService;
+    this.journalVersionService = journalVersionService;
     this.settings = settings;
   }
 
@@ -182,9 +197,11 @@ public class UsersController {
   @GetMapping(value = "{username}", produces = MediaType.TEXT_HTML_VALUE)
   public String entries(
       @PathVariable(PATH_USERNAME) final String username,
+      @RequestParam(value = PARAM_CURSOR, required = false) final String cursor,
       final Pageable pageable,
       final Model model,
       final HttpSession session,
+      final HttpServletRequest request,
       final HttpServletResponse response) throws ServiceException {
     final UserContext userContext = userContextService.getUserContext(username, session);
 
@@ -209,9 +226,18 @@ public class UsersController {
 
     model.addAttribute(MODEL_AVATAR, avatarService.isAvatarAvailable(userContext.getBlogUser()));
 
-    model.addAttribute("pageable", pageable);
+    ShallowEtagHeaderFilter.disableContentCaching(request);
 
-    model.addAttribute("entries", getEntries(userContext, pageable));
+    final EntryCursor position = parseCursor(cursor);
+    if (position != null || pageable.getPageNumber() == 0) {
+      final EntryWindow window = getEntryWindow(userContext, position, pageable.getPageSize());
+      model.addAttribute(MODEL_ENTRY_WINDOW, window);
+      model.addAttribute("entries", getEntries(userContext, window));
+    } else {
+      // old ?page= links still work, but seek from a cursor for anything new
+      model.addAttribute("pageable", pageable);
+      model.addAttribute("entries", getEntries(userContext, pageable));
+    }
     return VIEW_USERS;
   }
 
@@ -260,6 +286,7 @@ public class UsersController {
       @PathVariable(PATH_USERNAME) final String username,
       final Model model,
       final HttpSession session,
+      final HttpServletRequest request,
       final HttpServletResponse response) {
     final UserContext userc = userContextService.getUserContext(username, session);
 
@@ -284,6 +311,7 @@ public class UsersController {
     model.addAttribute(MODEL_AVATAR, avatarService.isAvatarAvailable(userc.getBlogUser()));
 
     try {
+      ShallowEtagHeaderFilter.disableContentCaching(request);
       model.addAttribute(MODEL_FAVORITES, getFavorites(userc));
     } catch (final ServiceException se) {
       log.error(se.getMessage(), se);
@@ -296,6 +324,7 @@ public class UsersController {
       @PathVariable(PATH_USERNAME) final String username,
       final Model model,
       final HttpSession session,
+      final HttpServletRequest request,
       final HttpServletResponse response) {
     final UserContext userc = userContextService.getUserContext(username, session);
 
@@ -320,6 +349,7 @@ public class UsersController {
     model.addAttribute(MODEL_AVATAR, avatarService.isAvatarAvailable(userc.getBlogUser()));
 
     try {
+      ShallowEtagHeaderFilter.disableContentCaching(request);
       model.addAttribute(MODEL_FRIENDS, getFriends(userc));
     } catch (final ServiceException se) {
       log.error(se.getMessage(), se);
@@ -477,82 +507,95 @@ public class UsersController {
 
   @GetMapping(value = "{username}/atom", produces = "text/xml; charset=UTF-8")
   @ResponseBody
-  public String atom(
-      @PathVariable(PATH_USERNAME) final String username, final HttpServletResponse response) {
+  public ResponseEntity<byte[]> atom(
+      @PathVariable(PATH_USERNAME) final String username,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) final String acceptEncoding,
+      final HttpServletRequest request,
+      final HttpServletResponse response) {
     try {
-      final User user = userRepository.findByUsername(username);
-
-      if (user == null) {
-        response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-        return VIEW_NOT_FOUND;
+      if (feedNotModified(username, "atom", request, response)) {
+        return null;
       }
-
-      if (new ArrayList<>(user.getJournals()).get(0).isOwnerViewOnly()) {
-        response.setStatus(HttpServletResponse.SC_FORBIDDEN);
-        return "";
+      final ResponseEntity<byte[]> delta =
+          feedDelta(username, FeedDocumentService.FeedType.ATOM, "atom", acceptEncoding, request);
+      if (delta != null) {
+        return delta;
       }
 
-      return getAtom(user);
+      final FeedDocumentService.FeedDocument document =
+          feedDocumentService.getDocument(username, FeedDocumentService.FeedType.ATOM);
+      if (document == null) {
+        return feedUnavailable(username);
+      }
+      return document
+          .payload()
+          .toResponse(
+              ResponseEntity.ok().header(HttpHeaders.LINK, feedLinks(username, "atom")),
+              acceptEncoding);
     } catch (final Exception e) {
       log.error("Unable to generate ATOM", e);
-      response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-      return "";
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
     }
   }
 
-  @GetMapping(value = "{username}/json", produces = "application/feed+json")
+  @GetMapping(value = "{username}/json", produces = "application/feed+json; charset=UTF-8")
   @ResponseBody
-  public ResponseEntity<Feed> jsonfeed(
-      @PathVariable(PATH_USERNAME) final String username, @RequestParam(value = "page", defaultValue = "0") final int pageId) {
+  public ResponseEntity<byte[]> jsonfeed(
+      @PathVariable(PATH_USERNAME) final String username,
+      @RequestParam(value = "page", defaultValue = "0") final int pageId,
+      @RequestParam(value = PARAM_CURSOR, required = false) final String cursor,
+      @RequestParam(value = PARAM_SINCE, required = false) final String since,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) final String acceptEncoding,
+      final HttpServletRequest request,
+      final HttpServletResponse response) {
     try {
-      final User user = userRepository.findByUsername(username);
+      final EntryCursor position = parseCursor(cursor);
+      final Date sinceDate = parseSince(since);
+      if (sinceDate == null && since != null && !since.isBlank()) {
+        return ResponseEntity.badRequest().build();
+      }
+      final String variant =
+          "json"
+              + (pageId > 0 ? "-" + pageId : "")
+              + (position != null ? "-" + position.encode() : "")
+              + (sinceDate != null ? "-s" + sinceDate.getTime() : "");
+      if (feedNotModified(username, variant, request, response)) {
+        return null;
+      }
 
-      if (user == null || pageId < 0) {
+      if (pageId < 0) {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
       }
 
-      var journal = new ArrayList<>(user.getJournals()).get(0);
-      if (journal.isOwnerViewOnly()) {
-        return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-      }
+      final String canonical = "<" + settings.getBlogBaseUrl(username) + "/json>; rel=\"canonical\"";
 
-      final Pageable page = PageRequest.of(pageId, 15);
+      if (position == null && pageId == 0 && sinceDate == null) {
+        final FeedDocumentService.FeedDocument document =
+            feedDocumentService.getDocument(username, FeedDocumentService.FeedType.JSON);
+        if (document == null) {
+          return feedUnavailable(username);
+        }
+        return document
+            .payload()
+            .toResponse(
+                ResponseEntity.ok()
+                    .header(HttpHeaders.LINK, canonical)
+                    .header(HttpHeaders.LINK, feedLinks(username, "json")),
+                acceptEncoding);
+      }
 
-      var entries = entryDao
-                      .findByUserAndSecurityOrderByDateDesc(user, Security.PUBLIC, page)
-                      .getContent();
-      String avatar = null;
-      if (avatarService.isAvatarAvailable(user)) {
-        avatar = settings.getBaseUri() + "Avatar/" + user.getId();
+      final User user = userRepository.findByUsername(username);
+      final Optional<Journal> journal = user == null ? Optional.empty() : getFirstJournal(user);
+      if (journal.isEmpty() || journal.get().isOwnerViewOnly()) {
+        return feedUnavailable(username);
       }
-      Feed feed = Feed.builder()
-       .title(journal.getName())
-              .home_page_url(settings.getBlogBaseUrl(user.getUsername()))
-              .feed_url(settings.getBlogBaseUrl(user.getUsername()) + "/json")
-              .icon(avatar)
-              .authors(List.of(Author.builder()
-                      .name(user.getFirstName())
-                      .avatar(avatar)
-                      .build()))
-              // TODO: don't do an endless loop of pages if we run out of stuff
-              .next_url(settings.getBlogBaseUrl(user.getUsername()) + "/json?page=" + (pageId + 1))
-              .items(entries.stream()
-                      .map(entry -> Item.builder()
-                              .id(Integer.toString(entry.getId()))
-                              .url(settings.getBlogBaseUrl(user.getUsername()) + "/entry/" + entry.getId())
-                              .title(entry.getSubject())
-                              .content_text(entryService.convertBody(entry.getFormat(), entry.getBody()))
-                              .content_html(entryService.convertBodyToHtml(entry.getFormat(), entry.getBody()))
-                              .date_published(DateConvert.encode3339(entry.getDate()))
-                              .date_modified(DateConvert.encode3339(entry.getModified()))
-                              .tags(entry.getTags().stream().map(t -> t.getTag().getName()).toList())
-                              .build()).toList())
-              .build();
-
-      return ResponseEntity
-              .ok()
-              .header("Link", "<" + settings.getBlogBaseUrl(user.getUsername()) + "/json>; rel=\"canonical\"")
-              .body(feed);
+
+      // older pages and deltas are streamed straight to the client
+      response.setContentType("application/feed+json; charset=UTF-8");
+      response.setHeader("Link", canonical);
+      feedDocumentService.writeJsonFeed(
+          user, journal.get(), position, pageId, sinceDate, response.getOutputStream());
+      return null;
     } catch (final Exception e) {
       log.error("Unable to generate JSON", e);
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -561,34 +604,48 @@ public class UsersController {
 
   @GetMapping(value = "{username}/rss", produces = "application/rss+xml; charset=ISO-8859-1")
   @ResponseBody
-  public String rss(
-      @PathVariable(PATH_USERNAME) final String username, final HttpServletResponse response) {
+  public ResponseEntity<byte[]> rss(
+      @PathVariable(PATH_USERNAME) final String username,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) final String acceptEncoding,
+      final HttpServletRequest request,
+      final HttpServletResponse response) {
     try {
-      final User user = userRepository.findByUsername(username);
-
-      if (user == null) {
-        response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-        return VIEW_NOT_FOUND;
+      if (feedNotModified(username, "rss", request, response)) {
+        return null;
       }
-
-      if (new ArrayList<>(user.getJournals()).get(0).isOwnerViewOnly()) {
-        response.setStatus(HttpServletResponse.SC_FORBIDDEN);
-        return "";
+      final ResponseEntity<byte[]> delta =
+          feedDelta(username, FeedDocumentService.FeedType.RSS, "rss", acceptEncoding, request);
+      if (delta != null) {
+        return delta;
       }
 
-      return getRSS(user);
+      final FeedDocumentService.FeedDocument document =
+          feedDocumentService.getDocument(username, FeedDocumentService.FeedType.RSS);
+      if (document == null) {
+        return feedUnavailable(username);
+      }
+      return document
+          .payload()
+          .toResponse(
+              ResponseEntity.ok().header(HttpHeaders.LINK, feedLinks(username, "rss")),
+              acceptEncoding);
     } catch (final Exception e) {
       log.error("Unable to generate RSS", e);
-      response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-      return "";
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
     }
   }
 
   @GetMapping(value = "{username}/rsspics", produces = "application/rss+xml; charset=ISO-8859-1")
   @ResponseBody
   public String rssPictures(
-      @PathVariable(PATH_USERNAME) final String username, final HttpServletResponse response) {
+      @PathVariable(PATH_USERNAME) final String username,
+      final HttpServletRequest request,
+      final HttpServletResponse response) {
     try {
+      if (feedNotModified(username, "rsspics", request, response)) {
+        return null;
+      }
+
       final User user = userRepository.findByUsername(username);
 
       if (user == null) {
@@ -760,6 +817,7 @@ public class UsersController {
       @PathVariable("tag") final String tag,
       final Model model,
       final HttpSession session,
+      final HttpServletRequest request,
       final HttpServletResponse response) {
 
     User authUser = null;
@@ -786,8 +844,10 @@ public class UsersController {
       model.addAttribute(MODEL_AUTHENTICATED_USER, Login.currentLoginName(session));
 
       if (!new ArrayList<>(userc.getBlogUser().getJournals()).get(0).isOwnerViewOnly()
-          || userc.isAuthBlog()) model.addAttribute("tags", getTags(userc, tag));
-      else response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+          || userc.isAuthBlog()) {
+        ShallowEtagHeaderFilter.disableContentCaching(request);
+        model.addAttribute("tags", getTags(userc, tag));
+      } else response.setStatus(HttpServletResponse.SC_FORBIDDEN);
     } catch (final Exception e) {
       log.error("unable to get tag", e);
       response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
@@ -869,16 +929,14 @@ public class UsersController {
     try {
 
       if (o != null && o.getId() > 0) {
-        final SimpleDateFormat formatmydate = new SimpleDateFormat(ENTRY_DATE_FORMAT);
-
-        final String curDate = formatmydate.format(o.getDate());
+        final String curDate = EntryDateFormatter.formatDay(o.getDate());
 
         sb.append("<h2>");
         sb.append(curDate);
         sb.append("</h2>");
         sb.append(ENDL);
 
-        sb.append(formatEntry(uc, o, o.getDate(), true));
+        sb.append(renderEntry(uc, o, o.getDate(), true, entryPrefetchService.prefetch(List.of(o), true)));
       }
     } catch (final Exception e1) {
       log.error("getSingleEntry: " + e1.getMessage() + '\n', e1);
@@ -914,13 +972,11 @@ public class UsersController {
 
           for (final BlogEntry blogEntry : result.getContent()) {
             // Format the current time.
-            final SimpleDateFormat formatmydate = new SimpleDateFormat(ENTRY_DATE_FORMAT);
-            final SimpleDateFormat formatmytime = new SimpleDateFormat("h:mm a");
             String curDate = "";
 
             final Date currentDate = blogEntry.getDate();
 
-            if (currentDate != null) curDate = formatmydate.format(currentDate);
+            if (currentDate != null) curDate = EntryDateFormatter.formatDay(currentDate);
 
             sb.append("<h2>");
             sb.append(curDate);
@@ -932,7 +988,7 @@ public class UsersController {
 
             sb.append("<h3>");
             sb.append("<span class=\"time\">");
-            sb.append(formatmytime.format(currentDate));
+            sb.append(EntryDateFormatter.formatTime(currentDate));
             sb.append("</span> - <span class=\"subject\"><a href=\"/users/")
                 .append(blogEntry.getAuthor())
                 .append("/entry/")
@@ -958,8 +1014,7 @@ public class UsersController {
     return sb.toString();
   }
 
-  private String getEntries(final UserContext uc, final Pageable pageable) throws ServiceException {
-    final StringBuilder sb = new StringBuilder();
+  private Iterable<String> getEntries(final UserContext uc, final Pageable pageable) throws ServiceException {
     final Page<Entry> entries;
 
     try {
@@ -974,40 +1029,176 @@ public class UsersController {
 
         log.debug("getEntries: User is not logged in.");
       }
+    } catch (final Exception e1) {
+      log.error("getEntries: Exception is {}", e1.getMessage(), e1);
+      throw new ServiceException("Error retrieving journal entries.");
+    }
 
-      // Format the current time.
-      final SimpleDateFormat formatter = new SimpleDateFormat(ENTRY_DATE_TIME_FORMAT);
-      final SimpleDateFormat formatmydate = new SimpleDateFormat(ENTRY_DATE_FORMAT);
+    final List<Entry> content = entryDao.fetchTags(entries.getContent());
+    final EntryPrefetch prefetch = entryPrefetchService.prefetch(content);
+    return new EntryHtmlStream(content, (o, currentDate) -> renderEntry(uc, o, currentDate, false, prefetch));
+  }
 
-      String lastDate = "";
-      String curDate;
+  private Iterable<String> getEntries(final UserContext uc, final EntryWindow window) {
+    final List<Entry> entries = entryDao.fetchTags(window.getContent());
+    final EntryPrefetch prefetch = entryPrefetchService.prefetch(entries);
+    return new EntryHtmlStream(entries, (o, currentDate) -> renderEntry(uc, o, currentDate, false, prefetch));
+  }
 
-      log.debug("getEntries: Begin Iteration of records.");
+  private EntryWindow getEntryWindow(final UserContext uc, final EntryCursor cursor, final int size)
+      throws ServiceException {
+    log.debug("getEntryWindow: User is {}logged in.", uc.isAuthBlog() ? "" : "not ");
+    return entryService.getEntryWindow(
+        uc.getBlogUser(), uc.isAuthBlog() ? null : Security.PUBLIC, null, cursor, size);
+  }
 
-      for (final Entry o : entries) {
-        // Parse the previous string back into a Date.
-        final ParsePosition pos = new ParsePosition(0);
-        final Date currentDate =
-            formatter.parse(
-                new DateTimeBean(o.getDate()).toString(), pos); // TODO: seems inefficient
+  /**
+   * Check a feed request against the journal version. Sets the ETag and Last-Modified headers and
+   * sends a 304 when the client already has this version of the feed.
+   *
+   * @param username blog owner
+   * @param feed feed type and any paging, part of the ETag
+   * @param request feed request
+   * @param response feed response
+   * @return true if the client's copy is current and nothing more should be written
+   */
+  private boolean feedNotModified(
+      final String username,
+      final String feed,
+      final HttpServletRequest request,
+      final HttpServletResponse response) {
+    // the version is a better validator than hashing the rendered feed
+    ShallowEtagHeaderFilter.disableContentCaching(request);
 
-        curDate = formatmydate.format(currentDate);
+    final JournalVersionService.Version version = journalVersionService.getVersion(username);
+    if (version == null) {
+      return false;
+    }
 
-        if (curDate.compareTo(lastDate) != 0) {
-          sb.append("\t\t<h2>");
-          sb.append(curDate);
-          sb.append("</h2>");
-          sb.append(ENDL);
-          lastDate = curDate;
+    // weak: the gzip and identity bodies of one version share it
+    final String etag = "W/\"" + feed + '-' + version.version() + '"';
+    final ServletWebRequest webRequest = new ServletWebRequest(request, response);
+    if (version.modified() == null) {
+      return webRequest.checkNotModified(etag);
+    }
+    return webRequest.checkNotModified(etag, version.modified().getTime());
+  }
+
+  /**
+   * RFC 3229 delta for clients that send {@code A-IM: feed} with the ETag of an earlier version.
+   *
+   * @return 226 response with the changed items or null to send the full feed
+   */
+  private ResponseEntity<byte[]> feedDelta(
+      final String username,
+      final FeedDocumentService.FeedType type,
+      final String feed,
+      final String acceptEncoding,
+      final HttpServletRequest request)
+      throws ServiceException {
+    if (!acceptsFeedDelta(request.getHeaders(HEADER_A_IM))) {
+      return null;
+    }
+
+    final List<Long> bases = new ArrayList<>();
+    final Enumeration<String> ifNoneMatch = request.getHeaders(HttpHeaders.IF_NONE_MATCH);
+    while (ifNoneMatch != null && ifNoneMatch.hasMoreElements()) {
+      final Matcher matcher = FEED_ETAG.matcher(ifNoneMatch.nextElement());
+      while (matcher.find()) {
+        if (matcher.group(1).equals(feed)) {
+          bases.add(Long.parseLong(matcher.group(2)));
         }
+      }
+    }
+    if (bases.isEmpty()) {
+      return null;
+    }
 
-        sb.append(formatEntry(uc, o, currentDate, false));
+    final FeedDocumentService.FeedDocument delta =
+        feedDocumentService.getDelta(username, type, bases);
+    if (delta == null) {
+      return null;
+    }
+    return delta
+        .payload()
+        .toResponse(
+            ResponseEntity.status(HttpStatus.IM_USED)
+                .header(HEADER_IM, IM_FEED)
+                .header(HttpHeaders.CACHE_CONTROL, "im")
+                .header(HttpHeaders.VARY, HEADER_A_IM, HttpHeaders.IF_NONE_MATCH),
+            acceptEncoding);
+  }
+
+  private static boolean acceptsFeedDelta(final Enumeration<String> aim) {
+    while (aim != null && aim.hasMoreElements()) {
+      for (final String token : aim.nextElement().split(",")) {
+        final int params = token.indexOf(';');
+        final String manipulation = params < 0 ? token : token.substring(0, params);
+        if (manipulation.trim().equalsIgnoreCase(IM_FEED)) {
+          return true;
+        }
       }
-    } catch (final Exception e1) {
-      log.error("getEntries: Exception is {}", e1.getMessage(), e1);
-      throw new ServiceException("Error retrieving journal entries.");
     }
-    return sb.toString();
+    return false;
+  }
+
+  /**
+   * WebSub discovery links: the hub to subscribe with and the topic url of the feed.
+   *
+   * @param username blog owner
+   * @param feed feed path
+   * @return Link header values
+   */
+  private String[] feedLinks(final String username, final String feed) {
+    return new String[] {
+      "<" + settings.getBaseUri() + Constants.PATH_HUB + ">; rel=\"hub\"",
+      "<" + settings.getBlogBaseUrl(username) + '/' + feed + ">; rel=\"self\""
+    };
+  }
+
+  /**
+   * Response for a feed that has no document: no such user or a private journal.
+   *
+   * @param username blog owner
+   * @return not found or forbidden
+   */
+  private ResponseEntity<byte[]> feedUnavailable(final String username) {
+    if (userRepository.findByUsername(username) == null) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+    return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+  }
+
+  /**
+   * @param cursor cursor from a request parameter
+   * @return the cursor or null when missing or not one we issued, which starts at the newest entry
+   */
+  private static EntryCursor parseCursor(final String cursor) {
+    if (cursor == null || cursor.isEmpty()) {
+      return null;
+    }
+    try {
+      return EntryCursor.decode(cursor);
+    } catch (final IllegalArgumentException e) {
+      log.debug("Ignoring invalid cursor {}", cursor);
+      return null;
+    }
+  }
+
+  /**
+   * @param since RFC 3339 time from a reader
+   * @return time or null if missing or invalid
+   */
+  private static Date parseSince(final String since) {
+    if (since == null || since.isBlank()) {
+      return null;
+    }
+    try {
+      return Date.from(OffsetDateTime.parse(since).toInstant());
+    } catch (final DateTimeParseException e) {
+      log.debug("Ignoring invalid since {}", since);
+      return null;
+    }
   }
 
   private boolean isMyFriend(final User me, final User you) {
@@ -1022,492 +1213,441 @@ public class UsersController {
     return isMyFriend(me, you) && isMyFriend(you, me);
   }
 
-  private String getFavorites(final UserContext uc) throws ServiceException {
-    final StringBuilder sb = new StringBuilder();
-    final Collection<Entry> entries = new ArrayList<>();
-
-    final List<Favorite> favorites = favoriteRepository.findByUser(uc.getBlogUser());
-    final boolean auth = uc.getAuthenticatedUser() != null;
-
-    for (final Favorite fav : favorites) {
-      final Entry e = fav.getEntry();
+  private Iterable<String> getFavorites(final UserContext uc) throws ServiceException {
+    final List<Entry> entries;
+    final EntryPrefetch prefetch;
 
-      // if the blog entry belongs to the user, it's owned by a friend, or it's public, render it.
-      if (e.getSecurity() == Security.PUBLIC
-              || (auth && e.getUser().getId() == uc.getAuthenticatedUser().getId())
-              || (auth && e.getSecurity() == Security.FRIENDS && isReciprocalFriend(uc.getAuthenticatedUser(), e.getUser()))
-      ) {
-        entries.add(e);
+    try {
+      final List<Favorite> favorites = favoriteRepository.findByUser(uc.getBlogUser());
+      final boolean auth = uc.getAuthenticatedUser() != null;
+
+      final List<Entry> visible = new ArrayList<>();
+      for (final Favorite fav : favorites) {
+        final Entry e = fav.getEntry();
+
+        // if the blog entry belongs to the user, it's owned by a friend, or it's public, render it.
+        if (e.getSecurity() == Security.PUBLIC
+                || (auth && e.getUser().getId() == uc.getAuthenticatedUser().getId())
+                || (auth && e.getSecurity() == Security.FRIENDS && isReciprocalFriend(uc.getAuthenticatedUser(), e.getUser()))
+        ) {
+          visible.add(e);
+        }
       }
-    }
-
-      sb.append("<h2>Favorites</h2>");
-      sb.append(ENDL);
-
-      try {
-        log.trace("getFavorites: Init Date Parsers.");
-
-        // Format the current time.
-        final SimpleDateFormat formatter = new SimpleDateFormat(ENTRY_DATE_TIME_FORMAT);
-        final SimpleDateFormat formatmydate = new SimpleDateFormat(ENTRY_DATE_FORMAT);
-        final SimpleDateFormat formatmytime = new SimpleDateFormat("h:mm a");
-        String lastDate = "";
-        String curDate;
+      entries = entryDao.fetchTags(visible);
 
-        /* Iterator */
-        final Iterator<Entry> itr = entries.iterator();
-        log.debug("getFavorites: Number of entries {}", entries.size());
-        if (entries.isEmpty()) sb.append("<p>No favorite entries found</p>.");
+      log.debug("getFavorites: Number of entries {}", entries.size());
 
-        for (int i = 0, n = entries.size(); i < n; i++) {
-          Entry o = itr.next();
+      prefetch = entryPrefetchService.prefetch(entries);
+    } catch (final Exception e1) {
+      log.error("getFavorites: Exception is {}", e1.getMessage(), e1);
+      throw new ServiceException("Error retrieving favorite entries.");
+    }
+    return new EntryHtmlStream(entries, (o, currentDate) -> formatFavorite(uc, o, currentDate, prefetch))
+        .heading("<h2>Favorites</h2>" + ENDL)
+        .whenEmpty("<p>No favorite entries found</p>.");
+  }
 
-          // Parse the previous string back into a Date.
-          final ParsePosition pos = new ParsePosition(0);
-          final Date currentDate = formatter.parse(new DateTimeBean(o.getDate()).toString(), pos);
+  /**
+   * Format a single favorite entry, which may belong to any user.
+   */
+  private String formatFavorite(final UserContext uc, final Entry o, final Date currentDate, final EntryPrefetch prefetch) {
+    final StringBuilder sb = new StringBuilder();
 
-          curDate = formatmydate.format(currentDate);
 
-          if (curDate.compareTo(lastDate) != 0) {
-            sb.append("<h2>");
-            sb.append(curDate);
-            sb.append("</h2>");
-            sb.append(ENDL);
-            lastDate = curDate;
-          }
+    sb.append("<div class=\"ebody\">");
+    sb.append(ENDL);
 
-          sb.append("<div class=\"ebody\">");
-          sb.append(ENDL);
 
+    if (avatarService.isAvatarAvailable(o.getUser())) {
+      sb.append("<img alt=\"avatar\" style=\"float: right\" src=\"/Avatar/");
+      sb.append(o.getUser().getId());
+      sb.append("\"/>");
+      sb.append(ENDL);
+    }
 
-          if (avatarService.isAvatarAvailable(o.getUser())) {
-            sb.append("<img alt=\"avatar\" style=\"float: right\" src=\"/Avatar/");
-            sb.append(o.getUser().getId());
-            sb.append("\"/>");
-            sb.append(ENDL);
-          }
+    sb.append("<h3>");
+    sb.append("<a href=\"/users/");
+    sb.append(o.getUser().getUsername());
+    sb.append("\" title=\"");
+    sb.append(o.getUser().getUsername());
+    sb.append("\">");
+    sb.append(o.getUser().getUsername());
+    sb.append("</a> ");
+
+    sb.append("<span class=\"time\">");
+    sb.append(EntryDateFormatter.formatTime(currentDate));
+    sb.append("</span> - <span class=\"subject\">");
+    sb.append(Xml.cleanString(o.getSubject()));
+    sb.append("</span></h3> ");
+    sb.append(ENDL);
 
-          sb.append("<h3>");
-          sb.append("<a href=\"/users/");
-          sb.append(o.getUser().getUsername());
-          sb.append("\" title=\"");
-          sb.append(o.getUser().getUsername());
-          sb.append("\">");
-          sb.append(o.getUser().getUsername());
-          sb.append("</a> ");
-
-          sb.append("<span class=\"time\">");
-          sb.append(formatmytime.format(currentDate));
-          sb.append("</span> - <span class=\"subject\">");
-          sb.append(Xml.cleanString(o.getSubject()));
-          sb.append("</span></h3> ");
-          sb.append(ENDL);
+    sb.append("<div class=\"ebody\">");
+    sb.append(ENDL);
 
-          sb.append("<div class=\"ebody\">");
-          sb.append(ENDL);
+    // Keep this synced with getEntries()
+    if (o.getFormat().equals(FormatType.TEXT)) {
+      sb.append("<p>");
+      if (o.getBody().contains("\n"))
+        sb.append(StringUtil.replace(o.getBody(), '\n', "<br />"));
+      else if (o.getBody().contains("\r"))
+        sb.append(StringUtil.replace(o.getBody(), '\r', "<br />"));
+      else
+        // we do not have any "new lines" but it might be
+        // one long line.
+        sb.append(o.getBody());
 
-          // Keep this synced with getEntries()
-          if (o.getFormat().equals(FormatType.TEXT)) {
-            sb.append("<p>");
-            if (o.getBody().contains("\n"))
-              sb.append(StringUtil.replace(o.getBody(), '\n', "<br />"));
-            else if (o.getBody().contains("\r"))
-              sb.append(StringUtil.replace(o.getBody(), '\r', "<br />"));
-            else
-              // we do not have any "new lines" but it might be
-              // one long line.
-              sb.append(o.getBody());
-
-            sb.append("</p>");
-          } else if (o.getFormat().equals(FormatType.MARKDOWN))
-            sb.append(markdownService.convertToHtml(o.getBody()));
-          else sb.append(o.getBody());
+      sb.append("</p>");
+    } else if (o.getFormat().equals(FormatType.MARKDOWN))
+      sb.append(bodyRenderService.html(o));
+    else sb.append(o.getBody());
 
-          sb.append(ENDL);
-          sb.append("</div>");
-          sb.append(ENDL);
+    sb.append(ENDL);
+    sb.append("</div>");
+    sb.append(ENDL);
 
-          sb.append("<p>");
+    sb.append("<p>");
 
-          if (o.getSecurity() == null || o.getSecurity() == Security.PRIVATE) {
-            sb.append("<span class=\"security\">security: ");
-            sb.append("<img src=\"/img/icon_private.gif\" alt=\"private\" /> ");
-            sb.append("private");
-            sb.append("</span><br />");
-            sb.append(ENDL);
-          } else if (o.getSecurity() == Security.FRIENDS) {
-            sb.append("<span class=\"security\">security: ");
-            sb.append("<img src=\"/img/icon_protected.gif\" alt=\"friends\" /> ");
-            sb.append(MODEL_FRIENDS);
-            sb.append("</span><br />");
-            sb.append(ENDL);
-          }
+    if (o.getSecurity() == null || o.getSecurity() == Security.PRIVATE) {
+      sb.append("<span class=\"security\">security: ");
+      sb.append("<img src=\"/img/icon_private.gif\" alt=\"private\" /> ");
+      sb.append("private");
+      sb.append("</span><br />");
+      sb.append(ENDL);
+    } else if (o.getSecurity() == Security.FRIENDS) {
+      sb.append("<span class=\"security\">security: ");
+      sb.append("<img src=\"/img/icon_protected.gif\" alt=\"friends\" /> ");
+      sb.append(MODEL_FRIENDS);
+      sb.append("</span><br />");
+      sb.append(ENDL);
+    }
 
-          if (o.getLocation() != null && o.getLocation().getId() > 0) {
-            sb.append("<span class=\"location\">location: ");
-            sb.append(o.getLocation().getTitle());
-            sb.append("</span><br />");
-            sb.append(ENDL);
-          }
+    if (o.getLocation() != null && o.getLocation().getId() > 0) {
+      sb.append("<span class=\"location\">location: ");
+      sb.append(o.getLocation().getTitle());
+      sb.append("</span><br />");
+      sb.append(ENDL);
+    }
 
-          if (o.getMood() != null
-                  && !o.getMood().getTitle().isEmpty()
-                  && o.getMood().getId() != 12) {
-            final MoodThemeData emoto = emoticonDao.findByThemeIdAndMoodId(1, o.getMood().getId());
-
-            if (emoto != null) {
-              sb.append("<span class=\"mood\">mood: <img src=\"/images/emoticons/1/");
-              sb.append(emoto.getFileName());
-              sb.append("\" width=\"");
-              sb.append(emoto.getWidth());
-              sb.append("\" height=\"");
-              sb.append(emoto.getHeight());
-              sb.append("\" alt=\"");
-              sb.append(o.getMood().getTitle());
-              sb.append("\" /> ");
-              sb.append(o.getMood().getTitle());
-              sb.append("</span><br>");
-              sb.append(ENDL);
-            }
-          }
+    if (o.getMood() != null
+            && !o.getMood().getTitle().isEmpty()
+            && o.getMood().getId() != 12) {
+      final MoodThemeData emoto = prefetch.getEmoticon(o.getMood().getId());
 
-          if (o.getMusic() != null && !o.getMusic().isEmpty()) {
-            sb.append("<span class=\"music\">music: ");
-            sb.append(Xml.cleanString(o.getMusic()));
-            sb.append("</span><br>");
-            sb.append(ENDL);
-          }
+      if (emoto != null) {
+        sb.append("<span class=\"mood\">mood: <img src=\"/images/emoticons/1/");
+        sb.append(emoto.getFileName());
+        sb.append("\" width=\"");
+        sb.append(emoto.getWidth());
+        sb.append("\" height=\"");
+        sb.append(emoto.getHeight());
+        sb.append("\" alt=\"");
+        sb.append(o.getMood().getTitle());
+        sb.append("\" /> ");
+        sb.append(o.getMood().getTitle());
+        sb.append("</span><br>");
+        sb.append(ENDL);
+      }
+    }
 
-          sb.append("</p>");
-          sb.append(ENDL);
+    if (o.getMusic() != null && !o.getMusic().isEmpty()) {
+      sb.append("<span class=\"music\">music: ");
+      sb.append(Xml.cleanString(o.getMusic()));
+      sb.append("</span><br>");
+      sb.append(ENDL);
+    }
 
-          if (o.getTags() != null && !o.getTags().isEmpty()) {
-            sb.append("<p>tags:");
-            for (final EntryTag s : o.getTags()) {
-              sb.append(" ");
-              sb.append(s.getTag().getName());
-            }
-            sb.append("</p>");
-            sb.append(ENDL);
-          }
+    sb.append("</p>");
+    sb.append(ENDL);
 
-          sb.append("<div>");
-          sb.append(ENDL);
-          sb.append("<table width=\"100%\"  border=\"0\">");
-          sb.append(ENDL);
-          sb.append("<tr>");
-          sb.append(ENDL);
+    if (o.getTags() != null && !o.getTags().isEmpty()) {
+      sb.append("<p>tags:");
+      for (final EntryTag s : o.getTags()) {
+        sb.append(" ");
+        sb.append(s.getTag().getName());
+      }
+      sb.append("</p>");
+      sb.append(ENDL);
+    }
 
-          if (uc.getAuthenticatedUser() != null
-                  && uc.getAuthenticatedUser().getId() == o.getUser().getId()) {
-            sb.append("<td width=\"30\"><a title=\"Edit Entry\" href=\"/#/entry/").append(o.getId());
-            sb.append("\"><i class=\"fa fa-pencil-square-o\"></i></a></td>");
-            sb.append(ENDL);
-            sb.append("<td width=\"30\"><a title=\"Delete Entry\" onclick=\"return" + " deleteEntry(")
-                    .append(o.getId())
-                    .append(")\"");
-            sb.append("><i class=\"fa fa-trash-o\"></i></a>");
-            sb.append("</td>");
-            sb.append(ENDL);
+    sb.append("<div>");
+    sb.append(ENDL);
+    sb.append("<table width=\"100%\"  border=\"0\">");
+    sb.append(ENDL);
+    sb.append("<tr>");
+    sb.append(ENDL);
 
-            sb.append(
-                    "<td width=\"30\"><a title=\"Remove Favorite\" onclick=\"return"
-                            + " deleteFavorite(");
-            sb.append(o.getId());
-            sb.append(")\"><i class=\"fa fa-heart-o\"></i></a></td>");
-            sb.append(ENDL);
-          } else if (uc.getAuthenticatedUser() != null) {
-            sb.append(
-                    "<td width=\"30\"><a title=\"Add Favorite\" onclick=\"return" + " addFavorite(");
-            sb.append(o.getId());
-            sb.append(")\"><i class=\"fa fa-heart\"></i></a></td>");
-            sb.append(ENDL);
-          }
+    if (uc.getAuthenticatedUser() != null
+            && uc.getAuthenticatedUser().getId() == o.getUser().getId()) {
+      sb.append("<td width=\"30\"><a title=\"Edit Entry\" href=\"/#/entry/").append(o.getId());
+      sb.append("\"><i class=\"fa fa-pencil-square-o\"></i></a></td>");
+      sb.append(ENDL);
+      sb.append("<td width=\"30\"><a title=\"Delete Entry\" onclick=\"return" + " deleteEntry(")
+              .append(o.getId())
+              .append(")\"");
+      sb.append("><i class=\"fa fa-trash-o\"></i></a>");
+      sb.append("</td>");
+      sb.append(ENDL);
 
-          sb.append("<td><div style=\"float: right\"><a href=\"/users/")
-                  .append(o.getUser().getUsername())
-                  .append("/entry/");
-          sb.append(o.getId());
-          sb.append("\" title=\"Link to this entry\">link</a> ");
-          sb.append('(');
-
-          switch (o.getComments().size()) {
-            case 0:
-              break;
-            case 1:
-              sb.append("<a href=\"/users/").append(o.getUser().getUsername()).append("/entry/");
-              sb.append(o.getId());
-              sb.append("\" title=\"View Comment\">1 comment</a> | ");
-              break;
-            default:
-              sb.append("<a href=\"/users/").append(o.getUser().getUsername()).append("/entry/");
-              sb.append(o.getId());
-              sb.append("\" title=\"View Comments\">");
-              sb.append(o.getComments().size());
-              sb.append(" comments</a> | ");
-          }
+      sb.append(
+              "<td width=\"30\"><a title=\"Remove Favorite\" onclick=\"return"
+                      + " deleteFavorite(");
+      sb.append(o.getId());
+      sb.append(")\"><i class=\"fa fa-heart-o\"></i></a></td>");
+      sb.append(ENDL);
+    } else if (uc.getAuthenticatedUser() != null) {
+      sb.append(
+              "<td width=\"30\"><a title=\"Add Favorite\" onclick=\"return" + " addFavorite(");
+      sb.append(o.getId());
+      sb.append(")\"><i class=\"fa fa-heart\"></i></a></td>");
+      sb.append(ENDL);
+    }
 
-          sb.append("<a href=\"/#!/comment/");
-          sb.append(o.getId());
-          sb.append("\" title=\"Leave a comment on this entry\">comment on this</a>)");
+    sb.append("<td><div style=\"float: right\"><a href=\"/users/")
+            .append(o.getUser().getUsername())
+            .append("/entry/");
+    sb.append(o.getId());
+    sb.append("\" title=\"Link to this entry\">link</a> ");
+    sb.append('(');
+
+    switch ((int) prefetch.getCommentCount(o.getId())) {
+      case 0:
+        break;
+      case 1:
+        sb.append("<a href=\"/users/").append(o.getUser().getUsername()).append("/entry/");
+        sb.append(o.getId());
+        sb.append("\" title=\"View Comment\">1 comment</a> | ");
+        break;
+      default:
+        sb.append("<a href=\"/users/").append(o.getUser().getUsername()).append("/entry/");
+        sb.append(o.getId());
+        sb.append("\" title=\"View Comments\">");
+        sb.append(prefetch.getCommentCount(o.getId()));
+        sb.append(" comments</a> | ");
+    }
 
-          sb.append("</div></td>");
-          sb.append(ENDL);
-          sb.append("</tr>");
-          sb.append(ENDL);
-          sb.append("</table>");
-          sb.append(ENDL);
-          sb.append("</div>");
-          sb.append(ENDL);
+    sb.append("<a href=\"/#!/comment/");
+    sb.append(o.getId());
+    sb.append("\" title=\"Leave a comment on this entry\">comment on this</a>)");
 
-          sb.append("</div>");
-          sb.append(ENDL);
-        }
+    sb.append("</div></td>");
+    sb.append(ENDL);
+    sb.append("</tr>");
+    sb.append(ENDL);
+    sb.append("</table>");
+    sb.append(ENDL);
+    sb.append("</div>");
+    sb.append(ENDL);
 
-      } catch (final Exception e1) {
-        log.error(e1.getMessage(), e1);
-        throw new ServiceException("Error retrieving favorite entries");
-      }
-      return sb.toString();
-    }
+    sb.append("</div>");
+    return sb.toString();
+  }
 
   /**
    * Displays friends entries for a particular user.
    *
-   * @param uc The UserContext we are working on including blog owner, authenticated user, and sb to
-   *     write
+   * @param uc The UserContext we are working on including blog owner and authenticated user
+   * @return entry fragments, rendered as the view iterates over them
    */
-  private String getFriends(final UserContext uc) throws ServiceException {
-    final StringBuilder sb = new StringBuilder();
-    final Collection<Entry> entries;
+  private Iterable<String> getFriends(final UserContext uc) throws ServiceException {
+    final List<Entry> entries =
+        entryDao.fetchTags(entryService.getFriendsEntries(uc.getBlogUser().getUsername()));
 
-    /*      if (uc.getAuthenticatedUser() != null)
-            entries = entryDao.viewFriends(uc.getBlogUser().getUserId(), uc.getAuthenticatedUser().getUserId());
-        else
-            entries = entryDao.viewFriends(uc.getBlogUser().getUserId(), 0);
-    */
-    entries = entryService.getFriendsEntries(uc.getBlogUser().getUsername());
-    sb.append("<h2>Friends</h2>\n");
+    log.trace("getFriends: Number of entries {}", entries.size());
 
-    try {
-      if (log.isDebugEnabled()) log.debug("getFriends: Init Date Parsers.");
+    final EntryPrefetch prefetch = entryPrefetchService.prefetch(entries);
+    return new EntryHtmlStream(entries, (o, currentDate) -> formatFriendEntry(uc, o, currentDate, prefetch))
+        .heading("<h2>Friends</h2>" + ENDL)
+        .whenEmpty("<p>No friends entries found</p>.");
+  }
 
-      // Format the current time.
-      final SimpleDateFormat formatter = new SimpleDateFormat(ENTRY_DATE_TIME_FORMAT);
-      final SimpleDateFormat formatmydate = new SimpleDateFormat(ENTRY_DATE_FORMAT);
-      final SimpleDateFormat formatmytime = new SimpleDateFormat("h:mm a");
-      String lastDate = "";
-      String curDate;
+  /**
+   * Format a single entry for the friends page.
+   */
+  private String formatFriendEntry(final UserContext uc, final Entry o, final Date currentDate, final EntryPrefetch prefetch) {
+    final StringBuilder sb = new StringBuilder();
 
-      /* Iterator */
-      final Iterator<Entry> itr = entries.iterator();
-      log.trace("getFriends: Number of entries {}", entries.size());
 
-      if (entries.isEmpty()) sb.append("<p>No friends entries found</p>.");
+    sb.append("<div class=\"ebody\">");
+    sb.append(ENDL);
 
-      for (int i = 0, n = entries.size(); i < n; i++) {
-        Entry o = itr.next();
+    if (avatarService.isAvatarAvailable(o.getUser())) {
+    sb.append("<img alt=\"avatar\" style=\"float: right\" src=\"/Avatar/");
+    sb.append(o.getUser().getId());
+    sb.append("\"/>");
+    sb.append(ENDL);
+    }
 
-        // Parse the previous string back into a Date.
-        final ParsePosition pos = new ParsePosition(0);
-        final Date currentDate = formatter.parse(new DateTimeBean(o.getDate()).toString(), pos);
+    sb.append("<h3>");
+    sb.append("<a href=\"/users/");
+    sb.append(o.getUser().getUsername());
+    sb.append("\" title=\"");
+    sb.append(o.getUser().getUsername());
+    sb.append("\">");
+    sb.append(o.getUser().getUsername());
+    sb.append("</a> ");
+
+    sb.append("<span class=\"time\">");
+    sb.append(EntryDateFormatter.formatTime(currentDate));
+    sb.append("</span> - <span class=\"subject\">");
+    sb.append(Xml.cleanString(o.getSubject()));
+    sb.append("</span></h3> ");
+    sb.append(ENDL);
 
-        curDate = formatmydate.format(currentDate);
+    sb.append("<div class=\"ebody\">");
+    sb.append(ENDL);
 
-        if (curDate.compareTo(lastDate) != 0) {
-          sb.append("<h2>");
-          sb.append(curDate);
-          sb.append("</h2>");
-          sb.append(ENDL);
-          lastDate = curDate;
-        }
+    // Keep this synced with getEntries()
+    if (o.getFormat().equals(FormatType.TEXT)) {
+      sb.append("<p>");
+      if (o.getBody().contains("\n"))
+        sb.append(StringUtil.replace(o.getBody(), '\n', "<br />"));
+      else if (o.getBody().contains("\r"))
+        sb.append(StringUtil.replace(o.getBody(), '\r', "<br />"));
+      else
+        // we do not have any "new lines" but it might be
+        // one long line.
+        sb.append(o.getBody());
 
-        sb.append("<div class=\"ebody\">");
-        sb.append(ENDL);
+      sb.append("</p>");
+    } else if (o.getFormat().equals(FormatType.MARKDOWN))
+      sb.append(bodyRenderService.html(o));
+    else sb.append(o.getBody());
 
-        if (avatarService.isAvatarAvailable(o.getUser())) {
-        sb.append("<img alt=\"avatar\" style=\"float: right\" src=\"/Avatar/");
-        sb.append(o.getUser().getId());
-        sb.append("\"/>");
-        sb.append(ENDL);
-        }
+    sb.append(ENDL);
+    sb.append("</div>");
+    sb.append(ENDL);
 
-        sb.append("<h3>");
-        sb.append("<a href=\"/users/");
-        sb.append(o.getUser().getUsername());
-        sb.append("\" title=\"");
-        sb.append(o.getUser().getUsername());
-        sb.append("\">");
-        sb.append(o.getUser().getUsername());
-        sb.append("</a> ");
-
-        sb.append("<span class=\"time\">");
-        sb.append(formatmytime.format(currentDate));
-        sb.append("</span> - <span class=\"subject\">");
-        sb.append(Xml.cleanString(o.getSubject()));
-        sb.append("</span></h3> ");
-        sb.append(ENDL);
+    sb.append("<p>");
 
-        sb.append("<div class=\"ebody\">");
-        sb.append(ENDL);
+    if (o.getSecurity() == Security.PRIVATE) {
+      sb.append("<span class=\"security\">security: ");
+      sb.append("<img src=\"/img/icon_private.gif\" alt=\"private\" /> ");
+      sb.append("private");
+      sb.append("</span><br />");
+      sb.append(ENDL);
+    } else if (o.getSecurity() == Security.FRIENDS) {
+      sb.append("<span class=\"security\">security: ");
+      sb.append("<img src=\"/img/icon_protected.gif\" alt=\"friends\" /> ");
+      sb.append(MODEL_FRIENDS);
+      sb.append("</span><br />");
+      sb.append(ENDL);
+    }
 
-        // Keep this synced with getEntries()
-        if (o.getFormat().equals(FormatType.TEXT)) {
-          sb.append("<p>");
-          if (o.getBody().contains("\n"))
-            sb.append(StringUtil.replace(o.getBody(), '\n', "<br />"));
-          else if (o.getBody().contains("\r"))
-            sb.append(StringUtil.replace(o.getBody(), '\r', "<br />"));
-          else
-            // we do not have any "new lines" but it might be
-            // one long line.
-            sb.append(o.getBody());
+    if (o.getLocation().getId() > 0) {
+      sb.append("<span class=\"location\">location: ");
+      sb.append(o.getLocation().getTitle());
+      sb.append("</span><br />");
+      sb.append(ENDL);
+    }
 
-          sb.append("</p>");
-        } else if (o.getFormat().equals(FormatType.MARKDOWN))
-          sb.append(markdownService.convertToHtml(o.getBody()));
-        else sb.append(o.getBody());
+    if (!o.getMood().getTitle().isEmpty() && o.getMood().getId() != 12) {
+      final MoodThemeData emoto = prefetch.getEmoticon(o.getMood().getId());
 
+      if (emoto != null) {
+        sb.append("<span class=\"mood\">mood: <img src=\"/images/emoticons/1/");
+        sb.append(emoto.getFileName());
+        sb.append("\" width=\"");
+        sb.append(emoto.getWidth());
+        sb.append("\" height=\"");
+        sb.append(emoto.getHeight());
+        sb.append("\" alt=\"");
+        sb.append(o.getMood().getTitle());
+        sb.append("\" /> ");
+        sb.append(o.getMood().getTitle());
+        sb.append("</span><br>");
         sb.append(ENDL);
-        sb.append("</div>");
-        sb.append(ENDL);
-
-        sb.append("<p>");
-
-        if (o.getSecurity() == Security.PRIVATE) {
-          sb.append("<span class=\"security\">security: ");
-          sb.append("<img src=\"/img/icon_private.gif\" alt=\"private\" /> ");
-          sb.append("private");
-          sb.append("</span><br />");
-          sb.append(ENDL);
-        } else if (o.getSecurity() == Security.FRIENDS) {
-          sb.append("<span class=\"security\">security: ");
-          sb.append("<img src=\"/img/icon_protected.gif\" alt=\"friends\" /> ");
-          sb.append(MODEL_FRIENDS);
-          sb.append("</span><br />");
-          sb.append(ENDL);
-        }
-
-        if (o.getLocation().getId() > 0) {
-          sb.append("<span class=\"location\">location: ");
-          sb.append(o.getLocation().getTitle());
-          sb.append("</span><br />");
-          sb.append(ENDL);
-        }
-
-        if (!o.getMood().getTitle().isEmpty() && o.getMood().getId() != 12) {
-          final MoodThemeData emoto = emoticonDao.findByThemeIdAndMoodId(1, o.getMood().getId());
-
-          if (emoto != null) {
-            sb.append("<span class=\"mood\">mood: <img src=\"/images/emoticons/1/");
-            sb.append(emoto.getFileName());
-            sb.append("\" width=\"");
-            sb.append(emoto.getWidth());
-            sb.append("\" height=\"");
-            sb.append(emoto.getHeight());
-            sb.append("\" alt=\"");
-            sb.append(o.getMood().getTitle());
-            sb.append("\" /> ");
-            sb.append(o.getMood().getTitle());
-            sb.append("</span><br>");
-            sb.append(ENDL);
-          }
-        }
+      }
+    }
 
-        if (!o.getMusic().isEmpty()) {
-          sb.append("<span class=\"music\">music: ");
-          sb.append(Xml.cleanString(o.getMusic()));
-          sb.append("</span><br>");
-          sb.append(ENDL);
-        }
+    if (!o.getMusic().isEmpty()) {
+      sb.append("<span class=\"music\">music: ");
+      sb.append(Xml.cleanString(o.getMusic()));
+      sb.append("</span><br>");
+      sb.append(ENDL);
+    }
 
-        sb.append("</p>");
-        sb.append(ENDL);
+    sb.append("</p>");
+    sb.append(ENDL);
 
-        sb.append("<p>tags:");
-        for (final EntryTag s : o.getTags()) {
-          sb.append(" ");
-          sb.append(s.getTag().getName());
-        }
-        sb.append("</p>");
-        sb.append(ENDL);
+    sb.append("<p>tags:");
+    for (final EntryTag s : o.getTags()) {
+      sb.append(" ");
+      sb.append(s.getTag().getName());
+    }
+    sb.append("</p>");
+    sb.append(ENDL);
 
-        sb.append("<div>");
-        sb.append(ENDL);
-        sb.append("<table width=\"100%\"  border=\"0\">");
-        sb.append(ENDL);
-        sb.append("<tr>");
-        sb.append(ENDL);
+    sb.append("<div>");
+    sb.append(ENDL);
+    sb.append("<table width=\"100%\"  border=\"0\">");
+    sb.append(ENDL);
+    sb.append("<tr>");
+    sb.append(ENDL);
 
-        if (uc.getAuthenticatedUser() != null
-            && uc.getAuthenticatedUser().getId() == o.getUser().getId()) {
-          sb.append("<td width=\"30\"><a title=\"Edit Entry\" href=\"/#/entry/").append(o.getId());
-          sb.append("\"><i class=\"fa fa-pencil-square-o\"></i></a></td>");
-          sb.append(ENDL);
-          sb.append("<td width=\"30\"><a title=\"Delete Entry\" onclick=\"return" + " deleteEntry(")
-              .append(o.getId())
-              .append(")\"");
-          sb.append("><i class=\"fa fa-trash-o\"></i></a>");
-          sb.append("</td>");
-          sb.append(ENDL);
+    if (uc.getAuthenticatedUser() != null
+        && uc.getAuthenticatedUser().getId() == o.getUser().getId()) {
+      sb.append("<td width=\"30\"><a title=\"Edit Entry\" href=\"/#/entry/").append(o.getId());
+      sb.append("\"><i class=\"fa fa-pencil-square-o\"></i></a></td>");
+      sb.append(ENDL);
+      sb.append("<td width=\"30\"><a title=\"Delete Entry\" onclick=\"return" + " deleteEntry(")
+          .append(o.getId())
+          .append(")\"");
+      sb.append("><i class=\"fa fa-trash-o\"></i></a>");
+      sb.append("</td>");
+      sb.append(ENDL);
 
-          sb.append(
-              "<td width=\"30\"><a title=\"Add Favorite\" onclick=\"return" + " addFavorite(\"");
-          sb.append(o.getId());
-          sb.append("\"><i class=\"fa fa-heart\"></i></a></td>");
-          sb.append(ENDL);
-        } else if (uc.getAuthenticatedUser() != null) {
-          sb.append(
-              "<td width=\"30\"><a title=\"Add Favorite\" onclick=\"return" + " addFavorite(\"");
-          sb.append(o.getId());
-          sb.append("\"><i class=\"fa fa-heart\"></i></a></td>");
-          sb.append(ENDL);
-        }
+      sb.append(
+          "<td width=\"30\"><a title=\"Add Favorite\" onclick=\"return" + " addFavorite(\"");
+      sb.append(o.getId());
+      sb.append("\"><i class=\"fa fa-heart\"></i></a></td>");
+      sb.append(ENDL);
+    } else if (uc.getAuthenticatedUser() != null) {
+      sb.append(
+          "<td width=\"30\"><a title=\"Add Favorite\" onclick=\"return" + " addFavorite(\"");
+      sb.append(o.getId());
+      sb.append("\"><i class=\"fa fa-heart\"></i></a></td>");
+      sb.append(ENDL);
+    }
 
-        sb.append("<td><div style=\"float: right\"><a href=\"/users/")
-            .append(o.getUser().getUsername())
-            .append("/entry/");
+    sb.append("<td><div style=\"float: right\"><a href=\"/users/")
+        .append(o.getUser().getUsername())
+        .append("/entry/");
+    sb.append(o.getId());
+    sb.append("\" title=\"Link to this entry\">link</a> ");
+    sb.append('(');
+
+    switch ((int) prefetch.getCommentCount(o.getId())) {
+      case 0:
+        break;
+      case 1:
+        sb.append("<a href=\"/users/").append(o.getUser().getUsername()).append("/entry/");
         sb.append(o.getId());
-        sb.append("\" title=\"Link to this entry\">link</a> ");
-        sb.append('(');
-
-        switch (o.getComments().size()) {
-          case 0:
-            break;
-          case 1:
-            sb.append("<a href=\"/users/").append(o.getUser().getUsername()).append("/entry/");
-            sb.append(o.getId());
-            sb.append("\" title=\"View Comment\">1 comment</a> | ");
-            break;
-          default:
-            sb.append("<a href=\"/users/").append(o.getUser().getUsername()).append("/entry/");
-            sb.append(o.getId());
-            sb.append("\" title=\"View Comments\">");
-            sb.append(o.getComments().size());
-            sb.append(" comments</a> | ");
-        }
-
-        sb.append("<a href=\"/#!/comment/");
+        sb.append("\" title=\"View Comment\">1 comment</a> | ");
+        break;
+      default:
+        sb.append("<a href=\"/users/").append(o.getUser().getUsername()).append("/entry/");
         sb.append(o.getId());
-        sb.append("\" title=\"Leave a comment on this entry\">comment on this</a>)");
+        sb.append("\" title=\"View Comments\">");
+        sb.append(prefetch.getCommentCount(o.getId()));
+        sb.append(" comments</a> | ");
+    }
 
-        sb.append("</div></td>");
-        sb.append(ENDL);
-        sb.append("</tr>");
-        sb.append(ENDL);
-        sb.append("</table>");
-        sb.append(ENDL);
-        sb.append("</div>");
-        sb.append(ENDL);
+    sb.append("<a href=\"/#!/comment/");
+    sb.append(o.getId());
+    sb.append("\" title=\"Leave a comment on this entry\">comment on this</a>)");
 
-        sb.append("</div>");
-        sb.append(ENDL);
-      }
+    sb.append("</div></td>");
+    sb.append(ENDL);
+    sb.append("</tr>");
+    sb.append(ENDL);
+    sb.append("</table>");
+    sb.append(ENDL);
+    sb.append("</div>");
+    sb.append(ENDL);
 
-    } catch (final Exception e1) {
-      log.error(e1.getMessage(), e1);
-      ErrorPage.display(" Error", "Error retrieving the friends entries", sb);
-    }
+    sb.append("</div>");
+    sb.append(ENDL);
+    
     return sb.toString();
   }
 
@@ -1557,19 +1697,14 @@ public class UsersController {
     // END: YEARS
 
     try {
-      final Collection<Entry> entries;
-      if (uc.isAuthBlog())
-        entries = entryDao.findByUsernameAndYear(uc.getBlogUser().getUsername(), year);
-      else
-        entries =
-            entryDao.findByUsernameAndYearAndSecurity(
-                uc.getBlogUser().getUsername(), year, Security.PUBLIC);
+      final List<EntryCalendarCount> days =
+          calendarCountService.getDays(uc.getBlogUser(), year, uc.isAuthBlog());
 
-      if (CollectionUtils.isEmpty(entries)) {
+      if (CollectionUtils.isEmpty(days)) {
         sb.append("<p>Calendar data not available.</p>\n");
       } else {
         // we have calendar data!
-        final Cal mycal = new Cal(entries);
+        final Cal mycal = Cal.fromCounts(days);
         sb.append(mycal.render());
       }
 
@@ -1616,16 +1751,13 @@ public class UsersController {
         sb.append("<p>Calendar data not available.</p>\n");
       } else {
 
-        final SimpleDateFormat formatmydate = new SimpleDateFormat("dd");
-        final SimpleDateFormat formatmytime = new SimpleDateFormat("h:mm a");
-
         String curDate;
         String lastDate = "";
 
         for (final Entry Entry : entries) {
 
           final Date currentDate = Entry.getDate();
-          curDate = formatmydate.format(currentDate);
+          curDate = EntryDateFormatter.formatDayOfMonth(currentDate);
 
           if (curDate.compareTo(lastDate) != 0) {
             sb.append("<p><strong>").append(curDate).append("</strong></p>");
@@ -1633,7 +1765,7 @@ public class UsersController {
           }
 
           sb.append("<p><span class=\"time\">")
-              .append(formatmytime.format(currentDate))
+              .append(EntryDateFormatter.formatTime(currentDate))
               .append("</span> - <span class=\"subject\"><a href=\"");
 
           /*TODO: fix bug where relative url is incorrect
@@ -1673,20 +1805,14 @@ public class UsersController {
       final int year = cal.get(Calendar.YEAR);
       final int month = cal.get(Calendar.MONTH) + 1; // zero based
 
-      final Collection<Entry> entries;
-      if (uc.isAuthBlog())
-        entries =
-            entryDao.findByUsernameAndYearAndMonth(uc.getBlogUser().getUsername(), year, month);
-      else
-        entries =
-            entryDao.findByUsernameAndYearAndMonthAndSecurity(
-                uc.getBlogUser().getUsername(), year, month, Security.PUBLIC);
+      final List<EntryCalendarCount> days =
+          calendarCountService.getDays(uc.getBlogUser(), year, month, uc.isAuthBlog());
 
-      if (entries.isEmpty()) {
+      if (days.isEmpty()) {
         sb.append("\t<!-- could not render calendar -->");
         sb.append(ENDL);
       } else {
-        final Cal mycal = new Cal(entries);
+        final Cal mycal = Cal.fromCounts(days);
         mycal.setBaseUrl("/users/" + uc.getBlogUser().getUsername() + '/');
         sb.append(mycal.renderMini());
       }
@@ -1715,46 +1841,44 @@ public class UsersController {
 
     try {
 
-      final Collection<Entry> entries;
+      final List<Entry> entries;
       if (uc.isAuthBlog())
         entries =
-            entryDao.findByUsernameAndYearAndMonthAndDay(
-                uc.getBlogUser().getUsername(), year, month, day);
+            entryDao.fetchTags(
+                entryDao.findByUsernameAndYearAndMonthAndDay(
+                    uc.getBlogUser().getUsername(), year, month, day));
       else
         entries =
-            entryDao.findByUsernameAndYearAndMonthAndDayAndSecurity(
-                uc.getBlogUser().getUsername(),
-                year,
-                month,
-                day,
-                Security.PUBLIC);
+            entryDao.fetchTags(
+                entryDao.findByUsernameAndYearAndMonthAndDayAndSecurity(
+                    uc.getBlogUser().getUsername(),
+                    year,
+                    month,
+                    day,
+                    Security.PUBLIC));
 
       if (CollectionUtils.isEmpty(entries)) {
         sb.append("<p>Calendar data not available.</p>\n");
       } else {
-        final SimpleDateFormat formatter = new SimpleDateFormat(ENTRY_DATE_TIME_FORMAT);
-        final SimpleDateFormat formatmydate = new SimpleDateFormat(ENTRY_DATE_FORMAT);
-
         String lastDate = "";
         String curDate;
 
+        final EntryPrefetch prefetch = entryPrefetchService.prefetch(entries);
+
         /* Iterator */
         final Iterator<Entry> itr = entries.iterator();
         for (int i = 0, n = entries.size(); i < n; i++) {
           Entry o = itr.next();
 
-          // Parse the previous string back into a Date.
-          final ParsePosition pos = new ParsePosition(0);
-          final Date currentDate = formatter.parse(new DateTimeBean(o.getDate()).toString(), pos);
-
-          curDate = formatmydate.format(currentDate);
+          final Date currentDate = o.getDate();
+          curDate = EntryDateFormatter.formatDay(currentDate);
 
           if (curDate.compareTo(lastDate) != 0) {
             sb.append("\t\t<h2>").append(curDate).append("</h2>\n");
             lastDate = curDate;
           }
 
-          sb.append(formatEntry(uc, o, currentDate, false));
+          sb.append(renderEntry(uc, o, currentDate, false, prefetch));
         }
       }
 
@@ -1766,63 +1890,6 @@ public class UsersController {
     return sb.toString();
   }
 
-  /**
-   * Handles requests for syndication content (RSS). Only returns public journal entries for the
-   * specified user.
-   *
-   * @param user blog owner
-   */
-  @Transactional
-  public String getRSS(final User user) {
-    final GregorianCalendar calendar = new GregorianCalendar();
-    calendar.setTime(new Date());
-
-    var blogbase = settings.getBlogBaseUrl(user.getUsername());
-    rss.setTitle(user.getUsername());
-    rss.setLink(blogbase);
-    rss.setSelfLink(blogbase + "/rss");
-    rss.setDescription("Just Journal for " + user.getUsername());
-    rss.setLanguage("en-us");
-    rss.setCopyright("Copyright " + calendar.get(Calendar.YEAR) + ' ' + user.getFirstName());
-    rss.setWebMaster(settings.getWebmaster());
-    // RSS advisory board format
-    rss.setManagingEditor(user.getUserContact().getEmail() + " (" + user.getFirstName() + ")");
-
-    final Pageable page = PageRequest.of(0, 15);
-    rss.populate(
-        entryDao
-            .findByUserAndSecurityOrderByDateDesc(user, Security.PUBLIC, page)
-            .getContent());
-    return rss.toXml();
-  }
-
-  /**
-   * Handles requests for syndication content (Atom). Only returns public journal entries for the
-   * specified user.
-   *
-   * @param user blog user
-   */
-  @Transactional
-  public String getAtom(final User user) {
-    final GregorianCalendar calendarg = new GregorianCalendar();
-    calendarg.setTime(new Date());
-
-    var blogbase = settings.getBlogBaseUrl(user.getUsername());
-    atom.setUserName(user.getUsername());
-    atom.setAlternateLink(blogbase);
-    atom.setAuthorName(user.getFirstName());
-    atom.setUpdated(calendarg.toString());
-    atom.setTitle(getFirstJournal(user).orElseThrow().getName());
-    atom.setId(blogbase + "/atom");
-    atom.setSelfLink("/users/" + user.getUsername() + "/atom");
-    final Pageable page = PageRequest.of(0, 15);
-    atom.populate(
-        entryDao
-            .findByUserAndSecurityOrderByDateDesc(user, Security.PUBLIC, page)
-            .getContent());
-    return atom.toXml();
-  }
-
   /**
    * List the pictures associated with a blog in RSS. This should be compatible with iPhoto.
    *
@@ -1835,22 +1902,24 @@ public class UsersController {
     calendarg.setTime(new Date());
 
     var blogbase = settings.getBlogBaseUrl(user.getUsername());
-    rss.setTitle(user.getUsername() + "'s pictures");
-    rss.setLink(blogbase + "/pictures");
-    rss.setSelfLink(blogbase + "/pictures/rss");
-    rss.setDescription("Just Journal Pictures for " + user.getUsername());
-    rss.setLanguage("en-us");
-    rss.setCopyright("Copyright " + calendarg.get(Calendar.YEAR) + ' ' + user.getFirstName());
-    rss.setWebMaster(settings.getWebmaster());
-    // RSS advisory board format
-    rss.setManagingEditor(user.getUserContact().getEmail() + " (" + user.getFirstName() + ")");
-    rss.populateImageList(user.getId(), user.getUsername());
-    return rss.toXml();
+    final RssChannel channel =
+        new RssChannel(
+            user.getUsername() + "'s pictures",
+            blogbase + "/pictures",
+            blogbase + "/pictures/rss",
+            null,
+            "Just Journal Pictures for " + user.getUsername(),
+            "en-us",
+            "Copyright " + calendarg.get(Calendar.YEAR) + ' ' + user.getFirstName(),
+            settings.getWebmaster(),
+            // RSS advisory board format
+            user.getUserContact().getEmail() + " (" + user.getFirstName() + ")",
+            rssWriter.imageItems(user.getId(), user.getUsername()));
+    return new String(rssWriter.toBytes(channel), StandardCharsets.ISO_8859_1);
   }
 
   @Transactional
-  public String getTags(final UserContext uc, final String tag) {
-    final StringBuilder sb = new StringBuilder();
+  public Iterable<String> getTags(final UserContext uc, final String tag) {
     final Collection<Entry> entries;
 
     try {
@@ -1861,40 +1930,30 @@ public class UsersController {
             entryDao.findByUsernameAndSecurityAndTag(
                 uc.getBlogUser().getUsername(), Security.PUBLIC, tag);
       }
-
-      // Format the current time.
-      final SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd hh:mm");
-      final SimpleDateFormat formatmydate = new SimpleDateFormat(ENTRY_DATE_FORMAT);
-
-      String lastDate = "";
-      String curDate;
-
-      log.trace("getTags: Begin Iteration of records.");
-
-      final Iterator<Entry> itr = entries.iterator();
-      for (int i = 0, n = entries.size(); i < n; i++) {
-        Entry o = itr.next();
-
-        // Parse the previous string back into a Date.
-        final ParsePosition pos = new ParsePosition(0);
-        final Date currentDate = formatter.parse(new DateTimeBean(o.getDate()).toString(), pos);
-
-        curDate = formatmydate.format(currentDate);
-
-        if (curDate.compareTo(lastDate) != 0) {
-          sb.append("\t\t<h2>");
-          sb.append(curDate);
-          sb.append("</h2>");
-          sb.append(ENDL);
-          lastDate = curDate;
-        }
-
-        sb.append(formatEntry(uc, o, currentDate, false));
-      }
     } catch (final Exception e1) {
-        log.error("getTags: Exception is {}\n", e1.getMessage(), e1);
+      log.error("getTags: Exception is {}\n", e1.getMessage(), e1);
+      return Collections.emptyList();
     }
-    return sb.toString();
+
+    final EntryPrefetch prefetch = entryPrefetchService.prefetch(entries);
+    return new EntryHtmlStream(entries, (o, currentDate) -> renderEntry(uc, o, currentDate, false, prefetch));
+  }
+
+  /**
+   * Format a blog entry in HTML, reusing a previously rendered fragment when the entry has not
+   * changed.
+   *
+   * @param uc User Context
+   * @param o Entry to format
+   * @param currentDate Date to format (of the entry)
+   * @param single Single blog entries are formatted differently
+   * @param prefetch Comments, trackbacks and emoticons loaded for the page
+   * @return HTML formatted entry
+   */
+  protected String renderEntry(
+      final UserContext uc, final Entry o, final Date currentDate, final boolean single, final EntryPrefetch prefetch) {
+    return entryFragmentCache.get(
+        uc, o, currentDate, single, () -> formatEntry(uc, o, currentDate, single, prefetch));
   }
 
   /**
@@ -1904,12 +1963,12 @@ public class UsersController {
    * @param o Entry to format
    * @param currentDate Date to format (of the entry)
    * @param single Single blog entries are formatted differently
+   * @param prefetch Comments, trackbacks and emoticons loaded for the page
    * @return HTML formatted entry
    */
   protected String formatEntry(
-      final UserContext uc, final Entry o, final Date currentDate, final boolean single) {
+      final UserContext uc, final Entry o, final Date currentDate, final boolean single, final EntryPrefetch prefetch) {
     final StringBuilder sb = new StringBuilder();
-    final SimpleDateFormat formatmytime = new SimpleDateFormat("h:mm a");
 
     sb.append("\t\t<div class=\"ebody\">");
     sb.append(ENDL);
@@ -1917,7 +1976,7 @@ public class UsersController {
     if (single) {
       sb.append("<article><h3>");
       sb.append("<span class=\"time\">");
-      sb.append(formatmytime.format(currentDate));
+      sb.append(EntryDateFormatter.formatTime(currentDate));
       sb.append("</span> - <span class=\"subject\"><a name=\"#e");
       sb.append(o.getId());
       sb.append("\">");
@@ -1950,7 +2009,7 @@ public class UsersController {
     } else {
       sb.append("<article><h3>");
       sb.append("<span class=\"time\">");
-      sb.append(formatmytime.format(currentDate));
+      sb.append(EntryDateFormatter.formatTime(currentDate));
       sb.append("</span> - <span class=\"subject\">");
       sb.append("<a href=\"/users/").append(o.getUser().getUsername()).append("/entry/");
       sb.append(o.getId());
@@ -1987,7 +2046,7 @@ public class UsersController {
         sb.append("</p>");
       }
     } else if (o.getFormat().equals(FormatType.MARKDOWN))
-      sb.append(markdownService.convertToHtml(body));
+      sb.append(bodyRenderService.html(o));
     else sb.append(body);
 
     sb.append(ENDL);
@@ -2018,7 +2077,7 @@ public class UsersController {
     }
 
     if (o.getMood() != null && !o.getMood().getTitle().isEmpty() && o.getMood().getId() != 12) {
-      final MoodThemeData emoto = emoticonDao.findByThemeIdAndMoodId(1, o.getMood().getId());
+      final MoodThemeData emoto = prefetch.getEmoticon(o.getMood().getId());
 
       if (emoto != null) {
         sb.append("\t\t\t<span class=\"mood\">mood: <img src=\"/images/emoticons/1/");
@@ -2120,7 +2179,7 @@ public class UsersController {
 
       sb.append('(');
 
-      switch (o.getComments().size()) {
+      switch ((int) prefetch.getCommentCount(o.getId())) {
         case 0:
           break;
         case 1:
@@ -2132,7 +2191,7 @@ public class UsersController {
           sb.append("<a href=\"/users/").append(o.getUser().getUsername()).append("/entry/");
           sb.append(o.getId());
           sb.append("\" title=\"View Comments\">");
-          sb.append(o.getComments().size());
+          sb.append(prefetch.getCommentCount(o.getId()));
           sb.append(" comments</a> | ");
       }
 
@@ -2152,7 +2211,7 @@ public class UsersController {
     sb.append(ENDL);
 
     if (single) {
-      final List<Comment> comments = commentDao.findByEntryId(o.getId());
+      final List<Comment> comments = prefetch.getComments(o.getId());
 
       sb.append("<div class=\"commentcount\">");
       sb.append(comments.size());
@@ -2204,7 +2263,7 @@ public class UsersController {
         sb.append("</div>\n");
 
         if (co.getFormat().equals(FormatType.MARKDOWN)) {
-          sb.append(markdownService.convertToHtml(co.getBody()));
+          sb.append(bodyRenderService.html(co));
         } else {
           sb.append("<p>");
           sb.append(Xml.cleanString(co.getBody()));
@@ -2214,7 +2273,7 @@ public class UsersController {
       }
 
       // trackback
-      List<TrackbackTo> trackbacks = trackbackService.getByEntry(o.getId());
+      final List<TrackbackTo> trackbacks = prefetch.getTrackbacks(o.getId());
       if (!trackbacks.isEmpty()) sb.append("<h3>Trackbacks</h3>");
       for (TrackbackTo trackback : trackbacks) {
         sb.append("<div class=\"trackback\">\n");
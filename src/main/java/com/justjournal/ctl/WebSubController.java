@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.ctl;
+
+import com.justjournal.services.WebSubService;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * WebSub hub endpoint for subscribing to journal feeds.
+ * <a href="https://www.w3.org/TR/websub/">...</a>
+ *
+ * @author Lucas Holt
+ */
+@Slf4j
+@RestController
+@RequestMapping("/hub")
+public class WebSubController {
+
+  private final WebSubService webSubService;
+
+  public WebSubController(final WebSubService webSubService) {
+    this.webSubService = webSubService;
+  }
+
+  /**
+   * Subscribe or unsubscribe. The request is accepted and the subscriber is asked to confirm it.
+   *
+   * @return 202 if accepted, 400 if invalid, 429 if the callback host has had too many requests,
+   *     503 if the hub is too busy
+   */
+  @PostMapping(
+      consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE,
+      produces = MediaType.TEXT_PLAIN_VALUE)
+  public ResponseEntity<String> hub(
+      @RequestParam("hub.mode") final String mode,
+      @RequestParam("hub.topic") final String topic,
+      @RequestParam("hub.callback") final String callback,
+      @RequestParam(value = "hub.lease_seconds", required = false) final Integer leaseSeconds,
+      @RequestParam(value = "hub.secret", required = false) final String secret) {
+    final WebSubService.Mode hubMode;
+    try {
+      hubMode = WebSubService.Mode.valueOf(mode.toUpperCase(Locale.ROOT));
+    } catch (final IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body("Unsupported hub.mode");
+    }
+
+    try {
+      webSubService.request(hubMode, topic, callback, leaseSeconds, secret);
+      return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+    } catch (final IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (final WebSubService.RateLimitedException e) {
+      log.warn("Refusing {} of {}: {}", hubMode, topic, e.getMessage());
+      return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+    } catch (final RejectedExecutionException e) {
+      log.warn("Hub is busy, refusing {} of {}", hubMode, topic);
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+  }
+}
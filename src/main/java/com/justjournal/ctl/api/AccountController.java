@@ -33,6 +33,7 @@ import com.justjournal.Login;
 import com.justjournal.core.Constants;
 import com.justjournal.ctl.error.ErrorHandler;
 import com.justjournal.exception.NotFoundException;
+import com.justjournal.model.Entry;
 import com.justjournal.model.Journal;
 import com.justjournal.model.User;
 import com.justjournal.model.api.PasswordChange;
@@ -48,6 +49,11 @@ import com.justjournal.repository.UserLinkRepository;
 import com.justjournal.repository.UserLocationRepository;
 import com.justjournal.repository.UserPrefRepository;
 import com.justjournal.repository.UserRepository;
+import com.justjournal.services.JournalVersionService;
+import com.justjournal.services.RecentBlogsService;
+import com.justjournal.services.SearchOutboxService;
+import com.justjournal.services.SitemapService;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import jakarta.servlet.http.HttpServletResponse;
@@ -97,7 +103,15 @@ public class AccountController {
 
   private final JdbcTemplate jdbcTemplate;
 
-  public AccountController(Login webLogin, UserRepository userDao, CommentRepository commentRepository, EntryRepository entryRepository, JdbcTemplate jdbcTemplate, FriendsRepository friendsDao, UserBioRepository userBioDao, UserContactRepository userContactRepository, UserLinkRepository userLinkRepository, UserLocationRepository userLocationRepository, UserPrefRepository userPrefRepository, RssSubscriptionsRepository rssSubscriptionsDAO, UserImageRepository userImageRepository, FavoriteRepository favoriteRepository) {
+  private final SearchOutboxService searchOutboxService;
+
+  private final JournalVersionService journalVersionService;
+
+  private final RecentBlogsService recentBlogsService;
+
+  private final SitemapService sitemapService;
+
+  public AccountController(Login webLogin, UserRepository userDao, CommentRepository commentRepository, EntryRepository entryRepository, JdbcTemplate jdbcTemplate, FriendsRepository friendsDao, UserBioRepository userBioDao, UserContactRepository userContactRepository, UserLinkRepository userLinkRepository, UserLocationRepository userLocationRepository, UserPrefRepository userPrefRepository, RssSubscriptionsRepository rssSubscriptionsDAO, UserImageRepository userImageRepository, FavoriteRepository favoriteRepository, SearchOutboxService searchOutboxService, JournalVersionService journalVersionService, RecentBlogsService recentBlogsService, SitemapService sitemapService) {
     this.webLogin = webLogin;
     this.userDao = userDao;
     this.commentRepository = commentRepository;
@@ -112,6 +126,10 @@ public class AccountController {
     this.rssSubscriptionsDAO = rssSubscriptionsDAO;
     this.userImageRepository = userImageRepository;
     this.favoriteRepository = favoriteRepository;
+    this.searchOutboxService = searchOutboxService;
+    this.journalVersionService = journalVersionService;
+    this.recentBlogsService = recentBlogsService;
+    this.sitemapService = sitemapService;
   }
 
   private Map<String, String> changePassword(
@@ -176,8 +194,14 @@ public class AccountController {
         throw new NotFoundException("User should always exist at this point");
       }
       commentRepository.deleteAll(commentRepository.findByUser(user.get()));
-      entryRepository.deleteAllInBatch(entryRepository.findByUser(user.get()));
+      final List<Entry> entries = entryRepository.findByUser(user.get());
+      entryRepository.deleteAllInBatch(entries);
       entryRepository.flush();
+      jdbcTemplate.execute("DELETE FROM entry_calendar_count WHERE uid = " + userID + ";");
+      // the bulk delete skips the entity listeners, so do what they would have done
+      searchOutboxService.changed(entries.stream().map(Entry::getId).toList());
+      journalVersionService.changed(userID);
+      recentBlogsService.authorDeleted(userID);
 
       favoriteRepository.deleteAllInBatch(favoriteRepository.findByUser(user.get()));
       favoriteRepository.flush();
@@ -205,6 +229,8 @@ public class AccountController {
       jdbcTemplate.execute("DELETE FROM user_contact WHERE user_id=" + userID + ";");
 
       userDao.deleteById(userID);
+      // the journal row went with plain JDBC, which the sitemap listener never sees
+      sitemapService.journalChanged(userID);
     } catch (final Exception e) {
       log.error("Could not delete account", e);
       response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
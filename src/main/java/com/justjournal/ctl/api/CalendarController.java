@@ -32,17 +32,17 @@ import com.justjournal.Login;
 import com.justjournal.exception.NotFoundException;
 import com.justjournal.model.CalendarCount;
 import com.justjournal.model.User;
-import com.justjournal.repository.EntryRepository;
 import com.justjournal.repository.UserRepository;
+import com.justjournal.services.CalendarCountService;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.GregorianCalendar;
+import java.util.Map;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
@@ -61,11 +61,11 @@ public class CalendarController {
 
   private final UserRepository userRepository;
 
-  private final EntryRepository entryRepository;
+  private final CalendarCountService calendarCountService;
 
-  public CalendarController(UserRepository userRepository, @Qualifier("entryRepository") EntryRepository entryRepository) {
+  public CalendarController(UserRepository userRepository, CalendarCountService calendarCountService) {
     this.userRepository = userRepository;
-    this.entryRepository = entryRepository;
+    this.calendarCountService = calendarCountService;
   }
 
   @GetMapping(value = "/counts/{username}", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -85,14 +85,17 @@ public class CalendarController {
     final int yearNow = calendarg.get(Calendar.YEAR);
     final Collection<CalendarCount> counts = new ArrayList<>();
 
+    Map<Integer, Long> yearCounts;
+    try {
+      yearCounts = calendarCountService.getYearCounts(user);
+    } catch (final Exception e) {
+      yearCounts = Collections.emptyMap();
+      log.error(e.getMessage());
+    }
+
     for (int i = yearNow; i >= user.getSince(); i--) {
       final CalendarCount count = new CalendarCount();
-      try {
-        count.setCount(entryRepository.calendarCount(i, username));
-      } catch (final Exception e) {
-        count.setCount(0);
-        log.error(e.getMessage());
-      }
+      count.setCount(yearCounts.getOrDefault(i, 0L));
       count.setYear(i);
 
       counts.add(count);
@@ -120,14 +123,17 @@ public class CalendarController {
 
     final Collection<CalendarCount> counts = new ArrayList<>();
 
-    for (int i = 1; i < MONTHS; i++) {
+    Map<Integer, Long> monthCounts;
+    try {
+      monthCounts = calendarCountService.getMonthCounts(user, year);
+    } catch (final Exception e) {
+      monthCounts = Collections.emptyMap();
+      log.error(e.getMessage());
+    }
+
+    for (int i = 1; i <= MONTHS; i++) {
       final CalendarCount count = new CalendarCount();
-      try {
-        count.setCount(entryRepository.calendarCount(year, i, username));
-      } catch (final Exception e) {
-        count.setCount(0);
-        log.error(e.getMessage());
-      }
+      count.setCount(monthCounts.getOrDefault(i, 0L));
       count.setYear(year);
       count.setMonth(i);
 
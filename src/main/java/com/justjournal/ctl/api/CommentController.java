@@ -39,6 +39,7 @@ import com.justjournal.repository.EntryRepository;
 import com.justjournal.repository.QueueMailRepository;
 import com.justjournal.repository.SettingsRepository;
 import com.justjournal.repository.UserRepository;
+import com.justjournal.services.EntryFragmentCache;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -73,6 +74,7 @@ public class CommentController {
   private final UserRepository userRepository;
   private final SettingsRepository settingsRepository;
   private final QueueMailRepository queueMailRepository;
+  private final EntryFragmentCache entryFragmentCache;
 
   @Autowired
   public CommentController(
@@ -80,12 +82,14 @@ public class CommentController {
       final EntryRepository entryRepository,
       final SettingsRepository settingsRepository,
       final UserRepository userRepository,
-      final QueueMailRepository queueMailRepository) {
+      final QueueMailRepository queueMailRepository,
+      final EntryFragmentCache entryFragmentCache) {
     this.userRepository = userRepository;
     this.commentDao = commentRepository;
     this.entryDao = entryRepository;
     this.settingsRepository = settingsRepository;
     this.queueMailRepository = queueMailRepository;
+    this.entryFragmentCache = entryFragmentCache;
   }
 
   @GetMapping("{id}")
@@ -136,7 +140,10 @@ public class CommentController {
       final Comment comment = commentDao.findById(id).orElse(null);
       if (comment == null) throw new IllegalArgumentException(PARAM_ID);
 
-      if (comment.getUser().getId() == Login.currentLoginId(session)) commentDao.deleteById(id);
+      if (comment.getUser().getId() == Login.currentLoginId(session)) {
+        commentDao.deleteById(id);
+        entryFragmentCache.evict(comment.getEid());
+      }
 
       return java.util.Collections.singletonMap(PARAM_ID, Integer.toString(comment.getId()));
     } catch (final Exception e) {
@@ -227,6 +234,7 @@ public class CommentController {
         }
       }
 
+      entryFragmentCache.evict(et.getId());
       queueMail(user, et, comment);
 
       return java.util.Collections.singletonMap("id", Integer.toString(comment.getId()));
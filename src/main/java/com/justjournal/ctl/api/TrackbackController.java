@@ -35,6 +35,7 @@ import com.justjournal.model.PrefBool;
 import com.justjournal.model.Security;
 import com.justjournal.model.api.TrackbackTo;
 import com.justjournal.repository.EntryRepository;
+import com.justjournal.services.EntryFragmentCache;
 import com.justjournal.services.TrackbackService;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -66,10 +67,14 @@ public class TrackbackController {
 
   EntryRepository entryRepository;
 
+  private final EntryFragmentCache entryFragmentCache;
+
   @Autowired
-  public TrackbackController(EntryRepository entryRepository, TrackbackService trackbackService) {
+  public TrackbackController(EntryRepository entryRepository, TrackbackService trackbackService,
+                             EntryFragmentCache entryFragmentCache) {
     this.entryRepository = entryRepository;
     this.trackbackService = trackbackService;
+    this.entryFragmentCache = entryFragmentCache;
   }
 
   @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
@@ -121,7 +126,10 @@ public class TrackbackController {
         return ErrorHandler.modelError("Trackback entry not found.");
       }
 
-      if (entry.getUser().getId() == Login.currentLoginId(session)) trackbackService.deleteById(id);
+      if (entry.getUser().getId() == Login.currentLoginId(session)) {
+        trackbackService.deleteById(id);
+        entryFragmentCache.evict(entry.getId());
+      }
 
       return java.util.Collections.singletonMap(PARAM_ID, Integer.toString(id));
     } catch (final Exception e) {
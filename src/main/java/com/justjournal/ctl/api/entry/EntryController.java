@@ -30,6 +30,7 @@ import static com.justjournal.core.Constants.*;
 import com.justjournal.Login;
 import com.justjournal.core.Settings;
 import com.justjournal.ctl.error.ErrorHandler;
+import com.justjournal.exception.BadRequestException;
 import com.justjournal.exception.NotFoundException;
 import com.justjournal.exception.ServiceException;
 import com.justjournal.model.Comment;
@@ -37,6 +38,7 @@ import com.justjournal.model.Entry;
 import com.justjournal.model.Journal;
 import com.justjournal.model.Location;
 import com.justjournal.model.Mood;
+import com.justjournal.model.PrefBool;
 import com.justjournal.model.RecentEntry;
 import com.justjournal.model.Security;
 import com.justjournal.model.User;
@@ -46,8 +48,10 @@ import com.justjournal.repository.EntryRepository;
 import com.justjournal.repository.LocationRepository;
 import com.justjournal.repository.MoodRepository;
 import com.justjournal.repository.UserRepository;
-import com.justjournal.repository.cache.RecentBlogsRepository;
+import com.justjournal.services.EntryCursor;
+import com.justjournal.services.EntryFragmentCache;
 import com.justjournal.services.EntryService;
+import com.justjournal.services.EntryWindow;
 import com.justjournal.services.TrackbackService;
 import com.justjournal.utility.HTMLUtil;
 
@@ -64,6 +68,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.PagedModel;
 import org.springframework.http.HttpStatus;
@@ -80,6 +85,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import reactor.core.publisher.Flux;
 
 /**
@@ -94,6 +100,8 @@ public class EntryController {
 
   private static final int DEFAULT_SIZE = 20;
 
+  private static final int MAX_SIZE = 100;
+
   private final CommentRepository commentDao;
 
   private final EntryRepository entryRepository;
@@ -110,12 +118,13 @@ public class EntryController {
 
   final Settings settings;
 
-  private final RecentBlogsRepository recentBlogsRepository;
+  private final EntryFragmentCache entryFragmentCache;
 
   public EntryController(@Qualifier("commentRepository") CommentRepository commentDao, @Qualifier("entryRepository") EntryRepository entryRepository,
                          @Qualifier("locationRepository") LocationRepository locationDao, @Qualifier("moodRepository") MoodRepository moodDao,
                          @Qualifier("userRepository") UserRepository userRepository, EntryService entryService,
-                         TrackbackService trackbackService, Settings settings, RecentBlogsRepository recentBlogsRepository) {
+                         TrackbackService trackbackService, Settings settings,
+                         EntryFragmentCache entryFragmentCache) {
     this.commentDao = commentDao;
     this.entryRepository = entryRepository;
     this.locationDao = locationDao;
@@ -124,7 +133,7 @@ public class EntryController {
     this.entryService = entryService;
     this.trackbackService = trackbackService;
     this.settings = settings;
-    this.recentBlogsRepository = recentBlogsRepository;
+    this.entryFragmentCache = entryFragmentCache;
   }
 
   /**
@@ -202,7 +211,9 @@ public class EntryController {
 
       final Link link = Link.of(request.getRequestURI());
       return PagedModel.of(
-          entries.stream().map(Entry::toEntryTo).toList(), metadata, List.of(link));
+          entryRepository.fetchTags(entries.getContent()).stream().map(Entry::toEntryTo).toList(),
+          metadata,
+          List.of(link));
     } catch (final ServiceException e) {
       log.error(e.getMessage(), e);
       response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
@@ -225,6 +236,87 @@ public class EntryController {
     return getEntries(username, DEFAULT_SIZE, page, request, response, session);
   }
 
+  /**
+   * Get entries a page at a time with cursors. /api/entry/{username}/size/{size}?cursor=
+   *
+   * <p>Clients follow the next and prev links instead of computing page numbers. The journal is
+   * only counted when count=true, so deep pages cost the same as the first.
+   *
+   * @param username journal owner
+   * @param size entries per page
+   * @param cursor opaque cursor from a previous response or empty for the newest entries
+   * @param count include the total number of entries
+   * @return entries with next and prev links
+   */
+  @GetMapping(value = "{username}/size/{size}", produces = MediaType.APPLICATION_JSON_VALUE)
+  public PagedModel<EntryTo> getEntries(
+      @PathVariable(PARAM_USERNAME) final String username,
+      @PathVariable(PARAM_SIZE) final int size,
+      @RequestParam(value = PARAM_CURSOR, required = false) final String cursor,
+      @RequestParam(value = PARAM_COUNT, defaultValue = "false") final boolean count,
+      final HttpServletRequest request,
+      final HttpServletResponse response,
+      final HttpSession session) {
+
+    if (!Login.isUserName(username)) {
+      throw new NotFoundException();
+    }
+
+    if (size < 1 || size > MAX_SIZE) {
+      throw new BadRequestException("Invalid page size");
+    }
+
+    final EntryCursor position;
+    try {
+      position = StringUtils.isBlank(cursor) ? null : EntryCursor.decode(cursor);
+    } catch (final IllegalArgumentException e) {
+      throw new BadRequestException("Invalid cursor");
+    }
+
+    final User user = userRepository.findByUsername(username);
+    if (user == null) {
+      throw new NotFoundException();
+    }
+
+    final boolean owner =
+        Login.isAuthenticated(session) && username.equals(Login.currentLoginName(session));
+    final Security security = owner ? null : Security.PUBLIC;
+    final PrefBool draft = owner ? null : PrefBool.N;
+
+    try {
+      final EntryWindow window = entryService.getEntryWindow(user, security, draft, position, size);
+
+      final List<Link> links = new ArrayList<>();
+      links.add(Link.of(ServletUriComponentsBuilder.fromRequest(request).toUriString()));
+      if (window.hasNext()) {
+        links.add(Link.of(cursorUri(request, window.getNext()), IanaLinkRelations.NEXT));
+      }
+      if (window.hasPrevious()) {
+        links.add(Link.of(cursorUri(request, window.getPrevious()), IanaLinkRelations.PREV));
+      }
+
+      final PagedModel.PageMetadata metadata =
+          count
+              ? new PagedModel.PageMetadata(size, 0, entryService.countEntries(user, security, draft))
+              : null;
+
+      return PagedModel.of(
+          entryRepository.fetchTags(window.getContent()).stream().map(Entry::toEntryTo).toList(),
+          metadata,
+          links);
+    } catch (final ServiceException e) {
+      log.error(e.getMessage(), e);
+      response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+      return null;
+    }
+  }
+
+  private static String cursorUri(final HttpServletRequest request, final EntryCursor cursor) {
+    return ServletUriComponentsBuilder.fromRequest(request)
+        .replaceQueryParam(PARAM_CURSOR, cursor.encode())
+        .toUriString();
+  }
+
   /**
    * Get an individual entry
    *
@@ -377,6 +469,7 @@ public class EntryController {
     }
 
     entryService.applyTags(saved, entryTo.getTags());
+    entryFragmentCache.evict(saved.getId());
 
     // only ping if it's public
     if (entry.getSecurity() == Security.PUBLIC) {
@@ -386,8 +479,6 @@ public class EntryController {
     model.addAttribute("status", "ok");
     model.addAttribute("id", saved.getId());
 
-    recentBlogsRepository.delete().subscribe();
-
     final HashMap<String, String> map = new HashMap<>();
     map.put("status", "ok");
     map.put("id", Integer.toString(saved.getId()));
@@ -487,14 +578,13 @@ public class EntryController {
 
     entry = entryRepository.save(entry);
     entryService.applyTags(entry, entryTo.getTags());
+    entryFragmentCache.evict(entry.getId());
 
     // only ping if it's public
     if (entry.getSecurity() == Security.PUBLIC) {
       trackbackPing(entryTo, user, entry.getId());
     }
 
-    recentBlogsRepository.delete().subscribe();
-
     return Collections.singletonMap("id", Integer.toString(entry.getId()));
   }
 
@@ -537,8 +627,7 @@ public class EntryController {
         final Iterable<Comment> comments = entry.getComments();
         commentDao.deleteAll(comments);
         entryRepository.deleteById(entryId);
-
-        recentBlogsRepository.delete().subscribe();
+        entryFragmentCache.evict(entryId);
       } else {
         response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
         return ErrorHandler.modelError("Could not delete entry.");
@@ -44,6 +44,8 @@ public class Feed {
 
     private String language;
 
+    private List<Hub> hubs;
+
     private List<Item> items;
 }
 
@@ -0,0 +1,20 @@
+package com.justjournal.jsonfeed;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+/**
+ * Endpoint that can be used to subscribe to real-time notifications of changes to the feed.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Hub {
+    /** Protocol, e.g. WebSub. */
+    private String type;
+
+    private String url;
+}
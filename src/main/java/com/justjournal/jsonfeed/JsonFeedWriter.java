@@ -0,0 +1,59 @@
+package com.justjournal.jsonfeed;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Writes a JSON Feed with a streaming generator. Items are pulled and written one at a time so
+ * the whole feed is never held as an object graph.
+ * <a href="https://jsonfeed.org/version/1.1">...</a>
+ */
+public final class JsonFeedWriter {
+
+    private JsonFeedWriter() {
+    }
+
+    /**
+     * @param generator generator with an object codec, left open
+     * @param feed top level feed fields, items are ignored
+     * @param items feed items, newest first
+     * @throws IOException if the feed can't be written
+     */
+    public static void write(final JsonGenerator generator, final Feed feed, final Iterator<Item> items)
+            throws IOException {
+        generator.writeStartObject();
+        field(generator, "version", feed.getVersion());
+        field(generator, "title", feed.getTitle());
+        field(generator, "home_page_url", feed.getHome_page_url());
+        field(generator, "feed_url", feed.getFeed_url());
+        field(generator, "description", feed.getDescription());
+        field(generator, "user_comment", feed.getUser_comment());
+        field(generator, "next_url", feed.getNext_url());
+        field(generator, "icon", feed.getIcon());
+        field(generator, "favicon", feed.getFavicon());
+        if (feed.getAuthors() != null) {
+            generator.writeObjectField("authors", feed.getAuthors());
+        }
+        field(generator, "language", feed.getLanguage());
+        if (feed.getHubs() != null) {
+            generator.writeObjectField("hubs", feed.getHubs());
+        }
+
+        generator.writeArrayFieldStart("items");
+        while (items.hasNext()) {
+            generator.writeObject(items.next());
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    private static void field(final JsonGenerator generator, final String name, final String value)
+            throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+}
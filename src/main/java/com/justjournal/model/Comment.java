@@ -28,6 +28,7 @@ package com.justjournal.model;
 
 import com.fasterxml.jackson.annotation.*;
 import com.justjournal.model.api.CommentTo;
+import com.justjournal.services.BodyRenderListener;
 import com.justjournal.utility.HTMLUtil;
 
 import java.io.Serial;
@@ -49,6 +50,7 @@ import lombok.Setter;
 @JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
 @Entity
 @Table(name = "comments")
+@EntityListeners(BodyRenderListener.class)
 public final class Comment implements Serializable {
 
   @Serial
@@ -89,12 +91,34 @@ public final class Comment implements Serializable {
   private String body = "";
 
   @Getter
-  @Setter
   @JsonProperty("format")
   @Column(name = "format", nullable = false, length = 8)
   @Enumerated(EnumType.STRING)
   private FormatType format = FormatType.TEXT;
 
+  /** Markdown body rendered to HTML in the background, or null until it has been. */
+  @Getter
+  @Setter
+  @JsonIgnore
+  @Column(name = "body_html")
+  @Lob
+  private String bodyHtml;
+
+  /** Markdown body rendered to plain text in the background, or null until it has been. */
+  @Getter
+  @Setter
+  @JsonIgnore
+  @Column(name = "body_text")
+  @Lob
+  private String bodyText;
+
+  /** Renderer version that produced bodyHtml and bodyText, 0 if not rendered. */
+  @Getter
+  @Setter
+  @JsonIgnore
+  @Column(name = "renderer", nullable = false)
+  private int renderer;
+
   @JsonCreator
   public Comment() {
     super();
@@ -144,6 +168,19 @@ public final class Comment implements Serializable {
     if (bodyText.length() < 2) throw new IllegalArgumentException("Illegal bodyText: " + bodyText);
 
     this.body = bodyText;
+    clearRendered();
+  }
+
+  public void setFormat(final FormatType format) {
+    this.format = format;
+    clearRendered();
+  }
+
+  /** Drop the rendered body so it is not served stale before the new one is rendered. */
+  private void clearRendered() {
+    this.bodyHtml = null;
+    this.bodyText = null;
+    this.renderer = 0;
   }
 
   @JsonIgnore
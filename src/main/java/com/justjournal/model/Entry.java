@@ -45,6 +45,10 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.justjournal.model.api.SecurityTo;
+import com.justjournal.services.BodyRenderListener;
+import com.justjournal.services.EntryCalendarListener;
+import com.justjournal.services.JournalVersionListener;
+import com.justjournal.services.SearchOutboxListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
@@ -53,6 +57,14 @@ import lombok.Setter;
  * Journal entry transfer object. Contains one journal entry. Maps relationship between table
  * "entry" and java.
  *
+ * <p>The entity listeners keep derived tables in step with every entry write, whichever API or
+ * servlet made it. Those that write use plain JDBC on the transaction's connection, so their rows
+ * commit or roll back with the entry and the persistence context is not touched during a flush.
+ *
+ * <p>Listeners run in the order listed, but the order does not matter: each writes only its own
+ * table (entry_calendar_count, journal_version, search_outbox), none reads another's, and
+ * rendering waits for the commit. An exception in any of them rolls back the whole write.
+ *
  * @author Lucas Holt
  * @version 1.0
  * @see com.justjournal.repository.EntryRepository
@@ -63,10 +75,23 @@ import lombok.Setter;
 @JsonIgnoreProperties(ignoreUnknown = true)
 @Entity
 @Table(name = "entry")
+@EntityListeners({
+  EntryCalendarListener.class,
+  BodyRenderListener.class,
+  JournalVersionListener.class,
+  SearchOutboxListener.class
+})
+@NamedEntityGraph(
+    name = Entry.GRAPH_TAGS,
+    attributeNodes = @NamedAttributeNode(value = "tags", subgraph = "tag"),
+    subgraphs = @NamedSubgraph(name = "tag", attributeNodes = @NamedAttributeNode("tag")))
 public class Entry implements Serializable {
   @Serial
   private static final long serialVersionUID = 6558001750470601772L;
 
+  /** Fetch plan that loads tags with the entry, for rendering, feeds and search indexing. */
+  public static final String GRAPH_TAGS = "Entry.tags";
+
   @Setter
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -119,13 +144,25 @@ public class Entry implements Serializable {
   @Column(name = "subject", length = 255)
   private String subject = "";
 
-  @Setter
   @Basic(fetch = FetchType.LAZY)
   @JsonProperty("body")
   @Column(name = "body")
   @Lob
   private String body = "";
 
+  /** Rendered markdown body, read only on the pages that show it. */
+  @Setter
+  @JsonIgnore
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "id", insertable = false, updatable = false)
+  private EntryRendering rendering;
+
+  /** Renderer version that produced the rendering, 0 if not rendered. */
+  @Setter
+  @JsonIgnore
+  @Column(name = "renderer", nullable = false)
+  private int renderer = 0;
+
   @Setter
   @JsonProperty("music")
   @Column(name = "music", length = 125)
@@ -137,7 +174,6 @@ public class Entry implements Serializable {
   @Convert(converter = PrefBoolConverter.class)
   private PrefBool autoFormat = PrefBool.Y;
 
-  @Setter
   @JsonProperty("format")
   @Column(name = "format", nullable = false, length = 8)
   @Enumerated(EnumType.STRING)
@@ -169,16 +205,21 @@ public class Entry implements Serializable {
 
   @JsonIgnore private transient int attachFile = 0;
 
+  /** Date and security the entry is counted under in the calendar, as last loaded or saved. */
+  @Setter @JsonIgnore private transient Date calendarDate;
+
+  @Setter @JsonIgnore private transient Security calendarSecurity;
+
   @Setter
   @JsonManagedReference(value = "entry-entrytag")
   @JsonProperty("tags")
-  @OneToMany(cascade = CascadeType.ALL, mappedBy = "entry", fetch = FetchType.EAGER) // TODO: why!
+  @OneToMany(cascade = CascadeType.ALL, mappedBy = "entry", fetch = FetchType.LAZY)
   private Set<EntryTag> tags = new HashSet<>();
 
   @Setter
   @JsonManagedReference(value = "entry-comment")
   @JsonProperty("comments")
-  @OneToMany(cascade = CascadeType.ALL, mappedBy = "entry", fetch = FetchType.EAGER)
+  @OneToMany(cascade = CascadeType.ALL, mappedBy = "entry", fetch = FetchType.LAZY)
   private Set<Comment> comments = new HashSet<>();
 
   @JsonCreator
@@ -194,6 +235,34 @@ public class Entry implements Serializable {
   }
 
 
+  public void setBody(final String body) {
+    this.body = body;
+    clearRendered();
+  }
+
+  public void setFormat(final FormatType format) {
+    this.format = format;
+    clearRendered();
+  }
+
+  /** Drop the rendered body so it is not served stale before the new one is rendered. */
+  private void clearRendered() {
+    this.rendering = null;
+    this.renderer = 0;
+  }
+
+  /** @return markdown body rendered to HTML in the background, or null until it has been */
+  @JsonIgnore
+  public String getBodyHtml() {
+    return rendering == null ? null : rendering.getBodyHtml();
+  }
+
+  /** @return markdown body rendered to plain text in the background, or null until it has been */
+  @JsonIgnore
+  public String getBodyText() {
+    return rendering == null ? null : rendering.getBodyText();
+  }
+
   public void setLocation(final Location location) {
     this.location = location;
     setLocationId(location.getId());
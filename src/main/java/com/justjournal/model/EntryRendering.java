@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Stored renderings of a markdown entry body, mapped apart from {@link Entry} so the two text
+ * columns are only read when a body is shown. Written by {@link
+ * com.justjournal.services.BodyRenderService} with plain JDBC, so read only here. Renderings for a
+ * page of entries load together on first use.
+ *
+ * @author Lucas Holt
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Immutable
+@BatchSize(size = 50)
+@Table(name = "entry")
+public class EntryRendering implements Serializable {
+
+  @Serial
+  private static final long serialVersionUID = 3630858271052146287L;
+
+  @Id
+  private int id;
+
+  /** Markdown body rendered to HTML in the background, or null until it has been. */
+  @Column(name = "body_html")
+  @Lob
+  private String bodyHtml;
+
+  /** Markdown body rendered to plain text in the background, or null until it has been. */
+  @Column(name = "body_text")
+  @Lob
+  private String bodyText;
+
+  public EntryRendering(final int id, final String bodyHtml, final String bodyText) {
+    this.id = id;
+    this.bodyHtml = bodyHtml;
+    this.bodyText = bodyText;
+  }
+}
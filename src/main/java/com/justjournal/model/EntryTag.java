@@ -28,6 +28,7 @@ package com.justjournal.model;
 
 import com.fasterxml.jackson.annotation.*;
 
+import com.justjournal.services.SearchOutboxListener;
 import java.io.Serial;
 import java.io.Serializable;
 import jakarta.persistence.*;
@@ -40,6 +41,7 @@ import jakarta.persistence.*;
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
 @Entity
 @Table(name = "entry_tags")
+@EntityListeners(SearchOutboxListener.class)
 public class EntryTag implements Serializable {
 
   @Serial
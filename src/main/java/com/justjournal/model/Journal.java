@@ -27,6 +27,8 @@ package com.justjournal.model;
 
 
 import com.fasterxml.jackson.annotation.*;
+import com.justjournal.services.JournalVersionListener;
+import com.justjournal.services.SitemapListener;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -47,6 +49,7 @@ import lombok.NoArgsConstructor;
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
 @Entity
 @Table(name = "journal")
+@EntityListeners({JournalVersionListener.class, SitemapListener.class})
 public class Journal implements Serializable {
   @Serial
   @JsonIgnore private static final long serialVersionUID = 9106701690730308047L;
@@ -26,7 +26,9 @@
 package com.justjournal.model;
 
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 /**
  * Recent Entry list item for sidebar of blog
@@ -34,6 +36,8 @@ import lombok.Data;
  * @author Lucas Holt
  */
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class RecentEntry {
   private int id = 0;
   private String subject = null;
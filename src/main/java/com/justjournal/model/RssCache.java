@@ -71,6 +71,17 @@ public final class RssCache implements Serializable {
   @Column(name = "error_count", columnDefinition = "int default 0", nullable = false)
   private int errorCount;
 
+  /** Validators from the last response, sent back on the next fetch. */
+  @Column(name = "etag", length = 255)
+  private String etag;
+
+  @Column(name = "last_modified", length = 64)
+  private String lastModified;
+
+  @Temporal(value = TemporalType.TIMESTAMP)
+  @Column(name = "next_fetch")
+  private Date nextFetch;
+
   @JsonCreator
   public RssCache() {
     super();
@@ -131,4 +142,28 @@ public final class RssCache implements Serializable {
   public void setErrorCount(final int errorCount) {
     this.errorCount = errorCount;
   }
+
+  public String getEtag() {
+    return etag;
+  }
+
+  public void setEtag(final String etag) {
+    this.etag = etag;
+  }
+
+  public String getLastModified() {
+    return lastModified;
+  }
+
+  public void setLastModified(final String lastModified) {
+    this.lastModified = lastModified;
+  }
+
+  public Date getNextFetch() {
+    return nextFetch;
+  }
+
+  public void setNextFetch(final Date nextFetch) {
+    this.nextFetch = nextFetch;
+  }
 }
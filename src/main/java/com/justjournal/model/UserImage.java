@@ -30,6 +30,7 @@ import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.justjournal.services.JournalVersionListener;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -44,6 +45,7 @@ import jakarta.persistence.*;
 @JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
 @Entity
 @Table(name = "user_images")
+@EntityListeners(JournalVersionListener.class)
 public class UserImage implements Serializable {
   @Serial
   private static final long serialVersionUID = 6356304916167520629L;
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.model.search;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Date;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.Document;
+
+/**
+ * How much of the entry table the blog entry index holds, kept beside it so a restart only has to
+ * index what changed since.
+ *
+ * @author Lucas Holt
+ */
+@ToString
+@EqualsAndHashCode
+@Document(indexName = "#{@blogEntryIndex}-meta")
+public class SearchWatermark implements Serializable {
+  @Serial
+  private static final long serialVersionUID = 5520170214438216385L;
+
+  /** Id of the one watermark document. */
+  public static final String ID = "blogentry";
+
+  @Id @Getter @Setter private String id = ID;
+
+  /** Mapping version the index was built with. */
+  @Getter @Setter private int mappingVersion;
+
+  /** Index behind the alias when the watermark was written. */
+  @Getter @Setter private String index;
+
+  /** Highest entry id indexed. */
+  @Getter @Setter private int maxEntryId;
+
+  /** Latest entry modification indexed. */
+  @Getter @Setter private Date modified;
+}
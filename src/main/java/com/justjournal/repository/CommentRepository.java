@@ -28,6 +28,7 @@ package com.justjournal.repository;
 
 import com.justjournal.model.Comment;
 import com.justjournal.model.User;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -47,6 +48,18 @@ public interface CommentRepository extends JpaRepository<Comment, Integer> {
 
   List<Comment> findByUser(User user);
 
+  @Query("SELECT c FROM Comment c JOIN FETCH c.user WHERE c.eid IN :entryIds ORDER BY c.date")
+  List<Comment> findByEntryIds(@Param("entryIds") Collection<Integer> entryIds);
+
+  /**
+   * Count comments for several entries at once.
+   *
+   * @param entryIds entries to count
+   * @return rows of entry id and comment count; entries without comments are omitted
+   */
+  @Query("SELECT c.eid, count(c) FROM Comment c WHERE c.eid IN :entryIds GROUP BY c.eid")
+  List<Object[]> countByEntryIds(@Param("entryIds") Collection<Integer> entryIds);
+
   @Query(
       "SELECT count(eh) FROM User us, Comment eh WHERE LOWER(us.username) = LOWER(:username)"
           + " AND us = eh.user")
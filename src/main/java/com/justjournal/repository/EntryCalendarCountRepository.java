@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.repository;
+
+
+import com.justjournal.model.EntryCalendarCount;
+import com.justjournal.model.Security;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Per day entry counts used to draw calendars.
+ *
+ * @author Lucas Holt
+ */
+@Repository
+public interface EntryCalendarCountRepository extends JpaRepository<EntryCalendarCount, Integer> {
+
+  @Query(
+      "SELECT COALESCE(SUM(c.count), 0) FROM EntryCalendarCount c WHERE c.userId = :userId"
+          + " AND c.year = :year")
+  long countByUserIdAndYear(@Param("userId") int userId, @Param("year") int year);
+
+  /**
+   * @param userId blog owner
+   * @return rows of year and entry count
+   */
+  @Query(
+      "SELECT c.year, SUM(c.count) FROM EntryCalendarCount c WHERE c.userId = :userId"
+          + " GROUP BY c.year")
+  List<Object[]> countByYear(@Param("userId") int userId);
+
+  /**
+   * @param userId blog owner
+   * @param year year to break down
+   * @return rows of 1 based month and entry count
+   */
+  @Query(
+      "SELECT c.month, SUM(c.count) FROM EntryCalendarCount c WHERE c.userId = :userId"
+          + " AND c.year = :year GROUP BY c.month")
+  List<Object[]> countByMonth(@Param("userId") int userId, @Param("year") int year);
+
+  @Query(
+      "SELECT c FROM EntryCalendarCount c WHERE c.userId = :userId AND c.year = :year"
+          + " AND c.security IN :security AND c.count > 0 ORDER BY c.month, c.day")
+  List<EntryCalendarCount> findDays(
+      @Param("userId") int userId,
+      @Param("year") int year,
+      @Param("security") Collection<Security> security);
+
+  @Query(
+      "SELECT c FROM EntryCalendarCount c WHERE c.userId = :userId AND c.year = :year"
+          + " AND c.month = :month AND c.security IN :security AND c.count > 0 ORDER BY c.day")
+  List<EntryCalendarCount> findDays(
+      @Param("userId") int userId,
+      @Param("year") int year,
+      @Param("month") int month,
+      @Param("security") Collection<Security> security);
+}
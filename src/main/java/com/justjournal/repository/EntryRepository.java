@@ -27,15 +27,31 @@ package com.justjournal.repository;
 
 
 import com.justjournal.model.Entry;
+import com.justjournal.model.EntryFeedItem;
+import com.justjournal.model.EntryIdRange;
+import com.justjournal.model.EntryWatermark;
 import com.justjournal.model.PrefBool;
+import com.justjournal.model.RecentEntry;
 import com.justjournal.model.Security;
 import com.justjournal.model.User;
+import jakarta.persistence.QueryHint;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -49,6 +65,84 @@ public interface EntryRepository extends JpaRepository<Entry, Integer> {
 
   List<Entry> findByUser(@Param("user") User user);
 
+  @EntityGraph(Entry.GRAPH_TAGS)
+  @Query("select e from Entry e where e.id = :id")
+  Optional<Entry> findWithTagsById(@Param("id") int id);
+
+  /**
+   * Load entries with their tags. Pages are read without tags and then filled in with this, since
+   * fetching a collection in a paged query is done in memory.
+   */
+  @EntityGraph(Entry.GRAPH_TAGS)
+  @Query("select e from Entry e where e.id in :ids")
+  List<Entry> findWithTagsByIdIn(@Param("ids") Collection<Integer> ids);
+
+  /**
+   * Reload a page of entries with their tags in one query, keeping the page order.
+   *
+   * @param entries entries read without tags
+   * @return the same entries with tags loaded
+   */
+  default List<Entry> fetchTags(final List<Entry> entries) {
+    if (entries.isEmpty()) {
+      return entries;
+    }
+
+    final Map<Integer, Entry> loaded = new HashMap<>();
+    for (final Entry entry : findWithTagsByIdIn(entries.stream().map(Entry::getId).toList())) {
+      loaded.put(entry.getId(), entry);
+    }
+    return entries.stream().map(e -> loaded.getOrDefault(e.getId(), e)).toList();
+  }
+
+  @Query(
+      "select new com.justjournal.model.EntryIdRange(min(e.id), max(e.id)) from Entry e"
+          + " where e.security = :security")
+  EntryIdRange findIdRangeBySecurity(@Param("security") Security security);
+
+  /**
+   * A page of entries in an id range in id order without tags, for bulk indexing. Page through the
+   * range by passing the last id of the previous page as {@code after}.
+   *
+   * @param security security level
+   * @param after entries with a greater id
+   * @param last last id included
+   * @param pageable page size; the offset stays 0
+   * @return entries
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+  @Query(
+      "select e from Entry e where e.security = :security and e.id > :after and e.id <= :last"
+          + " order by e.id")
+  List<Entry> findBySecurityAndIdRange(
+      @Param("security") Security security,
+      @Param("after") int after,
+      @Param("last") int last,
+      Pageable pageable);
+
+  @Query("select new com.justjournal.model.EntryWatermark(max(e.id), max(e.modified)) from Entry e")
+  EntryWatermark findWatermark();
+
+  /**
+   * A page of ids of entries added after an id or modified since a time, in id order. Page through
+   * them by passing the last id of the previous page as {@code after}.
+   *
+   * @param after ids greater than this
+   * @param id entries with a greater id
+   * @param modified entries modified at or after this time
+   * @param pageable page size; the offset stays 0
+   * @return entry ids
+   */
+  @Query(
+      "select e.id from Entry e where e.id > :after and (e.id > :id or e.modified >= :modified)"
+          + " order by e.id")
+  List<Integer> findIdsChangedSince(
+      @Param("after") int after,
+      @Param("id") int id,
+      @Param("modified") Date modified,
+      Pageable pageable);
+
+  @EntityGraph(Entry.GRAPH_TAGS)
   @Query(
       "select e from Entry e, User u where e.user = u and LOWER(u.username) ="
           + " LOWER(:username)")
@@ -100,88 +194,199 @@ public interface EntryRepository extends JpaRepository<Entry, Integer> {
       Pageable pageable);
 
   @Query(
-      "select new Entry(e.id, e.subject) from Entry e, User u where e.user = u and"
-          + " LOWER(u.username) = LOWER(:username) and e.security = :security and e.draft ="
-          + " :draft")
-  Page<Entry> findByUserAndSecurityAndDraftWithSubjectOnly(
+      "select new com.justjournal.model.RecentEntry(e.id, e.subject) from Entry e where e.user ="
+          + " :user order by e.date desc, e.id desc")
+  List<RecentEntry> findRecentEntries(@Param("user") User user, Pageable pageable);
+
+  @Query(
+      "select new com.justjournal.model.RecentEntry(e.id, e.subject) from Entry e join e.user u"
+          + " where LOWER(u.username) = LOWER(:username) and e.security = :security and e.draft ="
+          + " :draft order by e.date desc, e.id desc")
+  List<RecentEntry> findRecentEntries(
       @Param("username") String username,
       @Param("security") Security security,
       @Param("draft") PrefBool draft,
       Pageable pageable);
 
+  @Query(
+      "select new com.justjournal.model.EntryFeedItem(e.id, u.id, u.username, e.subject, e.body,"
+          + " e.format, e.date, r.bodyText, e.renderer) from Entry e join e.user u"
+          + " join e.rendering r where e.user = :user and e.security = :security"
+          + " order by e.date desc, e.id desc")
+  List<EntryFeedItem> findFeedItems(
+      @Param("user") User user, @Param("security") Security security, Pageable pageable);
+
+  @Query(
+      "select new com.justjournal.model.EntryFeedItem(e.id, u.id, u.username, e.subject, e.body,"
+          + " e.format, e.date, r.bodyText, e.renderer) from Entry e join e.user u"
+          + " join e.rendering r where e.security = :security order by e.date desc, e.id desc")
+  List<EntryFeedItem> findFeedItems(@Param("security") Security security, Pageable pageable);
+
+  @Query(
+      "select new com.justjournal.model.EntryFeedItem(e.id, u.id, u.username, e.subject, e.body,"
+          + " e.format, e.date, r.bodyText, e.renderer) from Entry e join e.user u"
+          + " join e.rendering r where u.id = :userId and e.security = :security"
+          + " order by e.date desc, e.id desc")
+  List<EntryFeedItem> findFeedItemsByUserId(
+      @Param("userId") int userId, @Param("security") Security security, Pageable pageable);
+
+  @Query(
+      "select new com.justjournal.model.EntryFeedItem(e.id, u.id, u.username, e.subject, e.body,"
+          + " e.format, e.date, r.bodyText, e.renderer) from Entry e join e.user u"
+          + " join e.rendering r where LOWER(u.username) = LOWER(:username)"
+          + " order by e.date desc, e.id desc")
+  List<EntryFeedItem> findFeedItemsByUsername(@Param("username") String username, Pageable pageable);
+
   Page<Entry> findByUserOrderByDateDesc(User user, Pageable pageable);
 
   Page<Entry> findBySecurityOrderByDateDesc(Security security, Pageable pageable);
 
   @Query(
-      "select e from Entry e, User u where e.user= u and LOWER(u.username) ="
-          + " LOWER(:username) and e.date >= :startDate and e.date <= :endDate")
-  List<Entry> findByUsernameAndDate(
-      @Param("username") String username,
-      @Param("startDate") Date startDate,
-      @Param("endDate") Date endDate);
+      "select e from Entry e where e.user = :user and e.security in :security and e.draft in"
+          + " :draft order by e.date desc, e.id desc")
+  List<Entry> findNewest(
+      @Param("user") User user,
+      @Param("security") Collection<Security> security,
+      @Param("draft") Collection<PrefBool> draft,
+      Pageable pageable);
 
   @Query(
-      "SELECT count(eh) FROM User us, Entry eh WHERE LOWER(us.username) = LOWER(:username)"
-          + " AND YEAR(eh.date)= :yr AND us = eh.user")
-  Long calendarCount(@Param("yr") int year, @Param("username") String username);
+      "select e from Entry e where e.user = :user and e.security in :security and e.draft in"
+          + " :draft and (e.date < :date or (e.date = :date and e.id < :id))"
+          + " order by e.date desc, e.id desc")
+  List<Entry> findOlderThan(
+      @Param("user") User user,
+      @Param("security") Collection<Security> security,
+      @Param("draft") Collection<PrefBool> draft,
+      @Param("date") Date date,
+      @Param("id") int id,
+      Pageable pageable);
 
   @Query(
-      "SELECT count(eh) FROM User us, Entry eh WHERE LOWER(us.username) = LOWER(:username)"
-          + " AND YEAR(eh.date)= :yr AND MONTH(eh.date)= :mn AND us = eh.user")
-  Long calendarCount(
-      @Param("yr") int year, @Param("mn") int month, @Param("username") String username);
+      "select e from Entry e where e.user = :user and e.security in :security and e.draft in"
+          + " :draft and (e.date > :date or (e.date = :date and e.id > :id))"
+          + " order by e.date asc, e.id asc")
+  List<Entry> findNewerThan(
+      @Param("user") User user,
+      @Param("security") Collection<Security> security,
+      @Param("draft") Collection<PrefBool> draft,
+      @Param("date") Date date,
+      @Param("id") int id,
+      Pageable pageable);
 
   @Query(
-      "SELECT eh FROM User us, Entry eh WHERE LOWER(us.username) = LOWER(:username) AND"
-          + " YEAR(eh.date) = :yr AND us = eh.user and eh.security = :security")
-  List<Entry> findByUsernameAndYearAndSecurity(
-      @Param("username") String username,
-      @Param("yr") int year,
-      @Param("security") Security security);
+      "select e from Entry e where e.user = :user and e.security = :security and (e.date >"
+          + " :since or e.modified > :since) order by e.date desc, e.id desc")
+  Slice<Entry> findChangedSince(
+      @Param("user") User user,
+      @Param("security") Security security,
+      @Param("since") Date since,
+      Pageable pageable);
 
   @Query(
-      "SELECT eh FROM User us, Entry eh WHERE LOWER(us.username) = LOWER(:username) AND"
-          + " YEAR(eh.date) = :yr AND us = eh.user")
-  List<Entry> findByUsernameAndYear(@Param("username") String username, @Param("yr") int year);
+      "select e from Entry e where e.user = :user and e.security = :security and (e.date >"
+          + " :since or e.modified > :since) and (e.date < :date or (e.date = :date and e.id <"
+          + " :id)) order by e.date desc, e.id desc")
+  Slice<Entry> findChangedSinceOlderThan(
+      @Param("user") User user,
+      @Param("security") Security security,
+      @Param("since") Date since,
+      @Param("date") Date date,
+      @Param("id") int id,
+      Pageable pageable);
 
-  @Query(
-      "SELECT eh FROM User us, Entry eh WHERE LOWER(us.username) = LOWER(:username) AND"
-          + " YEAR(eh.date) = :yr AND MONTH(eh.date) = :month AND us = eh.user")
-  List<Entry> findByUsernameAndYearAndMonth(
-      @Param("username") String username, @Param("yr") int year, @Param("month") int month);
+  long countByUserAndSecurityInAndDraftIn(
+      User user, Collection<Security> security, Collection<PrefBool> draft);
 
   @Query(
-      "SELECT eh FROM User us, Entry eh WHERE LOWER(us.username) = LOWER(:username) AND"
-          + " YEAR(eh.date) = :yr AND MONTH(eh.date) = :month AND us = eh.user and"
-          + " eh.security = :security")
-  List<Entry> findByUsernameAndYearAndMonthAndSecurity(
+      "select e from Entry e, User u where e.user= u and LOWER(u.username) ="
+          + " LOWER(:username) and e.date >= :startDate and e.date <= :endDate")
+  List<Entry> findByUsernameAndDate(
       @Param("username") String username,
-      @Param("yr") int year,
-      @Param("month") int month,
-      @Param("security") Security security);
+      @Param("startDate") Date startDate,
+      @Param("endDate") Date endDate);
 
   @Query(
       "SELECT eh FROM User us, Entry eh WHERE LOWER(us.username) = LOWER(:username) AND"
-          + " YEAR(eh.date) = :yr AND MONTH(eh.date) = :month AND DAY(eh.date) = :day AND us"
-          + " = eh.user and eh.security = :security")
-  List<Entry> findByUsernameAndYearAndMonthAndDay(
+          + " us = eh.user AND eh.date >= :start AND eh.date < :end ORDER BY eh.date")
+  List<Entry> findByUsernameAndDateRange(
       @Param("username") String username,
-      @Param("yr") int year,
-      @Param("month") int month,
-      @Param("day") int day);
+      @Param("start") Date start,
+      @Param("end") Date end);
 
   @Query(
       "SELECT eh FROM User us, Entry eh WHERE LOWER(us.username) = LOWER(:username) AND"
-          + " YEAR(eh.date) = :yr AND MONTH(eh.date) = :month AND DAY(eh.date) = :day AND us"
-          + " = eh.user and eh.security = :security")
-  List<Entry> findByUsernameAndYearAndMonthAndDayAndSecurity(
+          + " us = eh.user AND eh.security = :security AND eh.date >= :start AND eh.date < :end"
+          + " ORDER BY eh.date")
+  List<Entry> findByUsernameAndDateRangeAndSecurity(
       @Param("username") String username,
-      @Param("yr") int year,
-      @Param("month") int month,
-      @Param("day") int day,
+      @Param("start") Date start,
+      @Param("end") Date end,
       @Param("security") Security security);
 
+  // Calendar lookups use date ranges rather than YEAR()/MONTH()/DAY() so MySQL can use dateindex
+
+  private static Date startOf(final LocalDate day) {
+    return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+  }
+
+  /** @return the day, or null for a date that doesn't exist such as 2024/02/31 */
+  private static LocalDate dayOf(final int year, final int month, final int day) {
+    try {
+      return LocalDate.of(year, month, day);
+    } catch (final DateTimeException e) {
+      return null;
+    }
+  }
+
+  default List<Entry> findByUsernameAndYearAndSecurity(
+      final String username, final int year, final Security security) {
+    final LocalDate start = dayOf(year, 1, 1);
+    if (start == null) return List.of();
+    return findByUsernameAndDateRangeAndSecurity(
+        username, startOf(start), startOf(start.plusYears(1)), security);
+  }
+
+  default List<Entry> findByUsernameAndYear(final String username, final int year) {
+    final LocalDate start = dayOf(year, 1, 1);
+    if (start == null) return List.of();
+    return findByUsernameAndDateRange(username, startOf(start), startOf(start.plusYears(1)));
+  }
+
+  default List<Entry> findByUsernameAndYearAndMonth(
+      final String username, final int year, final int month) {
+    final LocalDate start = dayOf(year, month, 1);
+    if (start == null) return List.of();
+    return findByUsernameAndDateRange(username, startOf(start), startOf(start.plusMonths(1)));
+  }
+
+  default List<Entry> findByUsernameAndYearAndMonthAndSecurity(
+      final String username, final int year, final int month, final Security security) {
+    final LocalDate start = dayOf(year, month, 1);
+    if (start == null) return List.of();
+    return findByUsernameAndDateRangeAndSecurity(
+        username, startOf(start), startOf(start.plusMonths(1)), security);
+  }
+
+  default List<Entry> findByUsernameAndYearAndMonthAndDay(
+      final String username, final int year, final int month, final int day) {
+    final LocalDate start = dayOf(year, month, day);
+    if (start == null) return List.of();
+    return findByUsernameAndDateRange(username, startOf(start), startOf(start.plusDays(1)));
+  }
+
+  default List<Entry> findByUsernameAndYearAndMonthAndDayAndSecurity(
+      final String username,
+      final int year,
+      final int month,
+      final int day,
+      final Security security) {
+    final LocalDate start = dayOf(year, month, day);
+    if (start == null) return List.of();
+    return findByUsernameAndDateRangeAndSecurity(
+        username, startOf(start), startOf(start.plusDays(1)), security);
+  }
+
   Long countBySecurity(@Param("security") Security security);
 
   @Query(
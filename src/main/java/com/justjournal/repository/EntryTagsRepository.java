@@ -29,6 +29,7 @@ package com.justjournal.repository;
 import com.justjournal.model.Entry;
 import com.justjournal.model.EntryTag;
 import com.justjournal.model.Tag;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -51,4 +52,13 @@ public interface EntryTagsRepository extends JpaRepository<EntryTag, Integer> {
   EntryTag findByEntryAndTag(@Param("entry") Entry entry, @Param("tag") Tag tag);
 
   long countByTag(@Param("tag") Tag tag);
+
+  /**
+   * Tag names for a set of entries.
+   *
+   * @param entryIds entries
+   * @return rows of entry id and tag name
+   */
+  @Query("select et.entry.id, t.name from EntryTag et join et.tag t where et.entry.id in :entryIds")
+  List<Object[]> findTagNamesByEntryIds(@Param("entryIds") Collection<Integer> entryIds);
 }
@@ -27,7 +27,11 @@ package com.justjournal.repository;
 
 
 import com.justjournal.model.MoodThemeData;
+import java.util.Collection;
+import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -35,4 +39,9 @@ public interface MoodThemeDataRepository
     extends JpaRepository<MoodThemeData, Integer> {
 
    MoodThemeData findByThemeIdAndMoodId(int themeId, int moodId);
+
+   @Query("SELECT md FROM MoodThemeData md JOIN FETCH md.mood JOIN FETCH md.theme"
+       + " WHERE md.theme.id = :themeId AND md.mood.id IN :moodIds")
+   List<MoodThemeData> findByThemeIdAndMoodIds(
+       @Param("themeId") int themeId, @Param("moodIds") Collection<Integer> moodIds);
 }
@@ -27,9 +27,11 @@ package com.justjournal.repository;
 
 
 import com.justjournal.model.RssCache;
+import com.justjournal.model.RssCacheSchedule;
 import java.util.Date;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -41,4 +43,9 @@ public interface RssCacheRepository extends JpaRepository<RssCache, Integer> {
   List<RssCache> findByLastUpdatedBetween(@Param("begin") Date begin, @Param("end") Date end);
 
   List<RssCache> findByLastUpdatedBefore(@Param("lastUpdated") Date lastUpdated);
+
+  @Query(
+      "select new com.justjournal.model.RssCacheSchedule(r.id, r.nextFetch, r.lastUpdated,"
+          + " r.interval) from RssCache r where r.active = true")
+  List<RssCacheSchedule> findSchedule();
 }
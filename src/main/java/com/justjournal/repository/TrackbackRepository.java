@@ -27,6 +27,7 @@ package com.justjournal.repository;
 
 
 import com.justjournal.model.Trackback;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
@@ -41,6 +42,8 @@ public interface TrackbackRepository extends JpaRepository<Trackback, Integer> {
 
   List<Trackback> findByEntryIdOrderByDate(int entryId);
 
+  List<Trackback> findByEntryIdInOrderByDate(Collection<Integer> entryIds);
+
   List<Trackback> findByEntryIdAndUrlOrderByDate(int entryId, String url);
 
   boolean existsByEntryIdAndUrl(int entryId, String url);
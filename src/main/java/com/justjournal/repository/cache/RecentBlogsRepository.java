@@ -26,38 +26,110 @@
 package com.justjournal.repository.cache;
 
 
-import com.justjournal.core.CacheKeys;
+import static com.justjournal.core.CacheKeys.RECENT_BLOGS_ITEMS_KEY;
+import static com.justjournal.core.CacheKeys.RECENT_BLOGS_KEY;
+import static com.justjournal.core.CacheKeys.RECENT_BLOGS_VERSION_KEY;
+
 import java.time.Duration;
+import java.util.Date;
+import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.ReactiveHashOperations;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.ReactiveZSetOperations;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
-/** @author Lucas Holt */
+/**
+ * Recent blogs buffer shared by all nodes: authors in a sorted set scored by the date of their
+ * latest entry, that entry as a JSON feed item in a hash by author, and a version bumped on every
+ * change. The buffer expires when it hasn't changed for a while and is seeded again.
+ *
+ * @author Lucas Holt
+ */
 @Component
 public class RecentBlogsRepository {
-  private static final int BLOG_CACHE_MINUTES = 5;
+  private static final Duration BUFFER_EXPIRES = Duration.ofDays(7);
 
   private ReactiveRedisTemplate<String, String> reactiveRedisTemplateString;
   private ReactiveValueOperations<String, String> valOperations;
+  private ReactiveZSetOperations<String, String> zSetOperations;
+  private ReactiveHashOperations<String, String, String> hashOperations;
 
   @Autowired
   public RecentBlogsRepository(ReactiveRedisTemplate<String, String> reactiveRedisTemplateString) {
     this.reactiveRedisTemplateString = reactiveRedisTemplateString;
     this.valOperations = reactiveRedisTemplateString.opsForValue();
+    this.zSetOperations = reactiveRedisTemplateString.opsForZSet();
+    this.hashOperations = reactiveRedisTemplateString.opsForHash();
+  }
+
+  /** @return items of the newest authors, newest first, null where an item is missing */
+  public Mono<List<String>> getNewest(int count) {
+    return zSetOperations
+        .reverseRange(RECENT_BLOGS_KEY, Range.closed(0L, count - 1L))
+        .collectList()
+        .flatMap(
+            authors ->
+                authors.isEmpty()
+                    ? Mono.just(List.of())
+                    : hashOperations.multiGet(RECENT_BLOGS_ITEMS_KEY, authors));
+  }
+
+  public Mono<String> get(int userId) {
+    return hashOperations.get(RECENT_BLOGS_ITEMS_KEY, String.valueOf(userId));
+  }
+
+  public Mono<Long> size() {
+    return zSetOperations.size(RECENT_BLOGS_KEY);
+  }
+
+  public Mono<Void> put(int userId, Date date, String item) {
+    final String author = String.valueOf(userId);
+    // item first, so a reader never finds an author without one
+    return hashOperations
+        .put(RECENT_BLOGS_ITEMS_KEY, author, item)
+        .then(zSetOperations.add(RECENT_BLOGS_KEY, author, date.getTime()))
+        .then(reactiveRedisTemplateString.expire(RECENT_BLOGS_KEY, BUFFER_EXPIRES))
+        .then(reactiveRedisTemplateString.expire(RECENT_BLOGS_ITEMS_KEY, BUFFER_EXPIRES))
+        .then();
+  }
+
+  public Mono<Void> remove(int userId) {
+    final String author = String.valueOf(userId);
+    return zSetOperations
+        .remove(RECENT_BLOGS_KEY, author)
+        .then(hashOperations.remove(RECENT_BLOGS_ITEMS_KEY, author))
+        .then();
   }
 
-  public Mono<String> getBlogs() {
-    return valOperations.get(CacheKeys.RECENT_BLOGS_KEY);
+  /** Drop the authors with the oldest entries beyond the capacity. */
+  public Mono<Void> trim(int capacity) {
+    return zSetOperations
+        .size(RECENT_BLOGS_KEY)
+        .filter(size -> size > capacity)
+        .flatMap(
+            size ->
+                zSetOperations
+                    .range(RECENT_BLOGS_KEY, Range.closed(0L, size - capacity - 1))
+                    .collectList())
+        .flatMap(
+            old ->
+                zSetOperations
+                    .remove(RECENT_BLOGS_KEY, old.toArray())
+                    .then(hashOperations.remove(RECENT_BLOGS_ITEMS_KEY, old.toArray())))
+        .then();
   }
 
-  public Mono<Boolean> setBlogs(String blogs) {
-    return valOperations.set(
-        CacheKeys.RECENT_BLOGS_KEY, blogs, Duration.ofMinutes(BLOG_CACHE_MINUTES));
+  /** @return version of the buffer, 0 before the first change */
+  public Mono<Long> getVersion() {
+    return valOperations.get(RECENT_BLOGS_VERSION_KEY).map(Long::valueOf).defaultIfEmpty(0L);
   }
 
-  public Mono<Boolean> delete() {
-    return valOperations.delete(CacheKeys.RECENT_BLOGS_KEY);
+  /** @return the new version */
+  public Mono<Long> changed() {
+    return valOperations.increment(RECENT_BLOGS_VERSION_KEY);
   }
 }
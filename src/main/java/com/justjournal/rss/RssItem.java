@@ -25,147 +25,40 @@
  */
 package com.justjournal.rss;
 
-import lombok.Setter;
-
 /**
  * An RSS Item is one entry in an RSS feed.
  *
+ * <p>File attachments are the RSS 2 enclosure feature: {@code <enclosure
+ * url="http://www.scripting.com/mp3s/touchOfGrey.mp3" length="5588242" type="audio/mpeg"/>}
+ *
+ * @param title item title
+ * @param link link of exact item
+ * @param description item text
+ * @param guid url to item, always works
+ * @param pubDate publication date in RFC 822 format
+ * @param enclosureUrl url of an attached file such as a jpeg or mp3, or null
+ * @param enclosureLength size of the attached file in bytes
+ * @param enclosureType mime type of the attached file
  * @author Lucas Holt
  * @version $Id: RssItem.java,v 1.5 2008/10/16 20:20:07 laffer1 Exp $ User: laffer1 Date: Aug 28,
  *     2003 Time: 12:19:36 AM
  */
-public final class RssItem {
-
-  private String title;
-  @Setter
-  private String link; // link of exact item.
-  private String description;
-  @Setter
-  private String author; // email address of author of item.
-  @Setter
-  private String comments; // url of comments page for item.
-  @Setter
-  private String pubDate; // publication date.
-  @Setter
-  private String guid; // url to item, always works.
-
-  /* file attachment rss 2 feature
-  <enclosure url="http://www.scripting.com/mp3s/touchOfGrey.mp3"
-  length="5588242" type="audio/mpeg"/>
-  */
-  private String enclosureURL;
-  @Setter
-  private String enclosureLength;
-  @Setter
-  private String enclosureType;
-
-  @Setter
-  private boolean truncateFields = true;
-
-  public boolean isTruncateFields() {
-    return truncateFields;
-  }
-
-    /**
-   * URL pointed to an object to embed in the feed. MP3, images, and other elements make good
-   * candidates.
-   *
-   * @return URL
-   */
-  public String getEnclosureURL() {
-    return enclosureURL;
-  }
-
-  /**
-   * We want to embed something in our feed.
-   *
-   * @param enclosureURL A string reepresentation of a valid URL pointing to a resource such as a
-   *     jpeg, mp3, etc.
-   */
-  public void setEnclosureURL(String enclosureURL) {
-    this.enclosureURL = enclosureURL;
-  }
-
-  /**
-   * Size of item pointed to by the URL.
-   *
-   * @return Number of bytes as a string.
-   */
-  public String getEnclosureLength() {
-    return enclosureLength;
-  }
-
-    public String getEnclosureType() {
-    return enclosureType;
-  }
-
-    public String getAuthor() {
-    return author;
-  }
-
-    public String getComments() {
-    return comments;
-  }
-
-    public String getPubDate() {
-    return pubDate;
-  }
-
-    public String getGuid() {
-    return guid;
-  }
-
-    public String getTitle() {
-    return title;
-  }
-
-  /**
-   * Sets thte tile, triming the title to 100 characters
-   *
-   * @param title
-   */
-  public void setTitle(String title) {
-
-    if (title.length() > 98 && truncateFields) {
-      this.title = title.substring(0, 99);
-    } else {
-      this.title = title;
-    }
-  }
-
-  public String getLink() {
-    return link;
-  }
-
-    public String getDescription() {
-    return description;
-  }
-
-  /**
-   * Sets the description, trimming to 497
-   *
-   * @param description
-   */
-  public void setDescription(final String description) {
-
-    if (description.length() > 495 && truncateFields) {
-      this.description = description.substring(0, 496);
-    } else {
-      this.description = description;
-    }
-  }
-
-  /** Clear all properties for reuse of the class instance. */
-  public void recycle() {
-    title = "";
-    link = "";
-    description = "";
-    author = "";
-    comments = "";
-    pubDate = "";
-    guid = "";
-    enclosureURL = "";
-    enclosureLength = "";
-    enclosureType = "";
+public record RssItem(
+    String title,
+    String link,
+    String description,
+    String guid,
+    String pubDate,
+    String enclosureUrl,
+    String enclosureLength,
+    String enclosureType) {
+
+  public RssItem(
+      final String title,
+      final String link,
+      final String description,
+      final String guid,
+      final String pubDate) {
+    this(title, link, description, guid, pubDate, null, null, null);
   }
 }
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.rss;
+
+import static com.justjournal.core.Constants.PATH_USERS;
+
+import com.justjournal.core.Settings;
+import com.justjournal.model.DateTimeBean;
+import com.justjournal.model.EntryFeedItem;
+import com.justjournal.model.FormatType;
+import com.justjournal.services.BodyRenderService;
+import com.justjournal.utility.DateConvert;
+import com.justjournal.utility.HTMLUtil;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Create an RSS feed. This should be a valid XML document. Implements RSS 2
+ *
+ * <p>Stateless: channels are immutable {@link RssChannel} records and are written with StAX, so
+ * one instance is shared by requests and background feed builds.
+ *
+ * @author Lucas Holt
+ * @version $Id: Rss.java,v 1.13 2011/05/29 22:32:59 laffer1 Exp $
+ */
+@Slf4j
+@Service
+public class RssWriter {
+  /** Most items built for a channel by {@link #items} and {@link #imageItems}. */
+  public static final int MAX_LENGTH = 15;
+
+  /** RSS is served as latin 1; anything else is written as a character reference. */
+  public static final String ENCODING = "ISO-8859-1";
+
+  private static final String ATOM_NS = "http://www.w3.org/2005/Atom";
+
+  private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+  private static final String IMAGES =
+      "SELECT id, title, modified, mimetype, BIT_LENGTH(image) As imglen FROM"
+          + " user_images WHERE owner = ? ORDER BY id DESC LIMIT " + MAX_LENGTH;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final BodyRenderService bodyRenderService;
+
+  private final String albumImageUrl;
+  private final String userBaseUrl;
+
+  public RssWriter(
+      final JdbcTemplate jdbcTemplate,
+      final Settings settings,
+      final BodyRenderService bodyRenderService) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.bodyRenderService = bodyRenderService;
+
+    userBaseUrl = settings.getBaseUri() + PATH_USERS;
+    albumImageUrl = settings.getBaseUri() + "AlbumImage?id=";
+  }
+
+  /**
+   * RSS items for blog entries.
+   *
+   * @param entries entries, newest first
+   * @return items
+   */
+  public List<RssItem> items(final Collection<EntryFeedItem> entries) {
+    final List<RssItem> items = new ArrayList<>(Math.min(entries.size(), MAX_LENGTH));
+
+    try {
+      for (final EntryFeedItem o : entries) {
+        if (items.size() == MAX_LENGTH) break;
+
+        // RSS feeds don't like &apos; and friends.  try to go unicode
+        final String descUnicode;
+        if (o.format().equals(FormatType.MARKDOWN)) descUnicode = bodyRenderService.text(o);
+        else if (o.format().equals(FormatType.HTML)) descUnicode = HTMLUtil.clean(o.body(), false);
+        else descUnicode = o.body();
+
+        items.add(
+            new RssItem(
+                o.subject(),
+                userBaseUrl + o.username(),
+                HTMLUtil.convertCharacterEntities(descUnicode),
+                userBaseUrl + o.username() + "/entry/" + o.id(),
+                new DateTimeBean(o.date()).toPubDate()));
+      }
+    } catch (final Exception e) {
+      log.error("Could not populate blog entries", e);
+    }
+    return items;
+  }
+
+  /**
+   * RSS items for the pictures of the given user.
+   *
+   * @param userid userid for list
+   * @param userName username for urls
+   * @return items, newest first
+   */
+  public List<RssItem> imageItems(final int userid, final String userName) {
+    if (userid < 1) throw new IllegalArgumentException("userid");
+    if (userName == null || userName.isEmpty()) throw new IllegalArgumentException("userName");
+
+    final List<RssItem> items = new ArrayList<>();
+    try {
+      final List<Map<String, Object>> list = jdbcTemplate.queryForList(IMAGES, userid);
+
+      if (list.isEmpty()) {
+        log.warn("No images loaded from database for Rss Image List for " + userName);
+        return items;
+      }
+
+      for (final Map<String, Object> rs : list) {
+        final DateTimeBean dt = new DateTimeBean();
+        dt.set(rs.get("modified").toString());
+
+        items.add(
+            new RssItem(
+                rs.get("title").toString(),
+                userBaseUrl + userName + "/pictures",
+                "",
+                albumImageUrl + rs.get("id"),
+                dt.toPubDate(),
+                albumImageUrl + rs.get("id"),
+                Integer.toString(Integer.parseInt(rs.get("imglen").toString()) / 8),
+                rs.get("mimetype").toString().trim()));
+      }
+    } catch (final Exception e1) {
+      log.error("Error populating image from list", e1);
+    }
+    return items;
+  }
+
+  /**
+   * @param channel feed
+   * @return the document encoded as {@link #ENCODING}
+   */
+  public byte[] toBytes(final RssChannel channel) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      write(channel, out);
+    } catch (final XMLStreamException e) {
+      throw new IllegalStateException("Unable to write RSS", e);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Write a channel as an RSS 2 document.
+   *
+   * @param channel feed
+   * @param out destination, left open
+   * @throws XMLStreamException if the document can't be written
+   */
+  public void write(final RssChannel channel, final OutputStream out) throws XMLStreamException {
+    final XMLStreamWriter xml = OUTPUT_FACTORY.createXMLStreamWriter(out, ENCODING);
+
+    xml.writeStartDocument(ENCODING, "1.0");
+    xml.writeProcessingInstruction(
+        "xml-stylesheet", "type=\"text/xsl\" href=\"/static/streamburner/streamburner.xsl\"");
+    xml.writeStartElement("rss");
+    xml.writeAttribute("version", "2.0");
+    xml.writeNamespace("atom", ATOM_NS);
+    xml.writeStartElement("channel");
+
+    element(xml, "title", channel.title());
+    element(xml, "link", channel.link());
+    element(xml, "description", channel.description());
+    element(xml, "language", channel.language());
+    element(xml, "webMaster", channel.webMaster());
+    element(xml, "managingEditor", channel.managingEditor());
+    element(xml, "copyright", channel.copyright());
+    element(xml, "generator", "JustJournal");
+    element(xml, "docs", "http://blogs.law.harvard.edu/tech/rss");
+    element(xml, "ttl", "360");
+
+    xml.writeStartElement("image");
+    element(xml, "url", "http://www.justjournal.com/images/jj_icon_flower.png");
+    element(xml, "title", channel.title());
+    element(xml, "link", channel.link());
+    // max width 144, default if not here is 88
+    element(xml, "width", "64");
+    // max height is 400, default is 31
+    element(xml, "height", "64");
+    xml.writeEndElement();
+
+    // Sat, 07 Sep 2002 09:43:33 GMT
+    element(xml, "lastBuildDate", DateConvert.encode822());
+
+    for (final RssItem o : channel.items()) {
+      xml.writeStartElement("item");
+      element(xml, "title", o.title());
+      element(xml, "link", o.link());
+      element(xml, "description", (o.description() == null ? "" : o.description()) + "...");
+
+      xml.writeStartElement("guid");
+      xml.writeAttribute("isPermaLink", "true");
+      xml.writeCharacters(o.guid());
+      xml.writeEndElement();
+
+      element(xml, "pubDate", o.pubDate());
+
+      if (o.enclosureUrl() != null && !o.enclosureUrl().isEmpty()) {
+        xml.writeEmptyElement("enclosure");
+        xml.writeAttribute("url", o.enclosureUrl());
+        xml.writeAttribute("length", o.enclosureLength());
+        xml.writeAttribute("type", o.enclosureType());
+      }
+      xml.writeEndElement();
+    }
+
+    if (channel.selfLink() != null && !channel.selfLink().isEmpty()) {
+      xml.writeEmptyElement("atom", "link", ATOM_NS);
+      xml.writeAttribute("href", channel.selfLink());
+      xml.writeAttribute("rel", "self");
+      xml.writeAttribute("type", "application/rss+xml");
+    }
+    if (channel.hub() != null && !channel.hub().isEmpty()) {
+      xml.writeEmptyElement("atom", "link", ATOM_NS);
+      xml.writeAttribute("href", channel.hub());
+      xml.writeAttribute("rel", "hub");
+    }
+
+    xml.writeEndElement();
+    xml.writeEndElement();
+    xml.writeEndDocument();
+    xml.flush();
+    xml.close();
+  }
+
+  private static void element(final XMLStreamWriter xml, final String name, final String value)
+      throws XMLStreamException {
+    xml.writeStartElement(name);
+    if (value != null) xml.writeCharacters(value);
+    xml.writeEndElement();
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.search;
+
+import com.justjournal.model.search.BlogEntry;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Where blog entries are indexed and searched: Elasticsearch when it is enabled, otherwise a Lucene
+ * index on local disk.
+ *
+ * @author Lucas Holt
+ */
+public interface BlogEntryStore {
+
+  /**
+   * Find entries of any security level mentioning a term.
+   *
+   * @param term search term
+   * @param page page
+   * @return a page of results
+   */
+  Page<BlogEntry> search(String term, Pageable page);
+
+  /**
+   * Find public entries mentioning a term.
+   *
+   * @param term search term
+   * @param page page
+   * @return a page of results
+   */
+  Page<BlogEntry> publicSearch(String term, Pageable page);
+
+  /**
+   * Find entries of any security level by one author mentioning a term.
+   *
+   * @param term search term
+   * @param author username
+   * @param page page
+   * @return a page of results
+   */
+  Page<BlogEntry> search(String term, String author, Pageable page);
+
+  /**
+   * Find public entries by one author mentioning a term.
+   *
+   * @param term search term
+   * @param author username
+   * @param page page
+   * @return a page of results
+   */
+  Page<BlogEntry> publicSearch(String term, String author, Pageable page);
+
+  /**
+   * Add or replace entries in one request.
+   *
+   * @param entries converted entries
+   */
+  void saveAll(List<BlogEntry> entries);
+
+  /**
+   * Remove entries in one request. Ids that aren't indexed are ignored.
+   *
+   * @param ids entry ids
+   */
+  void deleteAllById(Collection<Integer> ids);
+
+  /**
+   * @return false when the store was just created or cleared and has to be filled from the
+   *     database
+   */
+  default boolean isCurrent() {
+    return true;
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.search;
+
+import com.justjournal.model.search.BlogEntry;
+import com.justjournal.repository.search.BlogEntryRepository;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Blog entry store backed by Elasticsearch. Keeping it current across restarts is up to
+ * {@link com.justjournal.services.SearchReindexService}.
+ *
+ * @author Lucas Holt
+ */
+public class ElasticsearchBlogEntryStore implements BlogEntryStore {
+
+  private final BlogEntryRepository blogEntryRepository;
+
+  public ElasticsearchBlogEntryStore(final BlogEntryRepository blogEntryRepository) {
+    this.blogEntryRepository = blogEntryRepository;
+  }
+
+  @Override
+  public Page<BlogEntry> search(final String term, final Pageable page) {
+    return blogEntryRepository.findBySubjectContainsOrBodyContainsAllIgnoreCase(term, term, page);
+  }
+
+  @Override
+  public Page<BlogEntry> publicSearch(final String term, final Pageable page) {
+    return blogEntryRepository.findByPublicSearch(term, page);
+  }
+
+  @Override
+  public Page<BlogEntry> search(final String term, final String author, final Pageable page) {
+    return blogEntryRepository.findBySearchAndAuthor(term, author, page);
+  }
+
+  @Override
+  public Page<BlogEntry> publicSearch(final String term, final String author, final Pageable page) {
+    return blogEntryRepository.findByPublicSearchAndAuthor(term, author, page);
+  }
+
+  @Override
+  public void saveAll(final List<BlogEntry> entries) {
+    blogEntryRepository.saveAll(entries);
+  }
+
+  @Override
+  public void deleteAllById(final Collection<Integer> ids) {
+    blogEntryRepository.deleteAllById(ids);
+  }
+}
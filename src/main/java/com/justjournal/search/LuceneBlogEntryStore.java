@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.search;
+
+import com.justjournal.model.search.BlogEntry;
+import com.justjournal.model.search.Tag;
+import com.justjournal.services.BlogSearchService;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.QueryBuilder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Blog entry store in a Lucene index on local disk, for deployments and builds without
+ * Elasticsearch.
+ *
+ * <p>Searches use a near real time reader from the index writer, so they see a write as soon as it
+ * returns. Each write is also committed, since the search outbox drops changes once a store
+ * accepts them. Every node keeps its own index while the outbox is shared, so this store only suits
+ * a single node.
+ *
+ * @author Lucas Holt
+ */
+@Slf4j
+public class LuceneBlogEntryStore implements BlogEntryStore, Closeable {
+  static final String ID = "id";
+  static final String AUTHOR = "author";
+  static final String AUTHOR_KEY = "author_key";
+  static final String PRIVATE = "private";
+  static final String SUBJECT = "subject";
+  static final String BODY = "body";
+  static final String DATE = "date";
+  static final String TAG = "tag";
+
+  /** Commit data key holding {@link BlogSearchService#MAPPING_VERSION}. */
+  static final String MAPPING_VERSION = "mappingVersion";
+
+  private final Directory directory;
+  private final IndexWriter writer;
+  private final SearcherManager searcherManager;
+  private final QueryBuilder queryBuilder;
+
+  /** The index was built by this mapping version and wasn't cleared at startup. */
+  private final boolean current;
+
+  /**
+   * Open the index, clearing it if it was built by another mapping version or a rebuild was asked
+   * for.
+   *
+   * @param path index directory, created if missing
+   * @param rebuild clear the index regardless of its version
+   * @throws IOException if the index can't be opened
+   */
+  public LuceneBlogEntryStore(final Path path, final boolean rebuild) throws IOException {
+    Files.createDirectories(path);
+    directory = new MMapDirectory(path);
+
+    final String version = String.valueOf(BlogSearchService.MAPPING_VERSION);
+    current =
+        !rebuild
+            && DirectoryReader.indexExists(directory)
+            && version.equals(
+                SegmentInfos.readLatestCommit(directory).getUserData().get(MAPPING_VERSION));
+
+    final Analyzer analyzer = new StandardAnalyzer();
+    writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+    writer.setLiveCommitData(Map.of(MAPPING_VERSION, version).entrySet());
+    if (!current) {
+      log.info("Clearing local search index in {}", path);
+      writer.deleteAll();
+      writer.commit();
+    }
+
+    searcherManager = new SearcherManager(writer, null);
+    queryBuilder = new QueryBuilder(analyzer);
+  }
+
+  @Override
+  public boolean isCurrent() {
+    return current;
+  }
+
+  @Override
+  public Page<BlogEntry> search(final String term, final Pageable page) {
+    return find(term, null, false, page);
+  }
+
+  @Override
+  public Page<BlogEntry> publicSearch(final String term, final Pageable page) {
+    return find(term, null, true, page);
+  }
+
+  @Override
+  public Page<BlogEntry> search(final String term, final String author, final Pageable page) {
+    return find(term, author, false, page);
+  }
+
+  @Override
+  public Page<BlogEntry> publicSearch(final String term, final String author, final Pageable page) {
+    return find(term, author, true, page);
+  }
+
+  @Override
+  public void saveAll(final List<BlogEntry> entries) {
+    try {
+      for (final BlogEntry entry : entries) {
+        writer.updateDocument(new Term(ID, entry.getId().toString()), document(entry));
+      }
+      commit();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void deleteAllById(final Collection<Integer> ids) {
+    try {
+      writer.deleteDocuments(
+          ids.stream().map(id -> new Term(ID, id.toString())).toArray(Term[]::new));
+      commit();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void commit() throws IOException {
+    writer.commit();
+    searcherManager.maybeRefresh();
+  }
+
+  /**
+   * Match the term against subject or body, ranked by relevance.
+   *
+   * @param author only this author, or null for any
+   * @param publicOnly leave out private and friends entries
+   */
+  private Page<BlogEntry> find(
+      final String term, final String author, final boolean publicOnly, final Pageable page) {
+    final BooleanQuery.Builder text = new BooleanQuery.Builder();
+    for (final String field : new String[] {SUBJECT, BODY}) {
+      final Query query = queryBuilder.createBooleanQuery(field, term == null ? "" : term);
+      if (query != null) text.add(query, Occur.SHOULD);
+    }
+
+    final BooleanQuery.Builder builder = new BooleanQuery.Builder().add(text.build(), Occur.MUST);
+    if (author != null) {
+      builder.add(
+          new TermQuery(new Term(AUTHOR_KEY, author.toLowerCase(Locale.ROOT))), Occur.FILTER);
+    }
+    if (publicOnly) {
+      builder.add(new TermQuery(new Term(PRIVATE, Boolean.FALSE.toString())), Occur.FILTER);
+    }
+    final Query query = builder.build();
+
+    try {
+      final IndexSearcher searcher = searcherManager.acquire();
+      try {
+        final int total = searcher.count(query);
+        final int from = page.isPaged() ? (int) page.getOffset() : 0;
+        if (total <= from) return new PageImpl<>(List.of(), page, total);
+
+        final int to = page.isPaged() ? Math.min(total, from + page.getPageSize()) : total;
+        final ScoreDoc[] hits = searcher.search(query, to).scoreDocs;
+        final StoredFields stored = searcher.storedFields();
+        final List<BlogEntry> results = new ArrayList<>(to - from);
+        for (int i = from; i < hits.length; i++) {
+          results.add(entry(stored.document(hits[i].doc)));
+        }
+        return new PageImpl<>(results, page, total);
+      } finally {
+        searcherManager.release(searcher);
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static Document document(final BlogEntry entry) {
+    final Document document = new Document();
+    document.add(new StringField(ID, entry.getId().toString(), Field.Store.YES));
+    if (entry.getAuthor() != null) {
+      document.add(new StoredField(AUTHOR, entry.getAuthor()));
+      document.add(
+          new StringField(AUTHOR_KEY, entry.getAuthor().toLowerCase(Locale.ROOT), Field.Store.NO));
+    }
+    final boolean privateEntry = !Boolean.FALSE.equals(entry.getPrivateEntry());
+    document.add(new StringField(PRIVATE, Boolean.toString(privateEntry), Field.Store.YES));
+    if (entry.getSubject() != null) {
+      document.add(new TextField(SUBJECT, entry.getSubject(), Field.Store.YES));
+    }
+    if (entry.getBody() != null) {
+      document.add(new TextField(BODY, entry.getBody(), Field.Store.YES));
+    }
+    if (entry.getDate() != null) {
+      document.add(new StoredField(DATE, entry.getDate().getTime()));
+    }
+    for (final Tag tag : entry.getTags()) {
+      document.add(new StoredField(TAG, tag.getName()));
+    }
+    return document;
+  }
+
+  static BlogEntry entry(final Document document) {
+    final BlogEntry entry = new BlogEntry();
+    entry.setId(Integer.valueOf(document.get(ID)));
+    entry.setAuthor(document.get(AUTHOR));
+    entry.setPrivateEntry(Boolean.valueOf(document.get(PRIVATE)));
+    entry.setSubject(document.get(SUBJECT));
+    entry.setBody(document.get(BODY));
+
+    final IndexableField date = document.getField(DATE);
+    if (date != null) entry.setDate(new Date(date.numericValue().longValue()));
+
+    final List<Tag> tags = new ArrayList<>();
+    for (final String name : document.getValues(TAG)) {
+      final Tag tag = new Tag();
+      tag.setName(name);
+      tags.add(tag);
+    }
+    entry.setTags(tags);
+    return entry;
+  }
+
+  @Override
+  public void close() throws IOException {
+    searcherManager.close();
+    writer.close();
+    directory.close();
+  }
+}
@@ -30,13 +30,12 @@ import com.justjournal.exception.ServiceException;
 import com.justjournal.model.Entry;
 import com.justjournal.model.Security;
 import com.justjournal.repository.EntryRepository;
+import com.justjournal.utility.EntryDateFormatter;
 import com.justjournal.utility.HTMLUtil;
 import com.lowagie.text.*;
 import com.lowagie.text.Font;
 import com.lowagie.text.pdf.PdfContentByte;
 import java.awt.*;
-import java.text.ParsePosition;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.StringUtils;
@@ -47,11 +46,11 @@ public abstract class AbstractFormatService {
 
   private final EntryRepository entryRepository;
 
-  private final MarkdownService markdownService;
+  private final BodyRenderService bodyRenderService;
 
-  protected AbstractFormatService(EntryRepository entryRepository, MarkdownService markdownService) {
+  protected AbstractFormatService(EntryRepository entryRepository, BodyRenderService bodyRenderService) {
     this.entryRepository = entryRepository;
-    this.markdownService = markdownService;
+    this.bodyRenderService = bodyRenderService;
   }
 
   private void validate(final UserContext uc, final Document document) throws ServiceException {
@@ -103,26 +102,20 @@ public abstract class AbstractFormatService {
                 blogUser.getUsername(), Security.PUBLIC);
       }
 
-      // Format the current time.
-      final SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd hh:mm");
-      final SimpleDateFormat formatmydate = new SimpleDateFormat("EEE, d MMM yyyy");
-      final SimpleDateFormat formatmytime = new SimpleDateFormat("h:mm a");
       String lastDate = "";
       String curDate;
 
       for (final Entry o : entries) {
-        // Parse the previous string back into a Date.
-        final ParsePosition pos = new ParsePosition(0);
-        final Date currentDate = formatter.parse(o.getDate().toString(), pos);
+        final Date currentDate = o.getDate();
 
-        curDate = formatmydate.format(currentDate);
+        curDate = EntryDateFormatter.formatDay(currentDate);
 
         if (curDate.compareTo(lastDate) != 0) {
           document.add(new Paragraph(curDate, helvetica14));
           lastDate = curDate;
         }
 
-        document.add(new Paragraph(formatmytime.format(currentDate), helvetica12));
+        document.add(new Paragraph(EntryDateFormatter.formatTime(currentDate), helvetica12));
         document.add(Chunk.NEWLINE);
         chunk = new Chunk(o.getSubject());
         chunk.setTextRenderMode(PdfContentByte.TEXT_RENDER_MODE_FILL, 0.3F, lightBlue);
@@ -134,7 +127,7 @@ public abstract class AbstractFormatService {
             document.add(new Paragraph(HTMLUtil.textFromHTML(o.getBody()), times11));
             break;
           case MARKDOWN:
-            document.add(new Paragraph(markdownService.convertToText(o.getBody()), times11));
+            document.add(new Paragraph(bodyRenderService.text(o), times11));
             break;
           case TEXT: /* falls through */
           default:
@@ -29,19 +29,21 @@ import com.justjournal.model.Entry;
 import com.justjournal.model.search.BlogEntry;
 import com.justjournal.model.search.Tag;
 import com.justjournal.repository.EntryRepository;
-import com.justjournal.repository.search.BlogEntryRepository;
+import com.justjournal.search.BlogEntryStore;
+import com.justjournal.services.SearchResultCache.Scope;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import static com.justjournal.model.Security.PUBLIC;
 
@@ -53,18 +55,26 @@ import static com.justjournal.model.Security.PUBLIC;
 @Slf4j
 @Service
 public class BlogSearchService {
+  /**
+   * Version of the blog entry mapping and {@link #convert}. Bump it when either changes so the
+   * index is rebuilt on the next start instead of caught up.
+   */
+  public static final int MAPPING_VERSION = 1;
 
-  private final BlogEntryRepository blogEntryRepository;
+  private final BlogEntryStore blogEntryStore;
 
   private final EntryRepository entryRepository;
 
+  private final SearchResultCache searchResultCache;
 
   @Autowired
   public BlogSearchService(
-      final BlogEntryRepository blogEntryRepository,
-      final EntryRepository entryRepository) {
-    this.blogEntryRepository = blogEntryRepository;
+      final BlogEntryStore blogEntryStore,
+      final EntryRepository entryRepository,
+      final SearchResultCache searchResultCache) {
+    this.blogEntryStore = blogEntryStore;
     this.entryRepository = entryRepository;
+    this.searchResultCache = searchResultCache;
   }
 
   /**
@@ -75,7 +85,8 @@ public class BlogSearchService {
    * @return a page of results
    */
   public Page<BlogEntry> search(final String term, final Pageable page) {
-    return blogEntryRepository.findBySubjectContainsOrBodyContainsAllIgnoreCase(term, term, page);
+    return searchResultCache.get(
+        Scope.ALL, term, null, page, () -> blogEntryStore.search(term, page));
   }
 
   /**
@@ -86,7 +97,8 @@ public class BlogSearchService {
    * @return a page of results
    */
   public Page<BlogEntry> publicSearch(final String term, final Pageable page) {
-    return blogEntryRepository.findByPublicSearch(term, page);
+    return searchResultCache.get(
+        Scope.PUBLIC, term, null, page, () -> blogEntryStore.publicSearch(term, page));
   }
 
   /**
@@ -98,7 +110,8 @@ public class BlogSearchService {
    * @return a page of results
    */
   public Page<BlogEntry> search(final String term, final String username, final Pageable page) {
-    return blogEntryRepository.findBySearchAndAuthor(term, username, page);
+    return searchResultCache.get(
+        Scope.ALL, term, username, page, () -> blogEntryStore.search(term, username, page));
   }
 
   /**
@@ -111,117 +124,40 @@ public class BlogSearchService {
    */
   public Page<BlogEntry> publicSearch(
     final String term, final String username, final Pageable page) {
-    return blogEntryRepository.findByPublicSearchAndAuthor(term, username, page);
-  }
-
-  /** Index all blog entries regardless of security level. */
-  @Async
-  public void indexAllBlogEntries() {
-    try {
-      Pageable pageable = PageRequest.of(0, 100);
-
-      Page<Entry> entries = entryRepository.findAll(pageable);
-      for (int i = 0; i < entries.getTotalPages(); i++) {
-        final ArrayList<BlogEntry> items = new ArrayList<>();
-
-        for (final Entry entry : entries) {
-          items.add(convert(entry));
-        }
-
-        blogEntryRepository.saveAll(items);
-
-        pageable = PageRequest.of(i + 1, 100);
-        entries = entryRepository.findAll(pageable);
-      }
-    } catch (final Exception e) {
-      log.error(e.getMessage());
-    }
-  }
-
-  /** Index all public blog entries. */
-  @Async
-  public void indexAllPublicBlogEntries() {
-    try {
-      // to not use all the ram, I loop through a page at a time and save the blog
-      // entries in a batch of 100 at a time to ES
-      // since I can't use java 8 on this project, I don't have streams.
-
-      Pageable pageable = PageRequest.of(0, 100);
-
-      Page<Entry> entries = entryRepository.findBySecurityOrderByDateDesc(PUBLIC, pageable);
-      for (int i = 0; i < entries.getTotalPages(); i++) {
-        final ArrayList<BlogEntry> items = new ArrayList<>();
-
-        for (final Entry entry : entries) {
-          items.add(convert(entry));
-        }
-
-        blogEntryRepository.saveAll(items);
-
-        pageable = PageRequest.of(i + 1, 100);
-        entries = entryRepository.findBySecurityOrderByDateDesc(PUBLIC, pageable);
-      }
-    } catch (final Exception e) {
-      log.error(e.getMessage(), e);
-    }
+    return searchResultCache.get(
+        Scope.PUBLIC,
+        term,
+        username,
+        page,
+        () -> blogEntryStore.publicSearch(term, username, page));
   }
 
   /**
-   * Index public blog entries since a specific date
+   * Bring the index up to date for some entries. Public entries are written and entries that are
+   * gone or no longer public are removed, both as bulk requests.
    *
-   * @param date newer blog entries
+   * @param ids entry ids
    */
-  @Async
-  public void indexBlogEntriesSince(final Date date) {
-    Pageable pageable = PageRequest.of(0, 100);
-
-    Page<Entry> entries = entryRepository.findAll(pageable);
-    for (int i = 0; i < entries.getTotalPages(); i++) {
-      final ArrayList<BlogEntry> items = new ArrayList<>();
-      for (final Entry entry : entries) {
-        if (entry.getDate().before(date)) {
-          if (!items.isEmpty()) blogEntryRepository.saveAll(items);
-          // stop processing items.
-          return;
-        }
-
+  @Transactional(readOnly = true)
+  public void indexEntries(final Collection<Integer> ids) {
+    if (ids.isEmpty()) return;
+
+    final List<BlogEntry> items = new ArrayList<>();
+    final Set<Integer> removed = new HashSet<>(ids);
+    for (final Entry entry : entryRepository.fetchTags(entryRepository.findAllById(ids))) {
+      if (entry.getSecurity() == PUBLIC) {
         items.add(convert(entry));
+        removed.remove(entry.getId());
       }
-
-      blogEntryRepository.saveAll(items);
-
-      pageable = PageRequest.of(i + 1, 100);
-      entries = entryRepository.findAll(pageable);
     }
-  }
-
-  /**
-   * Index public blog entries since a specific date
-   *
-   * @param date newer blog entries
-   */
-  @Async
-  public void indexPublicBlogEntriesSince(final Date date) {
-    Pageable pageable = PageRequest.of(0, 100);
-
-    Page<Entry> entries = entryRepository.findBySecurityOrderByDateDesc(PUBLIC, pageable);
-    for (int i = 0; i < entries.getTotalPages(); i++) {
-      ArrayList<BlogEntry> items = new ArrayList<>();
-      for (final Entry entry : entries) {
-        if (entry.getDate().before(date)) {
-          if (!items.isEmpty()) blogEntryRepository.saveAll(items);
-          // stop processing items.
-          return;
-        }
 
-        items.add(convert(entry));
-      }
-
-      blogEntryRepository.saveAll(items);
+    if (!items.isEmpty()) save(items);
+    if (!removed.isEmpty()) delete(removed);
+  }
 
-      pageable = PageRequest.of(i + 1, 100);
-      entries = entryRepository.findBySecurityOrderByDateDesc(PUBLIC, pageable);
-    }
+  /** @return false when the index is new or was cleared and has to be filled from the database */
+  public boolean isIndexCurrent() {
+    return blogEntryStore.isCurrent();
   }
 
   /**
@@ -230,7 +166,17 @@ public class BlogSearchService {
    * @param entry blog entry to index
    */
   public void index(@NonNull final Entry entry) {
-    this.blogEntryRepository.save(convert(entry));
+    save(List.of(convert(entry)));
+  }
+
+  private void save(final List<BlogEntry> items) {
+    blogEntryStore.saveAll(items);
+    searchResultCache.indexChanged();
+  }
+
+  private void delete(final Collection<Integer> ids) {
+    blogEntryStore.deleteAllById(ids);
+    searchResultCache.indexChanged();
   }
 
   /**
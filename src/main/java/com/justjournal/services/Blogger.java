@@ -40,6 +40,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
 
 /**
@@ -72,7 +73,7 @@ public class Blogger extends BaseXmlRpcService {
 
   @Autowired private Settings settings;
 
-  @Autowired private EntryService entryService;
+  @Autowired private BodyRenderService bodyRenderService;
 
 
   /**
@@ -414,8 +415,7 @@ public class Blogger extends BaseXmlRpcService {
    */
   public Cloneable getRecentPosts(
       String appkey, String blogid, String username, String password, int numberOfPosts) {
-    final ArrayList<HashMap<Object, Serializable>> arr = new ArrayList<>(numberOfPosts);
-    final Collection<Entry> total;
+    final ArrayList<HashMap<Object, Serializable>> arr = new ArrayList<>(Math.max(numberOfPosts, 0));
     final int userId;
 
     userId = webLogin.validate(username, password);
@@ -423,32 +423,33 @@ public class Blogger extends BaseXmlRpcService {
       return error(ERROR_USER_AUTH + username);
     }
 
-    total = entryRepository.findByUsername(username);
+    if (numberOfPosts < 1) {
+      return arr;
+    }
 
-    Iterator<Entry> it = total.iterator();
+    final List<EntryFeedItem> total =
+        entryRepository.findFeedItemsByUsername(username, PageRequest.of(0, numberOfPosts));
 
-    for (int i = 0; i < numberOfPosts; i++)
-      if (it.hasNext()) {
+    for (final EntryFeedItem e : total) {
         HashMap<Object, Serializable> entry = new HashMap<>();
-        Entry e = it.next();
-        String body = entryService.convertBody(e.getFormat(), e.getBody());
-        entry.put("link", settings.getBlogBaseUrl(username) + "/entry/" + e.getId());
+        String body = bodyRenderService.text(e);
+        entry.put("link", settings.getBlogBaseUrl(username) + "/entry/" + e.id());
         entry.put(
-            "permaLink", settings.getBlogBaseUrl(username) + "/entry/" + e.getId());
-        entry.put("userid", Integer.toString(e.getUser().getId()));
+            "permaLink", settings.getBlogBaseUrl(username) + "/entry/" + e.id());
+        entry.put("userid", Integer.toString(e.userId()));
         entry.put("mt_allow_pings", 0); /* TODO: on or off? */
         entry.put("mt_allow_comments", 1); /* TODO: on or off? */
         entry.put("description", body);
         entry.put("content", body);
         entry.put("mt_convert_breaks", 0); /* TODO: research what these are... */
-        entry.put("postid", Integer.toString(e.getId()));
-        entry.put("mt_excerpt", HTMLUtil.textFromHTML(e.getBody()));
+        entry.put("postid", Integer.toString(e.id()));
+        entry.put("mt_excerpt", HTMLUtil.textFromHTML(e.body()));
         entry.put("mt_keywords", "");
-        entry.put("title", e.getSubject());
+        entry.put("title", e.subject());
         entry.put("mt_text_more", "");
-        entry.put("dateCreated", DateConvert.encode8601(e.getDate()));
+        entry.put("dateCreated", DateConvert.encode8601(e.date()));
         arr.add(entry);
-      }
+    }
 
     return arr;
   }
@@ -482,7 +483,7 @@ public class Blogger extends BaseXmlRpcService {
       return error( BaseXmlRpcService.ERROR_USER_AUTH + username);
     }
 
-    String body = entryService.convertBody(e.getFormat(), e.getBody());
+    String body = bodyRenderService.text(e);
     entry.put(
         "link", settings.getBlogBaseUrl(e.getUser().getUsername()) + "/entry/" + e.getId());
     entry.put(
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.justjournal.model.Comment;
+import com.justjournal.model.Entry;
+import com.justjournal.model.FormatType;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Queues markdown entries and comments for rendering once they are saved. Rendering waits for the
+ * commit so the background update never races the insert.
+ *
+ * @author Lucas Holt
+ */
+@Component
+public class BodyRenderListener {
+
+  private final ObjectProvider<BodyRenderService> bodyRenderService;
+
+  public BodyRenderListener(final ObjectProvider<BodyRenderService> bodyRenderService) {
+    this.bodyRenderService = bodyRenderService;
+  }
+
+  @PostPersist
+  @PostUpdate
+  public void saved(final Object o) {
+    if (o instanceof Entry entry) {
+      if (entry.getFormat() == FormatType.MARKDOWN && entry.getRenderer() == 0) {
+        final int id = entry.getId();
+        final String body = entry.getBody();
+        afterCommit(() -> bodyRenderService.getObject().renderEntry(id, body));
+      }
+    } else if (o instanceof Comment comment) {
+      if (comment.getFormat() == FormatType.MARKDOWN && comment.getRenderer() == 0) {
+        final int id = comment.getId();
+        final String body = comment.getBody();
+        afterCommit(() -> bodyRenderService.getObject().renderComment(id, body));
+      }
+    }
+  }
+
+  private static void afterCommit(final Runnable task) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              task.run();
+            }
+          });
+    } else {
+      task.run();
+    }
+  }
+}
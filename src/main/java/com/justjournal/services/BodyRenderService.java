@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.justjournal.model.Comment;
+import com.justjournal.model.Entry;
+import com.justjournal.model.EntryFeedItem;
+import com.justjournal.model.FormatType;
+import com.justjournal.utility.HTMLUtil;
+import com.justjournal.utility.StringUtil;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+/**
+ * Serves markdown bodies rendered ahead of time and does the rendering in the background when
+ * entries and comments are saved, so readers do not parse markdown.
+ *
+ * <p>A stored rendering is only used when it came from the current {@link
+ * MarkdownService#RENDERER_VERSION}. Anything older is rendered on the spot until {@link
+ * #renderStale()} catches up.
+ *
+ * @author Lucas Holt
+ */
+@Slf4j
+@Service
+public class BodyRenderService {
+
+  private static final int BATCH_SIZE = 100;
+
+  // the body check keeps a slow render of an older edit from overwriting a newer one
+  private static final String UPDATE_ENTRY =
+      "UPDATE entry SET body_html = ?, body_text = ?, renderer = ?, modified = modified"
+          + " WHERE id = ? AND BINARY body = ?";
+
+  private static final String UPDATE_COMMENT =
+      "UPDATE comments SET body_html = ?, body_text = ?, renderer = ?, modified = modified"
+          + " WHERE id = ? AND BINARY body = ?";
+
+  private static final String STALE_ENTRIES =
+      "SELECT id, body FROM entry WHERE format = 'MARKDOWN' AND renderer <> ? AND id > ?"
+          + " ORDER BY id LIMIT " + BATCH_SIZE;
+
+  private static final String STALE_COMMENTS =
+      "SELECT id, body FROM comments WHERE format = 'MARKDOWN' AND renderer <> ? AND id > ?"
+          + " ORDER BY id LIMIT " + BATCH_SIZE;
+
+  private final MarkdownService markdownService;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public BodyRenderService(final MarkdownService markdownService, final JdbcTemplate jdbcTemplate) {
+    this.markdownService = markdownService;
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  private static boolean current(final String rendered, final int renderer) {
+    return rendered != null && renderer == MarkdownService.RENDERER_VERSION;
+  }
+
+  /**
+   * @param entry markdown entry
+   * @return the body as HTML
+   */
+  public String html(final Entry entry) {
+    if (current(entry.getBodyHtml(), entry.getRenderer())) return entry.getBodyHtml();
+    return renderHtml(entry.getBody());
+  }
+
+  /**
+   * @param comment markdown comment
+   * @return the body as HTML
+   */
+  public String html(final Comment comment) {
+    if (current(comment.getBodyHtml(), comment.getRenderer())) return comment.getBodyHtml();
+    return renderHtml(comment.getBody());
+  }
+
+  /**
+   * @param entry entry in any format
+   * @return the body as plain text
+   */
+  public String text(final Entry entry) {
+    return text(entry.getFormat(), entry.getBody(), entry.getBodyText(), entry.getRenderer());
+  }
+
+  /**
+   * @param item feed item in any format
+   * @return the body as plain text
+   */
+  public String text(final EntryFeedItem item) {
+    return text(item.format(), item.body(), item.bodyText(), item.renderer());
+  }
+
+  private String text(
+      final FormatType format, final String body, final String bodyText, final int renderer) {
+    if (format == FormatType.MARKDOWN) {
+      if (current(bodyText, renderer)) return bodyText;
+      return renderText(body);
+    } else if (format == FormatType.HTML) {
+      return HTMLUtil.textFromHTML(body);
+    }
+    return body;
+  }
+
+  private MarkdownService.Rendered render(final String markdown) {
+    return markdownService.render(StringUtil.stripNonPrintableCharacters(markdown));
+  }
+
+  private String renderHtml(final String markdown) {
+    return render(markdown).html();
+  }
+
+  private String renderText(final String markdown) {
+    return render(markdown).text();
+  }
+
+  /**
+   * Render and store an entry body. Called after the entry is committed.
+   *
+   * @param id entry id
+   * @param body markdown body as saved
+   */
+  @Async
+  public void renderEntry(final int id, final String body) {
+    store(UPDATE_ENTRY, id, body);
+  }
+
+  /**
+   * Render and store a comment body. Called after the comment is committed.
+   *
+   * @param id comment id
+   * @param body markdown body as saved
+   */
+  @Async
+  public void renderComment(final int id, final String body) {
+    store(UPDATE_COMMENT, id, body);
+  }
+
+  private void store(final String sql, final int id, final String body) {
+    try {
+      final MarkdownService.Rendered rendered = render(body);
+      jdbcTemplate.update(
+          sql, rendered.html(), rendered.text(), MarkdownService.RENDERER_VERSION, id, body);
+    } catch (final Exception e) {
+      // readers fall back to rendering and renderStale will try again
+      log.error("Unable to render body for {}", id, e);
+    }
+  }
+
+  /**
+   * Render markdown entries and comments that were never rendered or were rendered by an older
+   * renderer version.
+   *
+   * @return number of bodies rendered
+   */
+  public int renderStale() {
+    return renderStale(STALE_ENTRIES, UPDATE_ENTRY) + renderStale(STALE_COMMENTS, UPDATE_COMMENT);
+  }
+
+  private int renderStale(final String select, final String update) {
+    int count = 0;
+    int lastId = 0;
+    List<Object[]> rows;
+    do {
+      rows =
+          jdbcTemplate.query(
+              select,
+              (rs, rowNum) -> new Object[] {rs.getInt(1), rs.getString(2)},
+              MarkdownService.RENDERER_VERSION,
+              lastId);
+      for (final Object[] row : rows) {
+        lastId = (Integer) row[0];
+        store(update, lastId, (String) row[1]);
+        count++;
+      }
+    } while (rows.size() == BATCH_SIZE);
+
+    if (count > 0) log.info("Rendered {} stale bodies", count);
+    return count;
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.justjournal.model.Entry;
+import com.justjournal.model.EntryCalendarCount;
+import com.justjournal.model.Security;
+import com.justjournal.model.User;
+import com.justjournal.repository.EntryCalendarCountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maintains and reads the per day entry counts behind the calendar views.
+ *
+ * @author Lucas Holt
+ */
+@Slf4j
+@Service
+public class CalendarCountService {
+
+  private static final Set<Security> ALL = EnumSet.allOf(Security.class);
+  private static final Set<Security> PUBLIC = EnumSet.of(Security.PUBLIC);
+
+  private static final String INCREMENT =
+      "INSERT INTO entry_calendar_count (uid, year, month, day, security, entry_count)"
+          + " VALUES (?, ?, ?, ?, ?, 1) ON DUPLICATE KEY UPDATE entry_count = entry_count + 1";
+
+  private static final String DECREMENT =
+      "UPDATE entry_calendar_count SET entry_count = entry_count - 1 WHERE uid = ? AND year = ?"
+          + " AND month = ? AND day = ? AND security = ? AND entry_count > 0";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final EntryCalendarCountRepository entryCalendarCountRepository;
+
+  public CalendarCountService(
+      final JdbcTemplate jdbcTemplate,
+      final EntryCalendarCountRepository entryCalendarCountRepository) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.entryCalendarCountRepository = entryCalendarCountRepository;
+  }
+
+  private static LocalDate toLocalDate(final Date date) {
+    return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+  }
+
+  private void adjust(final String sql, final int userId, final Date date, final Security security) {
+    if (userId < 1 || date == null || security == null) return;
+
+    final LocalDate day = toLocalDate(date);
+    jdbcTemplate.update(
+        sql, userId, day.getYear(), day.getMonthValue(), day.getDayOfMonth(), security.ordinal());
+  }
+
+  /** Count a new entry. */
+  public void added(final Entry entry) {
+    if (entry.getUser() == null) return;
+    adjust(INCREMENT, entry.getUser().getId(), entry.getDate(), entry.getSecurity());
+  }
+
+  /**
+   * Move an entry's count after its date or security changed.
+   *
+   * @param entry entry as it is now
+   * @param previousDate date before the change
+   * @param previousSecurity security before the change
+   */
+  public void changed(final Entry entry, final Date previousDate, final Security previousSecurity) {
+    if (entry.getUser() == null) return;
+    if (previousDate != null
+        && entry.getDate() != null
+        && toLocalDate(previousDate).equals(toLocalDate(entry.getDate()))
+        && previousSecurity == entry.getSecurity()) return;
+
+    adjust(DECREMENT, entry.getUser().getId(), previousDate, previousSecurity);
+    adjust(INCREMENT, entry.getUser().getId(), entry.getDate(), entry.getSecurity());
+  }
+
+  /**
+   * Stop counting a deleted entry.
+   *
+   * @param entry deleted entry
+   * @param date date the entry was counted under
+   * @param security security the entry was counted under
+   */
+  public void removed(final Entry entry, final Date date, final Security security) {
+    if (entry.getUser() == null) return;
+    adjust(DECREMENT, entry.getUser().getId(), date, security);
+  }
+
+  @Transactional(readOnly = true)
+  public long getYearCount(final User user, final int year) {
+    return entryCalendarCountRepository.countByUserIdAndYear(user.getId(), year);
+  }
+
+  /**
+   * @param user blog owner
+   * @return entry count by year
+   */
+  @Transactional(readOnly = true)
+  public Map<Integer, Long> getYearCounts(final User user) {
+    return toMap(entryCalendarCountRepository.countByYear(user.getId()));
+  }
+
+  /**
+   * @param user blog owner
+   * @param year year to break down
+   * @return entry count by 1 based month
+   */
+  @Transactional(readOnly = true)
+  public Map<Integer, Long> getMonthCounts(final User user, final int year) {
+    return toMap(entryCalendarCountRepository.countByMonth(user.getId(), year));
+  }
+
+  /**
+   * Days with entries in a year.
+   *
+   * @param user blog owner
+   * @param year year
+   * @param all include private and friends entries, otherwise only public ones
+   * @return day counts ordered by date
+   */
+  @Transactional(readOnly = true)
+  public List<EntryCalendarCount> getDays(final User user, final int year, final boolean all) {
+    return entryCalendarCountRepository.findDays(user.getId(), year, all ? ALL : PUBLIC);
+  }
+
+  /**
+   * Days with entries in a month.
+   *
+   * @param user blog owner
+   * @param year year
+   * @param month 1 based month
+   * @param all include private and friends entries, otherwise only public ones
+   * @return day counts ordered by date
+   */
+  @Transactional(readOnly = true)
+  public List<EntryCalendarCount> getDays(
+      final User user, final int year, final int month, final boolean all) {
+    return entryCalendarCountRepository.findDays(user.getId(), year, month, all ? ALL : PUBLIC);
+  }
+
+  private static Map<Integer, Long> toMap(final List<Object[]> rows) {
+    final Map<Integer, Long> counts = new HashMap<>();
+    for (final Object[] row : rows) {
+      counts.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+    }
+    return counts;
+  }
+}
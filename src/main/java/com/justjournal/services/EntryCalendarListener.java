@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.justjournal.model.Entry;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adjusts calendar counts as entries are saved and removed.
+ *
+ * @author Lucas Holt
+ */
+@Slf4j
+@Component
+public class EntryCalendarListener {
+
+  private final ObjectProvider<CalendarCountService> calendarCountService;
+
+  public EntryCalendarListener(final ObjectProvider<CalendarCountService> calendarCountService) {
+    this.calendarCountService = calendarCountService;
+  }
+
+  private static void remember(final Entry entry) {
+    entry.setCalendarDate(entry.getDate());
+    entry.setCalendarSecurity(entry.getSecurity());
+  }
+
+  @PostLoad
+  public void loaded(final Entry entry) {
+    remember(entry);
+  }
+
+  @PostPersist
+  public void persisted(final Entry entry) {
+    calendarCountService.getObject().added(entry);
+    remember(entry);
+  }
+
+  @PostUpdate
+  public void updated(final Entry entry) {
+    calendarCountService
+        .getObject()
+        .changed(entry, entry.getCalendarDate(), entry.getCalendarSecurity());
+    remember(entry);
+  }
+
+  @PostRemove
+  public void removed(final Entry entry) {
+    if (entry.getCalendarDate() != null)
+      calendarCountService
+          .getObject()
+          .removed(entry, entry.getCalendarDate(), entry.getCalendarSecurity());
+    else calendarCountService.getObject().removed(entry, entry.getDate(), entry.getSecurity());
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.justjournal.model.Entry;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Position in a journal ordered by entry date and id. Paging seeks from the cursor instead of
+ * skipping rows, so a deep page costs the same as the first one.
+ *
+ * <p>Cursors are handed to clients as opaque url safe strings.
+ *
+ * @author Lucas Holt
+ */
+@Getter
+@EqualsAndHashCode
+public final class EntryCursor {
+
+  /** Which side of the cursor to read. */
+  public enum Direction {
+    /** Entries posted before the cursor, newest first. */
+    OLDER,
+    /** Entries posted after the cursor. */
+    NEWER
+  }
+
+  private static final char OLDER_PREFIX = 'o';
+  private static final char NEWER_PREFIX = 'n';
+  private static final char SEPARATOR = ':';
+
+  private final Direction direction;
+  private final long time;
+  private final int id;
+
+  public EntryCursor(final Direction direction, final long time, final int id) {
+    this.direction = direction;
+    this.time = time;
+    this.id = id;
+  }
+
+  /** Cursor for reading past the given entry in the direction. */
+  public static EntryCursor of(final Entry entry, final Direction direction) {
+    return new EntryCursor(direction, entry.getDate().getTime(), entry.getId());
+  }
+
+  public Date getDate() {
+    return new Date(time);
+  }
+
+  public String encode() {
+    final String raw =
+        (direction == Direction.OLDER ? OLDER_PREFIX : NEWER_PREFIX)
+            + Long.toString(time, Character.MAX_RADIX)
+            + SEPARATOR
+            + Integer.toString(id, Character.MAX_RADIX);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Parse a cursor produced by {@link #encode()}.
+   *
+   * @param value encoded cursor
+   * @return cursor
+   * @throws IllegalArgumentException if the value is not a cursor
+   */
+  public static EntryCursor decode(final String value) {
+    if (value == null || value.isEmpty()) {
+      throw new IllegalArgumentException("Empty cursor");
+    }
+
+    final String raw;
+    try {
+      raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.US_ASCII);
+    } catch (final IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid cursor", e);
+    }
+
+    final int sep = raw.indexOf(SEPARATOR);
+    if (raw.length() < 2 || sep < 2) {
+      throw new IllegalArgumentException("Invalid cursor");
+    }
+
+    final Direction direction;
+    switch (raw.charAt(0)) {
+      case OLDER_PREFIX -> direction = Direction.OLDER;
+      case NEWER_PREFIX -> direction = Direction.NEWER;
+      default -> throw new IllegalArgumentException("Invalid cursor");
+    }
+
+    try {
+      final long time = Long.parseLong(raw.substring(1, sep), Character.MAX_RADIX);
+      final int id = Integer.parseInt(raw.substring(sep + 1), Character.MAX_RADIX);
+      if (id < 0) {
+        throw new IllegalArgumentException("Invalid cursor");
+      }
+      return new EntryCursor(direction, time, id);
+    } catch (final NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid cursor", e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return encode();
+  }
+}
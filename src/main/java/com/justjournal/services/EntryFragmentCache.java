@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.justjournal.core.UserContext;
+import com.justjournal.model.Entry;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the rendered HTML for journal entries so busy journals don't run markdown, mood and
+ * comment lookups for every page view. Fragments are keyed by everything the rendered HTML
+ * depends on: the entry and its modified timestamp, the date shown, the journal being viewed
+ * (tag links point at it) and the class of the viewer, since owners see edit links that others do
+ * not.
+ *
+ * <p>The cache and {@link #evict(int)} are local to each node. Entry edits change the modified
+ * timestamp and so miss everywhere, but a new comment or trackback only evicts on the node that
+ * took it, so fragments expire after a few minutes to bound how stale other nodes can be.
+ *
+ * @author Lucas Holt
+ */
+@Slf4j
+@Component
+public class EntryFragmentCache {
+  private static final int MAX_FRAGMENTS = 10000;
+  private static final int FRAGMENT_CACHE_MINUTES = 2;
+
+  /** Who is looking at the entry. Only the parts of the page that differ are considered. */
+  public enum Viewer {
+    ANONYMOUS,
+    SIGNED_IN,
+    OWNER;
+
+    /**
+     * Classify the authenticated user against the blog owner.
+     *
+     * @param uc user context
+     * @return viewer class
+     */
+    public static Viewer of(final UserContext uc) {
+      if (uc.isAuthBlog()) return OWNER;
+      if (uc.getAuthenticatedUser() != null) return SIGNED_IN;
+      return ANONYMOUS;
+    }
+  }
+
+  record FragmentKey(
+      int entryId, long modified, long date, String blog, Viewer viewer, boolean single) {}
+
+  private final Cache<FragmentKey, String> fragments =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_FRAGMENTS)
+          .expireAfterWrite(FRAGMENT_CACHE_MINUTES, TimeUnit.MINUTES)
+          .build();
+
+  /**
+   * Get the rendered entry, rendering it on a miss.
+   *
+   * <p>Single entry pages include per comment edit links for signed in users, so those are only
+   * cached for anonymous visitors and the owner.
+   *
+   * @param uc user context
+   * @param entry entry to render
+   * @param date date shown with the entry
+   * @param single single entry view
+   * @param renderer produces the HTML on a cache miss
+   * @return HTML fragment
+   */
+  public String get(
+      final UserContext uc,
+      final Entry entry,
+      final Date date,
+      final boolean single,
+      final Supplier<String> renderer) {
+    final Viewer viewer = Viewer.of(uc);
+    if (entry.getId() < 1 || (single && viewer == Viewer.SIGNED_IN)) {
+      return renderer.get();
+    }
+
+    final FragmentKey key =
+        new FragmentKey(
+            entry.getId(),
+            time(modified(entry)),
+            time(date),
+            uc.getBlogUser() == null ? null : uc.getBlogUser().getUsername(),
+            viewer,
+            single);
+    final String cached = fragments.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+
+    final String html = renderer.get();
+    fragments.put(key, html);
+    return html;
+  }
+
+  /**
+   * Drop every fragment for an entry. Call when the entry, its comments or trackbacks change.
+   *
+   * @param entryId entry id
+   */
+  public void evict(final int entryId) {
+    fragments.asMap().keySet().removeIf(key -> key.entryId() == entryId);
+    log.trace("Evicted rendered fragments for entry {}", entryId);
+  }
+
+  /** Drop everything. */
+  public void clear() {
+    fragments.invalidateAll();
+  }
+
+  long size() {
+    return fragments.size();
+  }
+
+  private static Date modified(final Entry entry) {
+    return entry.getModified() != null ? entry.getModified() : entry.getDate();
+  }
+
+  private static long time(final Date date) {
+    return date == null ? 0 : date.getTime();
+  }
+}
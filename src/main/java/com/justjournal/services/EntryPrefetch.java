@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.justjournal.model.Comment;
+import com.justjournal.model.MoodThemeData;
+import com.justjournal.model.api.TrackbackTo;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Comments, trackbacks and mood emoticons for a page of entries, loaded together by {@link
+ * EntryPrefetchService} so rendering does not go back to the database for each entry.
+ *
+ * @author Lucas Holt
+ */
+public final class EntryPrefetch {
+
+  /** Nothing loaded; used when there are no entries to render. */
+  public static final EntryPrefetch EMPTY =
+      new EntryPrefetch(Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap());
+
+  private final Map<Integer, Long> commentCounts;
+  private final Map<Integer, List<Comment>> comments;
+  private final Map<Integer, List<TrackbackTo>> trackbacks;
+  private final Map<Integer, MoodThemeData> emoticons;
+
+  EntryPrefetch(
+      final Map<Integer, Long> commentCounts,
+      final Map<Integer, List<Comment>> comments,
+      final Map<Integer, List<TrackbackTo>> trackbacks,
+      final Map<Integer, MoodThemeData> emoticons) {
+    this.commentCounts = commentCounts;
+    this.comments = comments;
+    this.trackbacks = trackbacks;
+    this.emoticons = emoticons;
+  }
+
+  public long getCommentCount(final int entryId) {
+    return commentCounts.getOrDefault(entryId, 0L);
+  }
+
+  /** Comments for the entry. Only populated when the page was prefetched with details. */
+  public List<Comment> getComments(final int entryId) {
+    return comments.getOrDefault(entryId, Collections.emptyList());
+  }
+
+  /** Trackbacks for the entry. Only populated when the page was prefetched with details. */
+  public List<TrackbackTo> getTrackbacks(final int entryId) {
+    return trackbacks.getOrDefault(entryId, Collections.emptyList());
+  }
+
+  /**
+   * @param moodId mood of the entry
+   * @return emoticon for the mood in the default theme or null if there isn't one
+   */
+  public MoodThemeData getEmoticon(final int moodId) {
+    return emoticons.get(moodId);
+  }
+}
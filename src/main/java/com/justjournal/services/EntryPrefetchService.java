@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.justjournal.model.Comment;
+import com.justjournal.model.Entry;
+import com.justjournal.model.MoodThemeData;
+import com.justjournal.model.Trackback;
+import com.justjournal.model.api.TrackbackTo;
+import com.justjournal.repository.CommentRepository;
+import com.justjournal.repository.MoodThemeDataRepository;
+import com.justjournal.repository.TrackbackRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Loads everything a journal page needs beyond the entries themselves using a handful of set
+ * based queries instead of several queries per entry.
+ *
+ * @author Lucas Holt
+ */
+@Slf4j
+@Service
+public class EntryPrefetchService {
+
+  /** Emoticons are always rendered from the default theme. */
+  public static final int DEFAULT_THEME = 1;
+
+  /** "Not specified" mood, which is never rendered. */
+  private static final int NO_MOOD = 12;
+
+  private final CommentRepository commentRepository;
+  private final TrackbackRepository trackbackRepository;
+  private final MoodThemeDataRepository moodThemeDataRepository;
+
+  public EntryPrefetchService(
+      final CommentRepository commentRepository,
+      final TrackbackRepository trackbackRepository,
+      final @Qualifier("moodThemeDataRepository") MoodThemeDataRepository moodThemeDataRepository) {
+    this.commentRepository = commentRepository;
+    this.trackbackRepository = trackbackRepository;
+    this.moodThemeDataRepository = moodThemeDataRepository;
+  }
+
+  /**
+   * Prefetch comment counts and emoticons for a list of entries.
+   *
+   * @param entries entries on the page
+   * @return prefetched data
+   */
+  @Transactional(readOnly = true)
+  public EntryPrefetch prefetch(final Collection<Entry> entries) {
+    return prefetch(entries, false);
+  }
+
+  /**
+   * Prefetch data for a list of entries.
+   *
+   * @param entries entries on the page
+   * @param details also load the comments and trackbacks themselves, as the single entry view does
+   * @return prefetched data
+   */
+  @Transactional(readOnly = true)
+  public EntryPrefetch prefetch(final Collection<Entry> entries, final boolean details) {
+    if (entries == null || entries.isEmpty()) return EntryPrefetch.EMPTY;
+
+    final Set<Integer> entryIds = entries.stream().map(Entry::getId).collect(Collectors.toSet());
+
+    final Map<Integer, Long> commentCounts = new HashMap<>();
+    Map<Integer, List<Comment>> comments = Collections.emptyMap();
+    Map<Integer, List<TrackbackTo>> trackbacks = Collections.emptyMap();
+
+    if (details) {
+      comments =
+          commentRepository.findByEntryIds(entryIds).stream()
+              .collect(Collectors.groupingBy(Comment::getEid));
+      comments.forEach((id, list) -> commentCounts.put(id, (long) list.size()));
+
+      trackbacks =
+          trackbackRepository.findByEntryIdInOrderByDate(entryIds).stream()
+              .collect(
+                  Collectors.groupingBy(
+                      Trackback::getEntryId,
+                      Collectors.mapping(Trackback::toTrackbackTo, Collectors.toList())));
+    } else {
+      for (final Object[] row : commentRepository.countByEntryIds(entryIds)) {
+        commentCounts.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+      }
+    }
+
+    final Set<Integer> moodIds =
+        entries.stream()
+            .filter(e -> e.getMood() != null && e.getMood().getId() != NO_MOOD)
+            .map(e -> e.getMood().getId())
+            .collect(Collectors.toSet());
+
+    final Map<Integer, MoodThemeData> emoticons = new HashMap<>();
+    if (!moodIds.isEmpty()) {
+      for (final MoodThemeData md : moodThemeDataRepository.findByThemeIdAndMoodIds(DEFAULT_THEME, moodIds)) {
+        emoticons.put(md.getMood().getId(), md);
+      }
+    }
+
+    log.trace("prefetch: {} entries, {} with comments, {} emoticons", entryIds.size(), commentCounts.size(), emoticons.size());
+    return new EntryPrefetch(commentCounts, comments, trackbacks, emoticons);
+  }
+}
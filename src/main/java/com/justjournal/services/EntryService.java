@@ -31,17 +31,18 @@ import com.justjournal.repository.EntryRepository;
 import com.justjournal.repository.EntryTagsRepository;
 import com.justjournal.repository.TagRepository;
 import com.justjournal.repository.UserRepository;
-import com.justjournal.utility.HTMLUtil;
 import com.justjournal.utility.Xml;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -73,14 +74,12 @@ public class EntryService {
     this.entryTagsRepository = entryTagsRepository;
   }
 
-  private Flux<RecentEntry> getRecentEntryObservable(Page<Entry> entries) {
+  private Flux<RecentEntry> getRecentEntryObservable(List<RecentEntry> entries) {
     return Flux.fromIterable(entries)
         .map(
             o -> {
-              final RecentEntry recentEntry = new RecentEntry();
-              recentEntry.setId(o.getId());
-              recentEntry.setSubject(Xml.cleanString(o.getSubject()));
-              return recentEntry;
+              o.setSubject(Xml.cleanString(o.getSubject()));
+              return o;
             });
   }
 
@@ -93,11 +92,9 @@ public class EntryService {
   @Transactional(readOnly = true, isolation = Isolation.READ_UNCOMMITTED)
   public Flux<RecentEntry> getRecentEntriesPublic(final String username) throws ServiceException {
     try {
-      final Pageable page =
-          PageRequest.of(0, MAX_RECENT_ENTRIES, Sort.by(Sort.Direction.DESC, "date", "id"));
-      final Page<Entry> entries =
-          entryDao.findByUserAndSecurityAndDraftWithSubjectOnly(
-              username, Security.PUBLIC, PrefBool.N, page);
+      final Pageable page = PageRequest.of(0, MAX_RECENT_ENTRIES);
+      final List<RecentEntry> entries =
+          entryDao.findRecentEntries(username, Security.PUBLIC, PrefBool.N, page);
       return getRecentEntryObservable(entries);
     } catch (final Exception e) {
       log.error(e.getMessage());
@@ -120,9 +117,8 @@ public class EntryService {
     }
 
     try {
-      final Pageable page =
-          PageRequest.of(0, MAX_RECENT_ENTRIES, Sort.Direction.DESC, "date", "id");
-      final Page<Entry> entries = entryDao.findByUserOrderByDateDesc(user, page);
+      final Pageable page = PageRequest.of(0, MAX_RECENT_ENTRIES);
+      final List<RecentEntry> entries = entryDao.findRecentEntries(user, page);
       return getRecentEntryObservable(entries);
     } catch (final Exception e) {
       log.error(e.getMessage(), e);
@@ -195,6 +191,98 @@ public class EntryService {
     }
   }
 
+  /**
+   * Get a page of a user's entries next to a cursor, newest first. Seeks on entry date and id so
+   * the cost does not grow with how far back the reader has paged, and never counts the journal.
+   *
+   * @param user journal owner
+   * @param security security level to include or null for all
+   * @param draft draft state to include or null for both
+   * @param cursor position to read from or null for the newest entries
+   * @param size entries per page
+   * @return entries and cursors for the neighbouring pages
+   */
+  @Transactional(readOnly = true)
+  public EntryWindow getEntryWindow(
+      @NonNull final User user,
+      final Security security,
+      final PrefBool draft,
+      final EntryCursor cursor,
+      final int size)
+      throws ServiceException {
+    try {
+      final Collection<Security> securities =
+          security == null ? EnumSet.allOf(Security.class) : EnumSet.of(security);
+      final Collection<PrefBool> drafts =
+          draft == null ? EnumSet.allOf(PrefBool.class) : EnumSet.of(draft);
+      // one extra row tells us whether there is another page
+      final Pageable limit = PageRequest.of(0, size + 1);
+
+      if (cursor != null && cursor.getDirection() == EntryCursor.Direction.NEWER) {
+        final List<Entry> newer =
+            entryDao.findNewerThan(user, securities, drafts, cursor.getDate(), cursor.getId(), limit);
+        if (!newer.isEmpty()) {
+          final boolean more = newer.size() > size;
+          final List<Entry> content = new ArrayList<>(newer.subList(0, Math.min(size, newer.size())));
+          Collections.reverse(content);
+          return new EntryWindow(
+              content,
+              EntryCursor.of(content.get(content.size() - 1), EntryCursor.Direction.OLDER),
+              more ? EntryCursor.of(content.get(0), EntryCursor.Direction.NEWER) : null);
+        }
+        // nothing newer than the cursor any more; show the latest entries instead
+        return window(entryDao.findNewest(user, securities, drafts, limit), size, null);
+      }
+
+      if (cursor == null) {
+        return window(entryDao.findNewest(user, securities, drafts, limit), size, null);
+      }
+
+      return window(
+          entryDao.findOlderThan(user, securities, drafts, cursor.getDate(), cursor.getId(), limit),
+          size,
+          cursor);
+    } catch (final Exception e) {
+      log.error(e.getMessage());
+      throw new ServiceException(e);
+    }
+  }
+
+  /**
+   * Count a user's entries. Only needed when a client asks for totals with cursor paging.
+   *
+   * @param user journal owner
+   * @param security security level to include or null for all
+   * @param draft draft state to include or null for both
+   * @return number of entries
+   */
+  @Transactional(readOnly = true)
+  public long countEntries(@NonNull final User user, final Security security, final PrefBool draft) {
+    return entryDao.countByUserAndSecurityInAndDraftIn(
+        user,
+        security == null ? EnumSet.allOf(Security.class) : EnumSet.of(security),
+        draft == null ? EnumSet.allOf(PrefBool.class) : EnumSet.of(draft));
+  }
+
+  private static EntryWindow window(final List<Entry> older, final int size, final EntryCursor from) {
+    if (older.isEmpty()) {
+      // paged past the oldest entry; offer a way back
+      return from == null
+          ? EntryWindow.EMPTY
+          : new EntryWindow(
+              Collections.emptyList(),
+              null,
+              new EntryCursor(EntryCursor.Direction.NEWER, from.getTime(), from.getId()));
+    }
+
+    final boolean more = older.size() > size;
+    final List<Entry> content = older.subList(0, Math.min(size, older.size()));
+    return new EntryWindow(
+        List.copyOf(content),
+        more ? EntryCursor.of(content.get(content.size() - 1), EntryCursor.Direction.OLDER) : null,
+        from == null ? null : EntryCursor.of(content.get(0), EntryCursor.Direction.NEWER));
+  }
+
   /**
    * Get Friend public blog entries.
    *
@@ -317,31 +405,4 @@ public class EntryService {
       entryTagsRepository.delete(ets);
     }
   }
-
-  @Autowired
-  private MarkdownService markdownService;
-
-  /**
-   * Converts body to text
-   * @param format
-   * @param body
-   * @return
-   */
-  public String convertBody(FormatType format, String body) {
-    if (format == FormatType.MARKDOWN) {
-      body = markdownService.convertToText(body);
-    } else if (format == FormatType.HTML) {
-      body = HTMLUtil.textFromHTML(body);
-    }
-    return body;
-  }
-
-  public String convertBodyToHtml(FormatType format, String body) {
-    if (format == FormatType.MARKDOWN) {
-      body = markdownService.convertToText(body);
-    } else if (format == FormatType.TEXT) {
-      body = body.replaceAll("\\n", "<br/>"); // TODO: match users controller formatting style
-    }
-    return body;
-  }
 }
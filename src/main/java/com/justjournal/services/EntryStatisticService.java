@@ -28,7 +28,6 @@ package com.justjournal.services;
 
 import com.justjournal.model.EntryStatistic;
 import com.justjournal.model.User;
-import com.justjournal.repository.EntryRepository;
 import com.justjournal.repository.EntryStatisticRepository;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
@@ -55,14 +54,14 @@ public class EntryStatisticService {
 
   private final EntryStatisticRepository entryStatisticRepository;
 
-  private final EntryRepository entryRepository;
+  private final CalendarCountService calendarCountService;
 
   @Autowired
   public EntryStatisticService(
       final EntryStatisticRepository entryStatisticRepository,
-      final EntryRepository entryRepository) {
+      final CalendarCountService calendarCountService) {
     this.entryStatisticRepository = entryStatisticRepository;
-    this.entryRepository = entryRepository;
+    this.calendarCountService = calendarCountService;
   }
 
   @Transactional(readOnly = true, isolation = Isolation.READ_UNCOMMITTED)
@@ -94,7 +93,7 @@ public class EntryStatisticService {
     for (int yr = startYear; yr <= endYear; yr++) {
         log.debug("testing with year: {} user: {}", yr , user.getUsername());
         EntryStatistic es = entryStatisticRepository.findByUserAndYear(user, yr);
-        final long count = entryRepository.calendarCount(yr, user.getUsername());
+        final long count = calendarCountService.getYearCount(user, yr);
 
         if (es == null) {
             log.trace("Creating new entry statistic for {}", user.getUsername());
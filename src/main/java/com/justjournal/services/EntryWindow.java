@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.justjournal.model.Entry;
+import java.util.Collections;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * One page of entries read with an {@link EntryCursor}, newest first, with the cursors for the
+ * neighbouring pages.
+ *
+ * @author Lucas Holt
+ */
+@Getter
+public final class EntryWindow {
+
+  public static final EntryWindow EMPTY = new EntryWindow(Collections.emptyList(), null, null);
+
+  private final List<Entry> content;
+
+  /** Cursor for the older page or null if this is the oldest page. */
+  private final EntryCursor next;
+
+  /** Cursor for the newer page or null if this is the newest page. */
+  private final EntryCursor previous;
+
+  EntryWindow(final List<Entry> content, final EntryCursor next, final EntryCursor previous) {
+    this.content = content;
+    this.next = next;
+    this.previous = previous;
+  }
+
+  public boolean hasNext() {
+    return next != null;
+  }
+
+  public boolean hasPrevious() {
+    return previous != null;
+  }
+}
@@ -0,0 +1,611 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.justjournal.atom.AtomFeed;
+import com.justjournal.atom.AtomWriter;
+import com.justjournal.core.Constants;
+import com.justjournal.core.Settings;
+import com.justjournal.exception.ServiceException;
+import com.justjournal.jsonfeed.Author;
+import com.justjournal.jsonfeed.Feed;
+import com.justjournal.jsonfeed.Hub;
+import com.justjournal.jsonfeed.Item;
+import com.justjournal.jsonfeed.JsonFeedWriter;
+import com.justjournal.model.Entry;
+import com.justjournal.model.EntryFeedItem;
+import com.justjournal.model.Journal;
+import com.justjournal.model.Security;
+import com.justjournal.model.User;
+import com.justjournal.repository.EntryRepository;
+import com.justjournal.repository.UserRepository;
+import com.justjournal.rss.RssChannel;
+import com.justjournal.rss.RssWriter;
+import com.justjournal.utility.DateConvert;
+import com.justjournal.utility.EncodedPayload;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Builds the RSS, Atom and JSON feeds for journals and keeps the serialized documents so feed
+ * requests are a cache read. Documents are tagged with the journal version they were built from
+ * and rebuilt in the background when the journal changes.
+ *
+ * <p>There is a local size bounded cache and, when {@code feeds.redis} is set, a shared Redis
+ * copy so other instances don't have to build the same document.
+ *
+ * <p>The items of the last few RSS and Atom versions are remembered so clients polling with RFC
+ * 3229 {@code A-IM: feed} can be sent only what changed since the version they have.
+ *
+ * <p>Every feed names the {@link WebSubService} hub so readers can subscribe instead of polling.
+ *
+ * @author Lucas Holt
+ */
+@Slf4j
+@Service
+public class FeedDocumentService {
+  /** Bytes of encoded and compressed feed documents kept locally. */
+  private static final long MAX_DOCUMENT_BYTES = 48L * 1024 * 1024;
+
+  private static final int DOCUMENT_CACHE_HOURS = 6;
+  private static final Duration SHARED_TIMEOUT = Duration.ofMillis(250);
+  private static final String SHARED_KEY = "feed:";
+
+  /** Versions of a journal's item list remembered for delta requests. */
+  private static final int DELTA_HISTORY = 8;
+  private static final int MAX_HISTORIES = 10000;
+  private static final long MAX_DELTA_BYTES = 8L * 1024 * 1024;
+
+  /** Entries per feed. */
+  public static final int FEED_SIZE = 15;
+
+  /** Feed formats with a cached document. */
+  public enum FeedType {
+    RSS(StandardCharsets.ISO_8859_1),
+    ATOM(StandardCharsets.UTF_8),
+    JSON(StandardCharsets.UTF_8);
+
+    private final Charset charset;
+
+    FeedType(final Charset charset) {
+      this.charset = charset;
+    }
+
+    /** @return charset the document is encoded in */
+    public Charset getCharset() {
+      return charset;
+    }
+  }
+
+  /**
+   * Serialized feed.
+   *
+   * @param version journal version the document was built from
+   * @param payload encoded feed document
+   */
+  public record FeedDocument(long version, EncodedPayload payload) {}
+
+  record FeedKey(int userId, FeedType type) {}
+
+  record DeltaKey(FeedKey key, long from, long to) {}
+
+  private final Cache<FeedKey, FeedDocument> documents =
+      CacheBuilder.newBuilder()
+          .maximumWeight(MAX_DOCUMENT_BYTES)
+          .weigher((FeedKey key, FeedDocument value) -> value.payload().weight())
+          .expireAfterAccess(DOCUMENT_CACHE_HOURS, TimeUnit.HOURS)
+          .build();
+
+  /** Fingerprints of the items in each recent version of a journal's feeds, by user id. */
+  private final Cache<Integer, NavigableMap<Long, Map<Integer, Integer>>> history =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_HISTORIES)
+          .expireAfterAccess(DOCUMENT_CACHE_HOURS, TimeUnit.HOURS)
+          .build();
+
+  private final Cache<DeltaKey, FeedDocument> deltas =
+      CacheBuilder.newBuilder()
+          .maximumWeight(MAX_DELTA_BYTES)
+          .weigher((DeltaKey key, FeedDocument value) -> value.payload().weight())
+          .expireAfterAccess(DOCUMENT_CACHE_HOURS, TimeUnit.HOURS)
+          .build();
+
+  private final UserRepository userRepository;
+  private final EntryRepository entryRepository;
+  private final EntryService entryService;
+  private final JournalVersionService journalVersionService;
+  private final BodyRenderService bodyRenderService;
+  private final AvatarService avatarService;
+  private final RssWriter rssWriter;
+  private final AtomWriter atomWriter;
+  private final Settings settings;
+  private final ObjectMapper objectMapper;
+  private final ReactiveRedisTemplate<String, String> reactiveRedisTemplateString;
+  private final boolean shared;
+
+  public FeedDocumentService(
+      final UserRepository userRepository,
+      final EntryRepository entryRepository,
+      final EntryService entryService,
+      final JournalVersionService journalVersionService,
+      final BodyRenderService bodyRenderService,
+      final AvatarService avatarService,
+      final RssWriter rssWriter,
+      final AtomWriter atomWriter,
+      final Settings settings,
+      final ObjectMapper objectMapper,
+      final ReactiveRedisTemplate<String, String> reactiveRedisTemplateString,
+      @Value("${feeds.redis:false}") final boolean shared) {
+    this.userRepository = userRepository;
+    this.entryRepository = entryRepository;
+    this.entryService = entryService;
+    this.journalVersionService = journalVersionService;
+    this.bodyRenderService = bodyRenderService;
+    this.avatarService = avatarService;
+    this.rssWriter = rssWriter;
+    this.atomWriter = atomWriter;
+    this.settings = settings;
+    this.objectMapper = objectMapper;
+    this.reactiveRedisTemplateString = reactiveRedisTemplateString;
+    this.shared = shared;
+  }
+
+  /**
+   * Get the current feed document for a journal, building it if needed.
+   *
+   * @param username blog owner
+   * @param type feed format
+   * @return feed or null if the user doesn't exist or the journal isn't public
+   */
+  @Transactional(readOnly = true)
+  public FeedDocument getDocument(final String username, final FeedType type)
+      throws ServiceException {
+    final JournalVersionService.Version version = journalVersionService.getVersion(username);
+    if (version == null) return null;
+
+    final FeedKey key = new FeedKey(version.userId(), type);
+    final FeedDocument cached = documents.getIfPresent(key);
+    if (cached != null && cached.version() == version.version()) return cached;
+
+    final FeedDocument sharedDocument = readShared(key);
+    if (sharedDocument != null && sharedDocument.version() == version.version()) {
+      documents.put(key, sharedDocument);
+      return sharedDocument;
+    }
+
+    final Optional<User> user = userRepository.findById(version.userId());
+    if (user.isEmpty()) return null;
+    return refresh(key, user.get(), version.version());
+  }
+
+  /**
+   * RFC 3229 feed delta: the current RSS or Atom feed holding only the items added or changed
+   * since a version the client already has.
+   *
+   * @param username blog owner
+   * @param type RSS or ATOM
+   * @param bases journal versions the client has, from If-None-Match
+   * @return delta document tagged with the current version, or null if no base version is known
+   *     and the full feed should be sent
+   */
+  @Transactional(readOnly = true)
+  public FeedDocument getDelta(
+      final String username, final FeedType type, final Collection<Long> bases)
+      throws ServiceException {
+    if (type == FeedType.JSON || bases.isEmpty()) return null;
+
+    final JournalVersionService.Version version = journalVersionService.getVersion(username);
+    if (version == null) return null;
+
+    final NavigableMap<Long, Map<Integer, Integer>> versions =
+        history.getIfPresent(version.userId());
+    if (versions == null) return null;
+
+    final Map<Integer, Integer> current;
+    Long base = null;
+    synchronized (versions) {
+      current = versions.get(version.version());
+      for (final Long candidate : bases) {
+        if (candidate < version.version()
+            && versions.containsKey(candidate)
+            && (base == null || candidate > base)) {
+          base = candidate;
+        }
+      }
+    }
+    if (current == null || base == null) return null;
+
+    final DeltaKey key =
+        new DeltaKey(new FeedKey(version.userId(), type), base, version.version());
+    final FeedDocument cached = deltas.getIfPresent(key);
+    if (cached != null) return cached;
+
+    final Optional<User> user = userRepository.findById(version.userId());
+    final Journal journal = user.map(FeedDocumentService::firstJournal).orElse(null);
+    if (journal == null || journal.isOwnerViewOnly()) return null;
+
+    final List<EntryFeedItem> items = items(user.get());
+    if (!fingerprints(items).equals(current)) {
+      // changed again since the version was read; send the full feed
+      return null;
+    }
+
+    final Map<Integer, Integer> previous;
+    synchronized (versions) {
+      previous = versions.get(base);
+    }
+    if (previous == null) return null;
+
+    final List<EntryFeedItem> changed =
+        items.stream()
+            .filter(item -> !Integer.valueOf(fingerprint(item)).equals(previous.get(item.id())))
+            .toList();
+    final FeedDocument delta =
+        new FeedDocument(
+            version.version(),
+            EncodedPayload.of(
+                type == FeedType.RSS ? rss(user.get(), changed) : atom(user.get(), journal, changed)));
+    deltas.put(key, delta);
+    return delta;
+  }
+
+  /**
+   * Rebuild a journal's documents once a change commits.
+   *
+   * @param event changed journal
+   */
+  @Async
+  @TransactionalEventListener(fallbackExecution = true)
+  @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+  public void journalChanged(final JournalChangedEvent event) {
+    final Optional<User> user = userRepository.findById(event.userId());
+    final JournalVersionService.Version version =
+        user.map(u -> journalVersionService.getVersion(u.getUsername())).orElse(null);
+
+    for (final FeedType type : FeedType.values()) {
+      final FeedKey key = new FeedKey(event.userId(), type);
+      if (version == null) {
+        evict(key);
+      } else {
+        try {
+          refresh(key, user.get(), version.version());
+        } catch (final Exception e) {
+          log.error("Unable to rebuild {} feed for {}", type, event.userId(), e);
+          evict(key);
+        }
+      }
+    }
+  }
+
+  private FeedDocument refresh(final FeedKey key, final User user, final long version)
+      throws ServiceException {
+    final byte[] body = build(user, key.type(), version);
+    if (body == null) {
+      evict(key);
+      return null;
+    }
+
+    final FeedDocument document =
+        new FeedDocument(version, EncodedPayload.of(body));
+    documents.put(key, document);
+    writeShared(key, version, body);
+    return document;
+  }
+
+  private byte[] build(final User user, final FeedType type, final long version)
+      throws ServiceException {
+    final Journal journal = firstJournal(user);
+    if (journal == null || journal.isOwnerViewOnly()) return null;
+
+    if (type == FeedType.JSON) return json(user, journal);
+
+    final List<EntryFeedItem> items = items(user);
+    remember(user.getId(), version, items);
+    return type == FeedType.RSS ? rss(user, items) : atom(user, journal, items);
+  }
+
+  private List<EntryFeedItem> items(final User user) {
+    return entryRepository.findFeedItems(user, Security.PUBLIC, PageRequest.of(0, FEED_SIZE));
+  }
+
+  /** Keep the item fingerprints of a version so later polls can get a delta from it. */
+  private void remember(final int userId, final long version, final List<EntryFeedItem> items) {
+    final NavigableMap<Long, Map<Integer, Integer>> versions;
+    try {
+      versions = history.get(userId, TreeMap::new);
+    } catch (final ExecutionException e) {
+      throw new IllegalStateException(e);
+    }
+
+    final Map<Integer, Integer> fingerprints = fingerprints(items);
+    synchronized (versions) {
+      versions.put(version, fingerprints);
+      while (versions.size() > DELTA_HISTORY) {
+        versions.pollFirstEntry();
+      }
+    }
+  }
+
+  private static Map<Integer, Integer> fingerprints(final List<EntryFeedItem> items) {
+    final Map<Integer, Integer> fingerprints = new HashMap<>();
+    for (final EntryFeedItem item : items) {
+      fingerprints.put(item.id(), fingerprint(item));
+    }
+    return fingerprints;
+  }
+
+  /** Changes when anything shown for the item does. */
+  private static int fingerprint(final EntryFeedItem item) {
+    return Objects.hash(item.subject(), item.body(), item.format(), item.date());
+  }
+
+  private static Journal firstJournal(final User user) {
+    return user.getJournals().stream().findFirst().orElse(null);
+  }
+
+  /**
+   * RSS feed of public entries.
+   *
+   * @param user blog owner
+   * @param items entries to include
+   * @return RSS document
+   */
+  private byte[] rss(final User user, final List<EntryFeedItem> items) {
+    final GregorianCalendar calendar = new GregorianCalendar();
+    calendar.setTime(new Date());
+
+    final String blogbase = settings.getBlogBaseUrl(user.getUsername());
+    return rssWriter.toBytes(
+        new RssChannel(
+            user.getUsername(),
+            blogbase,
+            blogbase + "/rss",
+            hub(),
+            "Just Journal for " + user.getUsername(),
+            "en-us",
+            "Copyright " + calendar.get(Calendar.YEAR) + ' ' + user.getFirstName(),
+            settings.getWebmaster(),
+            // RSS advisory board format
+            user.getUserContact().getEmail() + " (" + user.getFirstName() + ")",
+            rssWriter.items(items)));
+  }
+
+  private byte[] atom(final User user, final Journal journal, final List<EntryFeedItem> items) {
+    return atomWriter.toBytes(
+        new AtomFeed(
+            user.getUsername(),
+            journal.getName(),
+            user.getFirstName(),
+            settings.getBlogBaseUrl(user.getUsername()),
+            "/users/" + user.getUsername() + "/atom",
+            hub(),
+            atomWriter.entries(items)));
+  }
+
+  private byte[] json(final User user, final Journal journal) throws ServiceException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeJsonFeed(user, journal, null, 0, null, out);
+    return out.toByteArray();
+  }
+
+  /**
+   * Stream a JSON feed of public entries, a page at a time. The next page link is only written
+   * when there are older entries to read.
+   *
+   * @param user blog owner
+   * @param journal journal shown
+   * @param position cursor from a previous page or null
+   * @param pageId legacy page number, used when there is no cursor
+   * @param since only entries posted or edited after this time, or null for all
+   * @param out destination, left open
+   * @throws ServiceException if the entries can't be read or written
+   */
+  public void writeJsonFeed(
+      final User user,
+      final Journal journal,
+      final EntryCursor position,
+      final int pageId,
+      final Date since,
+      final OutputStream out)
+      throws ServiceException {
+    List<Entry> entries;
+    EntryCursor next;
+    if (since != null) {
+      // posted or edited since the reader's last poll, newest first
+      final Slice<Entry> changed =
+          position != null
+              ? entryRepository.findChangedSinceOlderThan(
+                  user,
+                  Security.PUBLIC,
+                  since,
+                  position.getDate(),
+                  position.getId(),
+                  PageRequest.of(0, FEED_SIZE))
+              : entryRepository.findChangedSince(
+                  user, Security.PUBLIC, since, PageRequest.of(pageId, FEED_SIZE));
+      entries = changed.getContent();
+      next =
+          changed.hasNext()
+              ? EntryCursor.of(entries.get(entries.size() - 1), EntryCursor.Direction.OLDER)
+              : null;
+    } else if (position != null || pageId == 0) {
+      final EntryWindow window =
+          entryService.getEntryWindow(user, Security.PUBLIC, null, position, FEED_SIZE);
+      entries = window.getContent();
+      next = window.getNext();
+    } else {
+      final Page<Entry> page =
+          entryRepository.findByUserAndSecurityOrderByDateDesc(
+              user, Security.PUBLIC, PageRequest.of(pageId, FEED_SIZE));
+      entries = page.getContent();
+      next =
+          page.hasNext()
+              ? EntryCursor.of(entries.get(entries.size() - 1), EntryCursor.Direction.OLDER)
+              : null;
+    }
+
+    entries = entryRepository.fetchTags(entries);
+
+    String avatar = null;
+    if (avatarService.isAvatarAvailable(user)) {
+      avatar = settings.getBaseUri() + "Avatar/" + user.getId();
+    }
+    final String blogbase = settings.getBlogBaseUrl(user.getUsername());
+    String nextUrl = null;
+    if (next != null) {
+      nextUrl = blogbase + "/json?cursor=" + next.encode();
+      if (since != null) nextUrl += "&since=" + DateConvert.encode3339(since);
+    }
+    final Feed feed =
+        Feed.builder()
+            .title(journal.getName())
+            .home_page_url(blogbase)
+            .feed_url(blogbase + "/json")
+            .icon(avatar)
+            .authors(List.of(Author.builder().name(user.getFirstName()).avatar(avatar).build()))
+            .next_url(nextUrl)
+            .hubs(List.of(Hub.builder().type("WebSub").url(hub()).build()))
+            .build();
+
+    try (JsonGenerator generator = objectMapper.createGenerator(out, JsonEncoding.UTF8)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      JsonFeedWriter.write(
+          generator,
+          feed,
+          entries.stream()
+              .map(
+                  entry ->
+                      Item.builder()
+                          .id(Integer.toString(entry.getId()))
+                          .url(blogbase + "/entry/" + entry.getId())
+                          .title(entry.getSubject())
+                          .content_text(bodyRenderService.text(entry))
+                          .content_html(feedHtml(entry))
+                          .date_published(DateConvert.encode3339(entry.getDate()))
+                          .date_modified(DateConvert.encode3339(entry.getModified()))
+                          .tags(entry.getTags().stream().map(t -> t.getTag().getName()).toList())
+                          .build())
+              .iterator());
+    } catch (final IOException e) {
+      throw new ServiceException("Unable to write JSON feed for " + user.getUsername(), e);
+    }
+  }
+
+  /** WebSub hub that feed subscribers are pushed updates from. */
+  private String hub() {
+    return settings.getBaseUri() + Constants.PATH_HUB;
+  }
+
+  private String feedHtml(final Entry entry) {
+    return switch (entry.getFormat()) {
+      case MARKDOWN -> bodyRenderService.html(entry);
+      case TEXT -> entry.getBody().replaceAll("\\n", "<br/>");
+      default -> entry.getBody();
+    };
+  }
+
+  private static String sharedKey(final FeedKey key) {
+    return SHARED_KEY + key.userId() + ':' + key.type().name().toLowerCase();
+  }
+
+  private FeedDocument readShared(final FeedKey key) {
+    if (!shared) return null;
+
+    try {
+      final String value =
+          reactiveRedisTemplateString.opsForValue().get(sharedKey(key)).block(SHARED_TIMEOUT);
+      if (value == null) return null;
+
+      final int split = value.indexOf('\n');
+      return new FeedDocument(
+          Long.parseLong(value.substring(0, split)),
+          EncodedPayload.of(value.substring(split + 1), key.type().getCharset()));
+    } catch (final Exception e) {
+      log.warn("Unable to read shared feed {}", sharedKey(key), e);
+      return null;
+    }
+  }
+
+  private void writeShared(final FeedKey key, final long version, final byte[] body) {
+    if (!shared) return;
+
+    reactiveRedisTemplateString
+        .opsForValue()
+        .set(
+            sharedKey(key),
+            Long.toString(version) + '\n' + new String(body, key.type().getCharset()),
+            Duration.ofHours(DOCUMENT_CACHE_HOURS))
+        .subscribe(
+            ok -> {}, e -> log.warn("Unable to write shared feed {}", sharedKey(key), e));
+  }
+
+  private void evict(final FeedKey key) {
+    documents.invalidate(key);
+    if (shared) {
+      reactiveRedisTemplateString
+          .opsForValue()
+          .delete(sharedKey(key))
+          .subscribe(ok -> {}, e -> log.warn("Unable to drop shared feed {}", sharedKey(key), e));
+    }
+  }
+
+  long size() {
+    return documents.size();
+  }
+}
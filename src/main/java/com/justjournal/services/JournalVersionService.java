@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.justjournal.model.User;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tracks a version number per journal that changes whenever something shown in its feeds does.
+ * Feeds use it for ETag and Last-Modified validators so polling clients get a 304 without the
+ * feed being built.
+ *
+ * <p>Versions are cached by username and the cached copy is dropped once the change commits.
+ *
+ * @author Lucas Holt
+ */
+@Slf4j
+@Service
+public class JournalVersionService {
+  private static final int MAX_VERSIONS = 10000;
+  private static final int VERSION_CACHE_MINUTES = 1;
+
+  private static final String SELECT =
+      "SELECT u.id, v.version, v.modified FROM user u LEFT JOIN journal_version v ON v.uid = u.id"
+          + " WHERE u.username = ?";
+
+  private static final String BUMP =
+      "INSERT INTO journal_version (uid, version, modified) VALUES (?, 1, ?)"
+          + " ON DUPLICATE KEY UPDATE version = version + 1, modified = VALUES(modified)";
+
+  /**
+   * Journal version.
+   *
+   * @param userId blog owner
+   * @param version change counter, 0 if the journal never changed
+   * @param modified last change, null if unknown
+   */
+  public record Version(int userId, long version, Date modified) {}
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final ApplicationEventPublisher eventPublisher;
+
+  private final Cache<String, Version> versions =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_VERSIONS)
+          .expireAfterWrite(VERSION_CACHE_MINUTES, TimeUnit.MINUTES)
+          .build();
+
+  public JournalVersionService(
+      final JdbcTemplate jdbcTemplate, final ApplicationEventPublisher eventPublisher) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.eventPublisher = eventPublisher;
+  }
+
+  /**
+   * @param username blog owner
+   * @return current version or null if there is no such user
+   */
+  public Version getVersion(final String username) {
+    if (username == null || username.isEmpty()) return null;
+
+    final Version cached = versions.getIfPresent(username);
+    if (cached != null) return cached;
+
+    final List<Version> rows =
+        jdbcTemplate.query(
+            SELECT,
+            (rs, rowNum) -> {
+              final Timestamp modified = rs.getTimestamp(3);
+              return new Version(
+                  rs.getInt(1), rs.getLong(2), modified == null ? null : new Date(modified.getTime()));
+            },
+            username);
+    if (rows.isEmpty()) return null;
+
+    final Version version = rows.get(0);
+    versions.put(username, version);
+    return version;
+  }
+
+  /**
+   * Record a change to a journal.
+   *
+   * @param user blog owner
+   */
+  public void changed(final User user) {
+    if (user != null) changed(user.getId());
+  }
+
+  /**
+   * Record a change to a journal. A {@link JournalChangedEvent} follows once the change commits.
+   *
+   * @param userId blog owner
+   */
+  public void changed(final int userId) {
+    if (userId < 1) return;
+
+    // HTTP dates have second precision
+    final long now = System.currentTimeMillis() / 1000 * 1000;
+    jdbcTemplate.update(BUMP, userId, new Timestamp(now));
+    evict(userId);
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              evict(userId);
+            }
+          });
+    }
+    eventPublisher.publishEvent(new JournalChangedEvent(userId));
+  }
+
+  private void evict(final int userId) {
+    versions.asMap().values().removeIf(v -> v.userId() == userId);
+    log.trace("Journal version changed for {}", userId);
+  }
+}
@@ -26,7 +26,11 @@
 package com.justjournal.services;
 
 
-import java.util.Arrays;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.commonmark.Extension;
@@ -41,31 +45,91 @@ import org.springframework.stereotype.Service;
 /**
  * Create a simple service to generate HTML from markdown code.
  *
+ * <p>The parser and renderers are built once; commonmark documents them as immutable and safe to
+ * share between threads. Each document is parsed once for both its HTML and text output, and
+ * recent results are kept in a bounded LRU keyed by a hash of the markdown.
+ *
  * @author Lucas Holt
  */
 @Slf4j
 @Service
 public class MarkdownService {
 
+  /**
+   * Version of the markdown output. Bump it when the extensions or renderer options change so
+   * stored bodies are rendered again.
+   */
+  public static final int RENDERER_VERSION = 1;
+
+  /** Characters of HTML and text kept in the render cache, roughly 16MB. */
+  public static final long DEFAULT_CACHE_CHARS = 8L * 1024 * 1024;
+
   // extensions we want https://github.com/atlassian/commonmark-java
+  private static final List<Extension> EXTENSIONS =
+      List.of(TablesExtension.create(), AutolinkExtension.create());
+
+  private final Parser parser = Parser.builder().extensions(EXTENSIONS).build();
+
+  private final HtmlRenderer htmlRenderer = HtmlRenderer.builder().extensions(EXTENSIONS).build();
+
+  private final TextContentRenderer textRenderer =
+      TextContentRenderer.builder().extensions(EXTENSIONS).build();
+
+  private final Cache<HashCode, Rendered> rendered;
+
+  /** HTML and plain text output of a single parse. */
+  public record Rendered(String html, String text) {}
+
+  public MarkdownService() {
+    this(DEFAULT_CACHE_CHARS);
+  }
+
+  /** @param cacheChars characters of output to cache, 0 disables the cache */
+  public MarkdownService(final long cacheChars) {
+    this.rendered =
+        CacheBuilder.newBuilder()
+            .maximumWeight(cacheChars)
+            .weigher((HashCode key, Rendered value) -> value.html().length() + value.text().length())
+            .build();
+  }
+
+  /**
+   * Render markdown to HTML and text from one parse, using the cache when the same markdown was
+   * rendered recently.
+   *
+   * @param markdown markdown source
+   * @return html and text output
+   */
+  public Rendered render(final String markdown) {
+    final HashCode key = Hashing.sha256().hashString(markdown, StandardCharsets.UTF_8);
+    final Rendered cached = rendered.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+
+    final Node document = parse(markdown);
+    final Rendered result = new Rendered(htmlRenderer.render(document), textRenderer.render(document));
+    rendered.put(key, result);
+    return result;
+  }
 
   public String convertToHtml(final String markdown) {
-    final HtmlRenderer renderer = HtmlRenderer.builder().extensions(extensions()).build();
-    return renderer.render(parse(markdown));
+    return render(markdown).html();
   }
 
   public String convertToText(final String markdown) {
-    final TextContentRenderer renderer =
-        TextContentRenderer.builder().extensions(extensions()).build();
-    return renderer.render(parse(markdown));
+    return render(markdown).text();
   }
 
   public Node parse(final String markdown) {
-    final Parser parser = Parser.builder().extensions(extensions()).build();
     return parser.parse(markdown);
   }
 
   public List<Extension> extensions() {
-    return Arrays.asList(TablesExtension.create(), AutolinkExtension.create());
+    return EXTENSIONS;
+  }
+
+  long cacheSize() {
+    return rendered.size();
   }
 }
@@ -44,11 +44,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.IllegalFormatException;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
 
 /**
@@ -82,6 +83,8 @@ public class MetaWeblog extends BaseXmlRpcService {
 
   @Autowired private EntryService entryService;
 
+  @Autowired private BodyRenderService bodyRenderService;
+
 
 
   /**
@@ -416,50 +419,54 @@ public class MetaWeblog extends BaseXmlRpcService {
    */
   public Cloneable getRecentPosts(
       String blogid, String username, String password, int numberOfPosts) {
-    final ArrayList<HashMap<Object, Serializable>> arr = new ArrayList<>(numberOfPosts);
-    final Collection<Entry> total;
+    final ArrayList<HashMap<Object, Serializable>> arr = new ArrayList<>(Math.max(numberOfPosts, 0));
     final int userId = webLogin.validate(username, password);
     if (userId < 1) {
       return error(ERROR_USER_AUTH + username);
     }
 
-    total = entryRepository.findByUsername(username);
+    if (numberOfPosts < 1) {
+      return arr;
+    }
+
+    final List<EntryFeedItem> total =
+        entryRepository.findFeedItemsByUsername(username, PageRequest.of(0, numberOfPosts));
 
-    Iterator<Entry> it = total.iterator();
+    final Map<Integer, List<String>> categories = new HashMap<>();
+    if (!total.isEmpty()) {
+      for (final Object[] row :
+          entryTagsRepository.findTagNamesByEntryIds(total.stream().map(EntryFeedItem::id).toList())) {
+        categories.computeIfAbsent((Integer) row[0], k -> new ArrayList<>()).add((String) row[1]);
+      }
+    }
 
-    for (int i = 0; i < numberOfPosts; i++)
-      if (it.hasNext()) {
+    for (final EntryFeedItem e : total) {
         HashMap<Object, Serializable> entry = new HashMap<>();
-        Entry e = it.next();
-        String body = entryService.convertBody(e.getFormat(), e.getBody());
+        String body = bodyRenderService.text(e);
 
         entry.put(
             "link",
-                settings.getBlogBaseUrl(e.getUser().getUsername()) + "/entry/" + e.getId());
+                settings.getBlogBaseUrl(e.username()) + "/entry/" + e.id());
         entry.put(
             "permaLink",
-                settings.getBlogBaseUrl(e.getUser().getUsername())+ "/entry/" + e.getId());
-        entry.put("userid", Integer.toString(e.getUser().getId()));
+                settings.getBlogBaseUrl(e.username())+ "/entry/" + e.id());
+        entry.put("userid", Integer.toString(e.userId()));
         entry.put("mt_allow_pings", 0); /* TODO: on or off? */
         entry.put("mt_allow_comments", 1); /* TODO: on or off? */
 
         entry.put("description", body);
         entry.put("content", body);
         entry.put("mt_convert_breaks", 0); /* TODO: research what these are... */
-        entry.put("postid", Integer.toString(e.getId()));
+        entry.put("postid", Integer.toString(e.id()));
         entry.put("mt_excerpt", body);
         entry.put("mt_keywords", "");
-        entry.put("title", e.getSubject());
+        entry.put("title", e.subject());
         entry.put("mt_text_more", "");
-        entry.put("dateCreated", DateConvert.encode8601(e.getDate()));
-        Collection<String> list = new ArrayList<>();
-        for (EntryTag tag : e.getTags()) {
-          list.add(tag.getTag().getName());
-        }
-        String[] str = list.toArray(new String[list.size()]);
+        entry.put("dateCreated", DateConvert.encode8601(e.date()));
+        String[] str = categories.getOrDefault(e.id(), List.of()).toArray(new String[0]);
         entry.put("categories", str); // according to microsoft it's a string array
         arr.add(entry);
-      }
+    }
 
     return arr;
   }
@@ -483,7 +490,7 @@ public class MetaWeblog extends BaseXmlRpcService {
       return error(ERROR_USER_AUTH + username);
     }
 
-    e = entryRepository.findById(Integer.parseInt(postid)).orElse(null);
+    e = entryRepository.findWithTagsById(Integer.parseInt(postid)).orElse(null);
 
     if (e == null) {
       log.debug( "Entry id invalid {}", postid);
@@ -495,7 +502,7 @@ public class MetaWeblog extends BaseXmlRpcService {
       return error(ERROR_USER_AUTH + username);
     }
 
-    String body = entryService.convertBody(e.getFormat(), e.getBody());
+    String body = bodyRenderService.text(e);
 
     entry.put(
         "link",
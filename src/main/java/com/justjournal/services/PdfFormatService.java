@@ -42,8 +42,8 @@ import org.springframework.stereotype.Service;
 @Service
 public class PdfFormatService extends AbstractFormatService {
 
-  public PdfFormatService(EntryRepository entryRepository, MarkdownService markdownService) {
-    super(entryRepository, markdownService);
+  public PdfFormatService(EntryRepository entryRepository, BodyRenderService bodyRenderService) {
+    super(entryRepository, bodyRenderService);
   }
 
   public void write(final UserContext userContext, final OutputStream outputStream)
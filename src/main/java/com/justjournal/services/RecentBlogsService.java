@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.justjournal.core.Settings;
+import com.justjournal.model.EntryFeedItem;
+import com.justjournal.model.Security;
+import com.justjournal.repository.EntryRepository;
+import com.justjournal.repository.cache.RecentBlogsRepository;
+import com.justjournal.rss.RssChannel;
+import com.justjournal.rss.RssWriter;
+import com.justjournal.utility.EncodedPayload;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TimeZone;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Site wide feed of new posts, one per author. The latest public entry of each recent author is
+ * kept in a bounded buffer in redis, shared by all nodes and updated as journals change. Each node
+ * keeps the feed it last rendered along with the buffer version it came from, and renders it again
+ * only when the version has moved, so serving the feed costs one redis read and no queries.
+ *
+ * @author Lucas Holt
+ */
+@Slf4j
+@Service
+public class RecentBlogsService {
+  static final int FEED_SIZE = 15;
+
+  /** Authors kept beyond the feed size so deleted posts can be replaced without a query. */
+  static final int CAPACITY = 60;
+
+  /** Entries scanned to find {@link #CAPACITY} distinct authors when the buffer is empty. */
+  private static final int SEED_ENTRIES = 500;
+
+  private static final Duration REDIS_TIMEOUT = Duration.ofSeconds(5);
+
+  /**
+   * Encoded feed.
+   *
+   * @param payload rss document
+   * @param newest date of the newest entry, null if there are none
+   */
+  public record RecentBlogs(EncodedPayload payload, Date newest) {}
+
+  /** Feed rendered from a version of the buffer. */
+  private record Rendered(long version, RecentBlogs blogs) {}
+
+  private final EntryRepository entryRepository;
+
+  private final RecentBlogsRepository recentBlogsRepository;
+
+  private final RssWriter rssWriter;
+
+  private final Settings settings;
+
+  private final ObjectMapper objectMapper;
+
+  private volatile Rendered rendered;
+
+  public RecentBlogsService(
+      final EntryRepository entryRepository,
+      final RecentBlogsRepository recentBlogsRepository,
+      final RssWriter rssWriter,
+      final Settings settings,
+      final ObjectMapper objectMapper) {
+    this.entryRepository = entryRepository;
+    this.recentBlogsRepository = recentBlogsRepository;
+    this.rssWriter = rssWriter;
+    this.settings = settings;
+    this.objectMapper = objectMapper;
+  }
+
+  /** @return the current feed */
+  public RecentBlogs getFeed() {
+    final Rendered current = rendered;
+    final long version;
+    try {
+      version = recentBlogsRepository.getVersion().blockOptional(REDIS_TIMEOUT).orElse(0L);
+    } catch (final RuntimeException e) {
+      log.warn("Unable to read recent blogs version", e);
+      return current != null ? current.blogs() : render(latestByAuthor());
+    }
+    if (current != null && current.version() == version) return current.blogs();
+
+    synchronized (this) {
+      if (rendered == null || rendered.version() != version) {
+        rendered = new Rendered(version, render(load()));
+      }
+      return rendered.blogs();
+    }
+  }
+
+  /**
+   * Replace the author's slot with their latest public entry once the change commits.
+   *
+   * @param event changed journal
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+  public void journalChanged(final JournalChangedEvent event) {
+    final List<EntryFeedItem> latest =
+        entryRepository.findFeedItemsByUserId(
+            event.userId(), Security.PUBLIC, PageRequest.of(0, 1));
+    final EntryFeedItem item = latest.isEmpty() ? null : latest.get(0);
+
+    try {
+      final EntryFeedItem current =
+          parse(recentBlogsRepository.get(event.userId()).block(REDIS_TIMEOUT));
+      if (Objects.equals(item, current)) return;
+
+      if (item == null) {
+        recentBlogsRepository.remove(event.userId()).block(REDIS_TIMEOUT);
+      } else {
+        put(item);
+        recentBlogsRepository.trim(CAPACITY).block(REDIS_TIMEOUT);
+      }
+      changed();
+    } catch (final RuntimeException e) {
+      log.error("Unable to update recent blogs for user {}", event.userId(), e);
+    }
+  }
+
+  /**
+   * Drop a deleted account from the feed.
+   *
+   * @param userId deleted user
+   */
+  public void authorDeleted(final int userId) {
+    try {
+      recentBlogsRepository.remove(userId).block(REDIS_TIMEOUT);
+      changed();
+    } catch (final RuntimeException e) {
+      log.error("Unable to remove user {} from recent blogs", userId, e);
+    }
+  }
+
+  /** Read the newest items in the buffer, seeding it from the database when empty. */
+  private List<EntryFeedItem> load() {
+    final List<EntryFeedItem> items = newest();
+    if (!items.isEmpty()) return items;
+
+    for (final EntryFeedItem item : latestByAuthor()) put(item);
+    return newest();
+  }
+
+  /** Refill the buffer after a removal leaves it short of a full feed, then bump the version. */
+  private void changed() {
+    final Long size = recentBlogsRepository.size().block(REDIS_TIMEOUT);
+    if (size != null && size < FEED_SIZE) {
+      for (final EntryFeedItem item : latestByAuthor()) put(item);
+    }
+    recentBlogsRepository.changed().block(REDIS_TIMEOUT);
+  }
+
+  private List<EntryFeedItem> newest() {
+    final List<EntryFeedItem> items = new ArrayList<>();
+    for (final String saved :
+        recentBlogsRepository.getNewest(FEED_SIZE).blockOptional(REDIS_TIMEOUT).orElse(List.of())) {
+      final EntryFeedItem item = parse(saved);
+      if (item != null) items.add(item);
+    }
+    return items;
+  }
+
+  /** @return the latest public entry of up to {@link #CAPACITY} recent authors, newest first */
+  private List<EntryFeedItem> latestByAuthor() {
+    final Map<Integer, EntryFeedItem> byAuthor = new LinkedHashMap<>();
+    for (final EntryFeedItem item :
+        entryRepository.findFeedItems(Security.PUBLIC, PageRequest.of(0, SEED_ENTRIES))) {
+      byAuthor.putIfAbsent(item.userId(), item);
+      if (byAuthor.size() == CAPACITY) break;
+    }
+    return new ArrayList<>(byAuthor.values());
+  }
+
+  private void put(final EntryFeedItem item) {
+    try {
+      recentBlogsRepository
+          .put(item.userId(), item.date(), objectMapper.writeValueAsString(item))
+          .block(REDIS_TIMEOUT);
+    } catch (final JsonProcessingException e) {
+      log.error("Unable to save recent blog entry {}", item.id(), e);
+    }
+  }
+
+  private EntryFeedItem parse(final String saved) {
+    if (saved == null) return null;
+    try {
+      return objectMapper.readValue(saved, EntryFeedItem.class);
+    } catch (final JsonProcessingException e) {
+      log.warn("Unable to read recent blog entry", e);
+      return null;
+    }
+  }
+
+  private RecentBlogs render(final List<EntryFeedItem> items) {
+    final List<EntryFeedItem> feedItems = items.subList(0, Math.min(FEED_SIZE, items.size()));
+    return new RecentBlogs(
+        EncodedPayload.of(toXml(feedItems)), items.isEmpty() ? null : items.get(0).date());
+  }
+
+  private byte[] toXml(final List<EntryFeedItem> items) {
+    final GregorianCalendar gregorianCalendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+    gregorianCalendar.setTime(new Date());
+
+    final String editor = settings.getSiteAdminEmail() + " (" + settings.getSiteAdmin() + ")";
+    return rssWriter.toBytes(
+        new RssChannel(
+            "JJ New Posts",
+            settings.getBaseUri(),
+            settings.getBaseUri() + "RecentBlogs",
+            null,
+            "New blog posts on Just Journal",
+            "en-us",
+            "Copyright "
+                + gregorianCalendar.get(Calendar.YEAR)
+                + " JustJournal.com and its blog account owners.",
+            editor,
+            editor,
+            rssWriter.items(items)));
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.justjournal.model.Security;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Transactional outbox for the search index. Entry and tag writes add a row in the same
+ * transaction as the change, and {@link #relay()} sends the changed entries to the index in
+ * batches.
+ *
+ * <p>Rows are removed only after the index accepts them, so delivery is at least once. Sending an
+ * entry twice is harmless because the index is rewritten from the entry's current state: public
+ * entries are upserted and anything else is deleted.
+ *
+ * <p>Each batch is claimed with {@code FOR UPDATE SKIP LOCKED} and deleted in the same
+ * transaction, so when several nodes run the relay each change is sent by one of them.
+ *
+ * @author Lucas Holt
+ */
+@Slf4j
+@Service
+public class SearchOutboxService {
+  static final int BATCH_SIZE = 500;
+
+  /** Batches relayed per run so one run can't hold the scheduler for long. */
+  private static final int MAX_BATCHES = 20;
+
+  static final String INSERT = "INSERT INTO search_outbox (entry_id, created) VALUES (?, ?)";
+
+  static final String BACKFILL =
+      "INSERT INTO search_outbox (entry_id, created) SELECT id, ? FROM entry WHERE security = ?";
+
+  static final String NEXT =
+      "SELECT id, entry_id, created FROM search_outbox ORDER BY id LIMIT ?"
+          + " FOR UPDATE SKIP LOCKED";
+
+  private static final String DELETE = "DELETE FROM search_outbox WHERE id IN (";
+
+  /**
+   * Outbox row.
+   *
+   * @param id row id, in insert order
+   * @param entryId changed entry
+   * @param created when it changed
+   */
+  record Change(long id, int entryId, Date created) {}
+
+  private static final RowMapper<Change> CHANGE =
+      (rs, rowNum) ->
+          new Change(
+              rs.getLong(1), rs.getInt(2), new Date(rs.getTimestamp(3).getTime()));
+
+  private final JdbcTemplate jdbcTemplate;
+  private final BlogSearchService blogSearchService;
+  private final TransactionTemplate transactionTemplate;
+
+  /** Age of the oldest change still waiting when the last batch was read. */
+  private final AtomicLong lagMillis = new AtomicLong();
+
+  private final Counter relayed;
+  private final Counter failures;
+
+  public SearchOutboxService(
+      final JdbcTemplate jdbcTemplate,
+      final BlogSearchService blogSearchService,
+      final PlatformTransactionManager transactionManager,
+      final MeterRegistry meterRegistry) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.blogSearchService = blogSearchService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+    Gauge.builder("search.outbox.lag", lagMillis, lag -> lag.get() / 1000.0)
+        .description("Age of the oldest entry change waiting for the search index")
+        .baseUnit("seconds")
+        .register(meterRegistry);
+    relayed =
+        Counter.builder("search.outbox.relayed")
+            .description("Entry changes sent to the search index")
+            .register(meterRegistry);
+    failures =
+        Counter.builder("search.outbox.failures")
+            .description("Outbox batches the search index did not accept")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Record that an entry or its tags changed. Call inside the transaction making the change.
+   *
+   * @param entryId changed entry
+   */
+  public void changed(final int entryId) {
+    if (entryId < 1) return;
+    jdbcTemplate.update(INSERT, entryId, new Timestamp(System.currentTimeMillis()));
+  }
+
+  /**
+   * Record changes made without entity callbacks, such as bulk deletes. Call after the change so
+   * the relay can't send the entries' old state.
+   *
+   * @param entryIds changed entries
+   */
+  public void changed(final Collection<Integer> entryIds) {
+    final Timestamp now = new Timestamp(System.currentTimeMillis());
+    jdbcTemplate.batchUpdate(
+        INSERT, entryIds.stream().map(id -> new Object[] {id, now}).toList());
+  }
+
+  /**
+   * Queue every public entry, to fill an empty index through the relay.
+   *
+   * @return entries queued
+   */
+  public int backfill() {
+    return jdbcTemplate.update(
+        BACKFILL, new Timestamp(System.currentTimeMillis()), Security.PUBLIC.ordinal());
+  }
+
+  /**
+   * Send waiting changes to the search index, oldest first. Stops at the first batch the index
+   * rejects; that batch stays in the outbox for the next run.
+   *
+   * @return changes relayed
+   */
+  public int relay() {
+    int total = 0;
+    for (int i = 0; i < MAX_BATCHES; i++) {
+      final Integer sent;
+      try {
+        sent = transactionTemplate.execute(status -> relayBatch());
+      } catch (final Exception e) {
+        failures.increment();
+        log.warn("Search index rejected outbox changes, will retry", e);
+        break;
+      }
+      relayed.increment(sent);
+      total += sent;
+
+      if (sent < BATCH_SIZE) {
+        lagMillis.set(0);
+        break;
+      }
+    }
+    return total;
+  }
+
+  /** Claim, send and remove one batch. An exception rolls back and releases the claimed rows. */
+  private int relayBatch() {
+    final List<Change> batch = jdbcTemplate.query(NEXT, CHANGE, BATCH_SIZE);
+    if (batch.isEmpty()) return 0;
+    lagMillis.set(Math.max(0, System.currentTimeMillis() - batch.get(0).created().getTime()));
+
+    final Set<Integer> entries =
+        batch.stream().map(Change::entryId).collect(Collectors.toCollection(LinkedHashSet::new));
+    blogSearchService.indexEntries(entries);
+
+    final List<Long> ids = batch.stream().map(Change::id).toList();
+    jdbcTemplate.update(
+        DELETE + String.join(",", Collections.nCopies(ids.size(), "?")) + ")", ids.toArray());
+    return batch.size();
+  }
+
+  long getLagMillis() {
+    return lagMillis.get();
+  }
+}
@@ -0,0 +1,566 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import static com.justjournal.model.Security.PUBLIC;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.justjournal.model.Entry;
+import com.justjournal.model.EntryIdRange;
+import com.justjournal.model.EntryWatermark;
+import com.justjournal.model.search.BlogEntry;
+import com.justjournal.model.search.SearchWatermark;
+import com.justjournal.repository.EntryRepository;
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActionParameters;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Rebuilds the search index from the database into a new index while searches keep using the old
+ * one.
+ *
+ * <p>Public entries are split into id ranges that workers index in parallel, reading each range
+ * a page at a time in id order and sending each page in a bulk request. Pages are keyed on the last
+ * id read, so each read is a short indexed query and no connection is held while the index is
+ * written. Each range records the last id sent, so a rebuild
+ * that is stopped picks up where it left off the next time it runs. When every range is done the
+ * index alias is moved to the new index and the old one is dropped in a single request.
+ *
+ * <p>Only one node rebuilds or catches up at a time: it holds a lease row in the database, renewed
+ * as it goes, and a node that stops leaves the lease to expire so another can resume. Workers claim
+ * ranges with {@code SKIP LOCKED} and checkpoint only ranges they still hold, so a range is never
+ * sent by two workers at once. Outbox relaying on every node waits while the lease is held or
+ * ranges are left, so changes reach the new index once the alias moves.
+ *
+ * <p>A watermark document records the highest entry id and latest modification the index holds,
+ * so a restart only indexes entries added or changed since instead of rebuilding.
+ *
+ * @author Lucas Holt
+ */
+@Slf4j
+@Service
+@Profile("!test")
+@ConditionalOnProperty(name = "spring.elasticsearch.enabled", havingValue = "true")
+public class SearchReindexService {
+  /** Entry ids per range. */
+  static final int PARTITION_SIZE = 10_000;
+
+  /** Entries per bulk request. */
+  static final int BATCH_SIZE = 250;
+
+  private static final int WORKERS = 4;
+
+  private static final Pageable PAGE = PageRequest.of(0, BATCH_SIZE);
+
+  /** Seconds the lease and a range claim last without being renewed. */
+  static final int LEASE_SECONDS = 120;
+
+  static final String CLAIM_LEASE =
+      "UPDATE search_reindex_lease SET owner = ?, expires = NOW() + INTERVAL ? SECOND"
+          + " WHERE id = 1 AND (owner IS NULL OR expires < NOW())";
+
+  static final String RENEW_LEASE =
+      "UPDATE search_reindex_lease SET expires = NOW() + INTERVAL ? SECOND"
+          + " WHERE id = 1 AND owner = ?";
+
+  static final String RELEASE_LEASE =
+      "UPDATE search_reindex_lease SET owner = NULL, expires = NULL WHERE id = 1 AND owner = ?";
+
+  static final String RUNNING =
+      "SELECT COUNT(*) FROM search_reindex_lease WHERE expires > NOW()"
+          + " OR EXISTS (SELECT 1 FROM search_reindex)";
+
+  static final String PARTITIONS =
+      "SELECT id, index_name, first_id, last_id, checkpoint, completed FROM search_reindex"
+          + " ORDER BY first_id";
+
+  static final String INSERT =
+      "INSERT INTO search_reindex (index_name, first_id, last_id, checkpoint, completed)"
+          + " VALUES (?, ?, ?, ?, 0)";
+
+  static final String NEXT =
+      "SELECT id, index_name, first_id, last_id, checkpoint, completed FROM search_reindex"
+          + " WHERE completed = 0 AND (owner IS NULL OR claimed_until < NOW())"
+          + " ORDER BY first_id LIMIT 1 FOR UPDATE SKIP LOCKED";
+
+  static final String CLAIM =
+      "UPDATE search_reindex SET owner = ?, claimed_until = NOW() + INTERVAL ? SECOND"
+          + " WHERE id = ?";
+
+  static final String CHECKPOINT =
+      "UPDATE search_reindex SET checkpoint = ?, completed = ?,"
+          + " claimed_until = NOW() + INTERVAL ? SECOND WHERE id = ? AND owner = ?";
+
+  static final String RELEASE =
+      "UPDATE search_reindex SET owner = NULL, claimed_until = NULL WHERE id = ? AND owner = ?";
+
+  static final String REMAINING = "SELECT COUNT(*) FROM search_reindex WHERE completed = 0";
+
+  static final String CLEAR = "DELETE FROM search_reindex";
+
+  /**
+   * An id range of a rebuild.
+   *
+   * @param id row id
+   * @param index index being built
+   * @param first first entry id
+   * @param last last entry id
+   * @param checkpoint last entry id sent to the index
+   * @param completed range is done
+   */
+  record Partition(int id, String index, int first, int last, int checkpoint, boolean completed) {}
+
+  static final RowMapper<Partition> PARTITION =
+      (rs, rowNum) ->
+          new Partition(
+              rs.getInt(1),
+              rs.getString(2),
+              rs.getInt(3),
+              rs.getInt(4),
+              rs.getInt(5),
+              rs.getBoolean(6));
+
+  private final JdbcTemplate jdbcTemplate;
+  private final EntryRepository entryRepository;
+  private final BlogSearchService blogSearchService;
+  private final SearchResultCache searchResultCache;
+  private final ElasticsearchOperations elasticsearchOperations;
+  private final EntityManager entityManager;
+  private final String blogEntryIndex;
+  private final ExecutorService executor;
+
+  /** This node in the lease and range claims. */
+  private final String owner;
+
+  /** Read only transaction each page is read in. */
+  private final TransactionTemplate readOnly;
+
+  /** Claims and checkpoints commit on their own, outside the read only transaction. */
+  private final TransactionTemplate checkpointTransaction;
+
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  @Autowired
+  public SearchReindexService(
+      final JdbcTemplate jdbcTemplate,
+      final EntryRepository entryRepository,
+      final BlogSearchService blogSearchService,
+      final SearchResultCache searchResultCache,
+      final ElasticsearchOperations elasticsearchOperations,
+      final EntityManager entityManager,
+      final PlatformTransactionManager transactionManager,
+      @Qualifier("blogEntryIndex") final String blogEntryIndex) {
+    this(
+        jdbcTemplate,
+        entryRepository,
+        blogSearchService,
+        searchResultCache,
+        elasticsearchOperations,
+        entityManager,
+        transactionManager,
+        blogEntryIndex,
+        Executors.newFixedThreadPool(
+            WORKERS,
+            new ThreadFactoryBuilder().setNameFormat("reindex-%d").setDaemon(true).build()),
+        UUID.randomUUID().toString());
+  }
+
+  SearchReindexService(
+      final JdbcTemplate jdbcTemplate,
+      final EntryRepository entryRepository,
+      final BlogSearchService blogSearchService,
+      final SearchResultCache searchResultCache,
+      final ElasticsearchOperations elasticsearchOperations,
+      final EntityManager entityManager,
+      final PlatformTransactionManager transactionManager,
+      final String blogEntryIndex,
+      final ExecutorService executor,
+      final String owner) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.entryRepository = entryRepository;
+    this.blogSearchService = blogSearchService;
+    this.searchResultCache = searchResultCache;
+    this.elasticsearchOperations = elasticsearchOperations;
+    this.entityManager = entityManager;
+    this.blogEntryIndex = blogEntryIndex;
+    this.executor = executor;
+    this.owner = owner;
+
+    readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+    checkpointTransaction = new TransactionTemplate(transactionManager);
+    checkpointTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  /** @return a rebuild or catch up is in progress, or a rebuild is unfinished, on any node */
+  public boolean isRunning() {
+    if (running.get()) return true;
+    final Integer running = jdbcTemplate.queryForObject(RUNNING, Integer.class);
+    return running != null && running > 0;
+  }
+
+  /**
+   * Bring the index up to date at startup by indexing entries added or modified since the
+   * watermark. The index is rebuilt instead when asked to, when a rebuild was interrupted, or when
+   * the watermark is missing, from another mapping version, or for an index the alias no longer
+   * points at. Catching up can't see entries deleted outside the application; those leave with
+   * the next rebuild.
+   *
+   * @param rebuild rebuild regardless of the watermark
+   */
+  @Async
+  public void catchUp(final boolean rebuild) {
+    final SearchWatermark watermark = rebuild ? null : currentWatermark();
+    if (watermark == null) {
+      reindex();
+      return;
+    }
+
+    if (!start()) return;
+
+    try {
+      final EntryWatermark mark = entryRepository.findWatermark();
+      final Date modified =
+          watermark.getModified() == null ? new Date(0) : watermark.getModified();
+      int sent = 0;
+      int after = 0;
+      List<Integer> batch;
+      do {
+        final int from = after;
+        batch =
+            readOnly.execute(
+                status ->
+                    entryRepository.findIdsChangedSince(
+                        from, watermark.getMaxEntryId(), modified, PAGE));
+        if (batch.isEmpty()) break;
+
+        blogSearchService.indexEntries(batch);
+        renewLease();
+        sent += batch.size();
+        after = batch.get(batch.size() - 1);
+      } while (batch.size() == BATCH_SIZE);
+
+      saveWatermark(watermark.getIndex(), mark);
+      log.info("Search index {} caught up with {} changed entries", watermark.getIndex(), sent);
+    } catch (final RuntimeException e) {
+      log.error("Search index catch up failed", e);
+    } finally {
+      stop();
+    }
+  }
+
+  /**
+   * Rebuild the index, resuming an unfinished rebuild if there is one. Returns without doing
+   * anything when a rebuild is already running here or on another node.
+   */
+  @Async
+  public void reindex() {
+    rebuild(true);
+  }
+
+  /**
+   * Resume a rebuild another node left unfinished. Returns without doing anything when there is
+   * none or it is still running.
+   */
+  @Async
+  public void resume() {
+    rebuild(false);
+  }
+
+  private void rebuild(final boolean fresh) {
+    if (!start()) return;
+
+    try {
+      // taken before reading any entries, so later changes fall after the mark
+      final EntryWatermark mark = entryRepository.findWatermark();
+
+      List<Partition> partitions = jdbcTemplate.query(PARTITIONS, PARTITION);
+      if (!partitions.isEmpty() && !indexOps(partitions.get(0).index()).exists()) {
+        log.warn("Index of an unfinished reindex is gone, starting over");
+        jdbcTemplate.update(CLEAR);
+        partitions = List.of();
+      }
+
+      final String index;
+      if (partitions.isEmpty()) {
+        if (!fresh) return;
+        index = createIndex();
+        partitions = plan(index);
+        log.info("Search reindex into {} started, {} ranges", index, partitions.size());
+      } else {
+        index = partitions.get(0).index();
+        log.info("Search reindex into {} resumed", index);
+      }
+
+      final List<Future<?>> workers = new ArrayList<>();
+      for (int i = 0; i < WORKERS; i++) workers.add(executor.submit(this::work));
+      for (final Future<?> worker : workers) worker.get();
+
+      final Integer remaining = jdbcTemplate.queryForObject(REMAINING, Integer.class);
+      if (remaining == null || remaining > 0) {
+        log.warn("Search reindex into {} is incomplete and will resume on the next run", index);
+        return;
+      }
+
+      // make sure the lease is still ours before moving the alias
+      renewLease();
+      swap(index);
+      saveWatermark(index, mark);
+      jdbcTemplate.update(CLEAR);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (final ExecutionException | RuntimeException e) {
+      log.error("Search reindex failed", e);
+    } finally {
+      stop();
+    }
+  }
+
+  /**
+   * Take the lease for this node.
+   *
+   * @return false if this or another node already holds it
+   */
+  private boolean start() {
+    if (!running.compareAndSet(false, true)) {
+      log.debug("Search reindex already running");
+      return false;
+    }
+
+    try {
+      if (jdbcTemplate.update(CLAIM_LEASE, owner, LEASE_SECONDS) == 1) return true;
+      log.debug("Search reindex running on another node");
+    } catch (final RuntimeException e) {
+      log.error("Search reindex lease unavailable", e);
+    }
+    running.set(false);
+    return false;
+  }
+
+  private void stop() {
+    try {
+      jdbcTemplate.update(RELEASE_LEASE, owner);
+    } catch (final RuntimeException e) {
+      log.warn("Search reindex lease not released, it will expire", e);
+    } finally {
+      running.set(false);
+    }
+  }
+
+  private void renewLease() {
+    if (jdbcTemplate.update(RENEW_LEASE, LEASE_SECONDS, owner) != 1) {
+      throw new IllegalStateException("Search reindex lease expired and was taken by another node");
+    }
+  }
+
+  /** Index ranges until none are left unclaimed, stopping at the first that fails. */
+  private void work() {
+    Partition partition;
+    while ((partition = claim()) != null) {
+      if (!index(partition)) return;
+    }
+  }
+
+  /** @return the next range no live worker holds, claimed for this node, or null if none */
+  private Partition claim() {
+    return checkpointTransaction.execute(
+        status -> {
+          final List<Partition> next = jdbcTemplate.query(NEXT, PARTITION);
+          if (next.isEmpty()) return null;
+
+          jdbcTemplate.update(CLAIM, owner, LEASE_SECONDS, next.get(0).id());
+          return next.get(0);
+        });
+  }
+
+  /** @return the watermark if the index can be caught up from it, otherwise null */
+  private SearchWatermark currentWatermark() {
+    if (!jdbcTemplate.query(PARTITIONS, PARTITION).isEmpty()
+        || !indexOps(blogEntryIndex).exists()
+        || !elasticsearchOperations.indexOps(SearchWatermark.class).exists()) {
+      return null;
+    }
+
+    final SearchWatermark watermark =
+        elasticsearchOperations.get(SearchWatermark.ID, SearchWatermark.class);
+    if (watermark == null
+        || watermark.getMappingVersion() != BlogSearchService.MAPPING_VERSION
+        || !indexOps(blogEntryIndex)
+            .getAliasesForIndex(blogEntryIndex)
+            .containsKey(watermark.getIndex())) {
+      log.info("Search index watermark is missing or stale, rebuilding");
+      return null;
+    }
+    return watermark;
+  }
+
+  private void saveWatermark(final String index, final EntryWatermark mark) {
+    final SearchWatermark watermark = new SearchWatermark();
+    watermark.setMappingVersion(BlogSearchService.MAPPING_VERSION);
+    watermark.setIndex(index);
+    watermark.setMaxEntryId(mark.maxId() == null ? 0 : mark.maxId());
+    watermark.setModified(mark.modified());
+    elasticsearchOperations.save(watermark);
+  }
+
+  private IndexOperations indexOps(final String index) {
+    return elasticsearchOperations.indexOps(IndexCoordinates.of(index));
+  }
+
+  /** Create an empty index with the blog entry settings and mapping. */
+  private String createIndex() {
+    final String index = blogEntryIndex + '-' + System.currentTimeMillis();
+    final IndexOperations mapped = elasticsearchOperations.indexOps(BlogEntry.class);
+    indexOps(index).create(mapped.createSettings(), mapped.createMapping());
+    return index;
+  }
+
+  /** Split the public entry ids into ranges and record them. */
+  private List<Partition> plan(final String index) {
+    final EntryIdRange range = entryRepository.findIdRangeBySecurity(PUBLIC);
+    if (range != null && range.first() != null) {
+      for (long first = range.first(); first <= range.last(); first += PARTITION_SIZE) {
+        final long last = Math.min(first + PARTITION_SIZE - 1, range.last());
+        jdbcTemplate.update(INSERT, index, first, last, first - 1);
+      }
+    }
+    return jdbcTemplate.query(PARTITIONS, PARTITION);
+  }
+
+  /**
+   * Index one range from its checkpoint to the end.
+   *
+   * @return the range is done
+   */
+  boolean index(final Partition partition) {
+    try {
+      int checkpoint = partition.checkpoint();
+      Page page;
+      do {
+        final int after = checkpoint;
+        page = readOnly.execute(status -> read(after, partition.last()));
+        if (!page.items().isEmpty()) {
+          elasticsearchOperations.save(page.items(), IndexCoordinates.of(partition.index()));
+          checkpoint = page.last();
+        }
+        checkpoint(partition, checkpoint, page.items().size() < BATCH_SIZE);
+      } while (page.items().size() == BATCH_SIZE);
+      return true;
+    } catch (final RuntimeException e) {
+      log.warn(
+          "Search reindex of entries {} to {} stopped", partition.first(), partition.last(), e);
+      jdbcTemplate.update(RELEASE, partition.id(), owner);
+      return false;
+    }
+  }
+
+  /**
+   * Documents for one page of a range.
+   *
+   * @param items documents to send
+   * @param last last entry id read
+   */
+  private record Page(List<BlogEntry> items, int last) {}
+
+  /** Read the next page of a range with tags and convert it to documents. */
+  private Page read(final int after, final int last) {
+    final List<Entry> entries = entryRepository.findBySecurityAndIdRange(PUBLIC, after, last, PAGE);
+    if (entries.isEmpty()) return new Page(List.of(), after);
+
+    final List<BlogEntry> items =
+        entryRepository.fetchTags(entries).stream().map(blogSearchService::convert).toList();
+    // the entities are done with; keep the persistence context from growing with the range
+    entityManager.clear();
+    return new Page(items, entries.get(entries.size() - 1).getId());
+  }
+
+  private void checkpoint(final Partition partition, final int checkpoint, final boolean done) {
+    checkpointTransaction.executeWithoutResult(
+        status -> {
+          final int claimed =
+              jdbcTemplate.update(
+                  CHECKPOINT, checkpoint, done, LEASE_SECONDS, partition.id(), owner);
+          if (claimed != 1) {
+            throw new IllegalStateException("Search reindex range claim expired");
+          }
+          renewLease();
+        });
+  }
+
+  /** Point the alias at the new index and drop whatever it pointed at before, atomically. */
+  private void swap(final String index) {
+    indexOps(index).refresh();
+
+    final AliasActions actions =
+        new AliasActions(
+            new AliasAction.Add(
+                AliasActionParameters.builder()
+                    .withIndices(index)
+                    .withAliases(blogEntryIndex)
+                    .build()));
+    final IndexOperations current = indexOps(blogEntryIndex);
+    if (current.exists()) {
+      // the keys are the indices behind the alias, or the name itself if it is still an index
+      for (final String old : current.getAliasesForIndex(blogEntryIndex).keySet()) {
+        if (!old.equals(index)) {
+          actions.add(
+              new AliasAction.RemoveIndex(
+                  AliasActionParameters.builder().withIndices(old).build()));
+        }
+      }
+    }
+    indexOps(index).alias(actions);
+    searchResultCache.indexChanged();
+    log.info("Search reindex complete, {} now points at {}", blogEntryIndex, index);
+  }
+}
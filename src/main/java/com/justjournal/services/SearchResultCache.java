@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.justjournal.model.search.BlogEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps search results for a short time so popular queries don't all reach the index, and lets
+ * identical queries that arrive together share one search.
+ *
+ * <p>Results are keyed by the index version, which moves every time the index is written. The
+ * version is kept in the search_version table so every node stops returning old results within
+ * about a second, including entries that were deleted or made private. If the version can't be
+ * read, searches skip the cache.
+ *
+ * @author Lucas Holt
+ */
+@Slf4j
+@Component
+public class SearchResultCache {
+  private static final int MAX_RESULTS = 1000;
+  private static final int RESULT_CACHE_SECONDS = 30;
+
+  /** How long a node uses the shared version it last read before reading it again. */
+  private static final long VERSION_CHECK_MILLIS = 1000;
+
+  static final String VERSION = "SELECT version FROM search_version WHERE id = 1";
+
+  static final String BUMP = "UPDATE search_version SET version = version + 1 WHERE id = 1";
+
+  /** Which entries a search can return. */
+  public enum Scope {
+    PUBLIC,
+    ALL
+  }
+
+  /**
+   * @param shared index version shared by all nodes
+   * @param version index version on this node, which moves before other nodes see the change
+   * @param scope entries the search can return
+   * @param term normalized search term
+   * @param author lower case author, or null for any
+   * @param page page number, -1 when unpaged
+   * @param size page size
+   * @param sort requested sort
+   */
+  record SearchKey(
+      long shared,
+      long version,
+      Scope scope,
+      String term,
+      String author,
+      int page,
+      int size,
+      String sort) {}
+
+  /**
+   * @param version shared index version
+   * @param read when it was read
+   */
+  private record SharedVersion(long version, long read) {}
+
+  private final Cache<SearchKey, Page<BlogEntry>> results =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_RESULTS)
+          .expireAfterWrite(RESULT_CACHE_SECONDS, TimeUnit.SECONDS)
+          .build();
+
+  /** Searches running now, joined by identical searches that arrive meanwhile. */
+  private final ConcurrentMap<SearchKey, CompletableFuture<Page<BlogEntry>>> inFlight =
+      new ConcurrentHashMap<>();
+
+  private final AtomicLong version = new AtomicLong();
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /** Bumps commit on their own, even when the index write runs in a read only transaction. */
+  private final TransactionTemplate bumpTransaction;
+
+  private final long versionCheckMillis;
+  private volatile SharedVersion shared;
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter coalesced;
+
+  @Autowired
+  public SearchResultCache(
+      final JdbcTemplate jdbcTemplate,
+      final PlatformTransactionManager transactionManager,
+      final MeterRegistry meterRegistry) {
+    this(jdbcTemplate, transactionManager, meterRegistry, VERSION_CHECK_MILLIS);
+  }
+
+  SearchResultCache(
+      final JdbcTemplate jdbcTemplate,
+      final PlatformTransactionManager transactionManager,
+      final MeterRegistry meterRegistry,
+      final long versionCheckMillis) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.versionCheckMillis = versionCheckMillis;
+    bumpTransaction = new TransactionTemplate(transactionManager);
+    bumpTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+    hits =
+        Counter.builder("search.cache.hits")
+            .description("Searches answered from cached results")
+            .register(meterRegistry);
+    misses =
+        Counter.builder("search.cache.misses")
+            .description("Searches sent to the index")
+            .register(meterRegistry);
+    coalesced =
+        Counter.builder("search.cache.coalesced")
+            .description("Searches that waited for an identical search already running")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Get results for a search, running it on a miss.
+   *
+   * @param scope entries the search can return
+   * @param term search term
+   * @param author author to filter on, or null
+   * @param page page requested
+   * @param search runs the search against the index
+   * @return a page of results
+   */
+  public Page<BlogEntry> get(
+      final Scope scope,
+      final String term,
+      final String author,
+      final Pageable page,
+      final Supplier<Page<BlogEntry>> search) {
+    final Long sharedVersion = sharedVersion();
+    if (sharedVersion == null) {
+      misses.increment();
+      return search.get();
+    }
+
+    final SearchKey key = key(sharedVersion, scope, term, author, page);
+    final Page<BlogEntry> cached = results.getIfPresent(key);
+    if (cached != null) {
+      hits.increment();
+      return cached;
+    }
+
+    final CompletableFuture<Page<BlogEntry>> flight = new CompletableFuture<>();
+    final CompletableFuture<Page<BlogEntry>> running = inFlight.putIfAbsent(key, flight);
+    if (running != null) {
+      coalesced.increment();
+      try {
+        return running.join();
+      } catch (final CompletionException e) {
+        if (e.getCause() instanceof RuntimeException cause) throw cause;
+        throw e;
+      }
+    }
+
+    misses.increment();
+    try {
+      final Page<BlogEntry> found = search.get();
+      results.put(key, found);
+      flight.complete(found);
+      return found;
+    } catch (final RuntimeException e) {
+      flight.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, flight);
+    }
+  }
+
+  /** Call after writing to the index. Results from before are no longer returned on any node. */
+  public void indexChanged() {
+    version.incrementAndGet();
+    try {
+      bumpTransaction.executeWithoutResult(status -> jdbcTemplate.update(BUMP));
+    } catch (final RuntimeException e) {
+      log.warn("Unable to bump the search version, other nodes keep results until they expire", e);
+    }
+  }
+
+  /** @return version shared by all nodes, or null if it can't be read */
+  private Long sharedVersion() {
+    final long now = System.currentTimeMillis();
+    final SharedVersion last = shared;
+    if (last != null && now - last.read() < versionCheckMillis) {
+      return last.version();
+    }
+
+    try {
+      final Long read = jdbcTemplate.queryForObject(VERSION, Long.class);
+      if (read == null) return null;
+      shared = new SharedVersion(read, now);
+      return read;
+    } catch (final RuntimeException e) {
+      log.warn("Unable to read the search version, not caching results: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  SearchKey key(
+      final long sharedVersion,
+      final Scope scope,
+      final String term,
+      final String author,
+      final Pageable page) {
+    return new SearchKey(
+        sharedVersion,
+        version.get(),
+        scope,
+        term == null ? "" : term.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT),
+        author == null ? null : author.toLowerCase(Locale.ROOT),
+        page.isPaged() ? page.getPageNumber() : -1,
+        page.isPaged() ? page.getPageSize() : 0,
+        page.getSort().toString());
+  }
+
+  long size() {
+    return results.size();
+  }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.justjournal.core.Settings;
+import com.justjournal.model.Url;
+import com.justjournal.utility.DateConvert;
+import com.justjournal.utility.EncodedPayload;
+import java.io.ByteArrayOutputStream;
+import java.sql.Timestamp;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Builds the sitemap index and its shards. Each shard covers a fixed range of user ids so a
+ * journal always lands in the same shard, and is written straight from the result set with StAX
+ * rather than loading users. Shards stay cached until a journal or its entries in the range
+ * change.
+ *
+ * @author Lucas Holt
+ */
+@Slf4j
+@Service
+public class SitemapService {
+  /** Eight urls per journal keeps a shard under the 50,000 url sitemap limit. */
+  static final int USERS_PER_SHARD = 6000;
+
+  private static final int INDEX = -1;
+  private static final int MAX_SHARDS = 512;
+  private static final int CACHE_HOURS = 24;
+
+  private static final String NAMESPACE = "http://www.sitemaps.org/schemas/sitemap/0.9";
+
+  private static final String MAX_USER = "SELECT MAX(id) FROM user";
+
+  private static final String JOURNALS =
+      "SELECT u.username, v.modified FROM user u JOIN journal j ON j.user_id = u.id"
+          + " LEFT JOIN journal_version v ON v.uid = u.id"
+          + " WHERE u.id >= ? AND u.id < ? AND j.allow_spider = TRUE AND j.owner_view_only = FALSE"
+          + " GROUP BY u.id, u.username, v.modified ORDER BY u.id";
+
+  private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final Settings settings;
+
+  private final Cache<Integer, EncodedPayload> sitemaps =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_SHARDS)
+          .expireAfterWrite(CACHE_HOURS, TimeUnit.HOURS)
+          .build();
+
+  public SitemapService(final JdbcTemplate jdbcTemplate, final Settings settings) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.settings = settings;
+  }
+
+  /** @return sitemap index listing every shard */
+  public EncodedPayload getIndex() {
+    return cached(INDEX);
+  }
+
+  /**
+   * @param shard shard number
+   * @return shard sitemap or null if there is no such shard
+   */
+  public EncodedPayload getShard(final int shard) {
+    final EncodedPayload payload = sitemaps.getIfPresent(shard);
+    if (payload != null) return payload;
+    if (shard < 0 || shard >= shardCount()) return null;
+    return cached(shard);
+  }
+
+  /**
+   * Drop the cached shard holding a journal once the change commits.
+   *
+   * @param userId blog owner
+   */
+  public void journalChanged(final int userId) {
+    if (userId < 1) return;
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              evict(userId);
+            }
+          });
+    } else {
+      evict(userId);
+    }
+  }
+
+  /**
+   * Drop the owner's cached shard when their entries change, since it carries their lastmod.
+   *
+   * @param event changed journal
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void journalChanged(final JournalChangedEvent event) {
+    evict(event.userId());
+  }
+
+  private void evict(final int userId) {
+    sitemaps.invalidate(userId / USERS_PER_SHARD);
+    sitemaps.invalidate(INDEX);
+    log.trace("Sitemap shard {} changed", userId / USERS_PER_SHARD);
+  }
+
+  int shardCount() {
+    final Integer max = jdbcTemplate.queryForObject(MAX_USER, Integer.class);
+    return max == null ? 1 : max / USERS_PER_SHARD + 1;
+  }
+
+  private EncodedPayload cached(final int key) {
+    try {
+      return sitemaps.get(key, () -> key == INDEX ? index() : shard(key));
+    } catch (final ExecutionException e) {
+      throw new IllegalStateException("Unable to write sitemap", e.getCause());
+    }
+  }
+
+  private EncodedPayload index() throws XMLStreamException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final XMLStreamWriter xml = start(out, "sitemapindex");
+
+    final String baseUri = settings.getBaseUri();
+    final int count = shardCount();
+    for (int i = 0; i < count; i++) {
+      xml.writeStartElement("sitemap");
+      element(xml, "loc", baseUri + "sitemap-" + i + ".xml");
+      xml.writeEndElement();
+    }
+    return finish(xml, out);
+  }
+
+  private EncodedPayload shard(final int shard) throws XMLStreamException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final XMLStreamWriter xml = start(out, "urlset");
+
+    if (shard == 0) {
+      final String baseUri = settings.getBaseUri();
+      url(xml, baseUri, Url.Priority.HIGH, Url.ChangeFreqency.MONTHLY, null);
+      url(xml, baseUri + "RecentBlogs", Url.Priority.LOW, Url.ChangeFreqency.DAILY, null);
+      url(xml, baseUri + "#!/sitemap", Url.Priority.LOW, Url.ChangeFreqency.YEARLY, null);
+      url(xml, baseUri + "#!/search", Url.Priority.LOW, Url.ChangeFreqency.YEARLY, null);
+      url(xml, baseUri + "#!/privacy", Url.Priority.LOW, Url.ChangeFreqency.YEARLY, null);
+      url(xml, baseUri + "#!/members", Url.Priority.LOW, Url.ChangeFreqency.DAILY, null);
+      url(xml, baseUri + "#!/support", Url.Priority.LOW, Url.ChangeFreqency.YEARLY, null);
+      url(xml, baseUri + "#!/support/bugs", Url.Priority.LOW, Url.ChangeFreqency.YEARLY, null);
+      url(xml, baseUri + "#!/moodlist", Url.Priority.LOW, Url.ChangeFreqency.YEARLY, null);
+    }
+
+    try {
+      jdbcTemplate.query(
+          JOURNALS,
+          rs -> {
+            final Timestamp modified = rs.getTimestamp(2);
+            try {
+              journal(xml, rs.getString(1), modified == null ? null : DateConvert.encode8601(modified));
+            } catch (final XMLStreamException e) {
+              throw new IllegalStateException(e);
+            }
+          },
+          shard * USERS_PER_SHARD,
+          (shard + 1) * USERS_PER_SHARD);
+    } catch (final IllegalStateException e) {
+      if (e.getCause() instanceof XMLStreamException xe) throw xe;
+      throw e;
+    }
+    return finish(xml, out);
+  }
+
+  private void journal(final XMLStreamWriter xml, final String username, final String lastmod)
+      throws XMLStreamException {
+    final String users = settings.getBlogBaseUrl(username);
+
+    url(xml, users, Url.Priority.HIGH, Url.ChangeFreqency.DAILY, lastmod);
+    url(xml, users + "/calendar", Url.Priority.MEDIUMLOW, Url.ChangeFreqency.MONTHLY, lastmod);
+    url(xml, users + "/friends", Url.Priority.MEDIUMLOW, Url.ChangeFreqency.DAILY, null);
+    url(xml, users + "/pictures", Url.Priority.LOW, Url.ChangeFreqency.WEEKLY, lastmod);
+    url(xml, users + "/favorites", Url.Priority.LOW, Url.ChangeFreqency.WEEKLY, null);
+    url(xml, users + "/rss", Url.Priority.MEDIUM, Url.ChangeFreqency.DAILY, lastmod);
+    url(xml, users + "/atom", Url.Priority.MEDIUM, Url.ChangeFreqency.DAILY, lastmod);
+    url(xml, users + "/json", Url.Priority.MEDIUM, Url.ChangeFreqency.DAILY, lastmod);
+  }
+
+  private static XMLStreamWriter start(final ByteArrayOutputStream out, final String root)
+      throws XMLStreamException {
+    final XMLStreamWriter xml = OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+    xml.writeStartDocument("UTF-8", "1.0");
+    xml.writeStartElement(root);
+    xml.writeDefaultNamespace(NAMESPACE);
+    return xml;
+  }
+
+  private static EncodedPayload finish(final XMLStreamWriter xml, final ByteArrayOutputStream out)
+      throws XMLStreamException {
+    xml.writeEndElement();
+    xml.writeEndDocument();
+    xml.close();
+    return EncodedPayload.of(out.toByteArray());
+  }
+
+  private static void url(
+      final XMLStreamWriter xml,
+      final String loc,
+      final Url.Priority priority,
+      final Url.ChangeFreqency changeFrequency,
+      final String lastmod)
+      throws XMLStreamException {
+    xml.writeStartElement("url");
+    element(xml, "loc", loc);
+    if (lastmod != null) element(xml, "lastmod", lastmod);
+    element(xml, "changefreq", changeFrequency.getValue());
+    element(xml, "priority", priority.getValue());
+    xml.writeEndElement();
+  }
+
+  private static void element(final XMLStreamWriter xml, final String name, final String value)
+      throws XMLStreamException {
+    xml.writeStartElement(name);
+    xml.writeCharacters(value);
+    xml.writeEndElement();
+  }
+}
@@ -0,0 +1,604 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.justjournal.core.Constants;
+import com.justjournal.core.Settings;
+import com.justjournal.services.FeedDocumentService.FeedDocument;
+import com.justjournal.services.FeedDocumentService.FeedType;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * WebSub hub for journal feeds. Subscribers register a callback for a user's RSS, Atom or JSON
+ * feed and are sent the new document when the journal changes instead of polling for it.
+ *
+ * <p>Subscription requests are verified by calling the subscriber back with a challenge before
+ * they are stored. Subscriptions end when their lease runs out unless renewed.
+ *
+ * <p>Changes are collected for a few seconds so a burst of edits sends one update. Updates go
+ * out on a small bounded pool and failed ones are retried with a growing delay.
+ *
+ * <p>Anyone can ask the hub to call a url, so callbacks must resolve to public addresses, are
+ * checked again before every request, redirects are not followed, and each callback host gets a
+ * limited number of verification requests.
+ *
+ * @author Lucas Holt
+ */
+@Slf4j
+@Service
+public class WebSubService {
+  public static final int DEFAULT_LEASE_SECONDS = 60 * 60 * 24 * 10;
+  static final int MIN_LEASE_SECONDS = 60 * 60;
+  static final int MAX_LEASE_SECONDS = 60 * 60 * 24 * 30;
+  static final int MAX_SECRET_BYTES = 200;
+  static final int MAX_CALLBACK_LENGTH = 2000;
+
+  /** Attempts at sending an update before giving up on it. */
+  static final int MAX_ATTEMPTS = 5;
+
+  private static final long RETRY_MILLIS = 60 * 1000L;
+  private static final int MAX_RETRIES = 10000;
+  private static final int WORKERS = 4;
+  private static final int MAX_QUEUED = 1000;
+  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+  private static final Duration READ_TIMEOUT = Duration.ofSeconds(10);
+
+  /** Verification requests accepted per callback host each minute. */
+  static final int MAX_VERIFICATIONS_PER_HOST = 10;
+
+  static final String UPSERT =
+      "INSERT INTO websub_subscription"
+          + " (uid, feed, callback, callback_hash, secret, expires, created)"
+          + " VALUES (?, ?, ?, ?, ?, ?, ?)"
+          + " ON DUPLICATE KEY UPDATE secret = VALUES(secret), expires = VALUES(expires)";
+
+  static final String UNSUBSCRIBE =
+      "DELETE FROM websub_subscription WHERE uid = ? AND feed = ? AND callback_hash = ?";
+
+  static final String DELETE = "DELETE FROM websub_subscription WHERE id = ?";
+
+  static final String EXPIRE = "DELETE FROM websub_subscription WHERE expires <= ?";
+
+  static final String SUBSCRIPTIONS =
+      "SELECT s.id, s.feed, s.callback, s.secret, u.username FROM websub_subscription s"
+          + " JOIN user u ON u.id = s.uid WHERE s.uid = ? AND s.expires > ?";
+
+  /** Subscription request modes. */
+  public enum Mode {
+    SUBSCRIBE,
+    UNSUBSCRIBE
+  }
+
+  /**
+   * Feed that can be subscribed to.
+   *
+   * @param userId blog owner
+   * @param username blog owner
+   * @param type feed format
+   */
+  record Topic(int userId, String username, FeedType type) {}
+
+  /**
+   * Verified subscription.
+   *
+   * @param id subscription id
+   * @param topic subscribed feed
+   * @param callback subscriber url updates are posted to
+   * @param secret HMAC key for signing updates, or null
+   */
+  record Subscription(int id, Topic topic, String callback, String secret) {}
+
+  /**
+   * An update waiting to be sent.
+   *
+   * @param subscription recipient
+   * @param attempt 1 for the first try
+   * @param due earliest time to send it, in epoch millis
+   */
+  record Delivery(Subscription subscription, int attempt, long due) {}
+
+  /** Too many verification requests for one callback host. */
+  public static class RateLimitedException extends RejectedExecutionException {
+    public RateLimitedException(final String message) {
+      super(message);
+    }
+  }
+
+  /** Request factory that hands redirects back instead of following them to an unchecked host. */
+  static class NoRedirectRequestFactory extends SimpleClientHttpRequestFactory {
+    @Override
+    protected void prepareConnection(final HttpURLConnection connection, final String httpMethod)
+        throws IOException {
+      super.prepareConnection(connection, httpMethod);
+      connection.setInstanceFollowRedirects(false);
+    }
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final JournalVersionService journalVersionService;
+  private final FeedDocumentService feedDocumentService;
+  private final Settings settings;
+  private final RestTemplate restTemplate;
+  private final ExecutorService executor;
+
+  /** Decides whether a resolved callback address may be called. */
+  private final Predicate<InetAddress> addressAllowed;
+
+  /** Verification requests per callback host in the current minute. */
+  private final Cache<String, AtomicInteger> verificationsByHost =
+      CacheBuilder.newBuilder().maximumSize(10000).expireAfterWrite(1, TimeUnit.MINUTES).build();
+
+  /** Journals changed since updates were last sent. */
+  private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+
+  private final Queue<Delivery> retries = new ConcurrentLinkedQueue<>();
+
+  @Autowired
+  public WebSubService(
+      final JdbcTemplate jdbcTemplate,
+      final JournalVersionService journalVersionService,
+      final FeedDocumentService feedDocumentService,
+      final Settings settings,
+      final RestTemplateBuilder restTemplateBuilder) {
+    this(
+        jdbcTemplate,
+        journalVersionService,
+        feedDocumentService,
+        settings,
+        restTemplateBuilder
+            .requestFactory(NoRedirectRequestFactory::new)
+            .setConnectTimeout(CONNECT_TIMEOUT)
+            .setReadTimeout(READ_TIMEOUT)
+            .build(),
+        new ThreadPoolExecutor(
+            WORKERS,
+            WORKERS,
+            1,
+            TimeUnit.MINUTES,
+            new ArrayBlockingQueue<>(MAX_QUEUED),
+            new ThreadFactoryBuilder().setNameFormat("websub-%d").setDaemon(true).build()),
+        WebSubService::isPublicAddress);
+  }
+
+  WebSubService(
+      final JdbcTemplate jdbcTemplate,
+      final JournalVersionService journalVersionService,
+      final FeedDocumentService feedDocumentService,
+      final Settings settings,
+      final RestTemplate restTemplate,
+      final ExecutorService executor,
+      final Predicate<InetAddress> addressAllowed) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.journalVersionService = journalVersionService;
+    this.feedDocumentService = feedDocumentService;
+    this.settings = settings;
+    this.restTemplate = restTemplate;
+    this.executor = executor;
+    this.addressAllowed = addressAllowed;
+    if (executor instanceof ThreadPoolExecutor pool) {
+      pool.allowCoreThreadTimeOut(true);
+    }
+  }
+
+  /** @return url of the hub */
+  public String getHubUrl() {
+    return settings.getBaseUri() + Constants.PATH_HUB;
+  }
+
+  /**
+   * @param username blog owner
+   * @param type feed format
+   * @return url subscribers use to name the feed
+   */
+  public String getTopicUrl(final String username, final FeedType type) {
+    return settings.getBlogBaseUrl(username) + '/' + type.name().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Accept a subscribe or unsubscribe request. The subscriber is asked to confirm it in the
+   * background and nothing changes until it does.
+   *
+   * @param mode subscribe or unsubscribe
+   * @param topicUrl feed url
+   * @param callback subscriber url
+   * @param leaseSeconds requested lease, or null for the default
+   * @param secret key to sign updates with, or null
+   * @throws IllegalArgumentException if the request is invalid
+   * @throws RateLimitedException if the callback host has had too many requests
+   * @throws RejectedExecutionException if too many requests are already waiting
+   */
+  public void request(
+      final Mode mode,
+      final String topicUrl,
+      final String callback,
+      final Integer leaseSeconds,
+      final String secret) {
+    final Topic topic = parseTopic(topicUrl);
+    if (topic == null) throw new IllegalArgumentException("Unknown topic");
+    if (!isValidCallback(callback) || !isAllowedCallback(callback)) {
+      throw new IllegalArgumentException("Invalid callback");
+    }
+    if (secret != null && secret.getBytes(StandardCharsets.UTF_8).length > MAX_SECRET_BYTES) {
+      throw new IllegalArgumentException("Secret too long");
+    }
+
+    final int lease =
+        leaseSeconds == null
+            ? DEFAULT_LEASE_SECONDS
+            : Math.max(MIN_LEASE_SECONDS, Math.min(MAX_LEASE_SECONDS, leaseSeconds));
+    final String key = secret == null || secret.isEmpty() ? null : secret;
+
+    final String host = URI.create(callback).getHost().toLowerCase(Locale.ROOT);
+    final AtomicInteger verifications =
+        verificationsByHost.asMap().computeIfAbsent(host, h -> new AtomicInteger());
+    if (verifications.incrementAndGet() > MAX_VERIFICATIONS_PER_HOST) {
+      throw new RateLimitedException("Too many requests for " + host);
+    }
+    executor.execute(() -> verify(mode, topic, callback, lease, key));
+  }
+
+  /**
+   * Verification of intent: the subscriber must echo a challenge back before a subscription is
+   * stored or removed.
+   */
+  void verify(
+      final Mode mode,
+      final Topic topic,
+      final String callback,
+      final int leaseSeconds,
+      final String secret) {
+    final String challenge = UUID.randomUUID().toString();
+    final String topicUrl = getTopicUrl(topic.username(), topic.type());
+    final UriComponentsBuilder uri =
+        UriComponentsBuilder.fromUriString(callback)
+            .queryParam("hub.mode", mode.name().toLowerCase(Locale.ROOT))
+            .queryParam("hub.topic", URLEncoder.encode(topicUrl, StandardCharsets.UTF_8))
+            .queryParam("hub.challenge", challenge);
+    if (mode == Mode.SUBSCRIBE) uri.queryParam("hub.lease_seconds", leaseSeconds);
+
+    if (!isAllowedCallback(callback)) {
+      log.info("Not verifying {} of {} with {}, not a public address", mode, topicUrl, callback);
+      return;
+    }
+
+    try {
+      final ResponseEntity<String> response =
+          restTemplate.getForEntity(uri.build(true).toUri(), String.class);
+      if (!response.getStatusCode().is2xxSuccessful()
+          || response.getBody() == null
+          || !response.getBody().trim().equals(challenge)) {
+        log.info("Subscriber {} did not confirm {} of {}", callback, mode, topicUrl);
+        return;
+      }
+    } catch (final RestClientException | IllegalArgumentException e) {
+      log.info("Unable to verify {} of {} with {}: {}", mode, topicUrl, callback, e.getMessage());
+      return;
+    }
+
+    final String feed = topic.type().name().toLowerCase(Locale.ROOT);
+    if (mode == Mode.SUBSCRIBE) {
+      final long now = System.currentTimeMillis();
+      jdbcTemplate.update(
+          UPSERT,
+          topic.userId(),
+          feed,
+          callback,
+          callbackHash(callback),
+          secret,
+          new Timestamp(now + leaseSeconds * 1000L),
+          new Timestamp(now));
+      log.info("Subscribed {} to {} for {}s", callback, topicUrl, leaseSeconds);
+    } else {
+      jdbcTemplate.update(UNSUBSCRIBE, topic.userId(), feed, callbackHash(callback));
+      log.info("Unsubscribed {} from {}", callback, topicUrl);
+    }
+  }
+
+  /**
+   * Queue an update for a journal's subscribers once a change commits.
+   *
+   * @param event changed journal
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void journalChanged(final JournalChangedEvent event) {
+    pending.add(event.userId());
+  }
+
+  /** Send the updates collected since the last run and any retries that are due. */
+  @Scheduled(fixedDelay = 1000 * 15, initialDelay = 1000 * 30)
+  public void distribute() {
+    final long now = System.currentTimeMillis();
+
+    for (final Iterator<Integer> it = pending.iterator(); it.hasNext(); ) {
+      final int userId = it.next();
+      it.remove();
+      try {
+        for (final Subscription subscription : subscriptions(userId, now)) {
+          submit(new Delivery(subscription, 1, now));
+        }
+      } catch (final Exception e) {
+        log.error("Unable to read subscriptions for {}", userId, e);
+      }
+    }
+
+    for (int n = retries.size(); n > 0; n--) {
+      final Delivery delivery = retries.poll();
+      if (delivery == null) break;
+      if (delivery.due() <= now) {
+        submit(delivery);
+      } else {
+        retries.add(delivery);
+      }
+    }
+  }
+
+  /**
+   * Remove subscriptions whose lease has run out.
+   *
+   * @return subscriptions removed
+   */
+  public int expire() {
+    return jdbcTemplate.update(EXPIRE, new Timestamp(System.currentTimeMillis()));
+  }
+
+  private List<Subscription> subscriptions(final int userId, final long now) {
+    return jdbcTemplate.query(
+        SUBSCRIPTIONS,
+        (rs, rowNum) ->
+            new Subscription(
+                rs.getInt(1),
+                new Topic(
+                    userId,
+                    rs.getString(5),
+                    FeedType.valueOf(rs.getString(2).toUpperCase(Locale.ROOT))),
+                rs.getString(3),
+                rs.getString(4)),
+        userId,
+        new Timestamp(now));
+  }
+
+  private void submit(final Delivery delivery) {
+    try {
+      executor.execute(() -> deliver(delivery));
+    } catch (final RejectedExecutionException e) {
+      // pool is backed up, try again on a later run
+      retry(new Delivery(delivery.subscription(), delivery.attempt(), System.currentTimeMillis()));
+    }
+  }
+
+  /** Content distribution: post the current feed document to the subscriber. */
+  void deliver(final Delivery delivery) {
+    final Subscription subscription = delivery.subscription();
+    final Topic topic = subscription.topic();
+    final String topicUrl = getTopicUrl(topic.username(), topic.type());
+    if (!isAllowedCallback(subscription.callback())) {
+      log.warn("Not sending {} to {}, not a public address", topicUrl, subscription.callback());
+      return;
+    }
+
+    try {
+      final FeedDocument document = feedDocumentService.getDocument(topic.username(), topic.type());
+      if (document == null) {
+        // journal is gone or no longer public
+        return;
+      }
+
+      final byte[] body = document.payload().identity();
+      final HttpHeaders headers = new HttpHeaders();
+      headers.set(HttpHeaders.CONTENT_TYPE, contentType(topic.type()));
+      headers.add(HttpHeaders.LINK, "<" + getHubUrl() + ">; rel=\"hub\"");
+      headers.add(HttpHeaders.LINK, "<" + topicUrl + ">; rel=\"self\"");
+      if (subscription.secret() != null) {
+        headers.set(
+            "X-Hub-Signature",
+            "sha256="
+                + Hashing.hmacSha256(subscription.secret().getBytes(StandardCharsets.UTF_8))
+                    .hashBytes(body));
+      }
+      final ResponseEntity<Void> response =
+          restTemplate.exchange(
+              URI.create(subscription.callback()),
+              HttpMethod.POST,
+              new HttpEntity<>(body, headers),
+              Void.class);
+      if (!response.getStatusCode().is2xxSuccessful()) {
+        failed(delivery, new RestClientException("Status " + response.getStatusCode().value()));
+      }
+    } catch (final HttpClientErrorException e) {
+      if (e.getStatusCode() == HttpStatus.GONE) {
+        log.info("Subscriber {} is gone, removing it from {}", subscription.callback(), topicUrl);
+        jdbcTemplate.update(DELETE, subscription.id());
+      } else {
+        failed(delivery, e);
+      }
+    } catch (final Exception e) {
+      failed(delivery, e);
+    }
+  }
+
+  private void failed(final Delivery delivery, final Exception e) {
+    final Subscription subscription = delivery.subscription();
+    if (delivery.attempt() >= MAX_ATTEMPTS) {
+      log.warn(
+          "Giving up on update of {} for {} after {} attempts: {}",
+          getTopicUrl(subscription.topic().username(), subscription.topic().type()),
+          subscription.callback(),
+          delivery.attempt(),
+          e.getMessage());
+      return;
+    }
+    retry(
+        new Delivery(
+            subscription,
+            delivery.attempt() + 1,
+            System.currentTimeMillis() + (RETRY_MILLIS << (delivery.attempt() - 1))));
+  }
+
+  private void retry(final Delivery delivery) {
+    if (retries.size() >= MAX_RETRIES) {
+      log.warn("Dropping update for {}, too many waiting", delivery.subscription().callback());
+      return;
+    }
+    retries.add(delivery);
+  }
+
+  Topic parseTopic(final String topicUrl) {
+    final String prefix = settings.getBaseUri() + Constants.PATH_USERS;
+    if (topicUrl == null || !topicUrl.startsWith(prefix)) return null;
+
+    final String[] path = topicUrl.substring(prefix.length()).split("/");
+    if (path.length != 2 || !path[1].equals(path[1].toLowerCase(Locale.ROOT))) return null;
+
+    final FeedType type;
+    try {
+      type = FeedType.valueOf(path[1].toUpperCase(Locale.ROOT));
+    } catch (final IllegalArgumentException e) {
+      return null;
+    }
+
+    final JournalVersionService.Version version = journalVersionService.getVersion(path[0]);
+    if (version == null) return null;
+    return new Topic(version.userId(), path[0], type);
+  }
+
+  static boolean isValidCallback(final String callback) {
+    if (callback == null || callback.isEmpty() || callback.length() > MAX_CALLBACK_LENGTH) {
+      return false;
+    }
+    try {
+      final URI uri = new URI(callback);
+      return ("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()))
+          && uri.getHost() != null
+          && uri.getFragment() == null;
+    } catch (final URISyntaxException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Check that every address the callback host resolves to may be called. Done when a request
+   * arrives and again before each call, since the host can resolve differently later.
+   */
+  boolean isAllowedCallback(final String callback) {
+    try {
+      final InetAddress[] addresses = InetAddress.getAllByName(URI.create(callback).getHost());
+      for (final InetAddress address : addresses) {
+        if (!addressAllowed.test(address)) return false;
+      }
+      return addresses.length > 0;
+    } catch (final UnknownHostException | IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @param address resolved callback address
+   * @return false for loopback, private, link local, wildcard and multicast addresses
+   */
+  static boolean isPublicAddress(final InetAddress address) {
+    if (address.isAnyLocalAddress()
+        || address.isLoopbackAddress()
+        || address.isLinkLocalAddress()
+        || address.isSiteLocalAddress()
+        || address.isMulticastAddress()) {
+      return false;
+    }
+    final byte[] bytes = address.getAddress();
+    if (bytes.length == 16) {
+      // unique local fc00::/7, which isSiteLocalAddress leaves out
+      return (bytes[0] & 0xfe) != 0xfc;
+    }
+    // shared address space 100.64.0.0/10
+    return !((bytes[0] & 0xff) == 100 && (bytes[1] & 0xc0) == 64);
+  }
+
+  private static String callbackHash(final String callback) {
+    return Hashing.sha256().hashString(callback, StandardCharsets.UTF_8).toString();
+  }
+
+  private static String contentType(final FeedType type) {
+    return switch (type) {
+      case RSS -> "application/rss+xml; charset=ISO-8859-1";
+      case ATOM -> "application/atom+xml; charset=UTF-8";
+      case JSON -> "application/feed+json; charset=UTF-8";
+    };
+  }
+
+  int retrying() {
+    return retries.size();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+}
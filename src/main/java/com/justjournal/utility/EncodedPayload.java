@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.utility;
+
+import com.google.common.hash.Hashing;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * A response body encoded once and kept with a gzip copy, so cached documents are written as
+ * stored bytes instead of being encoded and compressed again on every request.
+ *
+ * @param identity encoded body
+ * @param gzip gzip compressed body, null when compression doesn't help
+ * @param etag weak validator for the body, since the gzip and identity bodies share it
+ * @author Lucas Holt
+ */
+public record EncodedPayload(byte[] identity, byte[] gzip, String etag) {
+  /** Bodies smaller than this aren't worth compressing. */
+  private static final int MIN_COMPRESS_LENGTH = 256;
+
+  private static final String GZIP = "gzip";
+
+  /**
+   * Encode and compress a body.
+   *
+   * @param body document
+   * @param charset charset the document declares
+   * @return payload
+   */
+  public static EncodedPayload of(final String body, final Charset charset) {
+    return of(body.getBytes(charset));
+  }
+
+  /**
+   * Compress an encoded body.
+   *
+   * @param identity document bytes
+   * @return payload
+   */
+  public static EncodedPayload of(final byte[] identity) {
+    final String etag = "W/\"" + Hashing.murmur3_128().hashBytes(identity).toString() + '"';
+    if (identity.length < MIN_COMPRESS_LENGTH) {
+      return new EncodedPayload(identity, null, etag);
+    }
+
+    final byte[] gzip = gzip(identity);
+    return new EncodedPayload(identity, gzip.length < identity.length ? gzip : null, etag);
+  }
+
+  private static byte[] gzip(final byte[] identity) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(identity.length / 4 + 32);
+    try (GZIPOutputStream gz =
+        new GZIPOutputStream(out) {
+          {
+            def.setLevel(Deflater.BEST_COMPRESSION);
+          }
+        }) {
+      gz.write(identity);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Check whether a client will take a gzip response. An explicit gzip entry wins over {@code *},
+   * so {@code gzip;q=0, *} refuses gzip (RFC 9110 section 12.5.3).
+   *
+   * @param acceptEncoding Accept-Encoding request header
+   * @return true if gzip is acceptable
+   */
+  public static boolean acceptsGzip(final String acceptEncoding) {
+    if (acceptEncoding == null || acceptEncoding.isEmpty()) return false;
+
+    Boolean gzip = null;
+    Boolean any = null;
+    for (final String coding : acceptEncoding.split(",")) {
+      final String[] parts = coding.split(";");
+      final String name = parts[0].trim().toLowerCase();
+      if (name.equals(GZIP) || name.equals("x-gzip")) {
+        gzip = acceptable(parts);
+      } else if (name.equals("*")) {
+        any = acceptable(parts);
+      }
+    }
+    if (gzip != null) return gzip;
+    return any != null && any;
+  }
+
+  private static boolean acceptable(final String[] parts) {
+    boolean acceptable = true;
+    for (int i = 1; i < parts.length; i++) {
+      final String param = parts[i].trim();
+      if (param.startsWith("q=")) {
+        try {
+          acceptable = Double.parseDouble(param.substring(2)) > 0;
+        } catch (final NumberFormatException e) {
+          acceptable = false;
+        }
+      }
+    }
+    return acceptable;
+  }
+
+  /** @return bytes held for this payload */
+  public int weight() {
+    return identity.length + (gzip == null ? 0 : gzip.length);
+  }
+
+  /**
+   * Finish a response with the stored bytes, gzip compressed if the client accepts it.
+   *
+   * @param builder response with status and headers set
+   * @param acceptEncoding Accept-Encoding request header
+   * @return response
+   */
+  public ResponseEntity<byte[]> toResponse(
+      final ResponseEntity.BodyBuilder builder, final String acceptEncoding) {
+    builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (gzip != null && acceptsGzip(acceptEncoding)) {
+      return builder.header(HttpHeaders.CONTENT_ENCODING, GZIP).contentLength(gzip.length).body(gzip);
+    }
+    return builder.contentLength(identity.length).body(identity);
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.utility;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * Thread safe date formatting for rendering journal entries. Formatters are immutable and shared,
+ * and the day headings used to group entries are cached since a page repeats the same few days.
+ *
+ * <p>Dates are shown in the server's default time zone, as they always have been.
+ *
+ * @author Lucas Holt
+ */
+public final class EntryDateFormatter {
+  /** Day heading, e.g. Tue, 11 Feb 2014 */
+  public static final String DAY_PATTERN = "EEE, d MMM yyyy";
+
+  /** Time of day, e.g. 5:30 PM */
+  public static final String TIME_PATTERN = "h:mm a";
+
+  private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern(DAY_PATTERN);
+  private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern(TIME_PATTERN);
+  private static final DateTimeFormatter DAY_OF_MONTH = DateTimeFormatter.ofPattern("dd");
+
+  private static final Cache<LocalDate, String> DAY_CACHE =
+      CacheBuilder.newBuilder().maximumSize(512).build();
+
+  private EntryDateFormatter() {}
+
+  @NotNull
+  private static ZonedDateTime zoned(@NotNull final Date date) {
+    // getTime() rather than toInstant() so java.sql.Date values work too
+    return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault());
+  }
+
+  /**
+   * @param date entry date
+   * @return day heading for the date
+   */
+  @NotNull
+  public static String formatDay(@NotNull final Date date) {
+    final LocalDate day = zoned(date).toLocalDate();
+    final String cached = DAY_CACHE.getIfPresent(day);
+    if (cached != null) return cached;
+
+    final String formatted = DAY.format(day);
+    DAY_CACHE.put(day, formatted);
+    return formatted;
+  }
+
+  /**
+   * @param date entry date
+   * @return time of day for the date
+   */
+  @NotNull
+  public static String formatTime(@NotNull final Date date) {
+    return TIME.format(zoned(date));
+  }
+
+  /**
+   * @param date entry date
+   * @return two digit day of the month
+   */
+  @NotNull
+  public static String formatDayOfMonth(@NotNull final Date date) {
+    return DAY_OF_MONTH.format(zoned(date));
+  }
+}
@@ -0,0 +1,20 @@
+CREATE TABLE IF NOT EXISTS `entry_calendar_count` (
+  `id`             INT(10) UNSIGNED    NOT NULL AUTO_INCREMENT,
+  `uid`            INT(10) UNSIGNED    NOT NULL DEFAULT '0',
+  `year`           SMALLINT UNSIGNED   NOT NULL,
+  `month`          TINYINT UNSIGNED    NOT NULL,
+  `day`            TINYINT UNSIGNED    NOT NULL,
+  `security`       TINYINT(4) UNSIGNED NOT NULL DEFAULT '0',
+  `entry_count`    INT(10) UNSIGNED    NOT NULL DEFAULT '0',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `calendarday` (`uid`, `year`, `month`, `day`, `security`)
+)
+  ENGINE = InnoDB
+  DEFAULT CHARSET = utf8
+  COLLATE = utf8_unicode_ci
+  COMMENT = 'Entry Counts By Day';
+
+INSERT INTO `entry_calendar_count` (`uid`, `year`, `month`, `day`, `security`, `entry_count`)
+SELECT `uid`, YEAR(`date`), MONTH(`date`), DAY(`date`), `security`, COUNT(*)
+FROM `entry`
+GROUP BY `uid`, YEAR(`date`), MONTH(`date`), DAY(`date`), `security`;
@@ -0,0 +1,3 @@
+-- journal pages seek on (date, id) within a user's entries
+create index user_date_id on entry (uid, date, id);
+create index user_security_date_id on entry (uid, security, date, id);
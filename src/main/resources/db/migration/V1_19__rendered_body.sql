@@ -0,0 +1,12 @@
+-- markdown bodies rendered in the background when saved; renderer is MarkdownService.RENDERER_VERSION
+alter table entry
+    add column `body_html` MEDIUMTEXT NULL,
+    add column `body_text` MEDIUMTEXT NULL,
+    add column `renderer` SMALLINT(5) UNSIGNED NOT NULL DEFAULT '0',
+    add key `format_renderer` (`format`, `renderer`);
+
+alter table comments
+    add column `body_html` MEDIUMTEXT NULL,
+    add column `body_text` MEDIUMTEXT NULL,
+    add column `renderer` SMALLINT(5) UNSIGNED NOT NULL DEFAULT '0',
+    add key `format_renderer` (`format`, `renderer`);
@@ -0,0 +1,16 @@
+CREATE TABLE IF NOT EXISTS `journal_version` (
+  `uid`      INT(10) UNSIGNED    NOT NULL,
+  `version`  BIGINT(20) UNSIGNED NOT NULL DEFAULT '1',
+  `modified` DATETIME            NOT NULL,
+  PRIMARY KEY (`uid`)
+)
+  ENGINE = InnoDB
+  DEFAULT CHARSET = utf8
+  COLLATE = utf8_unicode_ci
+  COMMENT = 'Journal change version for feed validators';
+
+INSERT INTO `journal_version` (`uid`, `version`, `modified`)
+SELECT `user`.`id`, 1, COALESCE(MAX(`entry`.`modified`), NOW())
+FROM `user`
+  LEFT JOIN `entry` ON `entry`.`uid` = `user`.`id`
+GROUP BY `user`.`id`;
@@ -0,0 +1,17 @@
+CREATE TABLE IF NOT EXISTS `websub_subscription` (
+  `id`            INT(10) UNSIGNED NOT NULL AUTO_INCREMENT,
+  `uid`           INT(10) UNSIGNED NOT NULL,
+  `feed`          VARCHAR(10)      NOT NULL,
+  `callback`      VARCHAR(2000)    NOT NULL,
+  `callback_hash` CHAR(64)         NOT NULL,
+  `secret`        VARCHAR(200)     NULL,
+  `expires`       DATETIME         NOT NULL,
+  `created`       DATETIME         NOT NULL,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `topic_callback` (`uid`, `feed`, `callback_hash`),
+  KEY `expires` (`expires`)
+)
+  ENGINE = InnoDB
+  DEFAULT CHARSET = utf8
+  COLLATE = utf8_unicode_ci
+  COMMENT = 'WebSub hub subscriptions to journal feeds';
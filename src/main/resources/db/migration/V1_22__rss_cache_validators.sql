@@ -0,0 +1,6 @@
+alter table rss_cache
+    add column etag VARCHAR(255) NULL,
+    add column last_modified VARCHAR(64) NULL,
+    add column next_fetch DATETIME NULL;
+
+update rss_cache set `interval` = 24 where `interval` = 0;
@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS `search_outbox` (
+  `id`       BIGINT(20) UNSIGNED NOT NULL AUTO_INCREMENT,
+  `entry_id` INT(10) UNSIGNED    NOT NULL,
+  `created`  DATETIME            NOT NULL,
+  PRIMARY KEY (`id`)
+)
+  ENGINE = InnoDB
+  DEFAULT CHARSET = utf8
+  COLLATE = utf8_unicode_ci
+  COMMENT = 'Entries changed since they were last sent to the search index';
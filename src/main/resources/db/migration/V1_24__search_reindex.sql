@@ -0,0 +1,13 @@
+CREATE TABLE IF NOT EXISTS `search_reindex` (
+  `id`         INT(10) UNSIGNED NOT NULL AUTO_INCREMENT,
+  `index_name` VARCHAR(255)     NOT NULL,
+  `first_id`   INT(10) UNSIGNED NOT NULL,
+  `last_id`    INT(10) UNSIGNED NOT NULL,
+  `checkpoint` INT(10) UNSIGNED NOT NULL,
+  `completed`  TINYINT(1)       NOT NULL DEFAULT 0,
+  PRIMARY KEY (`id`)
+)
+  ENGINE = InnoDB
+  DEFAULT CHARSET = utf8
+  COLLATE = utf8_unicode_ci
+  COMMENT = 'Progress of an unfinished rebuild of the search index, one row per id range';
@@ -0,0 +1,2 @@
+alter table entry
+  add key `modified` (`modified`);
@@ -0,0 +1,11 @@
+CREATE TABLE IF NOT EXISTS `search_version` (
+  `id`      TINYINT(3) UNSIGNED NOT NULL,
+  `version` BIGINT(20) UNSIGNED NOT NULL DEFAULT '0',
+  PRIMARY KEY (`id`)
+)
+  ENGINE = InnoDB
+  DEFAULT CHARSET = utf8
+  COLLATE = utf8_unicode_ci
+  COMMENT = 'Bumped on every search index write so all nodes drop cached results';
+
+INSERT INTO `search_version` (`id`, `version`) VALUES (1, 0);
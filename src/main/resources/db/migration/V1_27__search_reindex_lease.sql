@@ -0,0 +1,16 @@
+CREATE TABLE IF NOT EXISTS `search_reindex_lease` (
+  `id`      TINYINT(3) UNSIGNED NOT NULL,
+  `owner`   VARCHAR(64)         NULL,
+  `expires` DATETIME            NULL,
+  PRIMARY KEY (`id`)
+)
+  ENGINE = InnoDB
+  DEFAULT CHARSET = utf8
+  COLLATE = utf8_unicode_ci
+  COMMENT = 'Node rebuilding or catching up the search index, held until it expires';
+
+INSERT INTO `search_reindex_lease` (`id`) VALUES (1);
+
+ALTER TABLE `search_reindex`
+  ADD COLUMN `owner`         VARCHAR(64) NULL,
+  ADD COLUMN `claimed_until` DATETIME    NULL;
@@ -1,6 +1,8 @@
 package com.justjournal;
 
 import com.justjournal.model.Entry;
+import com.justjournal.model.EntryCalendarCount;
+import com.justjournal.model.Security;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -153,4 +155,41 @@ class CalTests {
         assertEquals(4, cal.monthList.get(2).getFirstDayInWeek()); // March starts on Wednesday (4)
         assertEquals(7, cal.monthList.get(3).getFirstDayInWeek()); // April starts on Saturday (7)
     }
+
+    private EntryCalendarCount createCount(int month, int day, Security security, long count) {
+        EntryCalendarCount c = new EntryCalendarCount();
+        c.setYear(2020);
+        c.setMonth(month);
+        c.setDay(day);
+        c.setSecurity(security);
+        c.setCount(count);
+        return c;
+    }
+
+    @Test
+    void testFromCounts() {
+        List<EntryCalendarCount> counts = new ArrayList<>();
+        counts.add(createCount(2, 29, Security.PUBLIC, 2));
+        counts.add(createCount(2, 29, Security.PRIVATE, 1));
+        counts.add(createCount(3, 1, Security.PUBLIC, 1));
+
+        Cal cal = Cal.fromCounts(counts);
+
+        assertEquals(2, cal.monthList.size());
+
+        CalMonth february = cal.monthList.get(0);
+        assertEquals(1, february.monthid);
+        assertEquals(29, february.getStorage().length);
+        assertEquals(3, february.getStorage()[28]);
+
+        CalMonth march = cal.monthList.get(1);
+        assertEquals(2, march.monthid);
+        assertEquals(1, march.getStorage()[0]);
+        assertTrue(cal.render().contains("fullcalendar"));
+    }
+
+    @Test
+    void testFromCountsEmpty() {
+        assertThrows(IllegalArgumentException.class, () -> Cal.fromCounts(Collections.emptyList()));
+    }
 }
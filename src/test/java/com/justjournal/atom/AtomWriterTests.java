@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.atom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import com.justjournal.core.Settings;
+import com.justjournal.model.EntryFeedItem;
+import com.justjournal.model.FormatType;
+import com.justjournal.services.BodyRenderService;
+import java.io.ByteArrayInputStream;
+import java.util.Date;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * @author Lucas Holt
+ */
+@ExtendWith(MockitoExtension.class)
+class AtomWriterTests {
+
+  private static final String ATOM_NS = "http://www.w3.org/2005/Atom";
+
+  @Mock private Settings settings;
+  @Mock private BodyRenderService bodyRenderService;
+
+  private AtomWriter atomWriter;
+
+  @BeforeEach
+  void setUp() {
+    atomWriter = new AtomWriter(bodyRenderService, settings);
+  }
+
+  private static Document parse(final byte[] xml) throws Exception {
+    final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+  }
+
+  @Test
+  void writesWellFormedFeed() throws Exception {
+    when(settings.getBlogBaseUrl("jack")).thenReturn("https://www.justjournal.com/users/jack");
+    final List<AtomEntry> entries =
+        atomWriter.entries(
+            List.of(
+                new EntryFeedItem(
+                    7, 1, "jack", "Fish & Chips", "<p>lunch</p>", FormatType.HTML, new Date(), null,
+                    0)));
+
+    final Document document =
+        parse(
+            atomWriter.toBytes(
+                new AtomFeed(
+                    "jack",
+                    "Jack's Journal",
+                    "Jack",
+                    "https://www.justjournal.com/users/jack",
+                    "/users/jack/atom",
+                    "https://www.justjournal.com/hub",
+                    entries)));
+
+    assertEquals(ATOM_NS, document.getDocumentElement().getNamespaceURI());
+    assertEquals(
+        "urn:jj:justjournal.com:atom1:jack",
+        document.getElementsByTagNameNS(ATOM_NS, "id").item(0).getTextContent());
+    assertEquals(1, document.getElementsByTagNameNS(ATOM_NS, "entry").getLength());
+    assertEquals(
+        "Fish & Chips", document.getElementsByTagNameNS(ATOM_NS, "title").item(1).getTextContent());
+    assertEquals(
+        "<p>lunch</p>",
+        document.getElementsByTagNameNS(ATOM_NS, "content").item(0).getTextContent());
+    final NodeList links = document.getElementsByTagNameNS(ATOM_NS, "link");
+    assertEquals("hub", ((Element) links.item(2)).getAttribute("rel"));
+    assertEquals("https://www.justjournal.com/hub", ((Element) links.item(2)).getAttribute("href"));
+    assertEquals(
+        "https://www.justjournal.com/users/jack/entry/7",
+        ((Element) links.item(3)).getAttribute("href"));
+  }
+}
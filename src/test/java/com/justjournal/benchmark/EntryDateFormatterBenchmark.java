@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.benchmark;
+
+import com.justjournal.model.DateTimeBean;
+import com.justjournal.utility.EntryDateFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per entry cost of formatting the day heading and time for a 50 entry page. {@code roundTrip}
+ * is how entries were formatted before {@link EntryDateFormatter}: new SimpleDateFormat instances
+ * per page and a format/parse of each date through DateTimeBean.
+ *
+ * <p>Run with {@code mvn test-compile} and then this class's main method.
+ *
+ * @author Lucas Holt
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntryDateFormatterBenchmark {
+  private static final int PAGE_SIZE = 50;
+
+  private Date[] dates;
+
+  @Setup
+  public void setUp() {
+    dates = new Date[PAGE_SIZE];
+    long time = System.currentTimeMillis();
+    for (int i = 0; i < PAGE_SIZE; i++) {
+      dates[i] = new Date(time);
+      time -= TimeUnit.HOURS.toMillis(7);
+    }
+  }
+
+  @Benchmark
+  public void roundTrip(final Blackhole bh) {
+    final SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd hh:mm");
+    final SimpleDateFormat formatmydate = new SimpleDateFormat("EEE, d MMM yyyy");
+    final SimpleDateFormat formatmytime = new SimpleDateFormat("h:mm a");
+
+    for (final Date date : dates) {
+      final ParsePosition pos = new ParsePosition(0);
+      final Date currentDate = formatter.parse(new DateTimeBean(date).toString(), pos);
+      bh.consume(formatmydate.format(currentDate));
+      bh.consume(formatmytime.format(currentDate));
+    }
+  }
+
+  @Benchmark
+  public void entryDateFormatter(final Blackhole bh) {
+    for (final Date date : dates) {
+      bh.consume(EntryDateFormatter.formatDay(date));
+      bh.consume(EntryDateFormatter.formatTime(date));
+    }
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(EntryDateFormatterBenchmark.class.getSimpleName()).build()).run();
+  }
+}
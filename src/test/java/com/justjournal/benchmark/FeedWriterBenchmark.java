@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.benchmark;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.justjournal.core.Settings;
+import com.justjournal.rss.RssChannel;
+import com.justjournal.rss.RssItem;
+import com.justjournal.rss.RssWriter;
+import com.justjournal.utility.DateConvert;
+import com.justjournal.utility.Xml;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Cost of writing one RSS document as ISO-8859-1 bytes. {@code stringBuilder} is how feeds were
+ * built before: the whole document concatenated into a string, entities escaped with {@link
+ * Xml#cleanString} and then encoded. {@code stax} streams the same channel through {@link
+ * RssWriter}. Both write every item in the channel, so the larger size shows how each scales
+ * with a long entry list.
+ *
+ * <p>Run with {@code mvn test-compile} and then this class's main method.
+ *
+ * @author Lucas Holt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedWriterBenchmark {
+  private static final String SENTENCE =
+      "Went to the café with Jack & Jill, ordered <something> \"new\" and wrote about it. ";
+
+  /** Number of entries handed to the writer. */
+  @Param({"15", "100"})
+  private int items;
+
+  private RssChannel channel;
+
+  private RssWriter rssWriter;
+
+  @Setup
+  public void setUp() {
+    final Settings settings = mock(Settings.class);
+    when(settings.getBaseUri()).thenReturn("https://www.justjournal.com/");
+    rssWriter = new RssWriter(null, settings, null);
+
+    final List<RssItem> list = new ArrayList<>(items);
+    for (int i = 0; i < items; i++) {
+      list.add(
+          new RssItem(
+              "Entry " + i + " & more",
+              "https://www.justjournal.com/users/jack/entry/" + i,
+              SENTENCE.repeat(20),
+              "https://www.justjournal.com/users/jack/entry/" + i,
+              "Sat, 07 Sep 2002 09:43:33 GMT"));
+    }
+    channel =
+        new RssChannel(
+            "Jack's Journal",
+            "https://www.justjournal.com/users/jack",
+            "https://www.justjournal.com/users/jack/rss",
+            "https://www.justjournal.com/hub",
+            "Just Journal for jack",
+            "en-us",
+            "Copyright 2024 Jack",
+            "webmaster@justjournal.com (Webmaster)",
+            "jack@justjournal.com (Jack)",
+            list);
+  }
+
+  @Benchmark
+  public byte[] stringBuilder() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>");
+    sb.append(
+        "<?xml-stylesheet type=\"text/xsl\" href=\"/static/streamburner/streamburner.xsl\"?>");
+    sb.append("<rss version=\"2.0\" xmlns:atom=\"http://www.w3.org/2005/Atom\">");
+    sb.append("<channel>");
+    element(sb, "title", Xml.cleanString(channel.title()));
+    element(sb, "link", channel.link());
+    element(sb, "description", Xml.cleanString(channel.description()));
+    element(sb, "language", channel.language());
+    element(sb, "webMaster", Xml.cleanString(channel.webMaster()));
+    element(sb, "managingEditor", Xml.cleanString(channel.managingEditor()));
+    element(sb, "copyright", Xml.cleanString(channel.copyright()));
+    element(sb, "generator", "JustJournal");
+    element(sb, "docs", "http://blogs.law.harvard.edu/tech/rss");
+    element(sb, "ttl", "360");
+    sb.append("<image>");
+    element(sb, "url", "http://www.justjournal.com/images/jj_icon_flower.png");
+    element(sb, "title", Xml.cleanString(channel.title()));
+    element(sb, "link", channel.link());
+    element(sb, "width", "64");
+    element(sb, "height", "64");
+    sb.append("</image>");
+    element(sb, "lastBuildDate", DateConvert.encode822());
+
+    for (final RssItem o : channel.items()) {
+      sb.append("<item>");
+      element(sb, "title", Xml.cleanString(o.title()));
+      element(sb, "link", o.link());
+      element(sb, "description", Xml.cleanString(o.description()) + "...");
+      sb.append("<guid isPermaLink=\"true\">").append(o.guid()).append("</guid>");
+      element(sb, "pubDate", o.pubDate());
+      sb.append("</item>");
+    }
+    sb.append("<atom:link href=\"")
+        .append(channel.selfLink())
+        .append("\" rel=\"self\" type=\"application/rss+xml\"/>");
+    sb.append("<atom:link href=\"").append(channel.hub()).append("\" rel=\"hub\"/>");
+    sb.append("</channel>");
+    sb.append("</rss>");
+    return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  private static void element(final StringBuilder sb, final String name, final String value) {
+    sb.append('<').append(name).append('>').append(value).append("</").append(name).append('>');
+  }
+
+  @Benchmark
+  public byte[] stax() throws XMLStreamException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+    rssWriter.write(channel, out);
+    return out.toByteArray();
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(FeedWriterBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.benchmark;
+
+import com.justjournal.services.MarkdownService;
+import org.commonmark.Extension;
+import org.commonmark.ext.autolink.AutolinkExtension;
+import org.commonmark.ext.gfm.tables.TablesExtension;
+import org.commonmark.node.Node;
+import org.commonmark.parser.Parser;
+import org.commonmark.renderer.html.HtmlRenderer;
+import org.commonmark.renderer.text.TextContentRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of producing the HTML and text for one markdown body. {@code perCall} is how bodies were
+ * rendered before: a new parser and renderer with a fresh extension list for each output, so the
+ * document was parsed twice. {@code shared} uses the reusable engine without its cache and
+ * {@code cached} is a repeat render of the same body.
+ *
+ * <p>Run with {@code mvn test-compile} and then this class's main method.
+ *
+ * @author Lucas Holt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkdownBenchmark {
+  private static final String PARAGRAPH =
+      "Today I *finally* fixed the **calendar** and wrote about it at https://www.justjournal.com.\n"
+          + "Nothing else [happened](https://example.com), which is `fine`.\n\n";
+
+  private static final String TABLE = "| mood | count |\n|------|-------|\n| happy | 3 |\n\n";
+
+  /** Approximate size of the body in characters. */
+  @Param({"300", "5000", "100000"})
+  private int size;
+
+  private String markdown;
+
+  private MarkdownService uncached;
+
+  private MarkdownService cached;
+
+  @Setup
+  public void setUp() {
+    final StringBuilder sb = new StringBuilder(size + PARAGRAPH.length());
+    int i = 0;
+    while (sb.length() < size) {
+      sb.append("## Section ").append(i).append("\n\n").append(PARAGRAPH);
+      if (i++ % 5 == 0) sb.append(TABLE);
+    }
+    markdown = sb.toString();
+    uncached = new MarkdownService(0);
+    cached = new MarkdownService();
+    cached.render(markdown);
+  }
+
+  private static List<Extension> extensions() {
+    return Arrays.asList(TablesExtension.create(), AutolinkExtension.create());
+  }
+
+  @Benchmark
+  public void perCall(final Blackhole bh) {
+    final Node htmlDocument = Parser.builder().extensions(extensions()).build().parse(markdown);
+    bh.consume(HtmlRenderer.builder().extensions(extensions()).build().render(htmlDocument));
+    final Node textDocument = Parser.builder().extensions(extensions()).build().parse(markdown);
+    bh.consume(TextContentRenderer.builder().extensions(extensions()).build().render(textDocument));
+  }
+
+  @Benchmark
+  public MarkdownService.Rendered shared() {
+    return uncached.render(markdown);
+  }
+
+  @Benchmark
+  public MarkdownService.Rendered cached() {
+    return cached.render(markdown);
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(MarkdownBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+import com.justjournal.model.RssCache;
+import com.justjournal.model.RssCacheSchedule;
+import com.justjournal.repository.RssCacheRepository;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Fetches from a stub feed on a local port.
+ *
+ * @author Lucas Holt
+ */
+@ExtendWith(MockitoExtension.class)
+class RssCacheRefreshTests {
+  private static final String FEED = "<rss version=\"2.0\"><channel></channel></rss>";
+  private static final String LAST_MODIFIED = "Sat, 07 Sep 2002 09:43:33 GMT";
+
+  @Mock private RssCacheRepository rssCacheRepository;
+
+  private RssCacheRefresh rssCacheRefresh;
+
+  private HttpServer upstream;
+  private String uri;
+
+  private volatile int status = 200;
+  private volatile String body = FEED;
+  private volatile String ifNoneMatch;
+  private volatile String ifModifiedSince;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    upstream.createContext(
+        "/feed",
+        exchange -> {
+          ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+          ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+          if ("\"v1\"".equals(ifNoneMatch)) {
+            exchange.sendResponseHeaders(304, -1);
+          } else if (status == 200) {
+            final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+          } else {
+            exchange.sendResponseHeaders(status, -1);
+          }
+          exchange.close();
+        });
+    upstream.start();
+    uri = "http://127.0.0.1:" + upstream.getAddress().getPort() + "/feed";
+
+    rssCacheRefresh = new RssCacheRefresh(rssCacheRepository, HttpClients.createDefault());
+    lenient().when(rssCacheRepository.saveAndFlush(any())).thenAnswer(i -> i.getArgument(0));
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    upstream.stop(0);
+    rssCacheRefresh.shutdown();
+  }
+
+  private RssCache cache(final String content, final String etag) {
+    final RssCache cache = new RssCache();
+    cache.setId(1);
+    cache.setUri(uri);
+    cache.setActive(true);
+    cache.setInterval(24);
+    cache.setContent(content);
+    cache.setEtag(etag);
+    return cache;
+  }
+
+  private static void assertDueIn(final RssCache cache, final int hours) {
+    final long expected = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(hours);
+    assertTrue(Math.abs(cache.getNextFetch().getTime() - expected) < 60000);
+  }
+
+  @Test
+  void storesValidators() throws Exception {
+    final RssCache cache = cache(null, null);
+    rssCacheRefresh.getRssDocument(cache);
+
+    assertNull(ifNoneMatch);
+    assertEquals("<?xml version=\"1.0\"?>\n" + FEED, cache.getContent());
+    assertEquals("\"v1\"", cache.getEtag());
+    assertEquals(LAST_MODIFIED, cache.getLastModified());
+    assertEquals(0, cache.getErrorCount());
+  }
+
+  @Test
+  void notModifiedLengthensInterval() throws Exception {
+    final RssCache cache = cache("old", "\"v1\"");
+    cache.setLastModified(LAST_MODIFIED);
+    cache.setErrorCount(2);
+    rssCacheRefresh.getRssDocument(cache);
+
+    assertEquals("\"v1\"", ifNoneMatch);
+    assertEquals(LAST_MODIFIED, ifModifiedSince);
+    assertEquals("old", cache.getContent());
+    assertEquals(36, cache.getInterval());
+    assertEquals(0, cache.getErrorCount());
+    assertDueIn(cache, 36);
+  }
+
+  @Test
+  void changedContentShortensInterval() throws Exception {
+    final RssCache cache = cache("old", "\"v0\"");
+    rssCacheRefresh.getRssDocument(cache);
+
+    assertEquals("\"v0\"", ifNoneMatch);
+    assertEquals(12, cache.getInterval());
+    assertDueIn(cache, 12);
+  }
+
+  @Test
+  void intervalStaysInBounds() {
+    final RssCache fast = cache("old", null);
+    fast.setInterval(RssCacheRefresh.MIN_INTERVAL_HOURS);
+    RssCacheRefresh.fetched(fast, true);
+    assertEquals(RssCacheRefresh.MIN_INTERVAL_HOURS, fast.getInterval());
+
+    final RssCache slow = cache("old", null);
+    slow.setInterval(RssCacheRefresh.MAX_INTERVAL_HOURS);
+    RssCacheRefresh.fetched(slow, false);
+    assertEquals(RssCacheRefresh.MAX_INTERVAL_HOURS, slow.getInterval());
+
+    final RssCache unset = cache("old", null);
+    unset.setInterval(0);
+    RssCacheRefresh.fetched(unset, false);
+    assertEquals(36, unset.getInterval());
+  }
+
+  @Test
+  void errorsBackOff() throws Exception {
+    status = 503;
+    final RssCache cache = cache("old", null);
+    rssCacheRefresh.getRssDocument(cache);
+    assertEquals(1, cache.getErrorCount());
+    assertDueIn(cache, 48);
+
+    rssCacheRefresh.getRssDocument(cache);
+    assertEquals(2, cache.getErrorCount());
+    assertDueIn(cache, 96);
+    assertEquals("old", cache.getContent());
+    assertTrue(cache.getActive());
+  }
+
+  @Test
+  void htmlIsAnError() throws Exception {
+    body = "<html><body>not a feed</body></html>";
+    final RssCache cache = cache("old", null);
+    rssCacheRefresh.getRssDocument(cache);
+
+    assertEquals("old", cache.getContent());
+    assertEquals(1, cache.getErrorCount());
+  }
+
+  @Test
+  void goneIsDisabled() throws Exception {
+    status = 410;
+    when(rssCacheRepository.findById(1)).thenReturn(Optional.of(cache("old", null)));
+
+    rssCacheRefresh.refresh(1);
+    assertTrue(rssCacheRefresh.takeDue(Long.MAX_VALUE).isEmpty());
+  }
+
+  @Test
+  void queueOrderedByDueTime() {
+    final long now = System.currentTimeMillis();
+    when(rssCacheRepository.findSchedule())
+        .thenReturn(
+            List.of(
+                new RssCacheSchedule(1, new Date(now - 1000), null, 24),
+                new RssCacheSchedule(2, null, new Date(now - TimeUnit.HOURS.toMillis(25)), 24),
+                new RssCacheSchedule(3, new Date(now + 60000), null, 24),
+                new RssCacheSchedule(4, null, null, 24)));
+
+    rssCacheRefresh.sync();
+    rssCacheRefresh.sync();
+
+    assertEquals(List.of(4, 2, 1), rssCacheRefresh.takeDue(now));
+    assertEquals(List.of(3), rssCacheRefresh.takeDue(now + 60000));
+  }
+
+  @Test
+  void refreshRequeues() {
+    when(rssCacheRepository.findById(1)).thenReturn(Optional.of(cache(null, null)));
+
+    rssCacheRefresh.refresh(1);
+    assertTrue(rssCacheRefresh.takeDue(System.currentTimeMillis()).isEmpty());
+    assertEquals(List.of(1), rssCacheRefresh.takeDue(Long.MAX_VALUE));
+    assertFalse(rssCacheRefresh.takeDue(Long.MAX_VALUE).contains(1));
+  }
+}
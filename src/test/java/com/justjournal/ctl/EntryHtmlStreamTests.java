@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.ctl;
+
+import com.justjournal.model.Entry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Lucas Holt
+ */
+class EntryHtmlStreamTests {
+
+    private static Entry entry(final int id, final int day, final int hour) {
+        final Entry entry = new Entry(id, "subject " + id);
+        entry.setDate(new GregorianCalendar(2014, Calendar.FEBRUARY, day, hour, 0).getTime());
+        return entry;
+    }
+
+    private static List<String> collect(final Iterable<String> fragments) {
+        final List<String> list = new ArrayList<>();
+        fragments.forEach(list::add);
+        return list;
+    }
+
+    @Test
+    void dateHeadingOnlyWhenDayChanges() {
+        final List<Entry> entries = List.of(entry(3, 11, 20), entry(2, 11, 8), entry(1, 10, 9));
+
+        final List<String> html = collect(new EntryHtmlStream(entries, (o, date) -> "<p>" + o.getId() + "</p>"));
+
+        assertEquals(3, html.size());
+        assertEquals("<h2>Tue, 11 Feb 2014</h2>\n<p>3</p>", html.get(0));
+        assertEquals("<p>2</p>", html.get(1));
+        assertEquals("<h2>Mon, 10 Feb 2014</h2>\n<p>1</p>", html.get(2));
+    }
+
+    @Test
+    void headingAndEmptyMessage() {
+        final List<String> html =
+                collect(new EntryHtmlStream(Collections.emptyList(), (o, date) -> "")
+                        .heading("<h2>Friends</h2>")
+                        .whenEmpty("<p>none</p>"));
+
+        assertEquals(List.of("<h2>Friends</h2>", "<p>none</p>"), html);
+    }
+
+    @Test
+    void entriesRenderLazily() {
+        final List<Integer> rendered = new ArrayList<>();
+        final EntryHtmlStream stream = new EntryHtmlStream(List.of(entry(2, 11, 8), entry(1, 10, 9)), (o, date) -> {
+            rendered.add(o.getId());
+            return "";
+        });
+
+        final var itr = stream.iterator();
+        assertTrue(rendered.isEmpty());
+        itr.next();
+        assertEquals(List.of(2), rendered);
+    }
+
+    @Test
+    void renderFailureEndsList() {
+        final List<String> html = collect(new EntryHtmlStream(List.of(entry(2, 11, 8), entry(1, 10, 9)), (o, date) -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals(1, html.size());
+        assertTrue(html.get(0).contains("Error"));
+    }
+}
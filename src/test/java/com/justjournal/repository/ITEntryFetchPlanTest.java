@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.repository;
+
+import com.justjournal.Application;
+import com.justjournal.model.Comment;
+import com.justjournal.model.Entry;
+import com.justjournal.model.EntryTag;
+import com.justjournal.model.Security;
+import com.justjournal.model.User;
+import com.justjournal.model.search.BlogEntry;
+import com.justjournal.services.BlogSearchService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks what each entry fetch plan loads. Listings should not touch tags or comments, while
+ * feeds and indexing should load the tags for a whole page in one statement.
+ *
+ * @author Lucas Holt
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    classes = Application.class,
+    properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@WebAppConfiguration
+@ActiveProfiles("it")
+@Transactional
+class ITEntryFetchPlanTest {
+  private static final int PAGE_SIZE = 20;
+
+  private static final String ENTRY_TAGS = Entry.class.getName() + ".tags";
+  private static final String ENTRY_COMMENTS = Entry.class.getName() + ".comments";
+
+  @Autowired private EntryRepository entryRepository;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private BlogSearchService blogSearchService;
+
+  @Autowired private EntityManager entityManager;
+
+  @Autowired private EntityManagerFactory entityManagerFactory;
+
+  private Statistics statistics;
+
+  private User user;
+
+  @BeforeEach
+  void setUp() {
+    user = userRepository.findByUsername("testuser");
+    entityManager.clear();
+
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+  }
+
+  @Test
+  void listingLoadsNoTagsOrComments() {
+    final List<Entry> entries =
+        entryRepository
+            .findByUserAndSecurityOrderByDateDesc(user, Security.PUBLIC, PageRequest.of(0, PAGE_SIZE))
+            .getContent();
+    assertFalse(entries.isEmpty());
+
+    assertEquals(0, statistics.getCollectionStatistics(ENTRY_TAGS).getLoadCount());
+    assertEquals(0, statistics.getCollectionStatistics(ENTRY_COMMENTS).getLoadCount());
+    assertEquals(0, statistics.getEntityStatistics(EntryTag.class.getName()).getLoadCount());
+    assertEquals(0, statistics.getEntityStatistics(Comment.class.getName()).getLoadCount());
+  }
+
+  @Test
+  void feedLoadsTagsInOneStatement() {
+    final List<Entry> page =
+        entryRepository
+            .findByUserAndSecurityOrderByDateDesc(user, Security.PUBLIC, PageRequest.of(0, PAGE_SIZE))
+            .getContent();
+    assertFalse(page.isEmpty());
+    statistics.clear();
+
+    final List<Entry> entries = entryRepository.fetchTags(page);
+    long tags = 0;
+    for (final Entry entry : entries) {
+      tags += entry.getTags().stream().map(t -> t.getTag().getName()).count();
+    }
+
+    assertEquals(page.size(), entries.size());
+    assertEquals(1, statistics.getPrepareStatementCount());
+    assertEquals(0, statistics.getCollectionStatistics(ENTRY_TAGS).getFetchCount());
+    assertEquals(tags, statistics.getEntityStatistics(EntryTag.class.getName()).getLoadCount());
+    assertEquals(0, statistics.getCollectionStatistics(ENTRY_COMMENTS).getLoadCount());
+  }
+
+  @Test
+  void indexingLoadsTagsInOneStatement() {
+    final List<Entry> page =
+        entryRepository.findBySecurityOrderByDateDesc(Security.PUBLIC, PageRequest.of(0, PAGE_SIZE)).getContent();
+    assertFalse(page.isEmpty());
+    statistics.clear();
+
+    for (final Entry entry : entryRepository.fetchTags(page)) {
+      final BlogEntry blogEntry = blogSearchService.convert(entry);
+      assertTrue(blogEntry.getTags().size() <= entry.getTags().size());
+    }
+
+    assertEquals(1, statistics.getPrepareStatementCount());
+    assertEquals(0, statistics.getCollectionStatistics(ENTRY_TAGS).getFetchCount());
+    assertEquals(0, statistics.getCollectionStatistics(ENTRY_COMMENTS).getLoadCount());
+  }
+}
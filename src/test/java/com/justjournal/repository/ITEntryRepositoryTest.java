@@ -162,13 +162,13 @@ class ITEntryRepositoryTest {
   }
 
   @Test
-  void calendarCount() {
-    int year = 2023;
-    int month = 5;
-    String username = "testuser";
-    Long count = entryRepository.calendarCount(year, month, username);
-    assertNotNull(count);
-    assertTrue(count >= 0);
+  void findByImpossibleCalendarDate() {
+    assertTrue(entryRepository.findByUsernameAndYearAndMonthAndDay("testuser", 2024, 2, 31).isEmpty());
+    assertTrue(entryRepository.findByUsernameAndYearAndMonth("testuser", 2024, 13).isEmpty());
+    assertTrue(
+        entryRepository
+            .findByUsernameAndYearAndMonthAndDayAndSecurity("testuser", 2024, 0, 1, Security.PUBLIC)
+            .isEmpty());
   }
 
   @Test
@@ -25,16 +25,13 @@
  */
 package com.justjournal.rss;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
-
 import com.justjournal.Application;
-import com.justjournal.model.Entry;
+import com.justjournal.model.EntryFeedItem;
 import com.justjournal.model.FormatType;
-import com.justjournal.model.PrefBool;
-import com.justjournal.model.User;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -50,37 +47,23 @@ import org.springframework.test.context.web.WebAppConfiguration;
 @SpringBootTest(classes = Application.class)
 @WebAppConfiguration
 @ActiveProfiles("it")
-class ITRssTest {
+class ITRssWriterTest {
 
-  @Autowired private Rss rss;
+  @Autowired private RssWriter rssWriter;
 
   @Test
    void testPopulate() {
+    final Collection<EntryFeedItem> entries = new ArrayList<>();
+    entries.add(new EntryFeedItem(1, 1, "testuser", "Test Blog Post", "Foo Bar", FormatType.TEXT, new java.util.Date(), null, 0));
 
-    final java.util.GregorianCalendar calendar = new java.util.GregorianCalendar();
-    calendar.setTime(new java.util.Date());
-
-    final Collection<Entry> entries = new ArrayList<>();
-
-    final User user = new User();
-    user.setUsername("testuser");
-    user.setSince(2003);
-
-    final Entry entry = new Entry();
-    entry.setId(1);
-    entry.setFormat(FormatType.TEXT);
-    entry.setBody("Foo Bar");
-    entry.setDraft(PrefBool.N);
-    entry.setAutoFormat(PrefBool.Y);
-    entry.setSubject("Test Blog Post");
-    entry.setUser(user);
-    entries.add(entry);
-
-    rss.populate(entries);
+    final List<RssItem> items = rssWriter.items(entries);
 
-    Assertions.assertTrue(rss.size() > 0);
+    Assertions.assertTrue(items.size() > 0);
 
-    final String xml = rss.toXml();
+    final String xml =
+        new String(
+            rssWriter.toBytes(new RssChannel("test", "", "", null, "", "en-us", "", "", "", items)),
+            StandardCharsets.ISO_8859_1);
     Assertions.assertTrue(xml.contains("<item"));
   }
 
@@ -88,7 +71,10 @@ class ITRssTest {
   void testWebmaster() {
     final String webmaster = "test@test.com (test)";
 
-    rss.setWebMaster(webmaster);
-    Assertions.assertEquals(webmaster, rss.getWebMaster());
+    final String xml =
+        new String(
+            rssWriter.toBytes(new RssChannel("test", "", "", null, "", "en-us", "", webmaster, "", List.of())),
+            StandardCharsets.ISO_8859_1);
+    Assertions.assertTrue(xml.contains("<webMaster>" + webmaster + "</webMaster>"));
   }
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.rss;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import com.justjournal.core.Settings;
+import com.justjournal.model.EntryFeedItem;
+import com.justjournal.model.FormatType;
+import com.justjournal.services.BodyRenderService;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * @author Lucas Holt
+ */
+@ExtendWith(MockitoExtension.class)
+class RssWriterTests {
+
+  @Mock private JdbcTemplate jdbcTemplate;
+  @Mock private Settings settings;
+  @Mock private BodyRenderService bodyRenderService;
+
+  private RssWriter rssWriter;
+
+  @BeforeEach
+  void setUp() {
+    when(settings.getBaseUri()).thenReturn("https://www.justjournal.com/");
+    rssWriter = new RssWriter(jdbcTemplate, settings, bodyRenderService);
+  }
+
+  private static EntryFeedItem item(final int id, final String subject, final String body) {
+    return new EntryFeedItem(id, 1, "jack", subject, body, FormatType.TEXT, new Date(), null, 0);
+  }
+
+  private RssChannel channel(final List<RssItem> items) {
+    return new RssChannel(
+        "Jack & Jill",
+        "https://www.justjournal.com/users/jack",
+        "https://www.justjournal.com/users/jack/rss",
+        "https://www.justjournal.com/hub",
+        "Just Journal for jack",
+        "en-us",
+        "Copyright 2024 Jack",
+        "webmaster@justjournal.com (Webmaster)",
+        "jack@justjournal.com (Jack)",
+        items);
+  }
+
+  private static Document parse(final byte[] xml) throws Exception {
+    final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+  }
+
+  @Test
+  void writesWellFormedChannel() throws Exception {
+    final byte[] xml =
+        rssWriter.toBytes(channel(rssWriter.items(List.of(item(1, "<b>bold</b>", "a & b")))));
+
+    final Document document = parse(xml);
+    assertEquals("rss", document.getDocumentElement().getNodeName());
+    assertEquals("Jack & Jill", document.getElementsByTagName("title").item(0).getTextContent());
+    assertEquals("<b>bold</b>", document.getElementsByTagName("title").item(2).getTextContent());
+    assertEquals("a & b...", document.getElementsByTagName("description").item(1).getTextContent());
+    assertEquals(
+        "https://www.justjournal.com/users/jack/entry/1",
+        document.getElementsByTagName("guid").item(0).getTextContent());
+    final NodeList links = document.getElementsByTagNameNS("http://www.w3.org/2005/Atom", "link");
+    assertEquals(2, links.getLength());
+    assertEquals("hub", ((Element) links.item(1)).getAttribute("rel"));
+    assertEquals("https://www.justjournal.com/hub", ((Element) links.item(1)).getAttribute("href"));
+  }
+
+  @Test
+  void charactersOutsideLatin1AreReferences() throws Exception {
+    final byte[] xml =
+        rssWriter.toBytes(channel(rssWriter.items(List.of(item(1, "caf\u00e9 \u2603", "")))));
+
+    final String text = new String(xml, StandardCharsets.ISO_8859_1);
+    assertTrue(text.startsWith("<?xml version='1.0' encoding='ISO-8859-1'?>"));
+    assertTrue(text.contains("caf\u00e9 &#x2603;"));
+    assertEquals(
+        "caf\u00e9 \u2603", parse(xml).getElementsByTagName("title").item(2).getTextContent());
+  }
+
+  @Test
+  void limitsItems() throws Exception {
+    final List<EntryFeedItem> entries = new ArrayList<>();
+    for (int i = 0; i < RssWriter.MAX_LENGTH + 5; i++) {
+      entries.add(item(i, "subject " + i, "body"));
+    }
+
+    final List<RssItem> items = rssWriter.items(entries);
+    assertEquals(RssWriter.MAX_LENGTH, items.size());
+    assertEquals(
+        RssWriter.MAX_LENGTH,
+        parse(rssWriter.toBytes(channel(items))).getElementsByTagName("item").getLength());
+  }
+
+  @Test
+  void writesEnclosure() throws Exception {
+    final RssItem picture =
+        new RssItem(
+            "picture",
+            "https://www.justjournal.com/users/jack/pictures",
+            "",
+            "https://www.justjournal.com/AlbumImage?id=3",
+            "Sat, 07 Sep 2002 09:43:33 GMT",
+            "https://www.justjournal.com/AlbumImage?id=3",
+            "1024",
+            "image/png");
+
+    final Document document = parse(rssWriter.toBytes(channel(List.of(picture))));
+    assertEquals(
+        "image/png",
+        ((Element) document.getElementsByTagName("enclosure").item(0)).getAttribute("type"));
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.justjournal.model.search.BlogEntry;
+import com.justjournal.model.search.Tag;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * @author Lucas Holt
+ */
+class LuceneBlogEntryStoreTests {
+  @TempDir Path path;
+
+  private LuceneBlogEntryStore store;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    store = new LuceneBlogEntryStore(path, false);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    store.close();
+  }
+
+  private static BlogEntry entry(
+      final int id, final String author, final boolean privateEntry, final String body) {
+    final BlogEntry entry = new BlogEntry();
+    entry.setId(id);
+    entry.setAuthor(author);
+    entry.setPrivateEntry(privateEntry);
+    entry.setSubject("Entry " + id);
+    entry.setBody(body);
+    entry.setDate(new Date(1_700_000_000_000L + id));
+    final Tag tag = new Tag();
+    tag.setName("tag" + id);
+    entry.setTags(List.of(tag));
+    return entry;
+  }
+
+  private void fill() {
+    store.saveAll(
+        List.of(
+            entry(1, "jack", false, "Walked the dog in the rain"),
+            entry(2, "jack", true, "The dog chewed my shoes"),
+            entry(3, "Jill", false, "Rain again, no dog today"),
+            entry(4, "jill", false, "Baked bread")));
+  }
+
+  private static List<Integer> ids(final Page<BlogEntry> page) {
+    return page.getContent().stream().map(BlogEntry::getId).sorted().toList();
+  }
+
+  @Test
+  void newIndexIsNotCurrent() {
+    assertFalse(store.isCurrent());
+  }
+
+  @Test
+  void publicSearchLeavesOutPrivateEntries() {
+    fill();
+
+    assertEquals(List.of(1, 3), ids(store.publicSearch("dog", PageRequest.of(0, 10))));
+    assertEquals(List.of(1, 2, 3), ids(store.search("dog", PageRequest.of(0, 10))));
+  }
+
+  @Test
+  void authorSearchIgnoresCase() {
+    fill();
+
+    assertEquals(List.of(3), ids(store.publicSearch("rain", "jill", PageRequest.of(0, 10))));
+    assertEquals(List.of(1, 2), ids(store.search("DOG", "JACK", PageRequest.of(0, 10))));
+    assertEquals(List.of(1), ids(store.publicSearch("dog", "jack", PageRequest.of(0, 10))));
+  }
+
+  @Test
+  void resultsKeepStoredFields() {
+    fill();
+
+    final BlogEntry found = store.publicSearch("bread", PageRequest.of(0, 10)).getContent().get(0);
+    assertEquals(4, found.getId());
+    assertEquals("jill", found.getAuthor());
+    assertFalse(found.getPrivateEntry());
+    assertEquals("Entry 4", found.getSubject());
+    assertEquals("Baked bread", found.getBody());
+    assertEquals(new Date(1_700_000_000_004L), found.getDate());
+    assertEquals("tag4", found.getTags().get(0).getName());
+  }
+
+  @Test
+  void pagesThroughResults() {
+    fill();
+
+    final Page<BlogEntry> first = store.search("dog", PageRequest.of(0, 2));
+    final Page<BlogEntry> second = store.search("dog", PageRequest.of(1, 2));
+    final Page<BlogEntry> past = store.search("dog", PageRequest.of(5, 2));
+
+    assertEquals(3, first.getTotalElements());
+    assertEquals(2, first.getContent().size());
+    assertEquals(1, second.getContent().size());
+    assertTrue(past.getContent().isEmpty());
+    assertEquals(3, past.getTotalElements());
+  }
+
+  @Test
+  void saveReplacesAndDeleteRemoves() {
+    fill();
+
+    store.saveAll(List.of(entry(1, "jack", true, "Walked the dog in the rain")));
+    store.deleteAllById(List.of(3, 99));
+
+    assertTrue(store.publicSearch("dog", PageRequest.of(0, 10)).isEmpty());
+    assertEquals(List.of(1, 2), ids(store.search("dog", PageRequest.of(0, 10))));
+  }
+
+  @Test
+  void reopenedIndexIsCurrentUnlessRebuilt() throws IOException {
+    fill();
+    store.close();
+
+    store = new LuceneBlogEntryStore(path, false);
+    assertTrue(store.isCurrent());
+    assertEquals(List.of(1, 3), ids(store.publicSearch("dog", PageRequest.of(0, 10))));
+    store.close();
+
+    store = new LuceneBlogEntryStore(path, true);
+    assertFalse(store.isCurrent());
+    assertTrue(store.search("dog", PageRequest.of(0, 10)).isEmpty());
+  }
+}
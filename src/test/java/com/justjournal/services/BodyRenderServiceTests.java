@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.justjournal.model.Comment;
+import com.justjournal.model.Entry;
+import com.justjournal.model.EntryRendering;
+import com.justjournal.model.EntryFeedItem;
+import com.justjournal.model.FormatType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Lucas Holt
+ */
+@ExtendWith(MockitoExtension.class)
+class BodyRenderServiceTests {
+
+    private static final String MARKDOWN = "Hello *world*";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private BodyRenderService bodyRenderService;
+
+    @BeforeEach
+    void setUp() {
+        bodyRenderService = new BodyRenderService(new MarkdownService(), jdbcTemplate);
+    }
+
+    private static Entry markdownEntry() {
+        final Entry entry = new Entry(1, "Test");
+        entry.setFormat(FormatType.MARKDOWN);
+        entry.setBody(MARKDOWN);
+        return entry;
+    }
+
+    @Test
+    void htmlUsesCurrentRendering() {
+        final Entry entry = markdownEntry();
+        entry.setRendering(new EntryRendering(entry.getId(), "<p>stored</p>", null));
+        entry.setRenderer(MarkdownService.RENDERER_VERSION);
+
+        assertEquals("<p>stored</p>", bodyRenderService.html(entry));
+    }
+
+    @Test
+    void htmlRendersWhenStale() {
+        final Entry entry = markdownEntry();
+        entry.setRendering(new EntryRendering(entry.getId(), "<p>old</p>", null));
+        entry.setRenderer(MarkdownService.RENDERER_VERSION - 1);
+
+        assertEquals("<p>Hello <em>world</em></p>\n", bodyRenderService.html(entry));
+    }
+
+    @Test
+    void htmlRendersComment() {
+        final Comment comment = new Comment();
+        comment.setFormat(FormatType.MARKDOWN);
+        comment.setBody(MARKDOWN);
+
+        assertEquals("<p>Hello <em>world</em></p>\n", bodyRenderService.html(comment));
+    }
+
+    @Test
+    void textForEachFormat() {
+        assertEquals("Hello world", bodyRenderService.text(markdownEntry()));
+
+        final EntryFeedItem stored =
+                new EntryFeedItem(1, 1, "testuser", "Test", MARKDOWN, FormatType.MARKDOWN, new Date(), "stored",
+                        MarkdownService.RENDERER_VERSION);
+        assertEquals("stored", bodyRenderService.text(stored));
+
+        final EntryFeedItem html =
+                new EntryFeedItem(1, 1, "testuser", "Test", "<b>bold</b>", FormatType.HTML, new Date(), null, 0);
+        assertEquals("bold", bodyRenderService.text(html).trim());
+
+        final EntryFeedItem text =
+                new EntryFeedItem(1, 1, "testuser", "Test", "*plain*", FormatType.TEXT, new Date(), null, 0);
+        assertEquals("*plain*", bodyRenderService.text(text));
+    }
+
+    @Test
+    void renderEntryStoresBoth() {
+        bodyRenderService.renderEntry(7, MARKDOWN);
+
+        verify(jdbcTemplate).update(startsWith("UPDATE entry"), eq("<p>Hello <em>world</em></p>\n"), eq("Hello world"),
+                eq(MarkdownService.RENDERER_VERSION), eq(7), eq(MARKDOWN));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void renderStaleRendersEachRow() {
+        when(jdbcTemplate.query(startsWith("SELECT id, body FROM entry"), any(RowMapper.class), any(), any()))
+                .thenReturn(List.of(new Object[]{3, MARKDOWN}, new Object[]{9, MARKDOWN}));
+        when(jdbcTemplate.query(startsWith("SELECT id, body FROM comments"), any(RowMapper.class), any(), any()))
+                .thenReturn(List.of());
+
+        assertEquals(2, bodyRenderService.renderStale());
+
+        verify(jdbcTemplate).update(startsWith("UPDATE entry"), anyString(), anyString(), any(), eq(3), eq(MARKDOWN));
+        verify(jdbcTemplate).update(startsWith("UPDATE entry"), anyString(), anyString(), any(), eq(9), eq(MARKDOWN));
+    }
+
+    @Test
+    void editingClearsRendering() {
+        final Entry entry = markdownEntry();
+        entry.setRendering(new EntryRendering(entry.getId(), "<p>stored</p>", "stored"));
+        entry.setRenderer(MarkdownService.RENDERER_VERSION);
+
+        entry.setBody("changed");
+
+        assertNull(entry.getBodyHtml());
+        assertNull(entry.getBodyText());
+        assertEquals(0, entry.getRenderer());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void listenerQueuesUnrenderedMarkdown() {
+        final BodyRenderService service = mock(BodyRenderService.class);
+        final ObjectProvider<BodyRenderService> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(service);
+        final BodyRenderListener listener = new BodyRenderListener(provider);
+
+        listener.saved(markdownEntry());
+
+        verify(service).renderEntry(1, MARKDOWN);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void listenerIgnoresOtherFormats() {
+        final ObjectProvider<BodyRenderService> provider = mock(ObjectProvider.class);
+        final BodyRenderListener listener = new BodyRenderListener(provider);
+        final Entry entry = new Entry(1, "Test");
+        entry.setFormat(FormatType.TEXT);
+        entry.setBody("plain");
+
+        listener.saved(entry);
+
+        verifyNoInteractions(provider);
+        assertEquals(0, entry.getRenderer());
+    }
+}
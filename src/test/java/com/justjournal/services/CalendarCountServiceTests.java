@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.justjournal.model.Entry;
+import com.justjournal.model.Security;
+import com.justjournal.model.User;
+import com.justjournal.repository.EntryCalendarCountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Lucas Holt
+ */
+@ExtendWith(MockitoExtension.class)
+class CalendarCountServiceTests {
+
+    private static final Date FEB_3 = new GregorianCalendar(2014, Calendar.FEBRUARY, 3, 9, 0).getTime();
+    private static final Date FEB_3_LATER = new GregorianCalendar(2014, Calendar.FEBRUARY, 3, 22, 0).getTime();
+    private static final Date FEB_4 = new GregorianCalendar(2014, Calendar.FEBRUARY, 4, 9, 0).getTime();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private EntryCalendarCountRepository entryCalendarCountRepository;
+
+    @InjectMocks
+    private CalendarCountService calendarCountService;
+
+    private User user;
+    private Entry entry;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(7);
+        user.setUsername("testuser");
+
+        entry = new Entry();
+        entry.setUser(user);
+        entry.setDate(FEB_3);
+        entry.setSecurity(Security.PUBLIC);
+    }
+
+    @Test
+    void addedIncrementsDay() {
+        calendarCountService.added(entry);
+
+        verify(jdbcTemplate).update(startsWith("INSERT"), eq(7), eq(2014), eq(2), eq(3), eq(Security.PUBLIC.ordinal()));
+    }
+
+    @Test
+    void changedSameDayAndSecurityDoesNothing() {
+        entry.setDate(FEB_3_LATER);
+
+        calendarCountService.changed(entry, FEB_3, Security.PUBLIC);
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void changedDateMovesCount() {
+        entry.setDate(FEB_4);
+
+        calendarCountService.changed(entry, FEB_3, Security.PUBLIC);
+
+        verify(jdbcTemplate).update(startsWith("UPDATE"), eq(7), eq(2014), eq(2), eq(3), eq(Security.PUBLIC.ordinal()));
+        verify(jdbcTemplate).update(startsWith("INSERT"), eq(7), eq(2014), eq(2), eq(4), eq(Security.PUBLIC.ordinal()));
+    }
+
+    @Test
+    void changedSecurityMovesCount() {
+        entry.setSecurity(Security.PRIVATE);
+
+        calendarCountService.changed(entry, FEB_3, Security.PUBLIC);
+
+        verify(jdbcTemplate).update(startsWith("UPDATE"), eq(7), eq(2014), eq(2), eq(3), eq(Security.PUBLIC.ordinal()));
+        verify(jdbcTemplate).update(startsWith("INSERT"), eq(7), eq(2014), eq(2), eq(3), eq(Security.PRIVATE.ordinal()));
+    }
+
+    @Test
+    void removedDecrementsDay() {
+        calendarCountService.removed(entry, FEB_3, Security.FRIENDS);
+
+        verify(jdbcTemplate).update(startsWith("UPDATE"), eq(7), eq(2014), eq(2), eq(3), eq(Security.FRIENDS.ordinal()));
+    }
+
+    @Test
+    void getYearCounts() {
+        when(entryCalendarCountRepository.countByYear(7))
+                .thenReturn(List.of(new Object[]{2014, 12L}, new Object[]{2015, 3L}));
+
+        assertEquals(12L, calendarCountService.getYearCounts(user).get(2014));
+        assertEquals(3L, calendarCountService.getYearCounts(user).get(2015));
+    }
+
+    @Test
+    void entryWithoutUserIsIgnored() {
+        entry.setUser(null);
+
+        calendarCountService.added(entry);
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
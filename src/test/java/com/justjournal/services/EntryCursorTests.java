@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Lucas Holt
+ */
+class EntryCursorTests {
+
+    @Test
+    void roundTrip() {
+        final EntryCursor cursor = new EntryCursor(EntryCursor.Direction.OLDER, 1392094800000L, 33661);
+
+        final EntryCursor decoded = EntryCursor.decode(cursor.encode());
+
+        assertEquals(cursor, decoded);
+        assertEquals(EntryCursor.Direction.OLDER, decoded.getDirection());
+        assertEquals(1392094800000L, decoded.getDate().getTime());
+        assertEquals(33661, decoded.getId());
+    }
+
+    @Test
+    void roundTripNewer() {
+        final EntryCursor cursor = new EntryCursor(EntryCursor.Direction.NEWER, 0L, 1);
+
+        assertEquals(cursor, EntryCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void encodedIsUrlSafe() {
+        final String encoded = new EntryCursor(EntryCursor.Direction.OLDER, Long.MAX_VALUE, Integer.MAX_VALUE).encode();
+
+        assertFalse(encoded.matches(".*[+/=&?].*"));
+    }
+
+    @Test
+    void decodeRejectsGarbage() {
+        assertThrows(IllegalArgumentException.class, () -> EntryCursor.decode(""));
+        assertThrows(IllegalArgumentException.class, () -> EntryCursor.decode(null));
+        assertThrows(IllegalArgumentException.class, () -> EntryCursor.decode("not a cursor!"));
+        assertThrows(IllegalArgumentException.class, () -> EntryCursor.decode("eDox"));
+        assertThrows(IllegalArgumentException.class, () -> EntryCursor.decode("bzp6eg"));
+    }
+}
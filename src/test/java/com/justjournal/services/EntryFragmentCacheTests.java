@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.justjournal.core.UserContext;
+import com.justjournal.model.Entry;
+import com.justjournal.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Lucas Holt
+ */
+class EntryFragmentCacheTests {
+    private static final Date DATE = new Date(500L);
+
+    private EntryFragmentCache cache;
+    private User owner;
+    private User visitor;
+    private Entry entry;
+
+    @BeforeEach
+    void setUp() {
+        cache = new EntryFragmentCache();
+
+        owner = new User();
+        owner.setId(1);
+        owner.setUsername("testuser");
+
+        visitor = new User();
+        visitor.setId(2);
+        visitor.setUsername("visitor");
+
+        entry = new Entry(33661, "Test Entry");
+        entry.setUser(owner);
+        entry.setModified(new Date(1000L));
+    }
+
+    @Test
+    void renderOnceForSameViewer() {
+        final AtomicInteger renders = new AtomicInteger();
+        final UserContext anonymous = new UserContext(owner, null);
+
+        cache.get(anonymous, entry, DATE, false, () -> "html" + renders.incrementAndGet());
+        final String html = cache.get(anonymous, entry, DATE, false, () -> "html" + renders.incrementAndGet());
+
+        assertEquals("html1", html);
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    void ownerAndAnonymousAreCachedSeparately() {
+        final AtomicInteger renders = new AtomicInteger();
+
+        cache.get(new UserContext(owner, null), entry, DATE, false, () -> "anon" + renders.incrementAndGet());
+        final String html = cache.get(new UserContext(owner, owner), entry, DATE, false, () -> "owner" + renders.incrementAndGet());
+
+        assertEquals("owner2", html);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void modifiedEntryIsRenderedAgain() {
+        final AtomicInteger renders = new AtomicInteger();
+        final UserContext anonymous = new UserContext(owner, null);
+
+        cache.get(anonymous, entry, DATE, false, () -> "html" + renders.incrementAndGet());
+        entry.setModified(new Date(2000L));
+        final String html = cache.get(anonymous, entry, DATE, false, () -> "html" + renders.incrementAndGet());
+
+        assertEquals("html2", html);
+    }
+
+    @Test
+    void singleEntryForSignedInVisitorIsNotCached() {
+        final AtomicInteger renders = new AtomicInteger();
+        final UserContext signedIn = new UserContext(owner, visitor);
+
+        cache.get(signedIn, entry, DATE, true, () -> "html" + renders.incrementAndGet());
+        cache.get(signedIn, entry, DATE, true, () -> "html" + renders.incrementAndGet());
+
+        assertEquals(2, renders.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictRemovesAllViewersForEntry() {
+        cache.get(new UserContext(owner, null), entry, DATE, false, () -> "anon");
+        cache.get(new UserContext(owner, owner), entry, DATE, true, () -> "owner");
+        final Entry other = new Entry(2, "Other");
+        other.setUser(owner);
+        cache.get(new UserContext(owner, null), other, DATE, false, () -> "other");
+
+        cache.evict(entry.getId());
+
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void dateAndJournalArePartOfKey() {
+        final AtomicInteger renders = new AtomicInteger();
+
+        cache.get(new UserContext(owner, null), entry, DATE, false, () -> "html" + renders.incrementAndGet());
+        cache.get(new UserContext(owner, null), entry, new Date(600L), false, () -> "html" + renders.incrementAndGet());
+        cache.get(new UserContext(visitor, null), entry, DATE, false, () -> "html" + renders.incrementAndGet());
+
+        assertEquals(3, renders.get());
+        assertEquals(3, cache.size());
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.justjournal.model.Comment;
+import com.justjournal.model.Entry;
+import com.justjournal.model.Mood;
+import com.justjournal.model.MoodThemeData;
+import com.justjournal.model.Trackback;
+import com.justjournal.repository.CommentRepository;
+import com.justjournal.repository.MoodThemeDataRepository;
+import com.justjournal.repository.TrackbackRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EntryPrefetchServiceTests {
+
+    @Mock
+    private CommentRepository commentRepository;
+
+    @Mock
+    private TrackbackRepository trackbackRepository;
+
+    @Mock
+    private MoodThemeDataRepository moodThemeDataRepository;
+
+    @InjectMocks
+    private EntryPrefetchService entryPrefetchService;
+
+    private Entry first;
+    private Entry second;
+    private MoodThemeData happy;
+
+    @BeforeEach
+    void setUp() {
+        final Mood mood = new Mood();
+        mood.setId(5);
+        mood.setTitle("happy");
+
+        happy = new MoodThemeData();
+        happy.setId(7);
+        happy.setMood(mood);
+
+        first = new Entry(1, "first");
+        first.setMood(mood);
+        second = new Entry(2, "second");
+    }
+
+    @Test
+    void listPageLoadsCountsAndEmoticons() {
+        when(commentRepository.countByEntryIds(anyCollection()))
+                .thenReturn(Collections.singletonList(new Object[]{1, 3L}));
+        when(moodThemeDataRepository.findByThemeIdAndMoodIds(eq(EntryPrefetchService.DEFAULT_THEME), anyCollection()))
+                .thenReturn(List.of(happy));
+
+        final EntryPrefetch prefetch = entryPrefetchService.prefetch(List.of(first, second));
+
+        assertEquals(3, prefetch.getCommentCount(1));
+        assertEquals(0, prefetch.getCommentCount(2));
+        assertSame(happy, prefetch.getEmoticon(5));
+        assertNull(prefetch.getEmoticon(6));
+        assertTrue(prefetch.getComments(1).isEmpty());
+        verify(commentRepository, never()).findByEntryIds(any());
+        verifyNoInteractions(trackbackRepository);
+    }
+
+    @Test
+    void detailsLoadsCommentsAndTrackbacks() {
+        final Comment comment = new Comment();
+        comment.setEid(2);
+        final Trackback trackback = new Trackback();
+        trackback.setEntryId(2);
+        trackback.setSubject("Trackback");
+        trackback.setBody("excerpt");
+        trackback.setUrl("http://example.com");
+
+        when(commentRepository.findByEntryIds(anyCollection())).thenReturn(List.of(comment));
+        when(trackbackRepository.findByEntryIdInOrderByDate(anyCollection())).thenReturn(List.of(trackback));
+
+        final EntryPrefetch prefetch = entryPrefetchService.prefetch(List.of(second), true);
+
+        assertEquals(1, prefetch.getCommentCount(2));
+        assertEquals(List.of(comment), prefetch.getComments(2));
+        assertEquals(1, prefetch.getTrackbacks(2).size());
+        verifyNoInteractions(moodThemeDataRepository);
+    }
+
+    @Test
+    void noEntriesNoQueries() {
+        assertSame(EntryPrefetch.EMPTY, entryPrefetchService.prefetch(Collections.emptyList()));
+        verifyNoInteractions(commentRepository, trackbackRepository, moodThemeDataRepository);
+    }
+}
@@ -38,7 +38,6 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.PageImpl;
 
 import java.util.List;
 import java.util.Optional;
@@ -46,6 +45,8 @@ import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -92,8 +93,8 @@ class EntryServiceTests {
 
     @Test
     void entryGetRecentEntriesPublic() throws ServiceException {
-        when(entryRepository.findByUserAndSecurityAndDraftWithSubjectOnly(any(), any(), any(), any()))
-                .thenReturn(new PageImpl<Entry>(List.of(new Entry(1, "Test Entry 1"), new Entry(2, "Test Entry 2"))));
+        when(entryRepository.findRecentEntries(any(String.class), any(), any(), any()))
+                .thenReturn(List.of(new RecentEntry(1, "Test Entry 1"), new RecentEntry(2, "Test Entry 2")));
         final List<RecentEntry> entryList =
                 entryService.getRecentEntriesPublic(TEST_USER).collect(Collectors.toList()).block();
         Assertions.assertNotNull(entryList);
@@ -108,8 +109,8 @@ class EntryServiceTests {
         user.setUsername(TEST_USER);
         user.setId(2);
         when(userRepository.findByUsername(any())).thenReturn(user);
-        when(entryRepository.findByUserOrderByDateDesc(any(), any()))
-                .thenReturn(new PageImpl<Entry>(List.of(new Entry(1, "Test Entry 1"), new Entry(2, "Test Entry 2"))));
+        when(entryRepository.findRecentEntries(any(User.class), any()))
+                .thenReturn(List.of(new RecentEntry(1, "Test Entry 1"), new RecentEntry(2, "Test Entry 2")));
 
         final List<RecentEntry> entryList =
                 entryService.getRecentEntries(TEST_USER).collectList().block();
@@ -230,4 +231,68 @@ class EntryServiceTests {
         verify(tagDao, never()).save(any());
         verify(entryTagsRepository, never()).save(any());
     }
+
+    private static List<Entry> entries(int... ids) {
+        final List<Entry> list = new java.util.ArrayList<>();
+        for (int id : ids) {
+            final Entry entry = new Entry(id, "Entry " + id);
+            entry.setDate(new java.util.Date(id * 1000L));
+            list.add(entry);
+        }
+        return list;
+    }
+
+    @Test
+    void entryWindowFirstPage() throws ServiceException {
+        final User user = new User();
+        when(entryRepository.findNewest(eq(user), any(), any(), any())).thenReturn(entries(10, 9, 8));
+
+        final EntryWindow window = entryService.getEntryWindow(user, Security.PUBLIC, null, null, 2);
+
+        Assertions.assertEquals(List.of(10, 9), window.getContent().stream().map(Entry::getId).toList());
+        Assertions.assertFalse(window.hasPrevious());
+        Assertions.assertEquals(new EntryCursor(EntryCursor.Direction.OLDER, 9000L, 9), window.getNext());
+        verify(entryRepository, never()).countByUserAndSecurityInAndDraftIn(any(), any(), any());
+    }
+
+    @Test
+    void entryWindowOlderLastPage() throws ServiceException {
+        final User user = new User();
+        final EntryCursor cursor = new EntryCursor(EntryCursor.Direction.OLDER, 9000L, 9);
+        when(entryRepository.findOlderThan(eq(user), any(), any(), eq(cursor.getDate()), eq(9), any()))
+                .thenReturn(entries(8, 7));
+
+        final EntryWindow window = entryService.getEntryWindow(user, null, null, cursor, 2);
+
+        Assertions.assertEquals(List.of(8, 7), window.getContent().stream().map(Entry::getId).toList());
+        Assertions.assertFalse(window.hasNext());
+        Assertions.assertEquals(new EntryCursor(EntryCursor.Direction.NEWER, 8000L, 8), window.getPrevious());
+    }
+
+    @Test
+    void entryWindowNewerIsNewestFirst() throws ServiceException {
+        final User user = new User();
+        final EntryCursor cursor = new EntryCursor(EntryCursor.Direction.NEWER, 6000L, 6);
+        when(entryRepository.findNewerThan(eq(user), any(), any(), eq(cursor.getDate()), eq(6), any()))
+                .thenReturn(entries(7, 8, 9));
+
+        final EntryWindow window = entryService.getEntryWindow(user, null, null, cursor, 2);
+
+        Assertions.assertEquals(List.of(8, 7), window.getContent().stream().map(Entry::getId).toList());
+        Assertions.assertEquals(new EntryCursor(EntryCursor.Direction.OLDER, 7000L, 7), window.getNext());
+        Assertions.assertEquals(new EntryCursor(EntryCursor.Direction.NEWER, 8000L, 8), window.getPrevious());
+    }
+
+    @Test
+    void entryWindowPastOldest() throws ServiceException {
+        final User user = new User();
+        final EntryCursor cursor = new EntryCursor(EntryCursor.Direction.OLDER, 1000L, 1);
+        when(entryRepository.findOlderThan(any(), any(), any(), any(), anyInt(), any())).thenReturn(List.of());
+
+        final EntryWindow window = entryService.getEntryWindow(user, null, null, cursor, 2);
+
+        Assertions.assertTrue(window.getContent().isEmpty());
+        Assertions.assertFalse(window.hasNext());
+        Assertions.assertEquals(EntryCursor.Direction.NEWER, window.getPrevious().getDirection());
+    }
 }
@@ -29,7 +29,6 @@ import static org.mockito.Mockito.*;
 
 import com.justjournal.model.EntryStatistic;
 import com.justjournal.model.User;
-import com.justjournal.repository.EntryRepository;
 import com.justjournal.repository.EntryStatisticRepository;
 
 import java.util.Calendar;
@@ -53,7 +52,7 @@ class EntryStatisticsServiceTests {
     private EntryStatisticRepository entryStatisticRepository;
 
     @Mock
-    private EntryRepository entryRepository;
+    private CalendarCountService calendarCountService;
 
     @InjectMocks
     private EntryStatisticService entryStatisticService;
@@ -79,14 +78,14 @@ class EntryStatisticsServiceTests {
         existingStatistic.setCount(5L);
 
         when(entryStatisticRepository.findByUserAndYear(testUser, testYear)).thenReturn(existingStatistic);
-        when(entryRepository.calendarCount(testYear, "testuser")).thenReturn(15L);
+        when(calendarCountService.getYearCount(testUser, testYear)).thenReturn(15L);
 
         // When
         entryStatisticService.compute(testUser);
 
         // Then
         verify(entryStatisticRepository).findByUserAndYear(eq(testUser), eq(testYear));
-        verify(entryRepository).calendarCount(eq(testYear), eq("testuser"));
+        verify(calendarCountService).getYearCount(eq(testUser), eq(testYear));
         verify(entryStatisticRepository).saveAndFlush(argThat(stat ->
                 stat.getYear() == testYear && stat.getCount() == 15L && stat.getUser() == testUser
         ));
@@ -97,7 +96,7 @@ class EntryStatisticsServiceTests {
         // Given
         int currentYear = Calendar.getInstance().get(Calendar.YEAR);
         testUser.setSince(2010);
-        when(entryRepository.calendarCount(anyInt(), eq("testuser"))).thenReturn(10L);
+        when(calendarCountService.getYearCount(eq(testUser), anyInt())).thenReturn(10L);
 
         // When
         entryStatisticService.compute(testUser);
@@ -105,7 +104,7 @@ class EntryStatisticsServiceTests {
         // Then
         int expectedCalls = currentYear - 2010 + 1;
         verify(entryStatisticRepository, times(expectedCalls)).findByUserAndYear(eq(testUser), anyInt());
-        verify(entryRepository, times(expectedCalls)).calendarCount(anyInt(), eq("testuser"));
+        verify(calendarCountService, times(expectedCalls)).getYearCount(eq(testUser), anyInt());
         verify(entryStatisticRepository, times(expectedCalls)).saveAndFlush(any(EntryStatistic.class));
     }
 
@@ -113,14 +112,14 @@ class EntryStatisticsServiceTests {
     void compute_shouldHandleUserWithSinceBelow2003() {
         // Given
         testUser.setSince(2000);
-        when(entryRepository.calendarCount(anyInt(), eq("testuser"))).thenReturn(5L);
+        when(calendarCountService.getYearCount(eq(testUser), anyInt())).thenReturn(5L);
 
         // When
         entryStatisticService.compute(testUser);
 
         // Then
         verify(entryStatisticRepository, atLeastOnce()).findByUserAndYear(eq(testUser), eq(2003));
-        verify(entryRepository, atLeastOnce()).calendarCount(eq(2003), eq("testuser"));
+        verify(calendarCountService, atLeastOnce()).getYearCount(eq(testUser), eq(2003));
         verify(entryStatisticRepository, atLeastOnce()).saveAndFlush(any(EntryStatistic.class));
     }
 
@@ -128,14 +127,14 @@ class EntryStatisticsServiceTests {
     void compute_shouldHandleCurrentYearBelow2004() {
         // Given
         testUser.setSince(2003);
-        when(entryRepository.calendarCount(anyInt(), eq("testuser"))).thenReturn(5L);
+        when(calendarCountService.getYearCount(eq(testUser), anyInt())).thenReturn(5L);
 
         // When
         entryStatisticService.compute(testUser);
 
         // Then
         verify(entryStatisticRepository, atLeast(23)).findByUserAndYear(eq(testUser), anyInt());
-        verify(entryRepository, atLeast(23)).calendarCount(anyInt(), eq("testuser"));
+        verify(calendarCountService, atLeast(23)).getYearCount(eq(testUser), anyInt());
         verify(entryStatisticRepository, atLeast(23)).saveAndFlush(any(EntryStatistic.class));
     }
 }
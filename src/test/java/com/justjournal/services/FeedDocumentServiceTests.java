@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.justjournal.atom.AtomWriter;
+import com.justjournal.core.Settings;
+import com.justjournal.model.Entry;
+import com.justjournal.model.EntryFeedItem;
+import com.justjournal.model.FormatType;
+import com.justjournal.model.Journal;
+import com.justjournal.model.Security;
+import com.justjournal.model.User;
+import com.justjournal.model.UserContact;
+import com.justjournal.repository.EntryRepository;
+import com.justjournal.repository.UserRepository;
+import com.justjournal.rss.RssWriter;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * @author Lucas Holt
+ */
+@ExtendWith(MockitoExtension.class)
+class FeedDocumentServiceTests {
+
+  private static final String USERNAME = "testuser";
+
+  @Mock private UserRepository userRepository;
+  @Mock private EntryRepository entryRepository;
+  @Mock private EntryService entryService;
+  @Mock private JournalVersionService journalVersionService;
+  @Mock private BodyRenderService bodyRenderService;
+  @Mock private AvatarService avatarService;
+  @Mock private JdbcTemplate jdbcTemplate;
+  @Mock private Settings settings;
+  @Mock private ReactiveRedisTemplate<String, String> reactiveRedisTemplateString;
+
+  private FeedDocumentService feedDocumentService;
+
+  private User user;
+  private Journal journal;
+
+  @BeforeEach
+  void setUp() {
+    lenient().when(settings.getBaseUri()).thenReturn("https://www.justjournal.com/");
+    feedDocumentService =
+        new FeedDocumentService(
+            userRepository,
+            entryRepository,
+            entryService,
+            journalVersionService,
+            bodyRenderService,
+            avatarService,
+            new RssWriter(jdbcTemplate, settings, bodyRenderService),
+            new AtomWriter(bodyRenderService, settings),
+            settings,
+            new ObjectMapper(),
+            reactiveRedisTemplateString,
+            false);
+
+    user = new User();
+    user.setId(1);
+    user.setUsername(USERNAME);
+    user.setName("Test");
+    final UserContact contact = new UserContact();
+    contact.setEmail("test@justjournal.com");
+    ReflectionTestUtils.setField(user, "userContact", contact);
+    journal = new Journal();
+    journal.setName("Test Journal");
+    user.getJournals().add(journal);
+
+    lenient()
+        .when(settings.getBlogBaseUrl(USERNAME))
+        .thenReturn("https://www.justjournal.com/users/" + USERNAME);
+    lenient().when(userRepository.findById(1)).thenReturn(Optional.of(user));
+    lenient()
+        .when(entryRepository.findFeedItems(eq(user), eq(Security.PUBLIC), any(Pageable.class)))
+        .thenReturn(List.of());
+  }
+
+  private static String body(final FeedDocumentService.FeedDocument document) {
+    return new String(document.payload().identity(), StandardCharsets.UTF_8);
+  }
+
+  private void version(final long version) {
+    when(journalVersionService.getVersion(USERNAME))
+        .thenReturn(new JournalVersionService.Version(1, version, new Date()));
+  }
+
+  @Test
+  void documentIsCachedForVersion() throws Exception {
+    version(3);
+
+    final FeedDocumentService.FeedDocument first =
+        feedDocumentService.getDocument(USERNAME, FeedDocumentService.FeedType.RSS);
+    final FeedDocumentService.FeedDocument second =
+        feedDocumentService.getDocument(USERNAME, FeedDocumentService.FeedType.RSS);
+
+    assertSame(first, second);
+    assertEquals(3, first.version());
+    assertTrue(body(first).contains("<title>testuser</title>"));
+    verify(entryRepository, times(1)).findFeedItems(eq(user), eq(Security.PUBLIC), any(Pageable.class));
+  }
+
+  @Test
+  void documentRebuiltForNewVersion() throws Exception {
+    version(3);
+    final FeedDocumentService.FeedDocument first =
+        feedDocumentService.getDocument(USERNAME, FeedDocumentService.FeedType.ATOM);
+
+    version(4);
+    final FeedDocumentService.FeedDocument second =
+        feedDocumentService.getDocument(USERNAME, FeedDocumentService.FeedType.ATOM);
+
+    assertNotSame(first, second);
+    assertEquals(4, second.version());
+  }
+
+  @Test
+  void privateJournalHasNoDocument() throws Exception {
+    version(3);
+    journal.setOwnerViewOnly(true);
+
+    assertNull(feedDocumentService.getDocument(USERNAME, FeedDocumentService.FeedType.RSS));
+    assertEquals(0, feedDocumentService.size());
+  }
+
+  @Test
+  void unknownUser() throws Exception {
+    assertNull(feedDocumentService.getDocument("nobody", FeedDocumentService.FeedType.RSS));
+    verifyNoInteractions(userRepository);
+  }
+
+  @Test
+  void changeRebuildsEveryFeed() throws Exception {
+    version(5);
+    when(entryService.getEntryWindow(user, Security.PUBLIC, null, null, FeedDocumentService.FEED_SIZE))
+        .thenReturn(EntryWindow.EMPTY);
+
+    feedDocumentService.journalChanged(new JournalChangedEvent(1));
+
+    assertEquals(FeedDocumentService.FeedType.values().length, feedDocumentService.size());
+    final FeedDocumentService.FeedDocument json =
+        feedDocumentService.getDocument(USERNAME, FeedDocumentService.FeedType.JSON);
+    assertEquals(5, json.version());
+    assertTrue(body(json).contains("\"title\":\"Test Journal\""));
+    verify(entryService, times(1))
+        .getEntryWindow(user, Security.PUBLIC, null, null, FeedDocumentService.FEED_SIZE);
+  }
+
+  private static Entry entry(final int id, final long date) {
+    final Entry entry = new Entry();
+    entry.setId(id);
+    entry.setSubject("subject " + id);
+    entry.setBody("body " + id);
+    entry.setFormat(FormatType.TEXT);
+    entry.setDate(new Date(date));
+    entry.setModified(new Date(date));
+    return entry;
+  }
+
+  private String jsonFeed(final Date since) throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    feedDocumentService.writeJsonFeed(user, journal, null, 0, since, out);
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void jsonFeedLinksNextPageOnlyWhenThereIsOne() throws Exception {
+    final List<Entry> entries = List.of(entry(2, 2000), entry(1, 1000));
+    when(entryService.getEntryWindow(user, Security.PUBLIC, null, null, FeedDocumentService.FEED_SIZE))
+        .thenReturn(
+            new EntryWindow(
+                entries, EntryCursor.of(entries.get(1), EntryCursor.Direction.OLDER), null),
+            new EntryWindow(entries, null, null));
+    when(entryRepository.fetchTags(any())).thenAnswer(i -> i.getArgument(0));
+
+    final String more = jsonFeed(null);
+    assertTrue(more.contains("\"next_url\":\"https://www.justjournal.com/users/testuser/json?cursor="));
+    assertTrue(more.indexOf("\"next_url\"") < more.indexOf("\"items\""));
+    assertTrue(more.contains("\"title\":\"subject 2\""));
+    assertTrue(more.contains("\"content_html\":\"body 1\""));
+    assertTrue(
+        more.contains(
+            "\"hubs\":[{\"type\":\"WebSub\",\"url\":\"https://www.justjournal.com/hub\"}]"));
+
+    assertFalse(jsonFeed(null).contains("next_url"));
+  }
+
+  @Test
+  void jsonFeedSinceIncludesEditedEntries() throws Exception {
+    final Entry edited = entry(1, 1000);
+    edited.setModified(new Date(3000));
+    final Pageable page = PageRequest.of(0, FeedDocumentService.FEED_SIZE);
+    when(entryRepository.findChangedSince(user, Security.PUBLIC, new Date(2000), page))
+        .thenReturn(new SliceImpl<>(List.of(entry(3, 3000), edited)));
+    when(entryRepository.fetchTags(any())).thenAnswer(i -> i.getArgument(0));
+
+    final String json = jsonFeed(new Date(2000));
+
+    assertTrue(json.contains("\"title\":\"subject 3\""));
+    assertTrue(json.contains("\"title\":\"subject 1\""));
+    assertFalse(json.contains("next_url"));
+    verifyNoInteractions(entryService);
+  }
+
+  @Test
+  void jsonFeedSinceCarriesIntoNextPage() throws Exception {
+    final Pageable page = PageRequest.of(0, FeedDocumentService.FEED_SIZE);
+    final List<Entry> entries = List.of(entry(3, 3000), entry(2, 2000));
+    when(entryRepository.findChangedSince(user, Security.PUBLIC, new Date(1000), page))
+        .thenReturn(new SliceImpl<>(entries, page, true));
+    when(entryRepository.fetchTags(any())).thenAnswer(i -> i.getArgument(0));
+
+    final String json = jsonFeed(new Date(1000));
+
+    assertTrue(json.contains("subject 2"));
+    assertTrue(json.contains("&since=1970-01-01T00:00:01.000Z\""));
+  }
+
+  private static EntryFeedItem feedItem(final int id, final String subject) {
+    return new EntryFeedItem(
+        id, 1, USERNAME, subject, "body " + id, FormatType.TEXT, new Date(id * 1000L), null, 0);
+  }
+
+  private void items(final EntryFeedItem... items) {
+    when(entryRepository.findFeedItems(eq(user), eq(Security.PUBLIC), any(Pageable.class)))
+        .thenReturn(List.of(items));
+  }
+
+  @Test
+  void deltaHoldsOnlyChangedItems() throws Exception {
+    version(3);
+    items(feedItem(1, "first"), feedItem(2, "second"));
+    feedDocumentService.getDocument(USERNAME, FeedDocumentService.FeedType.RSS);
+
+    version(4);
+    items(feedItem(3, "third"), feedItem(1, "first edited"), feedItem(2, "second"));
+    feedDocumentService.getDocument(USERNAME, FeedDocumentService.FeedType.RSS);
+
+    final FeedDocumentService.FeedDocument delta =
+        feedDocumentService.getDelta(USERNAME, FeedDocumentService.FeedType.RSS, List.of(3L));
+    assertEquals(4, delta.version());
+    assertTrue(body(delta).contains("third"));
+    assertTrue(body(delta).contains("first edited"));
+    assertFalse(body(delta).contains("second"));
+
+    assertSame(
+        delta,
+        feedDocumentService.getDelta(USERNAME, FeedDocumentService.FeedType.RSS, List.of(3L)));
+  }
+
+  @Test
+  void deltaNeedsKnownBase() throws Exception {
+    version(3);
+    items(feedItem(1, "first"));
+    feedDocumentService.getDocument(USERNAME, FeedDocumentService.FeedType.ATOM);
+
+    assertNull(
+        feedDocumentService.getDelta(USERNAME, FeedDocumentService.FeedType.ATOM, List.of(2L)));
+    assertNull(
+        feedDocumentService.getDelta(USERNAME, FeedDocumentService.FeedType.ATOM, List.of(3L)));
+    assertNull(
+        feedDocumentService.getDelta(USERNAME, FeedDocumentService.FeedType.JSON, List.of(3L)));
+  }
+
+  @Test
+  void deltaSkippedWhenItemsMovedOn() throws Exception {
+    version(3);
+    items(feedItem(1, "first"));
+    feedDocumentService.getDocument(USERNAME, FeedDocumentService.FeedType.RSS);
+    version(4);
+    items(feedItem(2, "second"), feedItem(1, "first"));
+    feedDocumentService.getDocument(USERNAME, FeedDocumentService.FeedType.RSS);
+
+    items(feedItem(5, "fifth"), feedItem(2, "second"), feedItem(1, "first"));
+
+    assertNull(
+        feedDocumentService.getDelta(USERNAME, FeedDocumentService.FeedType.RSS, List.of(3L)));
+  }
+}
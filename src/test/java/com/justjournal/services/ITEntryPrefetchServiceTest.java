@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import com.justjournal.Application;
+import com.justjournal.model.Entry;
+import com.justjournal.model.User;
+import com.justjournal.repository.EntryRepository;
+import com.justjournal.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that prefetching a full page of entries takes a fixed number of queries regardless of
+ * page size.
+ *
+ * @author Lucas Holt
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    classes = Application.class,
+    properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@WebAppConfiguration
+@ActiveProfiles("it")
+@Transactional
+class ITEntryPrefetchServiceTest {
+  private static final int PAGE_SIZE = 50;
+
+  @Autowired private EntryPrefetchService entryPrefetchService;
+
+  @Autowired private EntryRepository entryRepository;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private EntityManagerFactory entityManagerFactory;
+
+  private Statistics statistics;
+
+  private List<Entry> entries;
+
+  @BeforeEach
+  void setUp() {
+    final User user = userRepository.findByUsername("testuser");
+    entries = entryRepository.findByUserOrderByDateDesc(user, PageRequest.of(0, PAGE_SIZE)).getContent();
+    assertFalse(entries.isEmpty());
+
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+  }
+
+  @Test
+  void prefetchListPage() {
+    final EntryPrefetch prefetch = entryPrefetchService.prefetch(entries);
+    assertNotNull(prefetch);
+
+    for (final Entry entry : entries) {
+      prefetch.getCommentCount(entry.getId());
+      if (entry.getMood() != null) prefetch.getEmoticon(entry.getMood().getId());
+    }
+
+    // comment counts and emoticons
+    assertTrue(statistics.getPrepareStatementCount() <= 2,
+        "expected at most 2 queries, got " + statistics.getPrepareStatementCount());
+  }
+}
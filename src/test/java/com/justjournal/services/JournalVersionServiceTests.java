@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.justjournal.model.Entry;
+import com.justjournal.model.User;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * @author Lucas Holt
+ */
+@ExtendWith(MockitoExtension.class)
+class JournalVersionServiceTests {
+
+  private static final String USERNAME = "testuser";
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @Mock private ApplicationEventPublisher eventPublisher;
+
+  private JournalVersionService journalVersionService;
+
+  @BeforeEach
+  void setUp() {
+    journalVersionService = new JournalVersionService(jdbcTemplate, eventPublisher);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void version(final JournalVersionService.Version... versions) {
+    when(jdbcTemplate.query(startsWith("SELECT"), any(RowMapper.class), eq(USERNAME)))
+        .thenReturn(List.of(versions));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void versionIsCached() {
+    final JournalVersionService.Version version =
+        new JournalVersionService.Version(1, 3, new Date());
+    version(version);
+
+    assertSame(version, journalVersionService.getVersion(USERNAME));
+    assertSame(version, journalVersionService.getVersion(USERNAME));
+    verify(jdbcTemplate, times(1)).query(startsWith("SELECT"), any(RowMapper.class), eq(USERNAME));
+  }
+
+  @Test
+  void unknownUser() {
+    version();
+
+    assertNull(journalVersionService.getVersion(USERNAME));
+    assertNull(journalVersionService.getVersion(null));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void changeBumpsAndEvicts() {
+    version(new JournalVersionService.Version(1, 3, new Date()));
+    journalVersionService.getVersion(USERNAME);
+
+    journalVersionService.changed(1);
+
+    verify(jdbcTemplate).update(startsWith("INSERT INTO journal_version"), eq(1), any(Timestamp.class));
+    verify(eventPublisher).publishEvent(new JournalChangedEvent(1));
+    journalVersionService.getVersion(USERNAME);
+    verify(jdbcTemplate, times(2)).query(startsWith("SELECT"), any(RowMapper.class), eq(USERNAME));
+  }
+
+  @Test
+  void changeTimeHasSecondPrecision() {
+    journalVersionService.changed(1);
+
+    verify(jdbcTemplate)
+        .update(
+            startsWith("INSERT INTO journal_version"),
+            eq(1),
+            argThat((Timestamp t) -> t.getTime() % 1000 == 0));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void listenerBumpsEntryOwner() {
+    final ObjectProvider<JournalVersionService> provider = mock(ObjectProvider.class);
+    when(provider.getObject()).thenReturn(journalVersionService);
+    final User user = new User();
+    user.setId(5);
+    final Entry entry = new Entry();
+    entry.setUser(user);
+
+    new JournalVersionListener(provider).changed(entry);
+
+    verify(jdbcTemplate).update(startsWith("INSERT INTO journal_version"), eq(5), any(Timestamp.class));
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Lucas Holt
+ */
+class MarkdownServiceTests {
+
+  private static final String MARKDOWN = "Hello *world*\n\n| a | b |\n|---|---|\n| 1 | 2 |\n";
+
+  @Test
+  void convertToHtml() {
+    final MarkdownService service = new MarkdownService();
+    assertEquals("<p>Hello <em>world</em></p>\n", service.convertToHtml("Hello *world*"));
+  }
+
+  @Test
+  void convertToText() {
+    final MarkdownService service = new MarkdownService();
+    assertEquals("Hello world", service.convertToText("Hello *world*"));
+  }
+
+  @Test
+  void extensionsEnabled() {
+    final MarkdownService service = new MarkdownService();
+    final String html = service.convertToHtml(MARKDOWN + "\nsee https://www.justjournal.com\n");
+    assertTrue(html.contains("<table>"));
+    assertTrue(html.contains("<a href=\"https://www.justjournal.com\">"));
+  }
+
+  @Test
+  void renderIsCached() {
+    final MarkdownService service = new MarkdownService();
+    final MarkdownService.Rendered first = service.render(MARKDOWN);
+
+    assertSame(first, service.render(new String(MARKDOWN)));
+    assertEquals(1, service.cacheSize());
+  }
+
+  @Test
+  void cacheDisabled() {
+    final MarkdownService service = new MarkdownService(0);
+    final MarkdownService.Rendered first = service.render(MARKDOWN);
+    final MarkdownService.Rendered second = service.render(MARKDOWN);
+
+    assertEquals(first, second);
+    assertEquals(0, service.cacheSize());
+  }
+
+  @Test
+  void sharedBetweenThreads() throws Exception {
+    final MarkdownService service = new MarkdownService(0);
+    final String expected = service.convertToHtml(MARKDOWN);
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        results.add(executor.submit(() -> service.convertToHtml(MARKDOWN)));
+      }
+      for (final Future<String> result : results) {
+        assertEquals(expected, result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.justjournal.core.Settings;
+import com.justjournal.model.EntryFeedItem;
+import com.justjournal.model.FormatType;
+import com.justjournal.model.Security;
+import com.justjournal.repository.EntryRepository;
+import com.justjournal.repository.cache.RecentBlogsRepository;
+import com.justjournal.rss.RssWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Lucas Holt
+ */
+@ExtendWith(MockitoExtension.class)
+class RecentBlogsServiceTests {
+
+  /** The redis buffer, kept in memory. */
+  private static class MemoryRecentBlogsRepository extends RecentBlogsRepository {
+    private static final Comparator<Map.Entry<String, Long>> OLDEST_FIRST =
+        Map.Entry.<String, Long>comparingByValue().thenComparing(Map.Entry.comparingByKey());
+
+    private final Map<String, Long> scores = new HashMap<>();
+    private final Map<String, String> items = new HashMap<>();
+    private long version;
+
+    @SuppressWarnings("unchecked")
+    MemoryRecentBlogsRepository() {
+      super(mock(ReactiveRedisTemplate.class));
+    }
+
+    private List<String> oldestFirst() {
+      return scores.entrySet().stream().sorted(OLDEST_FIRST).map(Map.Entry::getKey).toList();
+    }
+
+    @Override
+    public Mono<List<String>> getNewest(final int count) {
+      final List<String> authors = new ArrayList<>(oldestFirst());
+      Collections.reverse(authors);
+      return Mono.just(authors.stream().limit(count).map(items::get).toList());
+    }
+
+    @Override
+    public Mono<String> get(final int userId) {
+      return Mono.justOrEmpty(items.get(String.valueOf(userId)));
+    }
+
+    @Override
+    public Mono<Long> size() {
+      return Mono.just((long) scores.size());
+    }
+
+    @Override
+    public Mono<Void> put(final int userId, final Date date, final String item) {
+      items.put(String.valueOf(userId), item);
+      scores.put(String.valueOf(userId), date.getTime());
+      return Mono.empty();
+    }
+
+    @Override
+    public Mono<Void> remove(final int userId) {
+      items.remove(String.valueOf(userId));
+      scores.remove(String.valueOf(userId));
+      return Mono.empty();
+    }
+
+    @Override
+    public Mono<Void> trim(final int capacity) {
+      final List<String> authors = oldestFirst();
+      for (final String author : authors.subList(0, Math.max(0, authors.size() - capacity))) {
+        items.remove(author);
+        scores.remove(author);
+      }
+      return Mono.empty();
+    }
+
+    @Override
+    public Mono<Long> getVersion() {
+      return Mono.just(version);
+    }
+
+    @Override
+    public Mono<Long> changed() {
+      return Mono.just(++version);
+    }
+  }
+
+  @Mock private EntryRepository entryRepository;
+  @Mock private JdbcTemplate jdbcTemplate;
+  @Mock private Settings settings;
+  @Mock private BodyRenderService bodyRenderService;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final MemoryRecentBlogsRepository recentBlogsRepository =
+      new MemoryRecentBlogsRepository();
+
+  private RecentBlogsService recentBlogsService;
+
+  @BeforeEach
+  void setUp() {
+    lenient().when(settings.getBaseUri()).thenReturn("https://www.justjournal.com/");
+    recentBlogsService = node();
+  }
+
+  /** @return a service on another node sharing the same buffer */
+  private RecentBlogsService node() {
+    return new RecentBlogsService(
+        entryRepository,
+        recentBlogsRepository,
+        new RssWriter(jdbcTemplate, settings, bodyRenderService),
+        settings,
+        objectMapper);
+  }
+
+  private static EntryFeedItem item(final int id, final int userId, final long date) {
+    return new EntryFeedItem(
+        id, userId, "user" + userId, "subject " + id, "body " + id, FormatType.TEXT, new Date(date), null, 0);
+  }
+
+  private static String xml(final RecentBlogsService.RecentBlogs blogs) {
+    return new String(blogs.payload().identity(), StandardCharsets.UTF_8);
+  }
+
+  /** Newest public entries in the database. */
+  private void seed(final EntryFeedItem... items) {
+    lenient()
+        .when(entryRepository.findFeedItems(eq(Security.PUBLIC), any(Pageable.class)))
+        .thenReturn(List.of(items));
+  }
+
+  private void latest(final int userId, final EntryFeedItem... items) {
+    when(entryRepository.findFeedItemsByUserId(eq(userId), eq(Security.PUBLIC), any(Pageable.class)))
+        .thenReturn(List.of(items));
+  }
+
+  @Test
+  void seedKeepsOnePostPerAuthor() {
+    seed(item(3, 1, 3000), item(2, 2, 2000), item(1, 1, 1000));
+
+    final String xml = xml(recentBlogsService.getFeed());
+
+    assertTrue(xml.contains("subject 3"));
+    assertTrue(xml.contains("subject 2"));
+    assertFalse(xml.contains("subject 1"));
+    assertEquals(new Date(3000), recentBlogsService.getFeed().newest());
+  }
+
+  @Test
+  void feedIsServedWithoutQueries() {
+    seed(item(1, 1, 1000));
+
+    final RecentBlogsService.RecentBlogs feed = recentBlogsService.getFeed();
+
+    assertSame(feed, recentBlogsService.getFeed());
+    verify(entryRepository, times(1)).findFeedItems(eq(Security.PUBLIC), any(Pageable.class));
+  }
+
+  @Test
+  void readsSharedBuffer() throws Exception {
+    recentBlogsRepository.put(4, new Date(7000), objectMapper.writeValueAsString(item(7, 4, 7000)));
+
+    assertTrue(xml(recentBlogsService.getFeed()).contains("subject 7"));
+    verify(entryRepository, never()).findFeedItems(eq(Security.PUBLIC), any(Pageable.class));
+  }
+
+  @Test
+  void publishReplacesAuthorsPost() {
+    seed(item(1, 1, 1000), item(2, 2, 2000));
+    final RecentBlogsService.RecentBlogs before = recentBlogsService.getFeed();
+    seed(item(5, 1, 5000), item(2, 2, 2000));
+    latest(1, item(5, 1, 5000));
+
+    recentBlogsService.journalChanged(new JournalChangedEvent(1));
+
+    final RecentBlogsService.RecentBlogs after = recentBlogsService.getFeed();
+    assertNotSame(before, after);
+    assertTrue(xml(after).contains("subject 5"));
+    assertFalse(xml(after).contains("subject 1"));
+    assertEquals(new Date(5000), after.newest());
+  }
+
+  @Test
+  void deleteFallsBackToOlderPost() {
+    seed(item(3, 1, 3000), item(2, 2, 2000));
+    recentBlogsService.getFeed();
+    seed(item(2, 2, 2000), item(1, 1, 1000));
+    latest(1, item(1, 1, 1000));
+
+    recentBlogsService.journalChanged(new JournalChangedEvent(1));
+
+    final String xml = xml(recentBlogsService.getFeed());
+    assertTrue(xml.contains("subject 1"));
+    assertFalse(xml.contains("subject 3"));
+  }
+
+  @Test
+  void unchangedAuthorKeepsFeed() {
+    seed(item(1, 1, 1000));
+    final RecentBlogsService.RecentBlogs before = recentBlogsService.getFeed();
+    latest(1, item(1, 1, 1000));
+
+    recentBlogsService.journalChanged(new JournalChangedEvent(1));
+
+    assertSame(before, recentBlogsService.getFeed());
+  }
+
+  @Test
+  void bufferIsBounded() {
+    final List<EntryFeedItem> items = new ArrayList<>();
+    for (int i = 0; i < RecentBlogsService.CAPACITY; i++) {
+      items.add(item(100 + i, 100 + i, 100_000 - i));
+    }
+    seed(items.toArray(new EntryFeedItem[0]));
+    recentBlogsService.getFeed();
+    latest(1, item(1, 1, 200_000));
+
+    recentBlogsService.journalChanged(new JournalChangedEvent(1));
+
+    assertEquals(RecentBlogsService.CAPACITY, recentBlogsRepository.size().block());
+    assertTrue(recentBlogsRepository.get(1).blockOptional().isPresent());
+    assertTrue(
+        recentBlogsRepository.get(100 + RecentBlogsService.CAPACITY - 1).blockOptional().isEmpty());
+    assertTrue(xml(recentBlogsService.getFeed()).contains("subject 1<"));
+  }
+
+  @Test
+  void changeOnAnotherNodeIsServed() {
+    seed(item(1, 1, 1000));
+    final RecentBlogsService other = node();
+    other.getFeed();
+    latest(1, item(5, 1, 5000));
+    seed(item(5, 1, 5000));
+
+    recentBlogsService.journalChanged(new JournalChangedEvent(1));
+
+    assertTrue(xml(other.getFeed()).contains("subject 5"));
+  }
+
+  @Test
+  void deletedAuthorLeavesFeed() {
+    seed(item(1, 1, 1000), item(2, 2, 2000));
+    recentBlogsService.getFeed();
+    seed(item(2, 2, 2000));
+
+    recentBlogsService.authorDeleted(1);
+
+    final String xml = xml(recentBlogsService.getFeed());
+    assertFalse(xml.contains("subject 1"));
+    assertTrue(xml.contains("subject 2"));
+  }
+}
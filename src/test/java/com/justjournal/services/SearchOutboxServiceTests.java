@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.justjournal.services.SearchOutboxService.Change;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * @author Lucas Holt
+ */
+@ExtendWith(MockitoExtension.class)
+class SearchOutboxServiceTests {
+  @Mock private JdbcTemplate jdbcTemplate;
+  @Mock private BlogSearchService blogSearchService;
+  @Mock private PlatformTransactionManager transactionManager;
+
+  private SimpleMeterRegistry meterRegistry;
+  private SearchOutboxService searchOutboxService;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    searchOutboxService =
+        new SearchOutboxService(jdbcTemplate, blogSearchService, transactionManager, meterRegistry);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void outbox(final List<Change> first, final List<Change> second) {
+    when(jdbcTemplate.query(
+            eq(SearchOutboxService.NEXT),
+            any(RowMapper.class),
+            eq(SearchOutboxService.BATCH_SIZE)))
+        .thenReturn(first, second);
+  }
+
+  @Test
+  void changedAddsRow() {
+    searchOutboxService.changed(42);
+
+    verify(jdbcTemplate).update(eq(SearchOutboxService.INSERT), eq(42), any());
+  }
+
+  @Test
+  void changedIgnoresUnsavedEntry() {
+    searchOutboxService.changed(0);
+
+    verifyNoInteractions(jdbcTemplate);
+  }
+
+  @Test
+  void bulkChangesAddRows() {
+    searchOutboxService.changed(List.of(4, 5));
+
+    verify(jdbcTemplate)
+        .batchUpdate(
+            eq(SearchOutboxService.INSERT),
+            argThat((List<Object[]> rows) -> rows.size() == 2 && rows.get(1)[0].equals(5)));
+  }
+
+  @Test
+  void backfillQueuesPublicEntries() {
+    when(jdbcTemplate.update(eq(SearchOutboxService.BACKFILL), any(), eq(2))).thenReturn(12);
+
+    assertEquals(12, searchOutboxService.backfill());
+  }
+
+  @Test
+  void relayIndexesDistinctEntriesThenDeletesRows() {
+    final Date old = new Date(System.currentTimeMillis() - 60_000);
+    outbox(
+        List.of(new Change(1, 7, old), new Change(2, 8, old), new Change(3, 7, new Date())),
+        List.of());
+
+    assertEquals(3, searchOutboxService.relay());
+
+    verify(blogSearchService).indexEntries(Set.of(7, 8));
+    verify(jdbcTemplate).update("DELETE FROM search_outbox WHERE id IN (?,?,?)", 1L, 2L, 3L);
+    assertEquals(3, meterRegistry.counter("search.outbox.relayed").count());
+    assertEquals(0, searchOutboxService.getLagMillis());
+    verify(transactionManager).commit(any());
+  }
+
+  @Test
+  void relayKeepsRowsWhenIndexFails() {
+    final Date old = new Date(System.currentTimeMillis() - 60_000);
+    outbox(List.of(new Change(1, 7, old)), List.of());
+    doThrow(new IllegalStateException("index down"))
+        .when(blogSearchService)
+        .indexEntries(any());
+
+    assertEquals(0, searchOutboxService.relay());
+
+    verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    verify(transactionManager).rollback(any());
+    assertEquals(1, meterRegistry.counter("search.outbox.failures").count());
+    assertTrue(searchOutboxService.getLagMillis() >= 60_000);
+    assertTrue(meterRegistry.get("search.outbox.lag").gauge().value() >= 60);
+  }
+
+  @Test
+  void relayDrainsFullBatches() {
+    final Date now = new Date();
+    final List<Change> full =
+        IntStream.range(0, SearchOutboxService.BATCH_SIZE)
+            .mapToObj(i -> new Change(i + 1, i + 1, now))
+            .toList();
+    outbox(full, List.of(new Change(1000, 1, now)));
+
+    assertEquals(SearchOutboxService.BATCH_SIZE + 1, searchOutboxService.relay());
+
+    verify(blogSearchService).indexEntries(Set.of(1));
+  }
+
+  @Test
+  void relayWithEmptyOutboxDoesNothing() {
+    outbox(List.of(), List.of());
+
+    assertEquals(0, searchOutboxService.relay());
+
+    verify(blogSearchService, never()).indexEntries(any());
+    assertEquals(0, meterRegistry.counter("search.outbox.relayed").count());
+  }
+}
@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import static com.justjournal.model.Security.PUBLIC;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.justjournal.model.Entry;
+import com.justjournal.model.EntryIdRange;
+import com.justjournal.model.EntryWatermark;
+import com.justjournal.model.search.BlogEntry;
+import com.justjournal.model.search.SearchWatermark;
+import com.justjournal.repository.EntryRepository;
+import com.justjournal.services.SearchReindexService.Partition;
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * @author Lucas Holt
+ */
+@ExtendWith(MockitoExtension.class)
+class SearchReindexServiceTests {
+  private static final String ALIAS = "blogentry";
+
+  private static final Pageable PAGE = PageRequest.of(0, SearchReindexService.BATCH_SIZE);
+
+  private static final String OWNER = "node-1";
+
+  private static final int LEASE = SearchReindexService.LEASE_SECONDS;
+
+  private static final long NOW = 1_700_000_000_000L;
+
+  @Mock private JdbcTemplate jdbcTemplate;
+  @Mock private EntryRepository entryRepository;
+  @Mock private BlogSearchService blogSearchService;
+  @Mock private SearchResultCache searchResultCache;
+  @Mock private ElasticsearchOperations elasticsearchOperations;
+  @Mock private IndexOperations indexOperations;
+  @Mock private EntityManager entityManager;
+  @Mock private PlatformTransactionManager transactionManager;
+
+  private SearchReindexService searchReindexService;
+
+  @BeforeEach
+  void setUp() {
+    searchReindexService =
+        new SearchReindexService(
+            jdbcTemplate,
+            entryRepository,
+            blogSearchService,
+            searchResultCache,
+            elasticsearchOperations,
+            entityManager,
+            transactionManager,
+            ALIAS,
+            MoreExecutors.newDirectExecutorService(),
+            OWNER);
+
+    lenient()
+        .when(
+            jdbcTemplate.update(
+                SearchReindexService.CLAIM_LEASE, OWNER, SearchReindexService.LEASE_SECONDS))
+        .thenReturn(1);
+    lenient()
+        .when(
+            jdbcTemplate.update(
+                SearchReindexService.RENEW_LEASE, SearchReindexService.LEASE_SECONDS, OWNER))
+        .thenReturn(1);
+    lenient()
+        .when(
+            jdbcTemplate.update(
+                eq(SearchReindexService.CHECKPOINT),
+                anyInt(),
+                anyBoolean(),
+                anyInt(),
+                anyInt(),
+                eq(OWNER)))
+        .thenReturn(1);
+    lenient()
+        .when(jdbcTemplate.queryForObject(SearchReindexService.REMAINING, Integer.class))
+        .thenReturn(0);
+
+    lenient()
+        .when(elasticsearchOperations.indexOps(any(IndexCoordinates.class)))
+        .thenReturn(indexOperations);
+    lenient().when(elasticsearchOperations.indexOps(BlogEntry.class)).thenReturn(indexOperations);
+    lenient()
+        .when(elasticsearchOperations.indexOps(SearchWatermark.class))
+        .thenReturn(indexOperations);
+    lenient()
+        .when(entryRepository.findWatermark())
+        .thenReturn(new EntryWatermark(12000, new Date(NOW)));
+    lenient()
+        .when(entryRepository.fetchTags(any()))
+        .thenAnswer(invocation -> new ArrayList<>(invocation.<List<Entry>>getArgument(0)));
+    lenient().when(blogSearchService.convert(any())).thenReturn(new BlogEntry());
+  }
+
+  private static List<Entry> entries(final int first, final int last) {
+    return IntStream.rangeClosed(first, last)
+        .mapToObj(
+            id -> {
+              final Entry entry = new Entry();
+              entry.setId(id);
+              return entry;
+            })
+        .toList();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void partitions(final List<Partition> first, final List<Partition> second) {
+    when(jdbcTemplate.query(eq(SearchReindexService.PARTITIONS), any(RowMapper.class)))
+        .thenReturn(first, second);
+  }
+
+  /** Ranges the workers claim in turn, then none. */
+  @SuppressWarnings("unchecked")
+  private void claims(final Partition... partitions) {
+    final Iterator<Partition> next = List.of(partitions).iterator();
+    when(jdbcTemplate.query(eq(SearchReindexService.NEXT), any(RowMapper.class)))
+        .thenAnswer(invocation -> next.hasNext() ? List.of(next.next()) : List.of());
+  }
+
+  @Test
+  void freshRebuildSplitsIdsIntoRangesAndSwapsAlias() {
+    final Partition one = new Partition(1, ALIAS + "-1", 1, 10000, 0, false);
+    final Partition two = new Partition(2, ALIAS + "-1", 10001, 12000, 10000, false);
+    partitions(List.of(), List.of(one, two));
+    claims(one, two);
+    when(entryRepository.findIdRangeBySecurity(PUBLIC)).thenReturn(new EntryIdRange(1, 12000));
+    when(entryRepository.findBySecurityAndIdRange(PUBLIC, 0, 10000, PAGE))
+        .thenReturn(entries(1, 3));
+    when(entryRepository.findBySecurityAndIdRange(PUBLIC, 10000, 12000, PAGE))
+        .thenReturn(entries(11000, 11000));
+    when(indexOperations.exists()).thenReturn(true);
+    when(indexOperations.getAliasesForIndex(ALIAS)).thenReturn(Map.of("blogentry-0", Set.of()));
+
+    searchReindexService.reindex();
+
+    verify(jdbcTemplate)
+        .update(eq(SearchReindexService.INSERT), anyString(), eq(1L), eq(10000L), eq(0L));
+    verify(jdbcTemplate)
+        .update(eq(SearchReindexService.INSERT), anyString(), eq(10001L), eq(12000L), eq(10000L));
+    verify(indexOperations).create(any(), any());
+    verify(jdbcTemplate).update(SearchReindexService.CHECKPOINT, 3, true, LEASE, 1, OWNER);
+    verify(jdbcTemplate).update(SearchReindexService.CHECKPOINT, 11000, true, LEASE, 2, OWNER);
+
+    final ArgumentCaptor<AliasActions> actions = ArgumentCaptor.forClass(AliasActions.class);
+    verify(indexOperations).alias(actions.capture());
+    assertEquals(2, actions.getValue().getActions().size());
+    assertInstanceOf(AliasAction.Add.class, actions.getValue().getActions().get(0));
+    assertInstanceOf(AliasAction.RemoveIndex.class, actions.getValue().getActions().get(1));
+    verify(searchResultCache).indexChanged();
+    verify(jdbcTemplate).update(SearchReindexService.CLEAR);
+    verify(jdbcTemplate).update(SearchReindexService.RELEASE_LEASE, OWNER);
+
+    final ArgumentCaptor<SearchWatermark> watermark =
+        ArgumentCaptor.forClass(SearchWatermark.class);
+    verify(elasticsearchOperations).save(watermark.capture());
+    assertTrue(watermark.getValue().getIndex().startsWith(ALIAS + "-"));
+    assertEquals(12000, watermark.getValue().getMaxEntryId());
+    assertEquals(BlogSearchService.MAPPING_VERSION, watermark.getValue().getMappingVersion());
+  }
+
+  private SearchWatermark watermark(final int mappingVersion) {
+    final SearchWatermark watermark = new SearchWatermark();
+    watermark.setMappingVersion(mappingVersion);
+    watermark.setIndex(ALIAS + "-1");
+    watermark.setMaxEntryId(11000);
+    watermark.setModified(new Date(NOW - 60_000));
+    return watermark;
+  }
+
+  @Test
+  void catchUpIndexesOnlyTheGap() {
+    partitions(List.of(), List.of());
+    when(indexOperations.exists()).thenReturn(true);
+    when(elasticsearchOperations.get(SearchWatermark.ID, SearchWatermark.class))
+        .thenReturn(watermark(BlogSearchService.MAPPING_VERSION));
+    when(indexOperations.getAliasesForIndex(ALIAS)).thenReturn(Map.of(ALIAS + "-1", Set.of()));
+    when(entryRepository.findIdsChangedSince(0, 11000, new Date(NOW - 60_000), PAGE))
+        .thenReturn(IntStream.rangeClosed(1, SearchReindexService.BATCH_SIZE).boxed().toList());
+    when(entryRepository.findIdsChangedSince(
+            SearchReindexService.BATCH_SIZE, 11000, new Date(NOW - 60_000), PAGE))
+        .thenReturn(List.of(SearchReindexService.BATCH_SIZE + 1));
+
+    searchReindexService.catchUp(false);
+
+    verify(blogSearchService, times(2)).indexEntries(any());
+    verify(indexOperations, never()).create(any(), any());
+    verify(indexOperations, never()).alias(any());
+
+    final ArgumentCaptor<SearchWatermark> watermark =
+        ArgumentCaptor.forClass(SearchWatermark.class);
+    verify(elasticsearchOperations).save(watermark.capture());
+    assertEquals(ALIAS + "-1", watermark.getValue().getIndex());
+    assertEquals(12000, watermark.getValue().getMaxEntryId());
+    assertEquals(new Date(NOW), watermark.getValue().getModified());
+    verify(jdbcTemplate).update(SearchReindexService.RELEASE_LEASE, OWNER);
+  }
+
+  @Test
+  void catchUpRebuildsWhenMappingVersionChanged() {
+    partitions(List.of(), List.of());
+    when(indexOperations.exists()).thenReturn(true);
+    when(elasticsearchOperations.get(SearchWatermark.ID, SearchWatermark.class))
+        .thenReturn(watermark(BlogSearchService.MAPPING_VERSION - 1));
+    when(entryRepository.findIdRangeBySecurity(PUBLIC)).thenReturn(new EntryIdRange(null, null));
+    when(indexOperations.getAliasesForIndex(ALIAS)).thenReturn(Map.of(ALIAS + "-1", Set.of()));
+
+    searchReindexService.catchUp(false);
+
+    verify(indexOperations).create(any(), any());
+    verify(indexOperations).alias(any());
+    verify(entryRepository, never()).findIdsChangedSince(anyInt(), anyInt(), any(), any());
+  }
+
+  @Test
+  void catchUpRebuildsWhenAsked() {
+    partitions(List.of(), List.of());
+    when(entryRepository.findIdRangeBySecurity(PUBLIC)).thenReturn(new EntryIdRange(null, null));
+
+    searchReindexService.catchUp(true);
+
+    verify(elasticsearchOperations, never()).get(anyString(), eq(SearchWatermark.class));
+    verify(indexOperations).create(any(), any());
+  }
+
+  @Test
+  void resumeSkipsCompletedRangesAndStartsAtCheckpoint() {
+    final Partition done = new Partition(1, ALIAS + "-1", 1, 10000, 10000, true);
+    final Partition partial = new Partition(2, ALIAS + "-1", 10001, 20000, 15000, false);
+    partitions(List.of(done, partial), List.of());
+    claims(partial);
+    when(indexOperations.exists()).thenReturn(true);
+    when(indexOperations.getAliasesForIndex(ALIAS)).thenReturn(Map.of("blogentry-0", Set.of()));
+    when(entryRepository.findBySecurityAndIdRange(PUBLIC, 15000, 20000, PAGE))
+        .thenReturn(entries(15001, 15002));
+
+    searchReindexService.reindex();
+
+    verify(indexOperations, never()).create(any(), any());
+    verify(entryRepository, never()).findBySecurityAndIdRange(PUBLIC, 0, 10000, PAGE);
+    verify(jdbcTemplate).update(SearchReindexService.CHECKPOINT, 15002, true, LEASE, 2, OWNER);
+    verify(indexOperations).alias(any());
+  }
+
+  @Test
+  void largeRangeIsSentInBatchesWithCheckpoints() {
+    final Partition partition = new Partition(1, ALIAS + "-1", 1, 10000, 0, false);
+    when(entryRepository.findBySecurityAndIdRange(PUBLIC, 0, 10000, PAGE))
+        .thenReturn(entries(1, SearchReindexService.BATCH_SIZE));
+    when(entryRepository.findBySecurityAndIdRange(
+            PUBLIC, SearchReindexService.BATCH_SIZE, 10000, PAGE))
+        .thenReturn(
+            entries(SearchReindexService.BATCH_SIZE + 1, SearchReindexService.BATCH_SIZE + 1));
+
+    assertTrue(searchReindexService.index(partition));
+
+    verify(elasticsearchOperations, times(2))
+        .save(anyIterable(), any(IndexCoordinates.class));
+    verify(jdbcTemplate)
+        .update(
+            SearchReindexService.CHECKPOINT,
+            SearchReindexService.BATCH_SIZE,
+            false,
+            LEASE,
+            1,
+            OWNER);
+    verify(jdbcTemplate)
+        .update(
+            SearchReindexService.CHECKPOINT,
+            SearchReindexService.BATCH_SIZE + 1,
+            true,
+            LEASE,
+            1,
+            OWNER);
+  }
+
+  @Test
+  void failedRangeKeepsCheckpointAndAlias() {
+    final Partition partition = new Partition(1, ALIAS + "-1", 1, 10000, 0, false);
+    partitions(List.of(partition), List.of());
+    claims(partition);
+    when(jdbcTemplate.queryForObject(SearchReindexService.REMAINING, Integer.class)).thenReturn(1);
+    when(indexOperations.exists()).thenReturn(true);
+    when(entryRepository.findBySecurityAndIdRange(PUBLIC, 0, 10000, PAGE))
+        .thenReturn(entries(1, 2));
+    when(elasticsearchOperations.save(anyIterable(), any(IndexCoordinates.class)))
+        .thenThrow(new IllegalStateException("bulk rejected"));
+
+    searchReindexService.reindex();
+
+    verify(jdbcTemplate, never())
+        .update(eq(SearchReindexService.CHECKPOINT), anyInt(), any(), anyInt(), anyInt(), any());
+    verify(jdbcTemplate).update(SearchReindexService.RELEASE, 1, OWNER);
+    verify(indexOperations, never()).alias(any());
+    verify(jdbcTemplate, never()).update(SearchReindexService.CLEAR);
+    verify(jdbcTemplate).update(SearchReindexService.RELEASE_LEASE, OWNER);
+  }
+
+  @Test
+  void leaseHeldByAnotherNodeLeavesRebuildAlone() {
+    when(jdbcTemplate.update(SearchReindexService.CLAIM_LEASE, OWNER, LEASE)).thenReturn(0);
+
+    searchReindexService.reindex();
+
+    verify(entryRepository, never()).findWatermark();
+    verify(indexOperations, never()).create(any(), any());
+    verify(jdbcTemplate, never()).update(SearchReindexService.RELEASE_LEASE, OWNER);
+  }
+
+  @Test
+  void resumeWithoutUnfinishedRebuildDoesNothing() {
+    partitions(List.of(), List.of());
+
+    searchReindexService.resume();
+
+    verify(indexOperations, never()).create(any(), any());
+    verify(jdbcTemplate).update(SearchReindexService.RELEASE_LEASE, OWNER);
+  }
+
+  @Test
+  void expiredRangeClaimStopsTheRange() {
+    final Partition partition = new Partition(1, ALIAS + "-1", 1, 10000, 0, false);
+    when(entryRepository.findBySecurityAndIdRange(PUBLIC, 0, 10000, PAGE))
+        .thenReturn(entries(1, 2));
+    when(jdbcTemplate.update(SearchReindexService.CHECKPOINT, 2, true, LEASE, 1, OWNER))
+        .thenReturn(0);
+
+    assertFalse(searchReindexService.index(partition));
+
+    verify(jdbcTemplate, never()).update(SearchReindexService.RENEW_LEASE, LEASE, OWNER);
+    verify(jdbcTemplate).update(SearchReindexService.RELEASE, 1, OWNER);
+  }
+
+  @Test
+  void runningWhileAnotherNodeRebuilds() {
+    when(jdbcTemplate.queryForObject(SearchReindexService.RUNNING, Integer.class)).thenReturn(1);
+
+    assertTrue(searchReindexService.isRunning());
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.justjournal.model.search.BlogEntry;
+import com.justjournal.services.SearchResultCache.Scope;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * @author Lucas Holt
+ */
+@ExtendWith(MockitoExtension.class)
+class SearchResultCacheTests {
+  private static final Pageable FIRST = PageRequest.of(0, 10);
+
+  @Mock private JdbcTemplate jdbcTemplate;
+  @Mock private PlatformTransactionManager transactionManager;
+
+  private SimpleMeterRegistry meterRegistry;
+  private SearchResultCache searchResultCache;
+  private final AtomicInteger searches = new AtomicInteger();
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    searchResultCache = new SearchResultCache(jdbcTemplate, transactionManager, meterRegistry, 0);
+    lenient()
+        .when(jdbcTemplate.queryForObject(SearchResultCache.VERSION, Long.class))
+        .thenReturn(0L);
+  }
+
+  private Supplier<Page<BlogEntry>> search() {
+    return () -> {
+      searches.incrementAndGet();
+      return new PageImpl<>(List.of(new BlogEntry()), FIRST, 1);
+    };
+  }
+
+  private double count(final String name) {
+    return meterRegistry.counter(name).count();
+  }
+
+  @Test
+  void repeatedSearchIsAnsweredFromCache() {
+    final Page<BlogEntry> first = searchResultCache.get(Scope.PUBLIC, "dog", null, FIRST, search());
+    final Page<BlogEntry> second =
+        searchResultCache.get(Scope.PUBLIC, "  DOG ", null, FIRST, search());
+
+    assertSame(first, second);
+    assertEquals(1, searches.get());
+    assertEquals(1, count("search.cache.misses"));
+    assertEquals(1, count("search.cache.hits"));
+  }
+
+  @Test
+  void keyNormalizesTermAndAuthor() {
+    assertEquals(
+        searchResultCache.key(0, Scope.ALL, "rainy   day", "Jack", FIRST),
+        searchResultCache.key(0, Scope.ALL, " Rainy Day ", "jack", FIRST));
+    assertNotEquals(
+        searchResultCache.key(0, Scope.ALL, "rain", "jack", FIRST),
+        searchResultCache.key(0, Scope.PUBLIC, "rain", "jack", FIRST));
+    assertNotEquals(
+        searchResultCache.key(0, Scope.PUBLIC, "rain", null, FIRST),
+        searchResultCache.key(0, Scope.PUBLIC, "rain", null, PageRequest.of(1, 10)));
+  }
+
+  @Test
+  void indexChangeInvalidatesResults() {
+    searchResultCache.get(Scope.PUBLIC, "dog", null, FIRST, search());
+    searchResultCache.indexChanged();
+    searchResultCache.get(Scope.PUBLIC, "dog", null, FIRST, search());
+
+    assertEquals(2, searches.get());
+    assertEquals(0, count("search.cache.hits"));
+    verify(jdbcTemplate).update(SearchResultCache.BUMP);
+  }
+
+  @Test
+  void indexChangeOnAnotherNodeInvalidatesResults() {
+    searchResultCache.get(Scope.PUBLIC, "dog", null, FIRST, search());
+    when(jdbcTemplate.queryForObject(SearchResultCache.VERSION, Long.class)).thenReturn(1L);
+    searchResultCache.get(Scope.PUBLIC, "dog", null, FIRST, search());
+
+    assertEquals(2, searches.get());
+  }
+
+  @Test
+  void unreadableVersionSkipsCache() {
+    when(jdbcTemplate.queryForObject(SearchResultCache.VERSION, Long.class))
+        .thenThrow(new IllegalStateException("database down"));
+
+    searchResultCache.get(Scope.PUBLIC, "dog", null, FIRST, search());
+    searchResultCache.get(Scope.PUBLIC, "dog", null, FIRST, search());
+
+    assertEquals(2, searches.get());
+    assertEquals(0, searchResultCache.size());
+  }
+
+  @Test
+  void failedSearchIsNotCached() {
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            searchResultCache.get(
+                Scope.PUBLIC,
+                "dog",
+                null,
+                FIRST,
+                () -> {
+                  throw new IllegalStateException("index down");
+                }));
+
+    searchResultCache.get(Scope.PUBLIC, "dog", null, FIRST, search());
+    assertEquals(1, searches.get());
+  }
+
+  @Test
+  void concurrentIdenticalSearchesShareOneCall() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Supplier<Page<BlogEntry>> slow =
+        () -> {
+          started.countDown();
+          try {
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+          } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return search().get();
+        };
+
+    final CompletableFuture<Page<BlogEntry>> leader =
+        CompletableFuture.supplyAsync(
+            () -> searchResultCache.get(Scope.PUBLIC, "dog", null, FIRST, slow));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    final CompletableFuture<Page<BlogEntry>> follower =
+        CompletableFuture.supplyAsync(
+            () -> searchResultCache.get(Scope.PUBLIC, "dog", null, FIRST, search()));
+
+    while (count("search.cache.coalesced") < 1) {
+      Thread.sleep(5);
+    }
+    release.countDown();
+
+    assertSame(leader.get(5, TimeUnit.SECONDS), follower.get(5, TimeUnit.SECONDS));
+    assertEquals(1, searches.get());
+    assertEquals(1, count("search.cache.misses"));
+  }
+}
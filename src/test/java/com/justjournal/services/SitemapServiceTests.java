@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.justjournal.core.Settings;
+import com.justjournal.utility.EncodedPayload;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+/**
+ * @author Lucas Holt
+ */
+@ExtendWith(MockitoExtension.class)
+class SitemapServiceTests {
+
+  private static final String BASE = "http://localhost:8080/";
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @Mock private Settings settings;
+
+  private SitemapService sitemapService;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    sitemapService = new SitemapService(jdbcTemplate, settings);
+    lenient().when(settings.getBaseUri()).thenReturn(BASE);
+    lenient()
+        .when(settings.getBlogBaseUrl(anyString()))
+        .thenAnswer(i -> BASE + "users/" + i.getArgument(0));
+    lenient()
+        .when(jdbcTemplate.queryForObject("SELECT MAX(id) FROM user", Integer.class))
+        .thenReturn(SitemapService.USERS_PER_SHARD + 10);
+
+    final ResultSet rs = mock(ResultSet.class);
+    lenient().when(rs.getString(1)).thenReturn("jack");
+    lenient().when(rs.getTimestamp(2)).thenReturn(new Timestamp(0));
+    lenient()
+        .doAnswer(
+            i -> {
+              ((RowCallbackHandler) i.getArgument(1)).processRow(rs);
+              return null;
+            })
+        .when(jdbcTemplate)
+        .query(anyString(), any(RowCallbackHandler.class), any(), any());
+  }
+
+  private static String xml(final EncodedPayload payload) {
+    return new String(payload.identity(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void indexListsShards() {
+    final String index = xml(sitemapService.getIndex());
+
+    assertTrue(index.contains("<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">"));
+    assertTrue(index.contains("<loc>" + BASE + "sitemap-0.xml</loc>"));
+    assertTrue(index.contains("<loc>" + BASE + "sitemap-1.xml</loc>"));
+    assertFalse(index.contains("sitemap-2.xml"));
+  }
+
+  @Test
+  void shardStreamsJournals() {
+    final String shard = xml(sitemapService.getShard(1));
+
+    assertTrue(shard.contains("<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">"));
+    assertTrue(shard.contains("<loc>" + BASE + "users/jack</loc>"));
+    assertTrue(shard.contains("<loc>" + BASE + "users/jack/rss</loc>"));
+    assertTrue(shard.contains("<lastmod>1970-01-01"));
+    assertFalse(shard.contains("#!/privacy"));
+    verify(jdbcTemplate)
+        .query(
+            anyString(),
+            any(RowCallbackHandler.class),
+            eq(SitemapService.USERS_PER_SHARD),
+            eq(2 * SitemapService.USERS_PER_SHARD));
+  }
+
+  @Test
+  void firstShardHasSitePages() {
+    final String shard = xml(sitemapService.getShard(0));
+
+    assertTrue(shard.contains("<loc>" + BASE + "#!/privacy</loc>"));
+    assertTrue(shard.contains("<loc>" + BASE + "users/jack</loc>"));
+  }
+
+  @Test
+  void unknownShard() {
+    assertNull(sitemapService.getShard(2));
+    assertNull(sitemapService.getShard(-1));
+  }
+
+  @Test
+  void shardIsCached() {
+    final EncodedPayload shard = sitemapService.getShard(1);
+
+    assertSame(shard, sitemapService.getShard(1));
+    verify(jdbcTemplate, times(1))
+        .query(anyString(), any(RowCallbackHandler.class), any(), any());
+  }
+
+  @Test
+  void journalChangeEvictsItsShard() {
+    final EncodedPayload first = sitemapService.getShard(0);
+    final EncodedPayload second = sitemapService.getShard(1);
+    final EncodedPayload index = sitemapService.getIndex();
+
+    sitemapService.journalChanged(SitemapService.USERS_PER_SHARD + 1);
+
+    assertSame(first, sitemapService.getShard(0));
+    assertNotSame(second, sitemapService.getShard(1));
+    assertNotSame(index, sitemapService.getIndex());
+  }
+
+  @Test
+  void entryChangeEvictsItsShard() {
+    final EncodedPayload first = sitemapService.getShard(0);
+    final EncodedPayload second = sitemapService.getShard(1);
+
+    sitemapService.journalChanged(new JournalChangedEvent(SitemapService.USERS_PER_SHARD + 1));
+
+    assertSame(first, sitemapService.getShard(0));
+    assertNotSame(second, sitemapService.getShard(1));
+  }
+
+  @Test
+  void emptySite() {
+    when(jdbcTemplate.queryForObject("SELECT MAX(id) FROM user", Integer.class)).thenReturn(null);
+
+    final String index = xml(sitemapService.getIndex());
+    assertEquals(1, index.split("<sitemap>").length - 1);
+  }
+}
@@ -0,0 +1,370 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.justjournal.core.Settings;
+import com.justjournal.services.FeedDocumentService.FeedDocument;
+import com.justjournal.services.FeedDocumentService.FeedType;
+import com.justjournal.utility.EncodedPayload;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Runs the hub against a stub subscriber on a local port.
+ *
+ * @author Lucas Holt
+ */
+@ExtendWith(MockitoExtension.class)
+class WebSubServiceTests {
+  private static final String TOPIC = "https://www.justjournal.com/users/jack/rss";
+
+  @Mock private JdbcTemplate jdbcTemplate;
+  @Mock private JournalVersionService journalVersionService;
+  @Mock private FeedDocumentService feedDocumentService;
+  @Mock private Settings settings;
+
+  private WebSubService webSubService;
+
+  private HttpServer subscriber;
+  private String callback;
+
+  /** Request seen by the stub subscriber. */
+  private record Received(String method, Map<String, String> query, Headers headers, byte[] body) {}
+
+  private final List<Received> received = new CopyOnWriteArrayList<>();
+  private volatile boolean confirm = true;
+  private volatile int status = 204;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    subscriber = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    subscriber.createContext(
+        "/callback",
+        exchange -> {
+          final Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+          final byte[] body = exchange.getRequestBody().readAllBytes();
+          received.add(
+              new Received(exchange.getRequestMethod(), query, exchange.getRequestHeaders(), body));
+
+          if (exchange.getRequestMethod().equals("GET")) {
+            final byte[] reply =
+                (confirm ? query.get("hub.challenge") : "no").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, reply.length);
+            exchange.getResponseBody().write(reply);
+          } else {
+            exchange.sendResponseHeaders(status, -1);
+          }
+          exchange.close();
+        });
+    subscriber.createContext(
+        "/redirect",
+        exchange -> {
+          received.add(
+              new Received(
+                  exchange.getRequestMethod(), Map.of(), exchange.getRequestHeaders(), null));
+          exchange.getResponseHeaders().set("Location", callback);
+          exchange.sendResponseHeaders(302, -1);
+          exchange.close();
+        });
+    subscriber.start();
+    callback = "http://127.0.0.1:" + subscriber.getAddress().getPort() + "/callback?id=7";
+
+    lenient().when(settings.getBaseUri()).thenReturn("https://www.justjournal.com/");
+    lenient()
+        .when(settings.getBlogBaseUrl("jack"))
+        .thenReturn("https://www.justjournal.com/users/jack");
+    lenient()
+        .when(journalVersionService.getVersion("jack"))
+        .thenReturn(new JournalVersionService.Version(1, 3, null));
+
+    webSubService =
+        new WebSubService(
+            jdbcTemplate,
+            journalVersionService,
+            feedDocumentService,
+            settings,
+            new RestTemplate(new WebSubService.NoRedirectRequestFactory()),
+            MoreExecutors.newDirectExecutorService(),
+            address -> true);
+  }
+
+  @AfterEach
+  void tearDown() {
+    subscriber.stop(0);
+  }
+
+  private static Map<String, String> query(final String raw) {
+    final Map<String, String> query = new HashMap<>();
+    if (raw == null) return query;
+    for (final String pair : raw.split("&")) {
+      final int eq = pair.indexOf('=');
+      query.put(
+          URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+          URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+    }
+    return query;
+  }
+
+  private WebSubService.Subscription subscription(final String secret) {
+    return new WebSubService.Subscription(
+        9, new WebSubService.Topic(1, "jack", FeedType.RSS), callback, secret);
+  }
+
+  @Test
+  void subscribeStoredOnceConfirmed() {
+    webSubService.request(WebSubService.Mode.SUBSCRIBE, TOPIC, callback, 7200, "s3cret");
+
+    final Received check = received.get(0);
+    assertEquals("GET", check.method());
+    assertEquals("subscribe", check.query().get("hub.mode"));
+    assertEquals(TOPIC, check.query().get("hub.topic"));
+    assertEquals("7200", check.query().get("hub.lease_seconds"));
+    assertEquals("7", check.query().get("id"));
+    verify(jdbcTemplate)
+        .update(
+            eq(WebSubService.UPSERT),
+            eq(1),
+            eq("rss"),
+            eq(callback),
+            anyString(),
+            eq("s3cret"),
+            any(Timestamp.class),
+            any(Timestamp.class));
+  }
+
+  @Test
+  void leaseIsClamped() {
+    webSubService.request(WebSubService.Mode.SUBSCRIBE, TOPIC, callback, 5, null);
+    assertEquals(
+        Integer.toString(WebSubService.MIN_LEASE_SECONDS),
+        received.get(0).query().get("hub.lease_seconds"));
+  }
+
+  @Test
+  void subscribeIgnoredWhenNotConfirmed() {
+    confirm = false;
+    webSubService.request(WebSubService.Mode.SUBSCRIBE, TOPIC, callback, null, null);
+
+    assertEquals(1, received.size());
+    verifyNoInteractions(jdbcTemplate);
+  }
+
+  @Test
+  void unsubscribeRemovedOnceConfirmed() {
+    webSubService.request(WebSubService.Mode.UNSUBSCRIBE, TOPIC, callback, null, null);
+
+    assertEquals("unsubscribe", received.get(0).query().get("hub.mode"));
+    verify(jdbcTemplate).update(eq(WebSubService.UNSUBSCRIBE), eq(1), eq("rss"), anyString());
+  }
+
+  @Test
+  void invalidRequestsRejected() {
+    final WebSubService.Mode mode = WebSubService.Mode.SUBSCRIBE;
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            webSubService.request(
+                mode, "https://example.com/users/jack/rss", callback, null, null));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> webSubService.request(mode, TOPIC.replace("rss", "pdf"), callback, null, null));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> webSubService.request(mode, TOPIC, "ftp://example.com/callback", null, null));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> webSubService.request(mode, TOPIC, callback, null, "s".repeat(201)));
+    assertTrue(received.isEmpty());
+  }
+
+  @Test
+  void changesBatchedIntoOneSignedUpdate() throws Exception {
+    final byte[] rss = "<rss/>".getBytes(StandardCharsets.ISO_8859_1);
+    when(jdbcTemplate.query(
+            eq(WebSubService.SUBSCRIPTIONS),
+            ArgumentMatchers.<RowMapper<WebSubService.Subscription>>any(),
+            eq(1),
+            any(Timestamp.class)))
+        .thenReturn(List.of(subscription("s3cret")));
+    when(feedDocumentService.getDocument("jack", FeedType.RSS))
+        .thenReturn(new FeedDocument(3, EncodedPayload.of(rss)));
+
+    webSubService.journalChanged(new JournalChangedEvent(1));
+    webSubService.journalChanged(new JournalChangedEvent(1));
+    webSubService.distribute();
+
+    assertEquals(1, received.size());
+    final Received update = received.get(0);
+    assertEquals("POST", update.method());
+    assertEquals("<rss/>", new String(update.body(), StandardCharsets.ISO_8859_1));
+    assertEquals(
+        "sha256=" + Hashing.hmacSha256("s3cret".getBytes(StandardCharsets.UTF_8)).hashBytes(rss),
+        update.headers().getFirst("X-Hub-Signature"));
+    final List<String> links = update.headers().get("Link");
+    assertTrue(links.contains("<https://www.justjournal.com/hub>; rel=\"hub\""));
+    assertTrue(links.contains("<" + TOPIC + ">; rel=\"self\""));
+    assertTrue(update.headers().getFirst("Content-Type").startsWith("application/rss+xml"));
+
+    webSubService.distribute();
+    assertEquals(1, received.size());
+  }
+
+  @Test
+  void failedUpdateRetried() throws Exception {
+    status = 500;
+    when(feedDocumentService.getDocument("jack", FeedType.RSS))
+        .thenReturn(new FeedDocument(3, EncodedPayload.of(new byte[] {'x'})));
+
+    webSubService.deliver(new WebSubService.Delivery(subscription(null), 1, 0));
+    assertEquals(1, webSubService.retrying());
+    assertEquals(null, received.get(0).headers().getFirst("X-Hub-Signature"));
+
+    // not due yet
+    webSubService.distribute();
+    assertEquals(1, received.size());
+    assertEquals(1, webSubService.retrying());
+  }
+
+  @Test
+  void givesUpAfterLastAttempt() throws Exception {
+    status = 503;
+    when(feedDocumentService.getDocument("jack", FeedType.RSS))
+        .thenReturn(new FeedDocument(3, EncodedPayload.of(new byte[] {'x'})));
+
+    webSubService.deliver(
+        new WebSubService.Delivery(subscription(null), WebSubService.MAX_ATTEMPTS, 0));
+    assertEquals(0, webSubService.retrying());
+  }
+
+  @Test
+  void goneSubscriberRemoved() throws Exception {
+    status = 410;
+    when(feedDocumentService.getDocument("jack", FeedType.RSS))
+        .thenReturn(new FeedDocument(3, EncodedPayload.of(new byte[] {'x'})));
+
+    webSubService.deliver(new WebSubService.Delivery(subscription(null), 1, 0));
+    verify(jdbcTemplate).update(WebSubService.DELETE, 9);
+    assertEquals(0, webSubService.retrying());
+  }
+
+  @Test
+  void internalCallbacksRejected() throws Exception {
+    assertFalse(WebSubService.isPublicAddress(InetAddress.getByName("127.0.0.1")));
+    assertFalse(WebSubService.isPublicAddress(InetAddress.getByName("10.1.2.3")));
+    assertFalse(WebSubService.isPublicAddress(InetAddress.getByName("172.16.0.1")));
+    assertFalse(WebSubService.isPublicAddress(InetAddress.getByName("192.168.1.1")));
+    assertFalse(WebSubService.isPublicAddress(InetAddress.getByName("169.254.169.254")));
+    assertFalse(WebSubService.isPublicAddress(InetAddress.getByName("100.64.0.1")));
+    assertFalse(WebSubService.isPublicAddress(InetAddress.getByName("0.0.0.0")));
+    assertFalse(WebSubService.isPublicAddress(InetAddress.getByName("::1")));
+    assertFalse(WebSubService.isPublicAddress(InetAddress.getByName("fd00::1")));
+    assertFalse(WebSubService.isPublicAddress(InetAddress.getByName("fe80::1")));
+    assertTrue(WebSubService.isPublicAddress(InetAddress.getByName("93.184.216.34")));
+    assertTrue(WebSubService.isPublicAddress(InetAddress.getByName("2606:2800:220:1::1")));
+
+    final WebSubService hub =
+        new WebSubService(
+            jdbcTemplate,
+            journalVersionService,
+            feedDocumentService,
+            settings,
+            new RestTemplate(),
+            MoreExecutors.newDirectExecutorService(),
+            WebSubService::isPublicAddress);
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> hub.request(WebSubService.Mode.SUBSCRIBE, TOPIC, callback, null, null));
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            hub.request(
+                WebSubService.Mode.SUBSCRIBE, TOPIC, "http://localhost/callback", null, null));
+
+    hub.deliver(new WebSubService.Delivery(subscription(null), 1, 0));
+    assertTrue(received.isEmpty());
+    verifyNoInteractions(feedDocumentService);
+  }
+
+  @Test
+  void redirectsNotFollowed() throws Exception {
+    callback = callback.replace("/callback", "/redirect");
+    webSubService.request(WebSubService.Mode.SUBSCRIBE, TOPIC, callback, null, null);
+    assertEquals(1, received.size());
+    verifyNoInteractions(jdbcTemplate);
+
+    when(feedDocumentService.getDocument("jack", FeedType.RSS))
+        .thenReturn(new FeedDocument(3, EncodedPayload.of(new byte[] {'x'})));
+    webSubService.deliver(new WebSubService.Delivery(subscription(null), 1, 0));
+    assertEquals(2, received.size());
+    assertEquals(1, webSubService.retrying());
+  }
+
+  @Test
+  void verificationsRateLimitedPerHost() {
+    confirm = false;
+    for (int i = 0; i < WebSubService.MAX_VERIFICATIONS_PER_HOST; i++) {
+      webSubService.request(WebSubService.Mode.SUBSCRIBE, TOPIC, callback, null, null);
+    }
+    assertThrows(
+        WebSubService.RateLimitedException.class,
+        () -> webSubService.request(WebSubService.Mode.SUBSCRIBE, TOPIC, callback, null, null));
+    assertEquals(WebSubService.MAX_VERIFICATIONS_PER_HOST, received.size());
+  }
+}
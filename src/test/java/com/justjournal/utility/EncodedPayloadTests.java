@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.utility;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * @author Lucas Holt
+ */
+class EncodedPayloadTests {
+
+  private static final String FEED = "<rss><channel><title>test</title></channel></rss>\n".repeat(20);
+
+  @Test
+  void gzipRoundTrip() throws Exception {
+    final EncodedPayload payload = EncodedPayload.of(FEED, StandardCharsets.UTF_8);
+
+    assertArrayEquals(FEED.getBytes(StandardCharsets.UTF_8), payload.identity());
+    assertTrue(payload.gzip().length < payload.identity().length);
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(payload.gzip()))) {
+      assertArrayEquals(payload.identity(), in.readAllBytes());
+    }
+    assertEquals(payload.identity().length + payload.gzip().length, payload.weight());
+  }
+
+  @Test
+  void smallBodyNotCompressed() {
+    final EncodedPayload payload = EncodedPayload.of("<rss/>", StandardCharsets.UTF_8);
+
+    assertNull(payload.gzip());
+  }
+
+  @Test
+  void charset() {
+    final EncodedPayload payload = EncodedPayload.of("café", StandardCharsets.ISO_8859_1);
+
+    assertEquals(4, payload.identity().length);
+  }
+
+  @Test
+  void etagFollowsContent() {
+    final EncodedPayload first = EncodedPayload.of(FEED, StandardCharsets.UTF_8);
+
+    assertEquals(first.etag(), EncodedPayload.of(FEED, StandardCharsets.UTF_8).etag());
+    assertNotEquals(first.etag(), EncodedPayload.of(FEED + " ", StandardCharsets.UTF_8).etag());
+    assertTrue(first.etag().startsWith("W/\"") && first.etag().endsWith("\""));
+  }
+
+  @Test
+  void acceptsGzip() {
+    assertTrue(EncodedPayload.acceptsGzip("gzip"));
+    assertTrue(EncodedPayload.acceptsGzip("deflate, gzip;q=1.0, br"));
+    assertTrue(EncodedPayload.acceptsGzip("*"));
+    assertTrue(EncodedPayload.acceptsGzip("x-gzip"));
+    assertFalse(EncodedPayload.acceptsGzip(null));
+    assertFalse(EncodedPayload.acceptsGzip(""));
+    assertFalse(EncodedPayload.acceptsGzip("identity"));
+    assertFalse(EncodedPayload.acceptsGzip("br, gzip;q=0"));
+  }
+
+  @Test
+  void explicitGzipWinsOverWildcard() {
+    assertFalse(EncodedPayload.acceptsGzip("gzip;q=0, *"));
+    assertFalse(EncodedPayload.acceptsGzip("*, gzip;q=0"));
+    assertTrue(EncodedPayload.acceptsGzip("gzip, *;q=0"));
+    assertFalse(EncodedPayload.acceptsGzip("br, *;q=0"));
+  }
+
+  @Test
+  void responseNegotiation() {
+    final EncodedPayload payload = EncodedPayload.of(FEED, StandardCharsets.UTF_8);
+
+    final ResponseEntity<byte[]> gzip = payload.toResponse(ResponseEntity.ok(), "gzip, deflate");
+    assertEquals("gzip", gzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertEquals(HttpHeaders.ACCEPT_ENCODING, gzip.getHeaders().getFirst(HttpHeaders.VARY));
+    assertArrayEquals(payload.gzip(), gzip.getBody());
+    assertEquals(payload.gzip().length, gzip.getHeaders().getContentLength());
+
+    final ResponseEntity<byte[]> identity = payload.toResponse(ResponseEntity.ok(), null);
+    assertNull(identity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertArrayEquals(payload.identity(), identity.getBody());
+  }
+}
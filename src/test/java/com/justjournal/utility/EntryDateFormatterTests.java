@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2003-2021 Lucas Holt
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.justjournal.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class EntryDateFormatterTests {
+
+    private static final Date DATE = new GregorianCalendar(2014, Calendar.FEBRUARY, 3, 17, 5).getTime();
+
+    @Test
+    void testFormatDay() {
+        assertEquals("Mon, 3 Feb 2014", EntryDateFormatter.formatDay(DATE));
+    }
+
+    @Test
+    void testFormatDayCached() {
+        final Date later = new GregorianCalendar(2014, Calendar.FEBRUARY, 3, 23, 59).getTime();
+        assertSame(EntryDateFormatter.formatDay(DATE), EntryDateFormatter.formatDay(later));
+    }
+
+    @Test
+    void testFormatTime() {
+        assertEquals("5:05 PM", EntryDateFormatter.formatTime(DATE));
+    }
+
+    @Test
+    void testFormatDayOfMonth() {
+        assertEquals("03", EntryDateFormatter.formatDayOfMonth(DATE));
+    }
+
+    @Test
+    void testMatchesSimpleDateFormat() {
+        final Timestamp timestamp = new Timestamp(DATE.getTime());
+        assertEquals(new SimpleDateFormat(EntryDateFormatter.DAY_PATTERN).format(timestamp), EntryDateFormatter.formatDay(timestamp));
+        assertEquals(new SimpleDateFormat(EntryDateFormatter.TIME_PATTERN).format(timestamp), EntryDateFormatter.formatTime(timestamp));
+    }
+}